@@ -0,0 +1,41 @@
+package com.example.forum.cli.commands;
+
+import com.example.forum.cli.services.AdminService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.shell.command.annotation.Option;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+
+/**
+ * Shell commands for server maintenance. They require a user with the ADMIN role.
+ */
+@ShellComponent("admin")
+@RequiredArgsConstructor
+public class AdminCommands {
+    private final AdminService adminService;
+    private final ObjectMapper objectMapper;
+
+    @ShellMethod(value = "Move stored files into hash-prefixed subdirectories while the server keeps running", key = "storage-migrate")
+    public String migrateStorageLayout() {
+        try {
+            Object response = adminService.migrateStorageLayout();
+            return "Content storage migrated:\n" +
+                    objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(response);
+        } catch (Exception e) {
+            return "Failed to migrate content storage: " + e.getMessage();
+        }
+    }
+
+    @ShellMethod(value = "Delete stored files that no content points at", key = "storage-sweep")
+    public String sweepStorage(
+            @Option(longNames = "dry-run", shortNames = 'n', description = "Only report what would be deleted", defaultValue = "false") boolean dryRun) {
+        try {
+            Object response = adminService.sweepStorage(dryRun);
+            return (dryRun ? "Orphaned files found:\n" : "Orphaned files deleted:\n") +
+                    objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(response);
+        } catch (Exception e) {
+            return "Failed to sweep content storage: " + e.getMessage();
+        }
+    }
+}
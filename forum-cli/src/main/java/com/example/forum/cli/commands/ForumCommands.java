@@ -7,6 +7,9 @@ import org.springframework.shell.command.annotation.Option;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * Shell commands for forum operations.
  */
@@ -39,6 +42,23 @@ public class ForumCommands {
         }
     }
     
+    @ShellMethod(value = "Show the whole forum hierarchy", key = "forum-tree")
+    public String forumTree() {
+        try {
+            List<Map<String, Object>> roots = forumService.getForumTree();
+            if (roots == null || roots.isEmpty()) {
+                return "No forums found.";
+            }
+            StringBuilder sb = new StringBuilder();
+            for (Map<String, Object> root : roots) {
+                appendTreeNode(sb, root, 0);
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            return "Failed to get forum tree: " + e.getMessage();
+        }
+    }
+    
     @ShellMethod(value = "Get forum details by ID", key = "forum-get")
     public String getForum(
             @Option(longNames = "id", shortNames = 'i', description = "Forum ID", required = true) Long id) {
@@ -148,5 +168,19 @@ public class ForumCommands {
             return "Failed to revoke access: " + e.getMessage();
         }
     }
+    
+    @SuppressWarnings("unchecked")
+    private void appendTreeNode(StringBuilder sb, Map<String, Object> node, int depth) {
+        sb.append("  ".repeat(depth))
+                .append("[").append(node.get("id")).append("] ")
+                .append(node.get("name"))
+                .append(" (").append(node.get("postCount")).append(" posts)")
+                .append("\n");
+        Object children = node.get("subForums");
+        if (children instanceof List) {
+            for (Map<String, Object> child : (List<Map<String, Object>>) children) {
+                appendTreeNode(sb, child, depth + 1);
+            }
+        }
+    }
 }
-
@@ -0,0 +1,44 @@
+package com.example.forum.cli.commands;
+
+import com.example.forum.cli.services.ImportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.shell.command.annotation.Option;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+
+import java.io.File;
+
+/**
+ * Shell commands for bulk imports of NDJSON exports.
+ */
+@ShellComponent("import")
+@RequiredArgsConstructor
+public class ImportCommands {
+    private final ImportService importService;
+    private final ObjectMapper objectMapper;
+
+    @ShellMethod(value = "Import users, forums, posts and comments from an NDJSON file; run it again to resume a failed import", key = "import")
+    public String importFile(
+            @Option(longNames = "file", shortNames = 'f', description = "NDJSON file with one record per line", required = true) String path,
+            @Option(longNames = "job", shortNames = 'j', description = "Job ID to resume, defaults to one derived from the file name") String jobId) {
+        File file = new File(path);
+        if (!file.isFile()) {
+            return "File not found: " + path;
+        }
+        String job = jobId != null ? jobId : defaultJobId(file);
+        try {
+            Object response = importService.importFile(file, job);
+            return "Import completed:\n" +
+                    objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(response);
+        } catch (Exception e) {
+            return "Import " + job + " failed: " + e.getMessage() + "\nRun the same command again to resume it.";
+        }
+    }
+
+    // The same file always maps to the same job, so running the command again resumes it
+    private static String defaultJobId(File file) {
+        String name = file.getName().replaceFirst("\\.[^.]*$", "").replaceAll("[^A-Za-z0-9_-]", "-");
+        return name.length() > 64 ? name.substring(0, 64) : name;
+    }
+}
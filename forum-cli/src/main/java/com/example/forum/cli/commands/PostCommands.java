@@ -79,6 +79,30 @@ public class PostCommands {
         }
     }
     
+    @ShellMethod(value = "Upvote a post", key = "post-upvote")
+    public String upvotePost(
+            @Option(longNames = "id", shortNames = 'i', description = "Post ID", required = true) String id) {
+        try {
+            Object response = postService.votePost(id, "upvotePost");
+            return "Post upvoted successfully:\n" +
+                    objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(response);
+        } catch (Exception e) {
+            return "Failed to upvote post: " + e.getMessage();
+        }
+    }
+    
+    @ShellMethod(value = "Downvote a post", key = "post-downvote")
+    public String downvotePost(
+            @Option(longNames = "id", shortNames = 'i', description = "Post ID", required = true) String id) {
+        try {
+            Object response = postService.votePost(id, "downvotePost");
+            return "Post downvoted successfully:\n" +
+                    objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(response);
+        } catch (Exception e) {
+            return "Failed to downvote post: " + e.getMessage();
+        }
+    }
+    
     @ShellMethod(value = "List posts by a specific user", key = "user-list")
     public String getUserPosts(
             @Option(longNames = "user-id", shortNames = 'u', description = "User ID", required = true) String userId,
@@ -0,0 +1,42 @@
+package com.example.forum.cli.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AdminService {
+
+    private final WebClient webClient;
+
+    public Object migrateStorageLayout() {
+        return webClient.post()
+                .uri("/api/admin/content-storage/migrate-layout")
+                .retrieve()
+                .bodyToMono(Object.class)
+                .onErrorResume(e -> {
+                    log.error("Error migrating content storage: {}", e.getMessage());
+                    return Mono.error(new RuntimeException("Failed to migrate content storage: " + e.getMessage()));
+                })
+                .block();
+    }
+
+    public Object sweepStorage(boolean dryRun) {
+        return webClient.post()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/api/admin/content-storage/sweep")
+                        .queryParam("dryRun", dryRun)
+                        .build())
+                .retrieve()
+                .bodyToMono(Object.class)
+                .onErrorResume(e -> {
+                    log.error("Error sweeping content storage: {}", e.getMessage());
+                    return Mono.error(new RuntimeException("Failed to sweep content storage: " + e.getMessage()));
+                })
+                .block();
+    }
+}
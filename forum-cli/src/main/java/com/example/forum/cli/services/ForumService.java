@@ -2,11 +2,13 @@ package com.example.forum.cli.services;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -45,6 +47,18 @@ public class ForumService {
                 .block();
     }
 
+    public List<Map<String, Object>> getForumTree() {
+        return webClient.get()
+                .uri("/api/forums/tree")
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<List<Map<String, Object>>>() {})
+                .onErrorResume(e -> {
+                    log.error("Error getting forum tree: {}", e.getMessage());
+                    return Mono.error(new RuntimeException("Failed to get forum tree: " + e.getMessage()));
+                })
+                .block();
+    }
+
     public Object getForumById(Long id) {
         return webClient.get()
                 .uri("/api/forums/{id}", id)
@@ -0,0 +1,43 @@
+package com.example.forum.cli.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.io.File;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImportService {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final WebClient webClient;
+
+    public Object importFile(File file, String jobId) {
+        // The file is streamed, so it is never held in memory as a whole
+        return webClient.post()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/api/import")
+                        .queryParam("jobId", jobId)
+                        .build())
+                .contentType(NDJSON)
+                .body(BodyInserters.fromResource(new FileSystemResource(file)))
+                .retrieve()
+                .bodyToMono(Object.class)
+                .onErrorResume(e -> {
+                    String message = e instanceof WebClientResponseException responseException
+                            ? responseException.getResponseBodyAsString() : e.getMessage();
+                    log.error("Error importing {}: {}", file, message);
+                    return Mono.error(new RuntimeException(message));
+                })
+                .block();
+    }
+}
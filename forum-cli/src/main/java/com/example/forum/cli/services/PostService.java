@@ -198,6 +198,28 @@ public class PostService {
                 .block();
     }
 
+    public Object votePost(String id, String mutationName) {
+        String mutation = """
+            mutation VotePost($id: Long!) {
+              %s(id: $id) {
+                id
+                title
+                score
+              }
+            }
+        """.formatted(mutationName);
+
+        return graphQlClient.document(mutation)
+                .variables(Map.of("id", id))
+                .retrieve(mutationName)
+                .toEntity(Object.class)
+                .onErrorResume(e -> {
+                    log.error("Error voting on post: {}", e.getMessage());
+                    return Mono.error(new RuntimeException("Failed to vote on post: " + e.getMessage()));
+                })
+                .block();
+    }
+
     public Object getPostsByUser(String userId, int page, int size) {
         String query = """
             query GetUserPosts($userId: ID!, $page: Int!, $size: Int!) {
@@ -0,0 +1,179 @@
+package com.example.forum.cache;
+
+import com.example.forum.model.AccessLevel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of resolved (inherited) forum permissions, keyed by (userId, forumId).
+ * <p>
+ * Each entry remembers the forum path (the forum and all of its ancestors) that was used to
+ * resolve it, so grants, revocations and moves only evict the entries whose resolution could
+ * actually have changed. Generation counters prevent a resolution that raced with an
+ * invalidation from being written back into the cache: a global one for changes that affect
+ * every user, and one per user for changes of that user's own access, so that granting one user
+ * access does not look like a change to everyone else.
+ */
+@Component
+@Slf4j
+public class ForumPermissionCache {
+
+    /**
+     * A cached resolution. A {@code null} level means the user has no access at all.
+     */
+    public record Entry(AccessLevel level, Set<Long> path) {
+    }
+
+    /**
+     * Snapshot of the cache counters.
+     */
+    public record Stats(long hits, long misses, long invalidations, long size) {
+    }
+
+    private final Map<Long, Map<Long, Entry>> entriesByUser = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<Long, AtomicLong> userGenerations = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Value("${app.permissions.cache.max-users:10000}")
+    private int maxUsers = 10000;
+
+    /**
+     * Look up the cached resolution for a user and forum.
+     *
+     * @param userId  the user ID
+     * @param forumId the forum ID
+     * @return the cached entry, or null on a cache miss
+     */
+    public Entry get(Long userId, Long forumId) {
+        Map<Long, Entry> userEntries = entriesByUser.get(userId);
+        Entry entry = userEntries != null ? userEntries.get(forumId) : null;
+        if (entry != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Current invalidation generation of a user's permissions. Read it before resolving a
+     * permission and pass it to {@link #put} so stale resolutions are discarded. It moves on
+     * whenever the access of that user, or of every user, may have changed.
+     *
+     * @param userId the user ID
+     * @return the current generation
+     */
+    public long generation(Long userId) {
+        // Both counters only grow, so their sum changes whenever either of them does
+        AtomicLong userGeneration = userGenerations.get(userId);
+        return generation.get() + (userGeneration != null ? userGeneration.get() : 0);
+    }
+
+    /**
+     * Store a resolved permission.
+     *
+     * @param userId     the user ID
+     * @param forumId    the forum ID
+     * @param level      the effective access level, or null for no access
+     * @param path       the forum and its ancestors used for the resolution
+     * @param generation the generation read before resolving
+     */
+    public void put(Long userId, Long forumId, AccessLevel level, Collection<Long> path, long generation) {
+        if (userId == null || forumId == null) {
+            return;
+        }
+        if (entriesByUser.size() >= maxUsers && !entriesByUser.containsKey(userId)) {
+            evictOneUser();
+        }
+        entriesByUser.computeIfAbsent(userId, id -> new ConcurrentHashMap<>())
+                .put(forumId, new Entry(level, Set.copyOf(path)));
+        // Drop the entry again if an invalidation happened while we were resolving
+        if (generation(userId) != generation) {
+            Map<Long, Entry> userEntries = entriesByUser.get(userId);
+            if (userEntries != null) {
+                userEntries.remove(forumId);
+            }
+        }
+    }
+
+    /**
+     * Evict a user's entries for a forum and every forum below it. Used when the user's direct
+     * access to that forum changes. The eviction is repeated after the surrounding transaction
+     * commits so concurrent readers cannot re-cache the old state.
+     *
+     * @param userId  the user whose access changed
+     * @param forumId the forum whose access entry changed
+     */
+    public void invalidateUserAccess(Long userId, Long forumId) {
+        AtomicLong userGeneration = userGenerations.computeIfAbsent(userId, id -> new AtomicLong());
+        runNowAndAfterCommit(userGeneration, () -> {
+            Map<Long, Entry> userEntries = entriesByUser.get(userId);
+            if (userEntries != null) {
+                userEntries.values().removeIf(entry -> entry.path().contains(forumId));
+            }
+        });
+    }
+
+    /**
+     * Evict every user's entries for a forum and every forum below it. Used when the forum is
+     * moved or deleted.
+     *
+     * @param forumId the forum whose position in the hierarchy changed
+     */
+    public void invalidateForum(Long forumId) {
+        runNowAndAfterCommit(generation, () -> entriesByUser.values()
+                .forEach(userEntries -> userEntries.values().removeIf(entry -> entry.path().contains(forumId))));
+    }
+
+    /**
+     * Evict everything.
+     */
+    public void invalidateAll() {
+        runNowAndAfterCommit(generation, entriesByUser::clear);
+    }
+
+    /**
+     * @return a snapshot of the hit/miss counters
+     */
+    public Stats getStats() {
+        long size = entriesByUser.values().stream().mapToLong(Map::size).sum();
+        return new Stats(hits.get(), misses.get(), invalidations.get(), size);
+    }
+
+    private void runNowAndAfterCommit(AtomicLong generation, Runnable eviction) {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    generation.incrementAndGet();
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    private void evictOneUser() {
+        Iterator<Long> it = entriesByUser.keySet().iterator();
+        if (it.hasNext()) {
+            Long userId = it.next();
+            it.remove();
+            log.debug("Permission cache full, evicted entries of user {}", userId);
+        }
+    }
+}
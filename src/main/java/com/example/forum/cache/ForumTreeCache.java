@@ -0,0 +1,69 @@
+package com.example.forum.cache;
+
+import com.example.forum.dto.forum.ForumTreeNode;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Versioned cache of the whole forum tree.
+ * <p>
+ * Every forum or post mutation bumps the version. A tree is only served while it was built for
+ * the current version, and a tree built while an invalidation raced with it is never stored.
+ */
+@Component
+public class ForumTreeCache {
+
+    private record Snapshot(long version, List<ForumTreeNode> roots) {
+    }
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    /**
+     * Get the cached tree, building it if the cached one is stale.
+     *
+     * @param builder builds the tree from the database
+     * @return the root nodes of the tree
+     */
+    public List<ForumTreeNode> get(Supplier<List<ForumTreeNode>> builder) {
+        long current = version.get();
+        Snapshot cached = snapshot;
+        if (cached != null && cached.version() == current) {
+            return cached.roots();
+        }
+
+        List<ForumTreeNode> roots = builder.get();
+        if (version.get() == current) {
+            snapshot = new Snapshot(current, roots);
+        }
+        return roots;
+    }
+
+    /**
+     * @return the current version of the tree
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Mark the cached tree as stale. The version is bumped again after the surrounding
+     * transaction completes so a tree built from uncommitted data is not kept.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+}
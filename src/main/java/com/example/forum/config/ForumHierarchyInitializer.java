@@ -0,0 +1,23 @@
+package com.example.forum.config;
+
+import com.example.forum.service.ForumService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Makes sure every forum is present in the forum closure table on startup, so databases
+ * created before the closure table existed are indexed automatically.
+ */
+@Component
+@RequiredArgsConstructor
+public class ForumHierarchyInitializer implements ApplicationRunner {
+
+    private final ForumService forumService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        forumService.rebuildForumHierarchyIfIncomplete();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.forum.config;
+
+import com.example.forum.job.CounterReconciliationJob;
+import com.example.forum.ranking.PostRanking;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the in-memory post rankings from the posts table on startup.
+ * <p>
+ * The counters are reconciled first, so that scores left behind by a crash before the vote
+ * counters were flushed are repaired before they are ranked, rather than at the first run of
+ * the {@link CounterReconciliationJob} an interval later.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PostRankingInitializer implements ApplicationRunner {
+
+    private final PostRanking postRanking;
+    private final CounterReconciliationJob counterReconciliationJob;
+
+    @Value("${app.counters.reconcile-on-startup:true}")
+    private boolean reconcileOnStartup = true;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (reconcileOnStartup) {
+            try {
+                counterReconciliationJob.reconcile();
+            } catch (RuntimeException e) {
+                // The scheduled run tries again, the application is usable with drifted counters
+                log.warn("Failed to reconcile counters on startup", e);
+            }
+        }
+        postRanking.reload();
+    }
+}
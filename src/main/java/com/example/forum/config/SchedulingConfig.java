@@ -0,0 +1,12 @@
+package com.example.forum.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables scheduled background jobs.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,23 @@
+package com.example.forum.config;
+
+import com.example.forum.search.SearchIndexer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds the full-text search index on startup when it does not match the database, e.g. on
+ * first start or after the index directory was removed.
+ */
+@Component
+@RequiredArgsConstructor
+public class SearchIndexInitializer implements ApplicationRunner {
+
+    private final SearchIndexer searchIndexer;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        searchIndexer.rebuildIfInconsistent();
+    }
+}
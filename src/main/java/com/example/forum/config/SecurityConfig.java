@@ -1,8 +1,11 @@
 package com.example.forum.config;
 
+import com.example.forum.repository.UserRepository;
+import com.example.forum.security.ActiveUserCache;
 import com.example.forum.security.JwtAuthenticationFilter;
 import com.example.forum.security.JwtTokenProvider;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -30,6 +33,11 @@ public class SecurityConfig {
 
     private final UserDetailsService userDetailsService;
     private final JwtTokenProvider jwtTokenProvider;
+    private final ActiveUserCache activeUserCache;
+    private final UserRepository userRepository;
+
+    @Value("${app.jwt.stateless:true}")
+    private boolean statelessJwt;
 
     /**
      * Creates a password encoder bean for encoding and verifying passwords.
@@ -68,13 +76,14 @@ public class SecurityConfig {
     }
 
     /**
-     * Creates a JWT authentication filter bean.
+     * Creates a JWT authentication filter bean. With {@code app.jwt.stateless} the filter trusts
+     * the user ID and role in the token and only checks the cached active status.
      *
      * @return JwtAuthenticationFilter instance
      */
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtTokenProvider, userDetailsService);
+        return new JwtAuthenticationFilter(jwtTokenProvider, activeUserCache, userRepository, statelessJwt);
     }
 
     /**
@@ -114,6 +123,9 @@ public class SecurityConfig {
 
                 // GraphQL endpoints
                 .requestMatchers("/graphql/**", "/graphiql/**").permitAll()
+
+                // WebSocket handshakes, which check the token themselves
+                .requestMatchers("/ws/**").permitAll()
                 
                 // Require authentication for all other requests
                 .anyRequest().authenticated()
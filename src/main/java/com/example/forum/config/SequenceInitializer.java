@@ -0,0 +1,58 @@
+package com.example.forum.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the ID sequences of entities past the IDs already in their tables on startup.
+ * <p>
+ * Databases created while the entities still used identity columns get their sequences from
+ * the schema update, starting at 1, so the first inserts would reuse existing IDs. This runs
+ * once all beans are created and before the web server starts accepting requests.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SequenceInitializer implements SmartInitializingSingleton {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        Dialect dialect = sessionFactory.getJdbcServices().getDialect();
+        sessionFactory.getMappingMetamodel().forEachEntityDescriptor(persister -> {
+            if (persister instanceof AbstractEntityPersister entityPersister
+                    && persister.getGenerator() instanceof SequenceStyleGenerator generator
+                    && generator.getDatabaseStructure().isPhysicalSequence()) {
+                advance(dialect, entityPersister.getIdentifierTableName(), entityPersister.getIdentifierColumnNames()[0],
+                        generator.getDatabaseStructure().getPhysicalName().render(),
+                        generator.getDatabaseStructure().getIncrementSize());
+            }
+        });
+    }
+
+    private void advance(Dialect dialect, String table, String idColumn, String sequence, int incrementSize) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(" + idColumn + ") FROM " + table, Long.class);
+        if (maxId == null) {
+            return;
+        }
+        Long next = jdbcTemplate.queryForObject(
+                dialect.getSequenceSupport().getSequenceNextValString(sequence), Long.class);
+        // Hibernate hands out the block of IDs ending at the value it reads from the sequence
+        if (next != null && next - incrementSize < maxId) {
+            long restart = maxId + incrementSize;
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + restart);
+            log.info("Moved sequence {} past the existing IDs of {} to {}", sequence, table, restart);
+        }
+    }
+}
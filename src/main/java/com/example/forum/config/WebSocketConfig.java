@@ -0,0 +1,78 @@
+package com.example.forum.config;
+
+import com.example.forum.events.ForumEventBus;
+import com.example.forum.events.ForumEventSocket;
+import com.example.forum.graphql.GraphQlWebSocket;
+import com.example.forum.security.HandshakeAuthenticator;
+import com.example.forum.security.JwtAuthenticationFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletContext;
+import jakarta.websocket.DeploymentException;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.server.ServerContainer;
+import jakarta.websocket.server.ServerEndpointConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.graphql.ExecutionGraphQlService;
+import org.springframework.web.context.ServletContextAware;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Registers the WebSocket endpoints with the servlet container's Jakarta WebSocket support,
+ * once all beans exist:
+ * <ul>
+ *   <li>{@code /ws/events}: the events of a forum or post, see {@link ForumEventSocket}</li>
+ *   <li>{@code /ws/graphql}: GraphQL subscriptions, see {@link GraphQlWebSocket}</li>
+ * </ul>
+ */
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class WebSocketConfig implements ServletContextAware, SmartInitializingSingleton {
+
+    private final ForumEventBus forumEventBus;
+    private final ExecutionGraphQlService graphQlService;
+    private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final ObjectMapper objectMapper;
+
+    private ServletContext servletContext;
+
+    @Override
+    public void setServletContext(ServletContext servletContext) {
+        this.servletContext = servletContext;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        ServerContainer container = servletContext == null ? null
+                : (ServerContainer) servletContext.getAttribute(ServerContainer.class.getName());
+        if (container == null) {
+            // E.g. in tests running on a mock servlet environment
+            log.info("No WebSocket support in the servlet container, WebSocket endpoints are not available");
+            return;
+        }
+
+        register(container, ForumEventSocket.class, "/ws/events", List.of(),
+                () -> new ForumEventSocket(forumEventBus, objectMapper));
+        register(container, GraphQlWebSocket.class, "/ws/graphql", List.of(GraphQlWebSocket.SUBPROTOCOL),
+                () -> new GraphQlWebSocket(graphQlService, jwtAuthenticationFilter, objectMapper));
+    }
+
+    private void register(ServerContainer container, Class<? extends Endpoint> endpoint, String path,
+                          List<String> subprotocols, Supplier<? extends Endpoint> instances) {
+        ServerEndpointConfig config = ServerEndpointConfig.Builder.create(endpoint, path)
+                .subprotocols(subprotocols)
+                .configurator(new HandshakeAuthenticator(jwtAuthenticationFilter, instances))
+                .build();
+        try {
+            container.addEndpoint(config);
+            log.info("Registered WebSocket endpoint {}", path);
+        } catch (DeploymentException e) {
+            throw new IllegalStateException("Could not register the WebSocket endpoint " + path, e);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.forum.content;
+
+import com.example.forum.exception.StorageException;
+import com.example.forum.model.Content;
+import com.example.forum.model.ContentBlob;
+import com.example.forum.model.ContentType;
+import com.example.forum.repository.ContentBlobRepository;
+import com.example.forum.repository.ContentRepository;
+import com.example.forum.repository.ContentVariantRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Content-addressed store for the bytes of uploaded content.
+ * <p>
+ * Uploads are hashed with SHA-256 while they are streamed to a temporary file, and every piece
+ * of content with the same hash points at one {@link ContentBlob}. New bytes are handed to a
+ * {@link ContentStorage} backend, so an upload is never held in memory. The blob counts its
+ * references and is deleted when the last content using it is released and the transaction
+ * commits. Bytes in the database go with it, and bytes in other backends are handed to the
+ * {@link StorageDeletionQueue} in the same transaction and deleted in the background afterwards,
+ * so that slow storage never holds up a request and a rollback never loses bytes.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ContentBlobStore {
+
+    private final ContentBlobRepository contentBlobRepository;
+    private final ContentRepository contentRepository;
+    private final ContentVariantRepository contentVariantRepository;
+    private final ContentStorageRegistry contentStorageRegistry;
+    private final StorageDeletionQueue storageDeletionQueue;
+
+    @Value("${app.content.storage.path:./content-storage}")
+    private String contentStoragePath;
+
+    private final DirectoryCache directories = new DirectoryCache();
+
+    /**
+     * Store the bytes of an upload and point the content at them. If the same bytes were
+     * stored before, the existing blob is reused wherever it is stored.
+     *
+     * @param content   the content to attach the bytes to
+     * @param file      the uploaded file
+     * @param storeInDb whether new bytes are stored in the database rather than the configured backend
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void attach(Content content, MultipartFile file, boolean storeInDb) {
+        Path directory = Paths.get(contentStoragePath);
+        Path spool = null;
+        try {
+            spool = directories.createTempFile(directory, "upload-", ".tmp");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long size;
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                size = Files.copy(in, spool, StandardCopyOption.REPLACE_EXISTING);
+            }
+            store(content, spool, size, HexFormat.of().formatHex(digest.digest()), storeInDb);
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        } finally {
+            if (spool != null) {
+                deleteQuietly(spool);
+            }
+        }
+    }
+
+    /**
+     * Store the bytes of a file that was assembled on disk and point the content at them. The
+     * file is consumed: it is moved into storage or deleted.
+     *
+     * @param content   the content to attach the bytes to
+     * @param file      the assembled file, on the same file system as the content storage directory
+     * @param storeInDb whether new bytes are stored in the database rather than the configured backend
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void attach(Content content, Path file, boolean storeInDb) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long size;
+            try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+                size = in.transferTo(OutputStream.nullOutputStream());
+            }
+            store(content, file, size, HexFormat.of().formatHex(digest.digest()), storeInDb);
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    /**
+     * Store the bytes of a file that is not itself a piece of content, such as an image
+     * variant, and take a reference on the blob holding them. The file is consumed.
+     *
+     * @param file      the file, on the same file system as the content storage directory
+     * @param storeInDb whether new bytes are stored in the database rather than the configured backend
+     * @return the blob, to be released with {@link #release(Long)}
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public ContentBlob store(Path file, boolean storeInDb) {
+        Content holder = new Content();
+        attach(holder, file, storeInDb);
+        return holder.getBlob();
+    }
+
+    /**
+     * Drop the reference a piece of content holds on its bytes. The bytes are deleted when the
+     * transaction commits if nothing else references them. The content row itself is deleted
+     * by the caller.
+     *
+     * @param content the content being deleted
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Content content) {
+        if (content.getId() != null && content.getContentType() == ContentType.IMAGE) {
+            // Wait for any variant being added, then release the variants with the image
+            contentRepository.findByIdForUpdate(content.getId());
+            contentVariantRepository.findBlobIdsByContentId(content.getId()).forEach(this::release);
+            contentVariantRepository.deleteByContentId(content.getId());
+        }
+        if (content.getBlob() != null) {
+            release(content.getBlob().getId());
+        } else if (!content.isStoredInDb() && content.getContentPath() != null) {
+            // Content stored before blobs were introduced owns its file
+            storageDeletionQueue.enqueue(FileSystemContentStorage.NAME, content.getContentPath());
+            pendingReleases().enqueued = true;
+        }
+    }
+
+    /**
+     * Drop the references many pieces of content hold on their bytes, with a few statements
+     * for the whole set rather than several per piece. The content rows themselves are deleted
+     * by the caller.
+     *
+     * @param contents the content being deleted
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void releaseAll(Collection<Content> contents) {
+        if (contents.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> references = new HashMap<>();
+        List<Long> imageIds = contents.stream()
+                .filter(content -> content.getId() != null && content.getContentType() == ContentType.IMAGE)
+                .map(Content::getId)
+                .toList();
+        if (!imageIds.isEmpty()) {
+            // Wait for any variants being added, then release the variants with the images
+            contentRepository.findAllByIdForUpdate(imageIds);
+            contentVariantRepository.findBlobIdsByContentIdIn(imageIds)
+                    .forEach(blobId -> references.merge(blobId, 1, Integer::sum));
+            contentVariantRepository.deleteByContentIdIn(imageIds);
+        }
+        for (Content content : contents) {
+            if (content.getBlob() != null) {
+                references.merge(content.getBlob().getId(), 1, Integer::sum);
+            } else if (!content.isStoredInDb() && content.getContentPath() != null) {
+                storageDeletionQueue.enqueue(FileSystemContentStorage.NAME, content.getContentPath());
+                pendingReleases().enqueued = true;
+            }
+        }
+        if (references.isEmpty()) {
+            return;
+        }
+        // Blobs released the same number of times share one statement, which is usually all of them
+        references.entrySet().stream()
+                .collect(Collectors.groupingBy(Map.Entry::getValue,
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+                .forEach((count, blobIds) -> contentBlobRepository.adjustRefCounts(blobIds, -count));
+        pendingReleases().blobIds.addAll(references.keySet());
+    }
+
+    /**
+     * Drop a reference on a blob taken with {@link #store(Path, boolean)}. The bytes are
+     * deleted when the transaction commits if nothing else references them.
+     *
+     * @param blobId the ID of the blob
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Long blobId) {
+        contentBlobRepository.adjustRefCount(blobId, -1);
+        pendingReleases().blobIds.add(blobId);
+    }
+
+    private void store(Content content, Path spool, long size, String sha256, boolean storeInDb) throws IOException {
+        Optional<ContentBlobRepository.BlobRef> existing = contentBlobRepository.findRefBySha256(sha256);
+        if (existing.isPresent()) {
+            ContentBlobRepository.BlobRef ref = existing.get();
+            // No row is updated when a concurrent release deleted the blob while this waited for
+            // its row lock, then the bytes are stored again below
+            if (contentBlobRepository.adjustRefCount(ref.getId(), 1) > 0) {
+                point(content, contentBlobRepository.getReferenceById(ref.getId()), ref.isStoredInDb(),
+                        ref.getLocation(), sha256);
+                return;
+            }
+        }
+
+        ContentStorage storage = contentStorageRegistry.forUpload(storeInDb);
+        ContentBlob blob = ContentBlob.builder()
+                .sha256(sha256)
+                .size(size)
+                .storedInDb(storeInDb)
+                .storage(storage.name())
+                .location(storage.store(sha256, spool, size))
+                .refCount(1)
+                .build();
+        blob = contentBlobRepository.save(blob);
+        point(content, blob, storeInDb, blob.getLocation(), sha256);
+    }
+
+    private void point(Content content, ContentBlob blob, boolean storedInDb, String location, String sha256) {
+        content.setBlob(blob);
+        content.setStoredInDb(storedInDb);
+        content.setContentPath(storedInDb ? "db://" + sha256 : location);
+    }
+
+    private PendingReleases pendingReleases() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingReleases candidate && candidate.owner() == this) {
+                return candidate;
+            }
+        }
+        PendingReleases pending = new PendingReleases();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete file {}", path, e);
+        }
+    }
+
+    /**
+     * Blobs released in a transaction. Unreferenced blobs are deleted just before commit, once
+     * the content rows pointing at them have been flushed, together with any bytes kept in the
+     * database. Bytes in other backends are queued for deletion in the same transaction, and
+     * the queue is processed after commit.
+     */
+    private final class PendingReleases implements TransactionSynchronization {
+
+        private final Set<Long> blobIds = new LinkedHashSet<>();
+        private boolean enqueued;
+
+        private ContentBlobStore owner() {
+            return ContentBlobStore.this;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (blobIds.isEmpty()) {
+                return;
+            }
+            contentBlobRepository.flush();
+            for (Long blobId : blobIds) {
+                ContentBlobRepository.BlobRef ref = contentBlobRepository.findRefById(blobId).orElse(null);
+                if (ref == null || contentBlobRepository.deleteIfUnreferenced(blobId) == 0) {
+                    continue;
+                }
+                ContentStorage storage = contentStorageRegistry.get(ref.getStorage());
+                if (!storage.isTransactional()) {
+                    storageDeletionQueue.enqueue(storage.name(), ref.getLocation());
+                    enqueued = true;
+                    continue;
+                }
+                try {
+                    storage.delete(ref.getLocation());
+                } catch (IOException e) {
+                    throw new StorageException("Failed to delete content", e);
+                }
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            if (enqueued) {
+                storageDeletionQueue.processSoon();
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.forum.content;
+
+import com.example.forum.exception.ResourceNotFoundException;
+import com.example.forum.model.ContentType;
+import com.example.forum.repository.ContentRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Blob;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes stored content to an HTTP response without buffering it in memory.
+ * <p>
+ * The bytes of a blob are copied from its {@link ContentStorage} backend, or the client is
+ * redirected to a presigned URL when the backend can serve them directly. Content stored
+ * before blobs were introduced is read from its own file or database column. Every response
+ * carries a strong ETag, the SHA-256 of the bytes where it is known, and video and audio also
+ * accept single byte-range requests so players can seek.
+ */
+@Component
+@RequiredArgsConstructor
+public class ContentDelivery {
+
+    private static final String LEGACY_BLOB_QUERY = "SELECT data FROM contents WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ContentStorageRegistry contentStorageRegistry;
+
+    @Value("${app.content.cache-max-age-seconds:86400}")
+    private long cacheMaxAgeSeconds = 86400;
+
+    /**
+     * Write a piece of content to the response, honoring conditional and range headers.
+     *
+     * @param content  the content metadata
+     * @param request  the HTTP request
+     * @param response the HTTP response
+     * @throws IOException if writing to the client fails
+     */
+    public void serve(ContentRepository.DownloadRow content, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        if (content.getBlobId() != null) {
+            serveBlob(content, request, response);
+        } else if (content.isStoredInDb()) {
+            serveLegacyBlob(content, request, response);
+        } else {
+            serveLegacyFile(content, request, response);
+        }
+    }
+
+    private void serveBlob(ContentRepository.DownloadRow content, HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        ContentStorage storage = contentStorageRegistry.get(content.getBlobStorage());
+        Optional<URI> direct = storage.presign(content.getBlobLocation(), mediaType(content), disposition(content));
+        if (direct.isPresent()) {
+            // The URL expires, so the redirect itself must not be cached
+            response.setStatus(HttpServletResponse.SC_FOUND);
+            response.setHeader(HttpHeaders.LOCATION, direct.get().toString());
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+            return;
+        }
+
+        Selection selection = prepare(content, content.getBlobSize(), version(content), request, response);
+        if (selection != null && selection.length() > 0 && !isHead(request)) {
+            storage.transfer(content.getBlobLocation(), selection.start(), selection.length(), request, response);
+        }
+    }
+
+    private void serveLegacyFile(ContentRepository.DownloadRow content, HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        Path path = content.getContentPath() != null ? Paths.get(content.getContentPath()) : null;
+        if (path == null || !Files.isRegularFile(path)) {
+            throw new ResourceNotFoundException("Content file", "id", content.getId());
+        }
+
+        Selection selection = prepare(content, Files.size(path), Files.getLastModifiedTime(path).toMillis(),
+                request, response);
+        if (selection != null && selection.length() > 0 && !isHead(request)) {
+            contentStorageRegistry.get(FileSystemContentStorage.NAME)
+                    .transfer(path.toString(), selection.start(), selection.length(), request, response);
+        }
+    }
+
+    private void serveLegacyBlob(ContentRepository.DownloadRow content, HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        try {
+            jdbcTemplate.query(LEGACY_BLOB_QUERY, rs -> {
+                Blob blob = rs.next() ? rs.getBlob(1) : null;
+                if (blob == null) {
+                    throw new ResourceNotFoundException("Content data", "id", content.getId());
+                }
+                try {
+                    Selection selection = prepare(content, blob.length(), version(content), request, response);
+                    if (selection != null && selection.length() > 0 && !isHead(request)) {
+                        try (InputStream in = blob.getBinaryStream(selection.start() + 1, selection.length())) {
+                            in.transferTo(response.getOutputStream());
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    blob.free();
+                }
+                return null;
+            }, content.getId());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Set the response headers and work out which bytes to send.
+     *
+     * @return the bytes to send, or null if the response is already complete
+     */
+    private Selection prepare(ContentRepository.DownloadRow content, long length, long lastModified,
+                              HttpServletRequest request, HttpServletResponse response) {
+        // Content is never modified in place, so its hash, or else its ID, size and timestamp,
+        // identify the bytes
+        String etag = content.getSha256() != null
+                ? "\"" + content.getSha256() + "\""
+                : "\"" + content.getId() + "-" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                CacheControl.maxAge(cacheMaxAgeSeconds, TimeUnit.SECONDS).cachePrivate().getHeaderValue());
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return null;
+        }
+
+        response.setContentType(mediaType(content).toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition(content).toString());
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        boolean rangeable = content.getContentType() == ContentType.VIDEO
+                || content.getContentType() == ContentType.AUDIO;
+        if (rangeable) {
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        }
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeable && rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                // A malformed Range header is ignored and the whole content is sent
+                ranges = List.of();
+            }
+            // Multiple ranges are rare for media and are answered with the whole content
+            if (ranges.size() == 1) {
+                long start;
+                long end;
+                try {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    start = length;
+                    end = length - 1;
+                }
+                if (start >= length || start > end) {
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return null;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                response.setContentLengthLong(end - start + 1);
+                return new Selection(start, end - start + 1);
+            }
+        }
+
+        response.setContentLengthLong(length);
+        return new Selection(0, length);
+    }
+
+    // The filename is chosen by the uploader, so anything but the declared kind of media is
+    // downloaded rather than rendered: an "image" named page.html or drawing.svg could run scripts
+    private static MediaType mediaType(ContentRepository.DownloadRow content) {
+        MediaType detected = MediaTypeFactory.getMediaType(content.getFilename()).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        return isInline(content.getContentType(), detected) ? detected : MediaType.APPLICATION_OCTET_STREAM;
+    }
+
+    private static ContentDisposition disposition(ContentRepository.DownloadRow content) {
+        return ContentDisposition
+                .builder(isInline(content.getContentType(), mediaType(content)) ? "inline" : "attachment")
+                .filename(content.getFilename(), StandardCharsets.UTF_8)
+                .build();
+    }
+
+    private static boolean isInline(ContentType contentType, MediaType mediaType) {
+        return switch (contentType) {
+            case IMAGE -> "image".equals(mediaType.getType()) && !mediaType.getSubtype().startsWith("svg");
+            case VIDEO -> "video".equals(mediaType.getType());
+            case AUDIO -> "audio".equals(mediaType.getType());
+            case DOCUMENT -> false;
+        };
+    }
+
+    // Content is never modified in place, so its creation time stands in for a modification time
+    private static long version(ContentRepository.DownloadRow content) {
+        return content.getCreatedAt() != null
+                ? content.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : 0;
+    }
+
+    private static boolean isHead(HttpServletRequest request) {
+        return HttpMethod.HEAD.matches(request.getMethod());
+    }
+
+    /**
+     * A contiguous run of bytes to send.
+     */
+    private record Selection(long start, long length) {
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.forum.content;
+
+import com.example.forum.exception.BadRequestException;
+import com.example.forum.repository.ContentBlobRepository;
+import com.example.forum.repository.ContentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+
+/**
+ * Moves files stored flat in the content storage directory into the sharded layout of
+ * {@link FileSystemContentStorage}, while the application keeps serving them.
+ * <p>
+ * Each file is first hard-linked (or copied, where links are not supported) to its new path on
+ * several threads at once. The rows pointing at the old path are then switched over in one
+ * transaction per batch, and only if they still point there, so files released in the meantime
+ * are left alone. The old paths are handed to the {@link StorageDeletionQueue} with a delay, so
+ * downloads that looked up the old path just before the switch can still open it.
+ * <p>
+ * A hard link keeps the modification time of the old file, so until its batch is switched over
+ * a new path looks like an old file nothing points at. The new paths are therefore recorded
+ * while they are pending, and {@link #isPending(Path)} tells the orphan sweeper to leave them.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ContentLayoutMigrator {
+
+    /**
+     * Outcome of a migration.
+     */
+    public record Result(long scanned, long moved, long failed) {
+    }
+
+    /**
+     * A file linked to its new path, waiting for the rows pointing at it to be switched over.
+     */
+    private record Move(ContentBlobRepository.FileRef ref, Path target, boolean linked) {
+    }
+
+    private final ContentBlobRepository contentBlobRepository;
+    private final ContentRepository contentRepository;
+    private final StorageDeletionQueue storageDeletionQueue;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.content.storage.path:./content-storage}")
+    private String contentStoragePath;
+
+    @Value("${app.content.storage.migration.parallelism:4}")
+    private int parallelism = 4;
+
+    @Value("${app.content.storage.migration.batch-size:500}")
+    private int batchSize = 500;
+
+    // How long old paths stay readable after the rows were switched over
+    @Value("${app.content.storage.migration.old-file-delay-ms:300000}")
+    private long oldFileDelayMs = 300000;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final DirectoryCache directories = new DirectoryCache();
+    // New paths linked or being linked, by their absolute form, until their rows are switched over
+    private final Set<Path> pendingTargets = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Whether a file is the new path of a file being moved. Nothing points at it yet, but it must
+     * not be taken for an orphan. Checking this before looking up the rows pointing at a file
+     * leaves no gap: a path stops being pending only once the rows pointing at it are committed.
+     */
+    public boolean isPending(Path file) {
+        return !pendingTargets.isEmpty() && pendingTargets.contains(file.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Move every file that is not in the sharded layout yet. Running it again after an
+     * interruption picks up where it stopped.
+     *
+     * @return the number of scanned, moved and failed files
+     * @throws BadRequestException if a migration is already running
+     */
+    public Result migrate() {
+        if (!running.compareAndSet(false, true)) {
+            throw new BadRequestException("A content storage migration is already running");
+        }
+        Path directory = Paths.get(contentStoragePath);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+                Thread.ofPlatform().name("content-migrator-", 0).daemon().factory());
+        try {
+            long[] counts = new long[3];
+            migrate(directory, transactionTemplate, executor, counts,
+                    (afterId, page) -> contentBlobRepository.findLocationsAfter(
+                            FileSystemContentStorage.NAME, afterId, page),
+                    (from, move) -> {
+                        if (contentBlobRepository.relocate(move.ref().getId(), from, move.target().toString()) == 0) {
+                            return false;
+                        }
+                        // Content keeps a copy of the location of its blob
+                        contentRepository.relocateContentPath(from, move.target().toString());
+                        return true;
+                    });
+            // Content stored before blobs were introduced owns its file
+            migrate(directory, transactionTemplate, executor, counts,
+                    contentRepository::findLegacyFilesAfter,
+                    (from, move) -> contentRepository.relocateContentPath(from, move.target().toString()) > 0);
+            Result result = new Result(counts[0], counts[1], counts[2]);
+            log.info("Moved {} of {} content files into the sharded layout, {} failed",
+                    result.moved(), result.scanned(), result.failed());
+            return result;
+        } finally {
+            executor.shutdownNow();
+            running.set(false);
+        }
+    }
+
+    private void migrate(Path directory, TransactionTemplate transactionTemplate, ExecutorService executor,
+                         long[] counts,
+                         BiFunction<Long, PageRequest, List<ContentBlobRepository.FileRef>> finder,
+                         BiPredicate<String, Move> relocator) {
+        long afterId = 0;
+        while (true) {
+            long cursor = afterId;
+            List<ContentBlobRepository.FileRef> batch = transactionTemplate.execute(
+                    status -> finder.apply(cursor, PageRequest.of(0, batchSize)));
+            if (batch == null || batch.isEmpty()) {
+                return;
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+            counts[0] += batch.size();
+
+            // Link the files on several threads, since most of the time is spent waiting on the disk
+            List<CompletableFuture<Move>> links = new ArrayList<>();
+            List<Path> pending = new ArrayList<>();
+            try {
+                for (ContentBlobRepository.FileRef ref : batch) {
+                    Path source = Paths.get(ref.getLocation());
+                    Path target = FileSystemContentStorage.shardedPath(directory, source.getFileName().toString());
+                    if (!target.equals(source)) {
+                        // Recorded before the file appears, so the sweeper never sees it unrecorded
+                        Path absolute = target.toAbsolutePath().normalize();
+                        if (pendingTargets.add(absolute)) {
+                            pending.add(absolute);
+                        }
+                        links.add(CompletableFuture.supplyAsync(() -> link(ref, source, target), executor));
+                    }
+                }
+                counts[1] += relocate(transactionTemplate, counts, links, relocator);
+            } finally {
+                pending.forEach(pendingTargets::remove);
+            }
+        }
+    }
+
+    /**
+     * Switch the rows of a batch over to the linked files.
+     *
+     * @return the number of moved files
+     */
+    private long relocate(TransactionTemplate transactionTemplate, long[] counts,
+                          List<CompletableFuture<Move>> links, BiPredicate<String, Move> relocator) {
+        List<Move> moves = links.stream().map(CompletableFuture::join).filter(Objects::nonNull).toList();
+        counts[2] += links.size() - moves.size();
+
+        List<Move> stale = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Move move : moves) {
+                String from = move.ref().getLocation();
+                if (relocator.test(from, move)) {
+                    storageDeletionQueue.enqueue(FileSystemContentStorage.NAME, from,
+                            Duration.ofMillis(oldFileDelayMs));
+                } else {
+                    stale.add(move);
+                }
+            }
+        });
+        // The file was released while it was linked, so nothing points at the new path
+        for (Move move : stale) {
+            if (move.linked()) {
+                deleteQuietly(move.target());
+            }
+        }
+        return moves.size() - stale.size();
+    }
+
+    /**
+     * Make a file available at its new path as well.
+     *
+     * @return the move, or null if the file could not be linked
+     */
+    private Move link(ContentBlobRepository.FileRef ref, Path source, Path target) {
+        try {
+            directories.ensure(target.getParent());
+            try {
+                Files.createLink(target, source);
+            } catch (UnsupportedOperationException e) {
+                Path copy = directories.createTempFile(target.getParent(), "migrate-", ".tmp");
+                Files.copy(source, copy, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(copy, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new Move(ref, target, true);
+        } catch (FileAlreadyExistsException e) {
+            // Left by an interrupted run, or the same bytes stored again under their hash
+            try {
+                if (Files.isSameFile(source, target) || Files.mismatch(source, target) == -1) {
+                    return new Move(ref, target, false);
+                }
+            } catch (IOException mismatch) {
+                log.warn("Failed to compare {} with {}", source, target, mismatch);
+                return null;
+            }
+            log.warn("Not moving {}: a different file exists at {}", source, target);
+            return null;
+        } catch (NoSuchFileException e) {
+            log.warn("Not moving {}: the file is missing", source);
+            return null;
+        } catch (IOException e) {
+            log.warn("Failed to move {} to {}", source, target, e);
+            return null;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete file {}", path, e);
+        }
+    }
+}
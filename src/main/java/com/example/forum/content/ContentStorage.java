@@ -0,0 +1,117 @@
+package com.example.forum.content;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A backend that holds the bytes of {@link com.example.forum.model.ContentBlob}s. Each blob
+ * records the name of its backend and an opaque location within it.
+ */
+public interface ContentStorage {
+
+    /**
+     * Get the name recorded with the blobs held by this backend.
+     *
+     * @return the backend name
+     */
+    String name();
+
+    /**
+     * Store a spooled upload. The backend may move or consume the file.
+     *
+     * @param sha256 the lowercase hex SHA-256 of the bytes
+     * @param source the spooled upload
+     * @param size   the number of bytes
+     * @return the location of the bytes within this backend
+     * @throws IOException if the bytes cannot be stored
+     */
+    String store(String sha256, Path source, long size) throws IOException;
+
+    /**
+     * Get a name for newly stored bytes that no earlier blob had, not even one with the same
+     * bytes. A released blob may still be queued for deletion when the same bytes are uploaded
+     * again, and the new blob must not be stored where that deletion will strike.
+     *
+     * @param sha256 the lowercase hex SHA-256 of the bytes
+     * @return the hash followed by a random suffix
+     */
+    static String uniqueName(String sha256) {
+        return sha256 + "-" + HexFormat.of().toHexDigits(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Read stored bytes. The stream is only valid while the reader runs.
+     *
+     * @param location the location of the bytes
+     * @param reader   the reader of the stream
+     * @param <T>      the type of the result
+     * @return the result of the reader
+     * @throws IOException if the bytes cannot be read
+     */
+    <T> T read(String location, StreamReader<T> reader) throws IOException;
+
+    /**
+     * Write a range of stored bytes to the response body. The status and headers are already set.
+     *
+     * @param location the location of the bytes
+     * @param start    the offset of the first byte to write
+     * @param count    the number of bytes to write
+     * @param request  the HTTP request
+     * @param response the HTTP response
+     * @throws IOException if the bytes cannot be read or written
+     */
+    void transfer(String location, long start, long count, HttpServletRequest request,
+                  HttpServletResponse response) throws IOException;
+
+    /**
+     * Get a short-lived URL the client can download the bytes from directly, so they are not
+     * proxied through this application.
+     *
+     * @param location    the location of the bytes
+     * @param mediaType   the media type to serve the bytes with
+     * @param disposition the content disposition to serve the bytes with
+     * @return the URL, or empty if the bytes must be served through {@link #transfer}
+     */
+    default Optional<URI> presign(String location, MediaType mediaType, ContentDisposition disposition) {
+        return Optional.empty();
+    }
+
+    /**
+     * Delete stored bytes. Deleting bytes that are already gone is not an error.
+     *
+     * @param location the location of the bytes
+     * @throws IOException if the bytes cannot be deleted
+     */
+    void delete(String location) throws IOException;
+
+    /**
+     * Whether the bytes live in the application database, in which case they are deleted in
+     * the same transaction as their blob rather than after it commits.
+     *
+     * @return true for transactional backends
+     */
+    default boolean isTransactional() {
+        return false;
+    }
+
+    /**
+     * Consumes the stream of stored bytes.
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    interface StreamReader<T> {
+
+        T read(InputStream in) throws IOException;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.forum.content;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Looks up the {@link ContentStorage} backends by name.
+ */
+@Component
+public class ContentStorageRegistry {
+
+    private final Map<String, ContentStorage> storages;
+
+    // Backend for uploads that are not stored in the database
+    @Value("${app.content.storage.backend:filesystem}")
+    private String backend = FileSystemContentStorage.NAME;
+
+    public ContentStorageRegistry(List<ContentStorage> storages) {
+        this.storages = storages.stream()
+                .collect(Collectors.toMap(ContentStorage::name, Function.identity()));
+    }
+
+    /**
+     * Get a backend by name.
+     *
+     * @param name the backend name
+     * @return the backend
+     * @throws IllegalStateException if no such backend is configured
+     */
+    public ContentStorage get(String name) {
+        ContentStorage storage = storages.get(name);
+        if (storage == null) {
+            throw new IllegalStateException("No content storage backend named " + name + " is configured");
+        }
+        return storage;
+    }
+
+    /**
+     * Get the backend new uploads are stored in.
+     *
+     * @param storeInDb whether the upload is stored in the database
+     * @return the backend
+     */
+    public ContentStorage forUpload(boolean storeInDb) {
+        return get(storeInDb ? DatabaseContentStorage.NAME : backend);
+    }
+}
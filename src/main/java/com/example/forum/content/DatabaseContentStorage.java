@@ -0,0 +1,104 @@
+package com.example.forum.content;
+
+import com.example.forum.exception.ResourceNotFoundException;
+import com.example.forum.model.ContentBlobData;
+import com.example.forum.repository.ContentBlobDataRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.jdbc.BlobProxy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Blob;
+
+/**
+ * Stores content in {@link ContentBlobData} rows. The bytes are bound from the spooled upload
+ * as a stream and read back through the JDBC {@link Blob} while the result set is open.
+ */
+@Component
+@RequiredArgsConstructor
+public class DatabaseContentStorage implements ContentStorage {
+
+    public static final String NAME = "database";
+
+    private static final String DATA_QUERY = "SELECT data FROM content_blob_data WHERE id = ?";
+
+    private final ContentBlobDataRepository contentBlobDataRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String store(String sha256, Path source, long size) throws IOException {
+        // The row is flushed before the stream is closed
+        try (InputStream data = Files.newInputStream(source)) {
+            ContentBlobData saved = contentBlobDataRepository.saveAndFlush(ContentBlobData.builder()
+                    .data(BlobProxy.generateProxy(data, size))
+                    .build());
+            return saved.getId().toString();
+        }
+    }
+
+    @Override
+    public <T> T read(String location, StreamReader<T> reader) throws IOException {
+        try {
+            return jdbcTemplate.query(DATA_QUERY, rs -> {
+                Blob blob = rs.next() ? rs.getBlob(1) : null;
+                if (blob == null) {
+                    throw new ResourceNotFoundException("Content data", "id", location);
+                }
+                try (InputStream in = blob.getBinaryStream()) {
+                    return reader.read(in);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    blob.free();
+                }
+            }, Long.valueOf(location));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void transfer(String location, long start, long count, HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        try {
+            jdbcTemplate.query(DATA_QUERY, rs -> {
+                Blob blob = rs.next() ? rs.getBlob(1) : null;
+                if (blob == null) {
+                    throw new ResourceNotFoundException("Content data", "id", location);
+                }
+                try (InputStream in = blob.getBinaryStream(start + 1, count)) {
+                    in.transferTo(response.getOutputStream());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    blob.free();
+                }
+                return null;
+            }, Long.valueOf(location));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void delete(String location) {
+        contentBlobDataRepository.deleteDataById(Long.valueOf(location));
+    }
+
+    @Override
+    public boolean isTransactional() {
+        return true;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.forum.content;
+
+import java.io.IOException;
+import java.nio.file.CopyOption;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which directories exist so that writing a file does not first ask the file system
+ * for every directory on its path. If a directory is removed behind our back, the failed write
+ * creates it again and is retried once.
+ */
+class DirectoryCache {
+
+    private final Set<Path> created = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Create a directory and its parents unless they were created before.
+     *
+     * @param directory the directory
+     * @return the directory
+     * @throws IOException if the directory cannot be created
+     */
+    Path ensure(Path directory) throws IOException {
+        if (!created.contains(directory)) {
+            Files.createDirectories(directory);
+            created.add(directory);
+        }
+        return directory;
+    }
+
+    /**
+     * Create a temporary file in a directory, creating the directory first if needed.
+     */
+    Path createTempFile(Path directory, String prefix, String suffix) throws IOException {
+        try {
+            return Files.createTempFile(ensure(directory), prefix, suffix);
+        } catch (NoSuchFileException e) {
+            created.remove(directory);
+            return Files.createTempFile(ensure(directory), prefix, suffix);
+        }
+    }
+
+    /**
+     * Move a file, creating the directory of the target first if needed.
+     */
+    void move(Path source, Path target, CopyOption... options) throws IOException {
+        Path directory = target.getParent();
+        ensure(directory);
+        try {
+            Files.move(source, target, options);
+        } catch (NoSuchFileException e) {
+            if (!Files.exists(source)) {
+                throw e;
+            }
+            created.remove(directory);
+            ensure(directory);
+            Files.move(source, target, options);
+        }
+    }
+}
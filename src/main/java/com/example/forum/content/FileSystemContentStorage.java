@@ -0,0 +1,128 @@
+package com.example.forum.content;
+
+import com.example.forum.exception.ResourceNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stores content as files named after their hash in the content storage directory, with a
+ * random suffix that keeps every stored file at its own path (see
+ * {@link ContentStorage#uniqueName}). Files are spread over two levels of subdirectories named after the first four hex digits of the hash,
+ * e.g. {@code ab/cd/abcd...}, so that no directory grows beyond a few thousand entries. Files are
+ * handed to the servlet container's sendfile support when it is available, and otherwise
+ * copied with {@link FileChannel#transferTo}.
+ */
+@Component
+public class FileSystemContentStorage implements ContentStorage {
+
+    public static final String NAME = "filesystem";
+
+    // Request attributes of the Tomcat sendfile extension
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Value("${app.content.storage.path:./content-storage}")
+    private String contentStoragePath;
+
+    private final DirectoryCache directories = new DirectoryCache();
+
+    /**
+     * Get the path a file is stored at in the sharded layout.
+     *
+     * @param directory the content storage directory
+     * @param name      the name of the file, normally a hex hash
+     * @return the path of the file two subdirectories below the storage directory
+     */
+    public static Path shardedPath(Path directory, String name) {
+        if (name.length() < 4) {
+            return directory.resolve(name);
+        }
+        return directory.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String store(String sha256, Path source, long size) throws IOException {
+        // A rolled back upload leaves its file behind for the orphan sweeper
+        Path destination = shardedPath(Paths.get(contentStoragePath), ContentStorage.uniqueName(sha256));
+        directories.move(source, destination, StandardCopyOption.ATOMIC_MOVE);
+        return destination.toString();
+    }
+
+    @Override
+    public <T> T read(String location, StreamReader<T> reader) throws IOException {
+        InputStream in;
+        try {
+            in = Files.newInputStream(Paths.get(location));
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("Content file", "path", location);
+        }
+        try (in) {
+            return reader.read(in);
+        }
+    }
+
+    @Override
+    public void transfer(String location, long start, long count, HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        Path path = Paths.get(location);
+
+        // Let the container copy the file straight from the page cache to the socket
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            try {
+                request.setAttribute(SENDFILE_FILENAME, path.toRealPath().toString());
+            } catch (NoSuchFileException e) {
+                throw new ResourceNotFoundException("Content file", "path", location);
+            }
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("Content file", "path", location);
+        }
+        try (channel) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    // The file was truncated while it was being sent
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    @Override
+    public void delete(String location) throws IOException {
+        Files.deleteIfExists(Paths.get(location));
+    }
+}
@@ -0,0 +1,350 @@
+package com.example.forum.content;
+
+import com.example.forum.model.Content;
+import com.example.forum.model.ContentBlob;
+import com.example.forum.model.ContentType;
+import com.example.forum.model.ContentVariant;
+import com.example.forum.repository.ContentRepository;
+import com.example.forum.repository.ContentVariantRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates thumbnails and other resized variants of uploaded images in the background.
+ * <p>
+ * Images are queued once the upload has committed and decoded with {@link ImageIO} by a small
+ * pool of workers. The dimensions are read from the header first: images with more pixels than
+ * configured are skipped, since an upload of a few kilobytes can declare an image that does not
+ * fit in memory, and large images are subsampled while decoding to about twice the largest
+ * variant rather than decoded at full size. Each configured size that is smaller than the image
+ * gets a variant, which is stored through the {@link ContentBlobStore} like any upload. The
+ * queue is bounded: when it is full, the committing request thread generates the variants
+ * itself, which slows down uploads instead of piling up decoded images in memory.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImageVariantGenerator {
+
+    /**
+     * Progress of the worker pool.
+     */
+    public record Stats(int queued, int active, long completed, long failed, long skipped,
+                        long ranOnCaller, long variantsCreated) {
+    }
+
+    /**
+     * A configured variant size: the longest side of the image is scaled down to the limit.
+     */
+    record Size(String name, int maxDimension) {
+    }
+
+    private final ContentRepository contentRepository;
+    private final ContentVariantRepository contentVariantRepository;
+    private final ContentBlobStore contentBlobStore;
+    private final ContentStorageRegistry contentStorageRegistry;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.content.variants.enabled:true}")
+    private boolean enabled = true;
+
+    // Comma-separated name:maxDimension pairs
+    @Value("${app.content.variants.sizes:thumbnail:160,medium:800}")
+    private String sizeSpec = "thumbnail:160,medium:800";
+
+    @Value("${app.content.variants.workers:2}")
+    private int workers = 2;
+
+    @Value("${app.content.variants.queue-capacity:64}")
+    private int queueCapacity = 64;
+
+    // Images with more pixels, width times height, are not decoded
+    @Value("${app.content.variants.max-pixels:100000000}")
+    private long maxPixels = 100000000;
+
+    @Value("${app.content.storage.path:./content-storage}")
+    private String contentStoragePath;
+
+    private final DirectoryCache directories = new DirectoryCache();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong ranOnCaller = new AtomicLong();
+    private final AtomicLong variantsCreated = new AtomicLong();
+
+    private List<Size> sizes;
+    private ThreadPoolExecutor executor;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        sizes = parseSizes(sizeSpec);
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("image-variants-", 0).daemon().factory(),
+                (task, pool) -> {
+                    if (!pool.isShutdown()) {
+                        ranOnCaller.incrementAndGet();
+                        task.run();
+                    }
+                });
+        // Variants may be generated on a request thread after its own transaction committed
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Get the names of the configured variants.
+     *
+     * @return the variant names, smallest first as configured
+     */
+    public List<String> variantNames() {
+        return sizes.stream().map(Size::name).toList();
+    }
+
+    /**
+     * Queue the variants of an image to be generated once the current transaction commits.
+     * Content that is not an image is ignored.
+     *
+     * @param content the saved content
+     */
+    public void scheduleAfterCommit(Content content) {
+        if (!enabled || content.getContentType() != ContentType.IMAGE || sizes.isEmpty()) {
+            return;
+        }
+        Long contentId = content.getId();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit(contentId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submit(contentId);
+            }
+        });
+    }
+
+    /**
+     * Get the progress of the worker pool.
+     *
+     * @return the current statistics
+     */
+    public Stats getStats() {
+        return new Stats(executor.getQueue().size(), executor.getActiveCount(), completed.get(), failed.get(),
+                skipped.get(), ranOnCaller.get(), variantsCreated.get());
+    }
+
+    private void submit(Long contentId) {
+        executor.execute(() -> {
+            try {
+                generate(contentId);
+                completed.incrementAndGet();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                log.warn("Failed to generate variants of content {}", contentId, e);
+            }
+        });
+    }
+
+    /**
+     * Generate the missing variants of an image now.
+     *
+     * @param contentId the ID of the content
+     * @return the number of variants created
+     * @throws IOException if the image cannot be read or a variant cannot be written
+     */
+    int generate(Long contentId) throws IOException {
+        ContentRepository.DownloadRow row = contentRepository.findDownloadRowById(contentId).orElse(null);
+        if (row == null || row.getBlobId() == null || row.getContentType() != ContentType.IMAGE) {
+            skipped.incrementAndGet();
+            return 0;
+        }
+        BufferedImage source = contentStorageRegistry.get(row.getBlobStorage())
+                .read(row.getBlobLocation(), in -> decode(contentId, in));
+        if (source == null) {
+            skipped.incrementAndGet();
+            return 0;
+        }
+
+        // JPEG has no alpha channel, so transparent images keep it as PNG
+        boolean alpha = source.getColorModel().hasAlpha();
+        String format = alpha ? "png" : "jpg";
+        Path directory = Paths.get(contentStoragePath);
+        Map<Size, Path> files = new LinkedHashMap<>();
+        Map<Size, BufferedImage> images = new LinkedHashMap<>();
+        try {
+            for (Size size : sizes) {
+                if (Math.max(source.getWidth(), source.getHeight()) <= size.maxDimension()) {
+                    continue;
+                }
+                BufferedImage scaled = scale(source, size.maxDimension(), alpha);
+                Path file = directories.createTempFile(directory, "variant-", ".tmp");
+                files.put(size, file);
+                images.put(size, scaled);
+                if (!ImageIO.write(scaled, format, file.toFile())) {
+                    throw new IOException("No ImageIO writer for " + format);
+                }
+            }
+            if (files.isEmpty()) {
+                return 0;
+            }
+
+            Integer created = transactionTemplate.execute(status -> {
+                // The content may have been deleted while the variants were being scaled
+                Content content = contentRepository.findByIdForUpdate(contentId).orElse(null);
+                if (content == null) {
+                    return 0;
+                }
+                List<String> existing = contentVariantRepository.findNamesByContentId(contentId);
+                int count = 0;
+                for (Map.Entry<Size, Path> file : files.entrySet()) {
+                    Size size = file.getKey();
+                    if (existing.contains(size.name())) {
+                        continue;
+                    }
+                    ContentBlob blob = contentBlobStore.store(file.getValue(), row.isStoredInDb());
+                    contentVariantRepository.save(ContentVariant.builder()
+                            .content(content)
+                            .name(size.name())
+                            .format(format)
+                            .width(images.get(size).getWidth())
+                            .height(images.get(size).getHeight())
+                            .blob(blob)
+                            .build());
+                    count++;
+                }
+                return count;
+            });
+            variantsCreated.addAndGet(created);
+            return created;
+        } finally {
+            for (Path file : files.values()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Decode an image, subsampled if it is much larger than the largest variant.
+     *
+     * @return the image, or null if it is not a format ImageIO can decode or has too many pixels
+     */
+    private BufferedImage decode(Long contentId, InputStream in) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    log.info("Not generating variants of content {}: {}x{} pixels is more than {}",
+                            contentId, width, height, maxPixels);
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int factor = subsampling(Math.max(width, height),
+                        sizes.stream().mapToInt(Size::maxDimension).max().orElse(0));
+                if (factor > 1) {
+                    param.setSourceSubsampling(factor, factor, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Get the subsampling factor that decodes an image to no less than twice the largest variant,
+     * so the halving steps of {@link #scale} still have pixels to average.
+     */
+    static int subsampling(int longestSide, int largestVariant) {
+        return largestVariant <= 0 ? 1 : Math.max(1, longestSide / (2 * largestVariant));
+    }
+
+    /**
+     * Scale an image so that its longest side fits the limit. Large reductions are done in
+     * halving steps, since a single bilinear pass skips most source pixels and aliases.
+     */
+    static BufferedImage scale(BufferedImage source, int maxDimension, boolean alpha) {
+        double ratio = (double) maxDimension / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, type);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    static List<Size> parseSizes(String spec) {
+        List<Size> parsed = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalStateException("Variant sizes must be name:maxDimension pairs, got " + entry);
+            }
+            parsed.add(new Size(parts[0].trim(), Integer.parseInt(parts[1].trim())));
+        }
+        return parsed;
+    }
+}
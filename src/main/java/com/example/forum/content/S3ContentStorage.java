@@ -0,0 +1,326 @@
+package com.example.forum.content;
+
+import com.example.forum.exception.ResourceNotFoundException;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stores content as objects in an S3-compatible bucket, using path-style requests signed with
+ * Signature Version 4. Large uploads are sent as a multipart upload with several parts in
+ * flight, and downloads redirect the client to a presigned URL so the bytes do not pass
+ * through this application.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.content.storage.backend", havingValue = "s3")
+public class S3ContentStorage implements ContentStorage {
+
+    public static final String NAME = "s3";
+
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+
+    @Value("${app.content.s3.endpoint}")
+    private String endpoint;
+
+    @Value("${app.content.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${app.content.s3.bucket}")
+    private String bucket;
+
+    @Value("${app.content.s3.access-key}")
+    private String accessKey;
+
+    @Value("${app.content.s3.secret-key}")
+    private String secretKey;
+
+    @Value("${app.content.s3.key-prefix:content/}")
+    private String keyPrefix;
+
+    // S3 requires every part but the last to be at least 5MB
+    @Value("${app.content.s3.part-size-bytes:8388608}")
+    private long partSize;
+
+    @Value("${app.content.s3.upload-parallelism:4}")
+    private int uploadParallelism;
+
+    @Value("${app.content.s3.direct-download:true}")
+    private boolean directDownload;
+
+    @Value("${app.content.s3.presign-ttl-seconds:300}")
+    private long presignTtlSeconds;
+
+    private HttpClient httpClient;
+    private SigV4Signer signer;
+
+    @PostConstruct
+    public void init() {
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        signer = new SigV4Signer(accessKey, secretKey, region, "s3");
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String store(String sha256, Path source, long size) throws IOException {
+        String key = keyPrefix + ContentStorage.uniqueName(sha256);
+        if (size <= partSize) {
+            // The object hash doubles as the signed payload hash
+            HttpResponse<String> response = send(signed("PUT", objectUri(key, null),
+                    HttpRequest.BodyPublishers.ofFile(source), sha256, Map.of()));
+            check(response, "PUT", key);
+        } else {
+            multipartUpload(key, source, size);
+        }
+        return key;
+    }
+
+    @Override
+    public <T> T read(String location, StreamReader<T> reader) throws IOException {
+        try (InputStream in = get(location, Map.of())) {
+            return reader.read(in);
+        }
+    }
+
+    @Override
+    public void transfer(String location, long start, long count, HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        try (InputStream in = get(location, Map.of("Range", "bytes=" + start + "-" + (start + count - 1)))) {
+            in.transferTo(response.getOutputStream());
+        }
+    }
+
+    @Override
+    public Optional<URI> presign(String location, MediaType mediaType, ContentDisposition disposition) {
+        if (!directDownload) {
+            return Optional.empty();
+        }
+        URI uri = objectUri(location, "response-cache-control=" + SigV4Signer.encode("private, no-store", false)
+                + "&response-content-disposition=" + SigV4Signer.encode(disposition.toString(), false)
+                + "&response-content-type=" + SigV4Signer.encode(mediaType.toString(), false));
+        return Optional.of(signer.presign("GET", uri, Duration.ofSeconds(presignTtlSeconds), Instant.now()));
+    }
+
+    @Override
+    public void delete(String location) throws IOException {
+        HttpResponse<String> response = send(signed("DELETE", objectUri(location, null),
+                HttpRequest.BodyPublishers.noBody(), SigV4Signer.EMPTY_SHA256, Map.of()));
+        if (response.statusCode() != 404) {
+            check(response, "DELETE", location);
+        }
+    }
+
+    private InputStream get(String key, Map<String, String> headers) throws IOException {
+        HttpRequest get = signed("GET", objectUri(key, null), HttpRequest.BodyPublishers.noBody(),
+                SigV4Signer.EMPTY_SHA256, headers);
+        HttpResponse<InputStream> object;
+        try {
+            object = httpClient.send(get, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading " + key);
+        }
+        if (object.statusCode() == 200 || object.statusCode() == 206) {
+            return object.body();
+        }
+        object.body().close();
+        if (object.statusCode() == 404) {
+            throw new ResourceNotFoundException("Content object", "key", key);
+        }
+        throw new IOException("S3 GET " + key + " failed with status " + object.statusCode());
+    }
+
+    private void multipartUpload(String key, Path source, long size) throws IOException {
+        HttpResponse<String> initiated = send(signed("POST", objectUri(key, "uploads"),
+                HttpRequest.BodyPublishers.noBody(), SigV4Signer.EMPTY_SHA256, Map.of()));
+        check(initiated, "initiate multipart upload of", key);
+        Matcher matcher = UPLOAD_ID.matcher(initiated.body());
+        if (!matcher.find()) {
+            throw new IOException("S3 did not return an upload ID for " + key);
+        }
+        String uploadId = matcher.group(1);
+        String uploadQuery = "uploadId=" + SigV4Signer.encode(uploadId, false);
+
+        try {
+            // Send the parts concurrently, with a bounded number in flight
+            int parts = (int) ((size + partSize - 1) / partSize);
+            Semaphore inFlight = new Semaphore(uploadParallelism);
+            List<CompletableFuture<String>> etags = new ArrayList<>(parts);
+            for (int part = 0; part < parts; part++) {
+                long offset = part * partSize;
+                long length = Math.min(partSize, size - offset);
+                HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.fromPublisher(
+                        HttpRequest.BodyPublishers.ofInputStream(() -> openRegion(source, offset, length)), length);
+                HttpRequest request = signed("PUT", objectUri(key, "partNumber=" + (part + 1) + "&" + uploadQuery),
+                        body, SigV4Signer.UNSIGNED_PAYLOAD, Map.of());
+
+                inFlight.acquire();
+                etags.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                        .whenComplete((response, error) -> inFlight.release())
+                        .thenApply(response -> {
+                            try {
+                                check(response, "upload part of", key);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                            return response.headers().firstValue("ETag")
+                                    .orElseThrow(() -> new UncheckedIOException(
+                                            new IOException("S3 did not return an ETag for a part of " + key)));
+                        }));
+            }
+
+            StringBuilder completion = new StringBuilder("<CompleteMultipartUpload>");
+            for (int part = 0; part < parts; part++) {
+                completion.append("<Part><PartNumber>").append(part + 1).append("</PartNumber><ETag>")
+                        .append(etags.get(part).join()).append("</ETag></Part>");
+            }
+            byte[] body = completion.append("</CompleteMultipartUpload>").toString().getBytes(StandardCharsets.UTF_8);
+            HttpResponse<String> completed = send(signed("POST", objectUri(key, uploadQuery),
+                    HttpRequest.BodyPublishers.ofByteArray(body), SigV4Signer.sha256(body), Map.of()));
+            check(completed, "complete multipart upload of", key);
+            // S3 can report a failed completion in the body of a 200 response
+            if (completed.body().contains("<Error>")) {
+                throw new IOException("S3 failed to complete the multipart upload of " + key + ": " + completed.body());
+            }
+        } catch (IOException | RuntimeException | InterruptedException e) {
+            abort(key, uploadQuery);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while uploading " + key);
+            }
+            if (e instanceof CompletionException && e.getCause() instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            }
+            if (e instanceof CompletionException && e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw e instanceof IOException io ? io : new IOException("Multipart upload of " + key + " failed", e);
+        }
+    }
+
+    private void abort(String key, String uploadQuery) {
+        try {
+            send(signed("DELETE", objectUri(key, uploadQuery), HttpRequest.BodyPublishers.noBody(),
+                    SigV4Signer.EMPTY_SHA256, Map.of()));
+        } catch (IOException e) {
+            log.warn("Failed to abort multipart upload of {}", key, e);
+        }
+    }
+
+    private URI objectUri(String key, String query) {
+        String base = endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+        return URI.create(base + "/" + SigV4Signer.encode(bucket, false) + "/" + SigV4Signer.encode(key, true)
+                + (query != null ? "?" + query : ""));
+    }
+
+    private HttpRequest signed(String method, URI uri, HttpRequest.BodyPublisher body, String payloadHash,
+                               Map<String, String> headers) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .method(method, body)
+                .timeout(Duration.ofMinutes(5));
+        headers.forEach(builder::header);
+        signer.sign(method, uri, headers, payloadHash, Instant.now()).forEach(builder::header);
+        return builder.build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during S3 " + request.method() + " " + request.uri());
+        }
+    }
+
+    private static void check(HttpResponse<String> response, String action, String key) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("S3 " + action + " " + key + " failed with status " + response.statusCode()
+                    + ": " + response.body());
+        }
+    }
+
+    private static InputStream openRegion(Path file, long offset, long length) {
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            channel.position(offset);
+            return new RegionInputStream(Channels.newInputStream(channel), length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads at most a given number of bytes from a stream.
+     */
+    private static final class RegionInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        RegionInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+}
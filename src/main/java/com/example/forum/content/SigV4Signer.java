@@ -0,0 +1,201 @@
+package com.example.forum.content;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Signs requests with AWS Signature Version 4, either in the Authorization header or as a
+ * presigned URL. Paths and query strings must already be encoded with {@link #encode}.
+ */
+final class SigV4Signer {
+
+    static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    static final String EMPTY_SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final String accessKey;
+    private final String secretKey;
+    private final String region;
+    private final String service;
+
+    SigV4Signer(String accessKey, String secretKey, String region, String service) {
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.region = region;
+        this.service = service;
+    }
+
+    /**
+     * Sign a request in the Authorization header.
+     *
+     * @param method      the HTTP method
+     * @param uri         the request URI
+     * @param headers     the headers to sign besides Host and the x-amz headers
+     * @param payloadHash the hex SHA-256 of the body, or {@link #UNSIGNED_PAYLOAD}
+     * @param now         the signing time
+     * @return the headers to add to the request
+     */
+    Map<String, String> sign(String method, URI uri, Map<String, String> headers, String payloadHash, Instant now) {
+        String timestamp = TIMESTAMP.format(now);
+        String scope = scope(timestamp);
+
+        TreeMap<String, String> canonicalHeaders = new TreeMap<>();
+        headers.forEach((name, value) -> canonicalHeaders.put(name.toLowerCase(Locale.ROOT), value.trim()));
+        canonicalHeaders.put("host", host(uri));
+        canonicalHeaders.put("x-amz-content-sha256", payloadHash);
+        canonicalHeaders.put("x-amz-date", timestamp);
+        String signedHeaders = String.join(";", canonicalHeaders.keySet());
+
+        StringBuilder canonicalRequest = new StringBuilder()
+                .append(method).append('\n')
+                .append(canonicalPath(uri)).append('\n')
+                .append(canonicalQuery(uri.getRawQuery())).append('\n');
+        canonicalHeaders.forEach((name, value) -> canonicalRequest.append(name).append(':').append(value).append('\n'));
+        canonicalRequest.append('\n').append(signedHeaders).append('\n').append(payloadHash);
+
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put("x-amz-date", timestamp);
+        result.put("x-amz-content-sha256", payloadHash);
+        result.put("Authorization", ALGORITHM + " Credential=" + accessKey + "/" + scope
+                + ",SignedHeaders=" + signedHeaders
+                + ",Signature=" + signature(timestamp, scope, canonicalRequest.toString()));
+        return result;
+    }
+
+    /**
+     * Create a presigned URL that only signs the Host header.
+     *
+     * @param method  the HTTP method
+     * @param uri     the request URI
+     * @param expires how long the URL is valid
+     * @param now     the signing time
+     * @return the presigned URL
+     */
+    URI presign(String method, URI uri, Duration expires, Instant now) {
+        String timestamp = TIMESTAMP.format(now);
+        String scope = scope(timestamp);
+
+        String query = (uri.getRawQuery() != null ? uri.getRawQuery() + "&" : "")
+                + "X-Amz-Algorithm=" + ALGORITHM
+                + "&X-Amz-Credential=" + encode(accessKey + "/" + scope, false)
+                + "&X-Amz-Date=" + timestamp
+                + "&X-Amz-Expires=" + expires.toSeconds()
+                + "&X-Amz-SignedHeaders=host";
+        String canonicalRequest = method + '\n'
+                + canonicalPath(uri) + '\n'
+                + canonicalQuery(query) + '\n'
+                + "host:" + host(uri) + "\n\n"
+                + "host\n"
+                + UNSIGNED_PAYLOAD;
+
+        return URI.create(uri.getScheme() + "://" + uri.getRawAuthority() + uri.getRawPath()
+                + "?" + query + "&X-Amz-Signature=" + signature(timestamp, scope, canonicalRequest));
+    }
+
+    /**
+     * Percent-encode a string the way Signature Version 4 expects.
+     *
+     * @param value     the string
+     * @param keepSlash whether slashes are kept, as in paths
+     * @return the encoded string
+     */
+    static String encode(String value, boolean keepSlash) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (keepSlash && c == '/')) {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(HexFormat.of().withUpperCase().toHexDigits(b));
+            }
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * Compute the hex SHA-256 of a payload.
+     *
+     * @param payload the payload
+     * @return the hash
+     */
+    static String sha256(byte[] payload) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(payload));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private String scope(String timestamp) {
+        return timestamp.substring(0, 8) + "/" + region + "/" + service + "/aws4_request";
+    }
+
+    private String signature(String timestamp, String scope, String canonicalRequest) {
+        String stringToSign = ALGORITHM + '\n' + timestamp + '\n' + scope + '\n'
+                + sha256(canonicalRequest.getBytes(StandardCharsets.UTF_8));
+        byte[] key = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), timestamp.substring(0, 8));
+        key = hmac(key, region);
+        key = hmac(key, service);
+        key = hmac(key, "aws4_request");
+        return HexFormat.of().formatHex(hmac(key, stringToSign));
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static String host(URI uri) {
+        return uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+    }
+
+    private static String canonicalPath(URI uri) {
+        String path = uri.getRawPath();
+        return path == null || path.isEmpty() ? "/" : path;
+    }
+
+    private static String canonicalQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return "";
+        }
+        // Parameters are sorted by name, then value
+        List<String[]> parameters = new ArrayList<>();
+        for (String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            parameters.add(separator < 0
+                    ? new String[]{parameter, ""}
+                    : new String[]{parameter.substring(0, separator), parameter.substring(separator + 1)});
+        }
+        parameters.sort(Comparator.<String[], String>comparing(parameter -> parameter[0])
+                .thenComparing(parameter -> parameter[1]));
+        return parameters.stream()
+                .map(parameter -> parameter[0] + "=" + parameter[1])
+                .collect(Collectors.joining("&"));
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.forum.content;
+
+import com.example.forum.model.StorageDeletion;
+import com.example.forum.repository.ContentBlobRepository;
+import com.example.forum.repository.ContentRepository;
+import com.example.forum.repository.StorageDeletionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Outbox of stored bytes to delete from {@link ContentStorage} backends that do not take part
+ * in database transactions.
+ * <p>
+ * A deletion is recorded as a row in the transaction that released the bytes, so a rollback
+ * keeps the bytes and a commit guarantees they are deleted eventually, even if the process
+ * stops before it gets to them. Committed deletions are processed in batches in the
+ * background right after the commit, and failed ones are retried with a growing delay.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StorageDeletionQueue {
+
+    private final StorageDeletionRepository storageDeletionRepository;
+    private final ContentBlobRepository contentBlobRepository;
+    private final ContentRepository contentRepository;
+    private final ContentStorageRegistry contentStorageRegistry;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.content.deletion.batch-size:100}")
+    private int batchSize = 100;
+
+    @Value("${app.content.deletion.retry-delay-ms:60000}")
+    private long retryDelayMs = 60000;
+
+    @Value("${app.content.deletion.max-retry-delay-ms:86400000}")
+    private long maxRetryDelayMs = 86400000;
+
+    private final ReentrantLock processing = new ReentrantLock();
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+
+    private Executor executor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("content-deleter").daemon().factory());
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Record that bytes are to be deleted once the current transaction commits.
+     *
+     * @param storage  the name of the backend holding the bytes
+     * @param location the location of the bytes in the backend
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String storage, String location) {
+        enqueue(storage, location, Duration.ZERO);
+    }
+
+    /**
+     * Record that bytes are to be deleted some time after the current transaction commits,
+     * e.g. to let requests that already looked up the location finish reading them.
+     *
+     * @param storage  the name of the backend holding the bytes
+     * @param location the location of the bytes in the backend
+     * @param delay    how long to keep the bytes
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String storage, String location, Duration delay) {
+        storageDeletionRepository.save(StorageDeletion.builder()
+                .storage(storage)
+                .location(location)
+                .nextAttemptAt(LocalDateTime.now().plus(delay))
+                .build());
+    }
+
+    /**
+     * Process the due deletions in the background. Calls made while a run is already queued
+     * are folded into that run.
+     */
+    public void processSoon() {
+        if (wakeUpPending.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                wakeUpPending.set(false);
+                processDue();
+            });
+        }
+    }
+
+    /**
+     * Delete the bytes of every due deletion, one batch at a time. Deletions that fail are
+     * kept and retried later. If another thread is already processing the queue this returns
+     * immediately.
+     *
+     * @return the number of completed deletions
+     */
+    @Scheduled(fixedDelayString = "${app.content.deletion.interval-ms:60000}",
+               initialDelayString = "${app.content.deletion.interval-ms:60000}")
+    public int processDue() {
+        if (!processing.tryLock()) {
+            return 0;
+        }
+        try {
+            int completed = 0;
+            while (true) {
+                List<StorageDeletion> batch = transactionTemplate.execute(status -> storageDeletionRepository
+                        .findDue(LocalDateTime.now(), PageRequest.of(0, batchSize)));
+                if (batch == null || batch.isEmpty()) {
+                    return completed;
+                }
+                completed += process(batch);
+                if (batch.size() < batchSize) {
+                    return completed;
+                }
+            }
+        } finally {
+            processing.unlock();
+        }
+    }
+
+    private int process(List<StorageDeletion> batch) {
+        List<Long> done = new ArrayList<>();
+        Map<StorageDeletion, String> failed = new LinkedHashMap<>();
+        // Talk to the backends outside of any transaction
+        for (StorageDeletion deletion : batch) {
+            try {
+                if (!isReferenced(deletion)) {
+                    contentStorageRegistry.get(deletion.getStorage()).delete(deletion.getLocation());
+                }
+                done.add(deletion.getId());
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to delete {} content at {} (attempt {})", deletion.getStorage(),
+                        deletion.getLocation(), deletion.getAttempts() + 1, e);
+                failed.put(deletion, String.valueOf(e));
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!done.isEmpty()) {
+                storageDeletionRepository.deleteAllByIdInBatch(done);
+            }
+            failed.forEach((deletion, error) -> storageDeletionRepository.recordFailure(deletion.getId(),
+                    LocalDateTime.now().plus(retryDelay(deletion.getAttempts() + 1)),
+                    error.length() > 500 ? error.substring(0, 500) : error));
+        });
+        return done.size();
+    }
+
+    /**
+     * Whether something points at the location again. New bytes get a location of their own
+     * (see {@link ContentStorage#uniqueName}), but blobs stored before that were named after
+     * their hash alone, and a release racing with a reuse of one can leave it referenced.
+     */
+    private boolean isReferenced(StorageDeletion deletion) {
+        if (contentBlobRepository.existsByStorageAndLocation(deletion.getStorage(), deletion.getLocation())) {
+            return true;
+        }
+        // Content stored before blobs were introduced points at its file directly
+        return FileSystemContentStorage.NAME.equals(deletion.getStorage())
+                && contentRepository.existsByContentPath(deletion.getLocation());
+    }
+
+    private Duration retryDelay(int attempts) {
+        long delay = retryDelayMs << Math.min(attempts - 1, 20);
+        return Duration.ofMillis(Math.min(delay, maxRetryDelayMs));
+    }
+}
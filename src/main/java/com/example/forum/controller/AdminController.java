@@ -0,0 +1,192 @@
+package com.example.forum.controller;
+
+import com.example.forum.cache.ForumPermissionCache;
+import com.example.forum.content.ContentLayoutMigrator;
+import com.example.forum.content.ImageVariantGenerator;
+import com.example.forum.job.CounterReconciliationJob;
+import com.example.forum.job.OrphanFileSweepJob;
+import com.example.forum.model.Role;
+import com.example.forum.model.User;
+import com.example.forum.search.SearchIndexer;
+import com.example.forum.service.UserService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Optional;
+
+/**
+ * Controller for administrative operations and internal metrics.
+ */
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+@Tag(name = "Admin", description = "Administrative operations API")
+public class AdminController {
+
+    private final ForumPermissionCache permissionCache;
+    private final CounterReconciliationJob counterReconciliationJob;
+    private final SearchIndexer searchIndexer;
+    private final ImageVariantGenerator imageVariantGenerator;
+    private final OrphanFileSweepJob orphanFileSweepJob;
+    private final ContentLayoutMigrator contentLayoutMigrator;
+    private final UserService userService;
+
+    /**
+     * Get hit/miss statistics of the forum permission cache.
+     *
+     * @return the cache statistics
+     */
+    @GetMapping("/permission-cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get forum permission cache statistics (admin only)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not authorized")
+    })
+    public ResponseEntity<ForumPermissionCache.Stats> getPermissionCacheStats() {
+        ResponseEntity<ForumPermissionCache.Stats> denied = checkAdmin();
+        if (denied != null) {
+            return denied;
+        }
+        return ResponseEntity.ok(permissionCache.getStats());
+    }
+
+    /**
+     * Recompute the denormalized post, comment and reply counters now.
+     *
+     * @return the number of repaired counters per entity type
+     */
+    @PostMapping("/counters/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Repair drifted post, comment and reply counters (admin only)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Counters reconciled"),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not authorized")
+    })
+    public ResponseEntity<CounterReconciliationJob.Result> reconcileCounters() {
+        ResponseEntity<CounterReconciliationJob.Result> denied = checkAdmin();
+        if (denied != null) {
+            return denied;
+        }
+        return ResponseEntity.ok(counterReconciliationJob.reconcile());
+    }
+
+    /**
+     * Drop the full-text search index and re-index every post and comment.
+     *
+     * @return the number of indexed posts and comments
+     */
+    @PostMapping("/search/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Rebuild the full-text search index (admin only)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Index rebuilt"),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not authorized")
+    })
+    public ResponseEntity<SearchIndexer.Result> rebuildSearchIndex() {
+        ResponseEntity<SearchIndexer.Result> denied = checkAdmin();
+        if (denied != null) {
+            return denied;
+        }
+        return ResponseEntity.ok(searchIndexer.rebuild());
+    }
+
+    /**
+     * Get the progress of the background image variant workers.
+     *
+     * @return the queue length and counts of processed images
+     */
+    @GetMapping("/content-variants/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get thumbnail generation queue statistics (admin only)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not authorized")
+    })
+    public ResponseEntity<ImageVariantGenerator.Stats> getContentVariantStats() {
+        ResponseEntity<ImageVariantGenerator.Stats> denied = checkAdmin();
+        if (denied != null) {
+            return denied;
+        }
+        return ResponseEntity.ok(imageVariantGenerator.getStats());
+    }
+
+    /**
+     * Delete files in the content storage directory that no content points at.
+     *
+     * @param dryRun whether to only report the orphaned files
+     * @return the number of scanned and orphaned files and the bytes reclaimed
+     */
+    @PostMapping("/content-storage/sweep")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Delete orphaned content files (admin only)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Storage swept"),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not authorized")
+    })
+    public ResponseEntity<OrphanFileSweepJob.Result> sweepContentStorage(
+            @Parameter(description = "Only report what would be deleted")
+            @RequestParam(defaultValue = "false") boolean dryRun) {
+        ResponseEntity<OrphanFileSweepJob.Result> denied = checkAdmin();
+        if (denied != null) {
+            return denied;
+        }
+        return ResponseEntity.ok(orphanFileSweepJob.sweep(dryRun));
+    }
+
+    /**
+     * Move files stored flat in the content storage directory into hash-prefixed
+     * subdirectories. Files stay available while they are moved.
+     *
+     * @return the number of scanned, moved and failed files
+     */
+    @PostMapping("/content-storage/migrate-layout")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Move content files into the sharded directory layout (admin only)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Files moved"),
+            @ApiResponse(responseCode = "400", description = "A migration is already running"),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not authorized")
+    })
+    public ResponseEntity<ContentLayoutMigrator.Result> migrateContentStorageLayout() {
+        ResponseEntity<ContentLayoutMigrator.Result> denied = checkAdmin();
+        if (denied != null) {
+            return denied;
+        }
+        return ResponseEntity.ok(contentLayoutMigrator.migrate());
+    }
+
+    /**
+     * Ensure the current user is a system administrator.
+     *
+     * @return an error response if the user is not an admin, null otherwise
+     */
+    private <T> ResponseEntity<T> checkAdmin() {
+        Optional<User> currentUser = userService.getCurrentUser();
+        if (currentUser.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (currentUser.get().getRole() != Role.ADMIN) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return null;
+    }
+}
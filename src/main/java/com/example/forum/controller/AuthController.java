@@ -23,7 +23,6 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Optional;
@@ -90,9 +89,9 @@ public class AuthController {
         );
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
-        String jwt = jwtTokenProvider.generateToken(authentication);
 
         User user = userService.getUserByUsername(loginRequest.getUsername());
+        String jwt = jwtTokenProvider.generateToken(user);
         JwtResponse response = JwtResponse.builder()
                 .accessToken(jwt)
                 .id(user.getId())
@@ -116,14 +115,15 @@ public class AuthController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Password reset successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid input"),
-            @ApiResponse(responseCode = "401", description = "Current password is incorrect")
+            @ApiResponse(responseCode = "401", description = "Not authenticated or current password is incorrect")
     })
     public ResponseEntity<String> resetPassword(@Valid @RequestBody PasswordResetRequest passwordResetRequest) {
-        UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        String username = userDetails.getUsername();
-        User user = userService.getUserByUsername(username);
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
 
-        boolean success = userService.updateUserPassword(user.getId(),
+        boolean success = userService.updateUserPassword(currentUserId.get(),
                 passwordResetRequest.getOldPassword(),
                 passwordResetRequest.getNewPassword());
 
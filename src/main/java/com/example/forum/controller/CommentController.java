@@ -1,5 +1,6 @@
 package com.example.forum.controller;
 
+import com.example.forum.content.ImageVariantGenerator;
 import com.example.forum.dto.comment.CommentContentResponse;
 import com.example.forum.dto.comment.CommentResponse;
 import com.example.forum.dto.comment.CreateCommentRequest;
@@ -10,7 +11,7 @@ import com.example.forum.model.Comment;
 import com.example.forum.model.Content;
 import com.example.forum.model.ContentType;
 import com.example.forum.model.Post;
-import com.example.forum.model.User;
+import com.example.forum.pagination.CursorPage;
 import com.example.forum.service.CommentService;
 import com.example.forum.service.ForumService;
 import com.example.forum.service.PostService;
@@ -35,7 +36,9 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -52,6 +55,7 @@ public class CommentController {
     private final PostService postService;
     private final ForumService forumService;
     private final UserService userService;
+    private final ImageVariantGenerator imageVariantGenerator;
 
     /**
      * Create a comment on a post.
@@ -71,8 +75,8 @@ public class CommentController {
             @ApiResponse(responseCode = "404", description = "Post not found")
     })
     public ResponseEntity<CommentResponse> createComment(@Valid @RequestBody CreateCommentRequest createCommentRequest) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
@@ -82,18 +86,18 @@ public class CommentController {
             comment = commentService.createComment(
                     createCommentRequest.getPostId(),
                     createCommentRequest.getContent(),
-                    currentUser.get().getId());
+                    currentUserId.get());
         } else if (createCommentRequest.getParentCommentId() != null) {
             // Create reply to a comment
             comment = commentService.createReply(
                     createCommentRequest.getParentCommentId(),
                     createCommentRequest.getContent(),
-                    currentUser.get().getId());
+                    currentUserId.get());
         } else {
             return ResponseEntity.badRequest().build();
         }
 
-        return new ResponseEntity<>(mapCommentToDto(comment, currentUser.get()), HttpStatus.CREATED);
+        return new ResponseEntity<>(mapCommentToDto(comment, currentUserId.get()), HttpStatus.CREATED);
     }
 
     /**
@@ -113,12 +117,10 @@ public class CommentController {
     })
     public ResponseEntity<CommentResponse> getCommentById(
             @Parameter(description = "ID of the comment to retrieve") @PathVariable Long id) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        User user = currentUser.orElse(null);
-        Long userId = user != null ? user.getId() : null;
+        Long userId = userService.getCurrentUserId().orElse(null);
 
         Comment comment = commentService.getCommentById(id, userId);
-        CommentResponse response = mapCommentToDto(comment, user);
+        CommentResponse response = mapCommentToDto(comment, userId);
         return ResponseEntity.ok(response);
     }
 
@@ -143,17 +145,17 @@ public class CommentController {
     public ResponseEntity<CommentResponse> updateComment(
             @Parameter(description = "ID of the comment to update") @PathVariable Long id,
             @Valid @RequestBody UpdateCommentRequest updateCommentRequest) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
         Comment comment = commentService.updateComment(
                 id,
                 updateCommentRequest.getContent(),
-                currentUser.get().getId());
+                currentUserId.get());
 
-        return ResponseEntity.ok(mapCommentToDto(comment, currentUser.get()));
+        return ResponseEntity.ok(mapCommentToDto(comment, currentUserId.get()));
     }
 
     /**
@@ -172,12 +174,12 @@ public class CommentController {
     })
     public ResponseEntity<String> deleteComment(
             @Parameter(description = "ID of the comment to delete") @PathVariable Long id) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        commentService.deleteComment(id, currentUser.get().getId());
+        commentService.deleteComment(id, currentUserId.get());
         return ResponseEntity.ok("Comment deleted successfully");
     }
 
@@ -203,9 +205,7 @@ public class CommentController {
             @Parameter(description = "ID of the post") @PathVariable Long postId,
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        User user = currentUser.orElse(null);
-        Long userId = user != null ? user.getId() : null;
+        Long userId = userService.getCurrentUserId().orElse(null);
 
         // Check post exists and get its forum ID for permission check
         Post post = postService.getPostById(postId, userId);
@@ -214,12 +214,38 @@ public class CommentController {
         Page<Comment> comments = commentService.getCommentsByPost(postId, userId, pageable);
         
         List<CommentResponse> response = comments.getContent().stream()
-                .map(comment -> mapCommentToDto(comment, user))
+                .map(comment -> mapCommentToDto(comment, userId))
                 .collect(Collectors.toList());
                 
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Get top-level comments for a post using cursor pagination, oldest first.
+     *
+     * @param postId the post ID
+     * @param after the cursor returned with the previous page (omit for the first page)
+     * @param size the page size
+     * @return a page of comments with the cursor of the next page
+     */
+    @GetMapping("/by-post/{postId}/cursor")
+    @Operation(summary = "Get comments by post with cursor pagination")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @ApiResponse(responseCode = "403", description = "Not authorized to view this post"),
+            @ApiResponse(responseCode = "404", description = "Post not found")
+    })
+    public ResponseEntity<CursorPage<CommentResponse>> getCommentsByPostCursor(
+            @Parameter(description = "ID of the post") @PathVariable Long postId,
+            @Parameter(description = "Cursor returned with the previous page") @RequestParam(required = false) String after,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size) {
+        Long userId = userService.getCurrentUserId().orElse(null);
+
+        CursorPage<Comment> comments = commentService.getCommentsByPostAfter(postId, userId, after, size);
+        return ResponseEntity.ok(comments.map(comment -> mapCommentToDto(comment, userId)));
+    }
+
     /**
      * Get replies to a comment with pagination.
      *
@@ -242,15 +268,13 @@ public class CommentController {
             @Parameter(description = "ID of the parent comment") @PathVariable Long commentId,
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        User user = currentUser.orElse(null);
-        Long userId = user != null ? user.getId() : null;
+        Long userId = userService.getCurrentUserId().orElse(null);
 
         Pageable pageable = PageRequest.of(page, size, Sort.Direction.ASC, "createdAt");
         Page<Comment> replies = commentService.getRepliesByComment(commentId, userId, pageable);
         
         List<CommentResponse> response = replies.getContent().stream()
-                .map(comment -> mapCommentToDto(comment, user))
+                .map(comment -> mapCommentToDto(comment, userId))
                 .collect(Collectors.toList());
                 
         return ResponseEntity.ok(response);
@@ -278,15 +302,13 @@ public class CommentController {
             @Parameter(description = "ID of the user") @PathVariable Long userId,
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        User user = currentUser.orElse(null);
-        Long currentUserId = user != null ? user.getId() : null;
+        Long currentUserId = userService.getCurrentUserId().orElse(null);
 
         Pageable pageable = PageRequest.of(page, size, Sort.Direction.DESC, "createdAt");
         Page<Comment> comments = commentService.getCommentsByUser(userId, currentUserId, pageable);
         
         List<CommentResponse> response = comments.getContent().stream()
-                .map(comment -> mapCommentToDto(comment, user))
+                .map(comment -> mapCommentToDto(comment, currentUserId))
                 .collect(Collectors.toList());
                 
         return ResponseEntity.ok(response);
@@ -313,15 +335,13 @@ public class CommentController {
             @Parameter(description = "Search term") @RequestParam String query,
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        User user = currentUser.orElse(null);
-        Long userId = user != null ? user.getId() : null;
+        Long userId = userService.getCurrentUserId().orElse(null);
 
         Pageable pageable = PageRequest.of(page, size);
         Page<Comment> comments = commentService.searchComments(query, userId, pageable);
         
         List<CommentResponse> response = comments.getContent().stream()
-                .map(comment -> mapCommentToDto(comment, user))
+                .map(comment -> mapCommentToDto(comment, userId))
                 .collect(Collectors.toList());
                 
         return ResponseEntity.ok(response);
@@ -353,8 +373,8 @@ public class CommentController {
             @Parameter(description = "Content description") @RequestParam(required = false) String description,
             @Parameter(description = "Content type") @RequestParam ContentType contentType,
             @Parameter(description = "Store in database") @RequestParam(defaultValue = "false") boolean storeInDb) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
@@ -364,7 +384,7 @@ public class CommentController {
                 description, 
                 contentType, 
                 storeInDb, 
-                currentUser.get().getId());
+                currentUserId.get());
 
         return ResponseEntity
                 .status(HttpStatus.CREATED)
@@ -388,9 +408,7 @@ public class CommentController {
     })
     public ResponseEntity<List<CommentContentResponse>> getCommentContent(
             @Parameter(description = "ID of the comment") @PathVariable Long id) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        User user = currentUser.orElse(null);
-        Long userId = user != null ? user.getId() : null;
+        Long userId = userService.getCurrentUserId().orElse(null);
 
         List<Content> contents = commentService.getCommentContent(id, userId);
         List<CommentContentResponse> response = contents.stream()
@@ -412,21 +430,19 @@ public class CommentController {
             @ApiResponse(responseCode = "200", description = "Comment upvoted successfully",
                     content = @io.swagger.v3.oas.annotations.media.Content(
                             schema = @Schema(implementation = CommentResponse.class))),
-            @ApiResponse(responseCode = "400", description = "User already upvoted this comment"),
             @ApiResponse(responseCode = "401", description = "Not authenticated"),
             @ApiResponse(responseCode = "403", description = "Not authorized to upvote comments"),
-            @ApiResponse(responseCode = "404", description = "Comment not found"),
-            @ApiResponse(responseCode = "409", description = "User already voted on this comment")
+            @ApiResponse(responseCode = "404", description = "Comment not found")
     })
     public ResponseEntity<CommentResponse> upvoteComment(
             @Parameter(description = "ID of the comment to upvote") @PathVariable Long id) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
-        Comment comment = commentService.upvoteComment(id, currentUser.get().getId());
-        return ResponseEntity.ok(mapCommentToDto(comment, currentUser.get()));
+        Comment comment = commentService.upvoteComment(id, currentUserId.get());
+        return ResponseEntity.ok(mapCommentToDto(comment, currentUserId.get()));
     }
     
     /**
@@ -447,13 +463,40 @@ public class CommentController {
     })
     public ResponseEntity<CommentResponse> downvoteComment(
             @Parameter(description = "ID of the comment to downvote") @PathVariable Long id) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        
+        Comment comment = commentService.downvoteComment(id, currentUserId.get());
+        return ResponseEntity.ok(mapCommentToDto(comment, currentUserId.get()));
+    }
+
+    /**
+     * Withdraw the current user's vote on a comment.
+     *
+     * @param id the comment ID
+     * @return the updated comment
+     */
+    @DeleteMapping("/{id}/vote")
+    @Operation(summary = "Withdraw a vote on a comment")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Vote withdrawn successfully",
+                    content = @io.swagger.v3.oas.annotations.media.Content(
+                            schema = @Schema(implementation = CommentResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not authorized to view this comment"),
+            @ApiResponse(responseCode = "404", description = "Comment not found")
+    })
+    public ResponseEntity<CommentResponse> clearCommentVote(
+            @Parameter(description = "ID of the comment") @PathVariable Long id) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
-        Comment comment = commentService.downvoteComment(id, currentUser.get().getId());
-        return ResponseEntity.ok(mapCommentToDto(comment, currentUser.get()));
+        Comment comment = commentService.clearCommentVote(id, currentUserId.get());
+        return ResponseEntity.ok(mapCommentToDto(comment, currentUserId.get()));
     }
 
     /**
@@ -474,12 +517,12 @@ public class CommentController {
     public ResponseEntity<String> deleteCommentContent(
             @Parameter(description = "ID of the comment") @PathVariable Long commentId,
             @Parameter(description = "ID of the content to delete") @PathVariable Long contentId) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        commentService.deleteCommentContent(contentId, currentUser.get().getId());
+        commentService.deleteCommentContent(contentId, currentUserId.get());
         return ResponseEntity.ok("Content deleted successfully");
     }
 
@@ -487,10 +530,10 @@ public class CommentController {
      * Map Comment entity to CommentResponse DTO.
      *
      * @param comment the comment entity
-     * @param currentUser the current user (can be null)
+     * @param currentUserId the ID of the current user (can be null)
      * @return the comment DTO
      */
-    private CommentResponse mapCommentToDto(Comment comment, User currentUser) {
+    private CommentResponse mapCommentToDto(Comment comment, Long currentUserId) {
         CommentResponse.CommentResponseBuilder builder = CommentResponse.builder()
                 .id(comment.getId())
                 .content(comment.getContent())
@@ -503,9 +546,8 @@ public class CommentController {
             builder.parentCommentId(comment.getParentComment().getId());
         }
 
-        // Count replies
-        int replyCount = comment.getReplies() != null ? comment.getReplies().size() : 0;
-        builder.replyCount(replyCount);
+        builder.replyCount(comment.getReplyCount());
+        builder.score(comment.getScore());
 
         // Map author
         if (comment.getUser() != null) {
@@ -526,12 +568,12 @@ public class CommentController {
         }
 
         // Set permissions
-        if (currentUser != null) {
+        if (currentUserId != null) {
             boolean isAuthor = comment.getUser() != null && 
-                    comment.getUser().getId().equals(currentUser.getId());
-            boolean isPostAuthor = comment.getPost().getUser().getId().equals(currentUser.getId());
+                    comment.getUser().getId().equals(currentUserId);
+            boolean isPostAuthor = comment.getPost().getUser().getId().equals(currentUserId);
             boolean isAdmin = forumService.hasForumAccess(
-                    comment.getPost().getForum().getId(), currentUser.getId(), AccessLevel.ADMIN);
+                    comment.getPost().getForum().getId(), currentUserId, AccessLevel.ADMIN);
             
             builder.canEdit(isAuthor || isAdmin);
             builder.canDelete(isAuthor || isPostAuthor || isAdmin);
@@ -547,20 +589,11 @@ public class CommentController {
      * @return the content DTO
      */
     private CommentContentResponse mapContentToDto(Content content) {
-        String contentUrl = null;
-        if (!content.isStoredInDb() && content.getContentPath() != null) {
-            // Generate URL for content stored on disk
-            contentUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
-                    .path("/content/")
-                    .path(content.getFilename())
-                    .toUriString();
-        } else if (content.isStoredInDb()) {
-            // Generate URL for content stored in DB
-            contentUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
-                    .path("/api/content/")
-                    .path(content.getId().toString())
-                    .toUriString();
-        }
+        // Content is served by ID wherever it is stored, so the download can be access checked
+        String contentUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/content/")
+                .path(content.getId().toString())
+                .toUriString();
 
         return CommentContentResponse.builder()
                 .id(content.getId())
@@ -568,7 +601,29 @@ public class CommentController {
                 .description(content.getDescription())
                 .contentType(content.getContentType())
                 .contentUrl(contentUrl)
+                .variantUrls(mapVariantUrls(content))
                 .createdAt(content.getCreatedAt())
                 .build();
     }
+
+    /**
+     * Build the URLs of the resized variants of an image. A variant that was not generated
+     * yet redirects to the image itself.
+     *
+     * @param content the content entity
+     * @return the variant URLs by name, or null if the content is not an image
+     */
+    private Map<String, String> mapVariantUrls(Content content) {
+        if (content.getContentType() != ContentType.IMAGE) {
+            return null;
+        }
+        Map<String, String> variantUrls = new LinkedHashMap<>();
+        for (String name : imageVariantGenerator.variantNames()) {
+            variantUrls.put(name, ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/api/content/{id}/variants/{name}")
+                    .buildAndExpand(content.getId(), name)
+                    .toUriString());
+        }
+        return variantUrls;
+    }
 }
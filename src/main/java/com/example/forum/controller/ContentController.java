@@ -0,0 +1,107 @@
+package com.example.forum.controller;
+
+import com.example.forum.content.ContentDelivery;
+import com.example.forum.repository.ContentRepository;
+import com.example.forum.service.ContentService;
+import com.example.forum.service.UserService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Controller for downloading content attached to posts and comments.
+ */
+@RestController
+@RequestMapping("/api/content")
+@RequiredArgsConstructor
+@Tag(name = "Content", description = "Content download API")
+public class ContentController {
+
+    private final ContentService contentService;
+    private final ContentDelivery contentDelivery;
+    private final UserService userService;
+
+    /**
+     * Download a piece of content. Video and audio accept byte-range requests.
+     *
+     * @param id the content ID
+     * @param request the HTTP request
+     * @param response the HTTP response the content is written to
+     * @throws IOException if writing to the client fails
+     */
+    @GetMapping("/{id}")
+    @Operation(summary = "Download content, with conditional and byte-range request support")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Content returned"),
+            @ApiResponse(responseCode = "206", description = "Requested byte range returned"),
+            @ApiResponse(responseCode = "304", description = "Content not modified"),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not authorized to view this content"),
+            @ApiResponse(responseCode = "404", description = "Content not found"),
+            @ApiResponse(responseCode = "416", description = "Requested range not satisfiable")
+    })
+    public void getContent(
+            @Parameter(description = "ID of the content") @PathVariable Long id,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Long userId = userService.getCurrentUserId().orElse(null);
+
+        contentDelivery.serve(contentService.getContentForDownload(id, userId), request, response);
+    }
+
+    /**
+     * Download a resized variant of an image, such as its thumbnail. Until the variant has
+     * been generated, or if the image is already smaller, this redirects to the image itself.
+     *
+     * @param id the content ID
+     * @param name the variant name
+     * @param request the HTTP request
+     * @param response the HTTP response the variant is written to
+     * @throws IOException if writing to the client fails
+     */
+    @GetMapping("/{id}/variants/{name}")
+    @Operation(summary = "Download a thumbnail or other resized variant of an image")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Variant returned"),
+            @ApiResponse(responseCode = "304", description = "Variant not modified"),
+            @ApiResponse(responseCode = "307", description = "No such variant was generated, redirect to the image"),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not authorized to view this content"),
+            @ApiResponse(responseCode = "404", description = "Content or variant name not found")
+    })
+    public void getContentVariant(
+            @Parameter(description = "ID of the content") @PathVariable Long id,
+            @Parameter(description = "Name of the variant, such as thumbnail") @PathVariable String name,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Long userId = userService.getCurrentUserId().orElse(null);
+
+        Optional<ContentRepository.DownloadRow> variant = contentService.getVariantForDownload(id, name, userId);
+        if (variant.isPresent()) {
+            contentDelivery.serve(variant.get(), request, response);
+            return;
+        }
+        // The variant may still appear, so the redirect must not be cached
+        response.setStatus(HttpServletResponse.SC_TEMPORARY_REDIRECT);
+        response.setHeader(HttpHeaders.LOCATION, ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/content/")
+                .path(id.toString())
+                .toUriString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.forum.controller;
+
+import com.example.forum.events.EventTopic;
+import com.example.forum.events.ForumEvent;
+import com.example.forum.events.ForumEventBus;
+import com.example.forum.service.UserService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+
+/**
+ * Controller for Server-Sent Events streams of new and changed posts and comments. The same
+ * events are available over WebSocket at {@code /ws/events}.
+ */
+@RestController
+@RequestMapping("/api/events")
+@RequiredArgsConstructor
+@Tag(name = "Events", description = "Push notifications of new and changed posts and comments")
+public class EventController {
+
+    private final ForumEventBus forumEventBus;
+    private final UserService userService;
+
+    @Value("${app.events.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs = 1800000;
+
+    /**
+     * Stream the events of every post in a forum.
+     *
+     * @param forumId the forum ID
+     * @return the event stream
+     */
+    @GetMapping(path = "/forums/{forumId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream the post, comment and vote events of a forum")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream"),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not authorized to view posts in this forum")
+    })
+    public SseEmitter streamForumEvents(@Parameter(description = "ID of the forum") @PathVariable Long forumId) {
+        Long userId = userService.getCurrentUserId().orElse(null);
+        return stream(forumEventBus.subscribe(EventTopic.forum(forumId), userId));
+    }
+
+    /**
+     * Stream the events of a post and its comments.
+     *
+     * @param postId the post ID
+     * @return the event stream
+     */
+    @GetMapping(path = "/posts/{postId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream the events of a post and its comments")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream"),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not authorized to view this post"),
+            @ApiResponse(responseCode = "404", description = "Post not found")
+    })
+    public SseEmitter streamPostEvents(@Parameter(description = "ID of the post") @PathVariable Long postId) {
+        Long userId = userService.getCurrentUserId().orElse(null);
+        return stream(forumEventBus.subscribe(EventTopic.post(postId), userId));
+    }
+
+    /**
+     * Send events to the client until it disconnects or the stream times out. Each send blocks
+     * the virtual thread of the subscriber, which is what holds back a slow client's events.
+     */
+    private SseEmitter stream(Flux<ForumEvent> events) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        Disposable subscription = events.subscribe(event -> {
+            try {
+                emitter.send(SseEmitter.event().name(event.type().name()).data(event, MediaType.APPLICATION_JSON));
+            } catch (IOException e) {
+                // The client is gone, cancel the subscription
+                throw Exceptions.propagate(e);
+            }
+        }, emitter::completeWithError);
+        emitter.onCompletion(subscription::dispose);
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(error -> subscription.dispose());
+        return emitter;
+    }
+}
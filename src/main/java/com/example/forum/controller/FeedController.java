@@ -0,0 +1,62 @@
+package com.example.forum.controller;
+
+import com.example.forum.dto.post.PostResponse;
+import com.example.forum.model.Post;
+import com.example.forum.pagination.CursorPage;
+import com.example.forum.service.PostService;
+import com.example.forum.service.UserService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Optional;
+
+/**
+ * Controller for the home feed of the current user.
+ */
+@RestController
+@RequestMapping("/api/feed")
+@RequiredArgsConstructor
+@Tag(name = "Feed", description = "Home feed API")
+public class FeedController {
+
+    private final PostService postService;
+    private final UserService userService;
+    private final PostResponseMapper postResponseMapper;
+
+    /**
+     * Get the newest posts across every forum the current user can read, using cursor
+     * pagination.
+     *
+     * @param after the cursor returned with the previous page (omit for the first page)
+     * @param size the page size
+     * @return a page of posts with the cursor of the next page
+     */
+    @GetMapping
+    @Operation(summary = "Get the home feed of the current user with cursor pagination")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @ApiResponse(responseCode = "401", description = "Not authenticated")
+    })
+    public ResponseEntity<CursorPage<PostResponse>> getFeed(
+            @Parameter(description = "Cursor returned with the previous page") @RequestParam(required = false) String after,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        CursorPage<Post> posts = postService.getHomeFeed(currentUserId.get(), after, size);
+        return ResponseEntity.ok(posts.map(post -> postResponseMapper.mapPostToDto(post, currentUserId.get())));
+    }
+}
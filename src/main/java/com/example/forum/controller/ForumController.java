@@ -3,10 +3,10 @@ package com.example.forum.controller;
 import com.example.forum.dto.forum.CreateForumRequest;
 import com.example.forum.dto.forum.ForumAccessRequest;
 import com.example.forum.dto.forum.ForumResponse;
+import com.example.forum.dto.forum.ForumTreeNode;
 import com.example.forum.dto.forum.UpdateForumRequest;
 import com.example.forum.model.AccessLevel;
 import com.example.forum.model.Forum;
-import com.example.forum.model.User;
 import com.example.forum.service.ForumService;
 import com.example.forum.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -25,6 +25,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -57,15 +58,15 @@ public class ForumController {
             @ApiResponse(responseCode = "409", description = "Forum with this name already exists")
     })
     public ResponseEntity<ForumResponse> createForum(@Valid @RequestBody CreateForumRequest createForumRequest) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
         Forum forum = forumService.createForum(
                 createForumRequest.getName(),
                 createForumRequest.getDescription(),
-                currentUser.get().getId());
+                currentUserId.get());
 
         return new ResponseEntity<>(mapForumToDto(forum), HttpStatus.CREATED);
     }
@@ -92,8 +93,8 @@ public class ForumController {
     public ResponseEntity<ForumResponse> createSubforum(
             @Parameter(description = "ID of the parent forum") @PathVariable Long parentId,
             @Valid @RequestBody CreateForumRequest createForumRequest) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
@@ -101,7 +102,7 @@ public class ForumController {
                 createForumRequest.getName(),
                 createForumRequest.getDescription(),
                 parentId,
-                currentUser.get().getId());
+                currentUserId.get());
 
         return new ResponseEntity<>(mapForumToDto(forum), HttpStatus.CREATED);
     }
@@ -122,8 +123,7 @@ public class ForumController {
     })
     public ResponseEntity<ForumResponse> getForumById(
             @Parameter(description = "ID of the forum to retrieve") @PathVariable Long id) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        Long userId = currentUser.map(User::getId).orElse(null);
+        Long userId = userService.getCurrentUserId().orElse(null);
 
         Forum forum = forumService.getForumById(id);
         ForumResponse response = mapForumToDto(forum);
@@ -162,6 +162,22 @@ public class ForumController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Get the whole forum hierarchy.
+     *
+     * @return the root forums with all subforums nested inside them
+     */
+    @GetMapping("/tree")
+    @Operation(summary = "Get the whole forum hierarchy with post counts")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = {@Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = ForumTreeNode.class)))})
+    })
+    public ResponseEntity<List<ForumTreeNode>> getForumTree() {
+        return ResponseEntity.ok(forumService.getForumTree());
+    }
+
     /**
      * Get all subforums of a forum.
      *
@@ -207,8 +223,8 @@ public class ForumController {
     public ResponseEntity<ForumResponse> updateForum(
             @Parameter(description = "ID of the forum to update") @PathVariable Long id,
             @Valid @RequestBody UpdateForumRequest updateForumRequest) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
@@ -216,7 +232,7 @@ public class ForumController {
                 id,
                 updateForumRequest.getName(),
                 updateForumRequest.getDescription(),
-                currentUser.get().getId());
+                currentUserId.get());
 
         return ResponseEntity.ok(mapForumToDto(forum));
     }
@@ -238,12 +254,12 @@ public class ForumController {
     })
     public ResponseEntity<String> deleteForum(
             @Parameter(description = "ID of the forum to delete") @PathVariable Long id) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        forumService.deleteForum(id, currentUser.get().getId());
+        forumService.deleteForum(id, currentUserId.get());
         return ResponseEntity.ok("Forum deleted successfully");
     }
 
@@ -270,12 +286,12 @@ public class ForumController {
             @Parameter(description = "ID of the forum to move") @PathVariable Long id,
             @Parameter(description = "ID of the new parent forum (null for root level)") 
             @RequestParam(required = false) Long newParentId) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        Forum forum = forumService.moveForum(id, newParentId, currentUser.get().getId());
+        Forum forum = forumService.moveForum(id, newParentId, currentUserId.get());
         return ResponseEntity.ok(mapForumToDto(forum));
     }
 
@@ -316,12 +332,12 @@ public class ForumController {
             @ApiResponse(responseCode = "401", description = "Not authenticated")
     })
     public ResponseEntity<List<ForumResponse>> getAccessibleForums() {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        List<Forum> forums = forumService.getAccessibleForums(currentUser.get().getId());
+        List<Forum> forums = forumService.getAccessibleForums(currentUserId.get());
         List<ForumResponse> response = forums.stream()
                 .map(this::mapForumToDto)
                 .collect(Collectors.toList());
@@ -347,8 +363,8 @@ public class ForumController {
     public ResponseEntity<String> grantForumAccess(
             @Parameter(description = "ID of the forum") @PathVariable Long id,
             @Valid @RequestBody ForumAccessRequest forumAccessRequest) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
@@ -356,7 +372,7 @@ public class ForumController {
                 id,
                 forumAccessRequest.getUserId(),
                 forumAccessRequest.getAccessLevel(),
-                currentUser.get().getId());
+                currentUserId.get());
 
         if (success) {
             return ResponseEntity.ok("Access granted successfully");
@@ -384,8 +400,8 @@ public class ForumController {
     public ResponseEntity<String> updateForumAccess(
             @Parameter(description = "ID of the forum") @PathVariable Long id,
             @Valid @RequestBody ForumAccessRequest forumAccessRequest) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
@@ -393,7 +409,7 @@ public class ForumController {
                 id,
                 forumAccessRequest.getUserId(),
                 forumAccessRequest.getAccessLevel(),
-                currentUser.get().getId());
+                currentUserId.get());
 
         if (success) {
             return ResponseEntity.ok("Access updated successfully");
@@ -421,15 +437,15 @@ public class ForumController {
     public ResponseEntity<String> revokeForumAccess(
             @Parameter(description = "ID of the forum") @PathVariable Long id,
             @Parameter(description = "ID of the user") @PathVariable Long userId) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
         boolean success = forumService.revokeForumAccess(
                 id,
                 userId,
-                currentUser.get().getId());
+                currentUserId.get());
 
         if (success) {
             return ResponseEntity.ok("Access revoked successfully");
@@ -439,30 +455,53 @@ public class ForumController {
     }
 
     /**
-     * Map Forum entity to ForumResponse DTO.
+     * Map Forum entity to ForumResponse DTO, including its whole subforum tree.
+     * The subtree is loaded with a single query and assembled in memory.
      *
      * @param forum the forum entity
      * @return the forum DTO
      */
     private ForumResponse mapForumToDto(Forum forum) {
+        List<Forum> subtree = forumService.getForumSubtree(forum.getId());
+        Map<Long, Forum> forumsById = subtree.stream()
+                .collect(Collectors.toMap(Forum::getId, f -> f, (a, b) -> a));
+        Map<Long, List<Forum>> childrenByParentId = subtree.stream()
+                .filter(f -> f.getParentForum() != null && !f.getId().equals(forum.getId()))
+                .collect(Collectors.groupingBy(f -> f.getParentForum().getId()));
+        return mapForumToDto(forum, forumsById, childrenByParentId);
+    }
+
+    /**
+     * Map a forum and its already loaded descendants to a ForumResponse DTO.
+     *
+     * @param forum the forum entity
+     * @param forumsById the loaded subtree forums by ID
+     * @param childrenByParentId the loaded subtree forums grouped by parent ID
+     * @return the forum DTO
+     */
+    private ForumResponse mapForumToDto(Forum forum, Map<Long, Forum> forumsById,
+                                        Map<Long, List<Forum>> childrenByParentId) {
         ForumResponse.ForumResponseBuilder builder = ForumResponse.builder()
                 .id(forum.getId())
                 .name(forum.getName())
                 .description(forum.getDescription())
                 .createdAt(forum.getCreatedAt())
                 .updatedAt(forum.getUpdatedAt())
-                .postCount(forum.getPosts() != null ? forum.getPosts().size() : 0);
+                .postCount(forum.getPostCount());
 
         // Add parent forum info if exists
         if (forum.getParentForum() != null) {
-            builder.parentForumId(forum.getParentForum().getId())
-                   .parentForumName(forum.getParentForum().getName());
+            Long parentId = forum.getParentForum().getId();
+            Forum parent = forumsById.getOrDefault(parentId, forum.getParentForum());
+            builder.parentForumId(parentId)
+                   .parentForumName(parent.getName());
         }
 
         // Add subforums if available
-        if (forum.getSubForums() != null && !forum.getSubForums().isEmpty()) {
-            List<ForumResponse> subForumDtos = forum.getSubForums().stream()
-                    .map(this::mapForumToDto)
+        List<Forum> children = childrenByParentId.getOrDefault(forum.getId(), List.of());
+        if (!children.isEmpty()) {
+            List<ForumResponse> subForumDtos = children.stream()
+                    .map(child -> mapForumToDto(child, forumsById, childrenByParentId))
                     .collect(Collectors.toList());
             builder.subForums(subForumDtos);
         }
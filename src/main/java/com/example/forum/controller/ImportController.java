@@ -0,0 +1,60 @@
+package com.example.forum.controller;
+
+import com.example.forum.importer.BulkImporter;
+import com.example.forum.service.UserService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Controller for bulk imports of users, forums, posts and comments.
+ */
+@RestController
+@RequestMapping("/api/import")
+@RequiredArgsConstructor
+@Tag(name = "Import", description = "Bulk import API")
+public class ImportController {
+
+    private final BulkImporter bulkImporter;
+    private final UserService userService;
+
+    /**
+     * Import an NDJSON stream of records, or resume an import that failed by sending the same
+     * stream again with its job ID.
+     *
+     * @param jobId the ID of the import to resume
+     * @param body  the records, one JSON object per line
+     * @return the number of imported records and the throughput
+     */
+    @PostMapping(consumes = {"application/x-ndjson", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @Operation(summary = "Bulk import users, forums, posts and comments from NDJSON")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Records imported"),
+            @ApiResponse(responseCode = "400", description = "Invalid record, or the import is already running or completed"),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not authorized to import into a forum or to import users")
+    })
+    public ResponseEntity<BulkImporter.Result> importRecords(
+            @Parameter(description = "ID of the import to resume; a new import is started if absent")
+            @RequestParam(required = false) String jobId,
+            InputStream body) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(bulkImporter.importRecords(body, jobId, currentUserId.get()));
+    }
+}
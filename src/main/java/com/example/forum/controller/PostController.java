@@ -4,16 +4,16 @@ import com.example.forum.dto.post.CreatePostRequest;
 import com.example.forum.dto.post.PostContentResponse;
 import com.example.forum.dto.post.PostResponse;
 import com.example.forum.dto.post.UpdatePostRequest;
-import com.example.forum.dto.user.UserSummaryDto;
 import com.example.forum.model.AccessLevel;
 import com.example.forum.model.Content;
 import com.example.forum.model.ContentType;
 import com.example.forum.model.Post;
-import com.example.forum.model.User;
+import com.example.forum.ranking.RankingMode;
+import com.example.forum.ranking.RankingWindow;
+import com.example.forum.pagination.CursorPage;
 import com.example.forum.service.ForumService;
 import com.example.forum.service.PostService;
 import com.example.forum.service.UserService;
-import org.springframework.stereotype.Component;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -32,7 +32,6 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.List;
 import java.util.Optional;
@@ -50,6 +49,7 @@ public class PostController {
     private final PostService postService;
     private final ForumService forumService;
     private final UserService userService;
+    private final PostResponseMapper postResponseMapper;
 
     /**
      * Create a new post.
@@ -69,8 +69,8 @@ public class PostController {
             @ApiResponse(responseCode = "404", description = "Forum not found")
     })
     public ResponseEntity<PostResponse> createPost(@Valid @RequestBody CreatePostRequest createPostRequest) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
@@ -78,9 +78,9 @@ public class PostController {
                 createPostRequest.getTitle(),
                 createPostRequest.getContent(),
                 createPostRequest.getForumId(),
-                currentUser.get().getId());
+                currentUserId.get());
 
-        return new ResponseEntity<>(mapPostToDto(post, currentUser.get()), HttpStatus.CREATED);
+        return new ResponseEntity<>(postResponseMapper.mapPostToDto(post, currentUserId.get()), HttpStatus.CREATED);
     }
 
     /**
@@ -100,14 +100,12 @@ public class PostController {
     })
     public ResponseEntity<PostResponse> getPostById(
             @Parameter(description = "ID of the post to retrieve") @PathVariable Long id) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        User user = currentUser.orElse(null);
-        Long userId = user != null ? user.getId() : null;
+        Long userId = userService.getCurrentUserId().orElse(null);
 
         // If user is not logged in, this will throw AccessDeniedException if not readable
         Post post = postService.getPostById(id, userId);
         
-        PostResponse response = mapPostToDto(post, user);
+        PostResponse response = postResponseMapper.mapPostToDto(post, userId);
         return ResponseEntity.ok(response);
     }
 
@@ -132,8 +130,8 @@ public class PostController {
     public ResponseEntity<PostResponse> updatePost(
             @Parameter(description = "ID of the post to update") @PathVariable Long id,
             @Valid @RequestBody UpdatePostRequest updatePostRequest) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
@@ -141,9 +139,9 @@ public class PostController {
                 id,
                 updatePostRequest.getTitle(),
                 updatePostRequest.getContent(),
-                currentUser.get().getId());
+                currentUserId.get());
 
-        return ResponseEntity.ok(mapPostToDto(post, currentUser.get()));
+        return ResponseEntity.ok(postResponseMapper.mapPostToDto(post, currentUserId.get()));
     }
 
     /**
@@ -162,15 +160,96 @@ public class PostController {
     })
     public ResponseEntity<String> deletePost(
             @Parameter(description = "ID of the post to delete") @PathVariable Long id) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        postService.deletePost(id, currentUser.get().getId());
+        postService.deletePost(id, currentUserId.get());
         return ResponseEntity.ok("Post deleted successfully");
     }
 
+    /**
+     * Upvote a post.
+     *
+     * @param id the post ID
+     * @return the updated post
+     */
+    @PostMapping("/{id}/upvote")
+    @Operation(summary = "Upvote a post")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Post upvoted successfully",
+                    content = @io.swagger.v3.oas.annotations.media.Content(
+                            schema = @Schema(implementation = PostResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not authorized to view this post"),
+            @ApiResponse(responseCode = "404", description = "Post not found")
+    })
+    public ResponseEntity<PostResponse> upvotePost(
+            @Parameter(description = "ID of the post to upvote") @PathVariable Long id) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        Post post = postService.upvotePost(id, currentUserId.get());
+        return ResponseEntity.ok(postResponseMapper.mapPostToDto(post, currentUserId.get()));
+    }
+
+    /**
+     * Downvote a post.
+     *
+     * @param id the post ID
+     * @return the updated post
+     */
+    @PostMapping("/{id}/downvote")
+    @Operation(summary = "Downvote a post")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Post downvoted successfully",
+                    content = @io.swagger.v3.oas.annotations.media.Content(
+                            schema = @Schema(implementation = PostResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not authorized to view this post"),
+            @ApiResponse(responseCode = "404", description = "Post not found")
+    })
+    public ResponseEntity<PostResponse> downvotePost(
+            @Parameter(description = "ID of the post to downvote") @PathVariable Long id) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        Post post = postService.downvotePost(id, currentUserId.get());
+        return ResponseEntity.ok(postResponseMapper.mapPostToDto(post, currentUserId.get()));
+    }
+
+    /**
+     * Withdraw the current user's vote on a post.
+     *
+     * @param id the post ID
+     * @return the updated post
+     */
+    @DeleteMapping("/{id}/vote")
+    @Operation(summary = "Withdraw a vote on a post")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Vote withdrawn successfully",
+                    content = @io.swagger.v3.oas.annotations.media.Content(
+                            schema = @Schema(implementation = PostResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not authorized to view this post"),
+            @ApiResponse(responseCode = "404", description = "Post not found")
+    })
+    public ResponseEntity<PostResponse> clearPostVote(
+            @Parameter(description = "ID of the post") @PathVariable Long id) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        Post post = postService.clearPostVote(id, currentUserId.get());
+        return ResponseEntity.ok(postResponseMapper.mapPostToDto(post, currentUserId.get()));
+    }
+
     /**
      * Get posts by forum with pagination.
      *
@@ -196,9 +275,7 @@ public class PostController {
             @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size,
             @Parameter(description = "Sort field") @RequestParam(defaultValue = "createdAt") String sort,
             @Parameter(description = "Sort direction") @RequestParam(defaultValue = "DESC") String direction) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        User user = currentUser.orElse(null);
-        Long userId = user != null ? user.getId() : null;
+        Long userId = userService.getCurrentUserId().orElse(null);
 
         // Check if forum exists and user has access
         if (!forumService.hasForumAccess(forumId, userId, AccessLevel.READ)) {
@@ -211,12 +288,81 @@ public class PostController {
         Page<Post> posts = postService.getPostsByForum(forumId, userId, pageable);
         
         List<PostResponse> response = posts.getContent().stream()
-                .map(post -> mapPostToDto(post, user))
+                .map(post -> postResponseMapper.mapPostToDto(post, userId))
                 .collect(Collectors.toList());
                 
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Get posts by forum using cursor pagination, newest first.
+     *
+     * @param forumId the forum ID
+     * @param after the cursor returned with the previous page (omit for the first page)
+     * @param size the page size
+     * @return a page of posts with the cursor of the next page
+     */
+    @GetMapping("/by-forum/{forumId}/cursor")
+    @Operation(summary = "Get posts by forum with cursor pagination")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @ApiResponse(responseCode = "403", description = "Not authorized to view posts in this forum")
+    })
+    public ResponseEntity<CursorPage<PostResponse>> getPostsByForumCursor(
+            @Parameter(description = "ID of the forum") @PathVariable Long forumId,
+            @Parameter(description = "Cursor returned with the previous page") @RequestParam(required = false) String after,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size) {
+        Long userId = userService.getCurrentUserId().orElse(null);
+
+        // Check if forum exists and user has access
+        if (!forumService.hasForumAccess(forumId, userId, AccessLevel.READ)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        CursorPage<Post> posts = postService.getPostsByForumAfter(forumId, userId, after, size);
+        return ResponseEntity.ok(posts.map(post -> postResponseMapper.mapPostToDto(post, userId)));
+    }
+
+    /**
+     * Get posts by forum ranked by votes or comments, best first.
+     *
+     * @param forumId the forum ID
+     * @param rank the ranking
+     * @param window the maximum age of the posts
+     * @param page the page number (0-based)
+     * @param size the page size
+     * @return ranked posts
+     */
+    @GetMapping("/by-forum/{forumId}/ranked")
+    @Operation(summary = "Get hot, top, most active or controversial posts of a forum")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @io.swagger.v3.oas.annotations.media.Content(
+                            array = @ArraySchema(schema = @Schema(implementation = PostResponse.class)))),
+            @ApiResponse(responseCode = "403", description = "Not authorized to view posts in this forum")
+    })
+    public ResponseEntity<List<PostResponse>> getRankedPostsByForum(
+            @Parameter(description = "ID of the forum") @PathVariable Long forumId,
+            @Parameter(description = "Ranking") @RequestParam(defaultValue = "HOT") RankingMode rank,
+            @Parameter(description = "Maximum age of the posts") @RequestParam(defaultValue = "ALL") RankingWindow window,
+            @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size) {
+        Long userId = userService.getCurrentUserId().orElse(null);
+
+        // Check if forum exists and user has access
+        if (!forumService.hasForumAccess(forumId, userId, AccessLevel.READ)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        Page<Post> posts = postService.getRankedPostsByForum(forumId, userId, rank, window, PageRequest.of(page, size));
+        List<PostResponse> response = posts.getContent().stream()
+                .map(post -> postResponseMapper.mapPostToDto(post, userId))
+                .collect(Collectors.toList());
+
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Search for posts.
      *
@@ -239,9 +385,7 @@ public class PostController {
             @Parameter(description = "Optional forum ID to scope the search") @RequestParam(required = false) Long forumId,
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        User user = currentUser.orElse(null);
-        Long userId = user != null ? user.getId() : null;
+        Long userId = userService.getCurrentUserId().orElse(null);
 
         Pageable pageable = PageRequest.of(page, size);
         Page<Post> posts;
@@ -255,7 +399,7 @@ public class PostController {
         }
         
         List<PostResponse> response = posts.getContent().stream()
-                .map(post -> mapPostToDto(post, user))
+                .map(post -> postResponseMapper.mapPostToDto(post, userId))
                 .collect(Collectors.toList());
                 
         return ResponseEntity.ok(response);
@@ -281,15 +425,13 @@ public class PostController {
             @Parameter(description = "ID of the user") @PathVariable Long userId,
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        User user = currentUser.orElse(null);
-        Long currentUserId = user != null ? user.getId() : null;
+        Long currentUserId = userService.getCurrentUserId().orElse(null);
 
         Pageable pageable = PageRequest.of(page, size, Sort.Direction.DESC, "createdAt");
         Page<Post> posts = postService.getPostsByUser(userId, currentUserId, pageable);
         
         List<PostResponse> response = posts.getContent().stream()
-                .map(post -> mapPostToDto(post, user))
+                .map(post -> postResponseMapper.mapPostToDto(post, currentUserId))
                 .collect(Collectors.toList());
                 
         return ResponseEntity.ok(response);
@@ -322,8 +464,8 @@ public class PostController {
             @Parameter(description = "Content description") @RequestParam(required = false) String description,
             @Parameter(description = "Content type") @RequestParam ContentType contentType,
             @Parameter(description = "Store in database") @RequestParam(defaultValue = "false") boolean storeInDb) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
@@ -333,11 +475,11 @@ public class PostController {
                 description, 
                 contentType, 
                 storeInDb, 
-                currentUser.get().getId());
+                currentUserId.get());
 
         return ResponseEntity
                 .status(HttpStatus.CREATED)
-                .body(mapContentToDto(content));
+                .body(postResponseMapper.mapContentToDto(content));
     }
 
     /**
@@ -357,13 +499,11 @@ public class PostController {
     })
     public ResponseEntity<List<PostContentResponse>> getPostContent(
             @Parameter(description = "ID of the post") @PathVariable Long id) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        User user = currentUser.orElse(null);
-        Long userId = user != null ? user.getId() : null;
+        Long userId = userService.getCurrentUserId().orElse(null);
 
         List<Content> contents = postService.getPostContent(id, userId);
         List<PostContentResponse> response = contents.stream()
-                .map(this::mapContentToDto)
+                .map(postResponseMapper::mapContentToDto)
                 .collect(Collectors.toList());
                 
         return ResponseEntity.ok(response);
@@ -387,94 +527,12 @@ public class PostController {
     public ResponseEntity<String> deletePostContent(
             @Parameter(description = "ID of the post") @PathVariable Long postId,
             @Parameter(description = "ID of the content to delete") @PathVariable Long contentId) {
-        Optional<User> currentUser = userService.getCurrentUser();
-        if (currentUser.isEmpty()) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        postService.deletePostContent(contentId, currentUser.get().getId());
+        postService.deletePostContent(contentId, currentUserId.get());
         return ResponseEntity.ok("Content deleted successfully");
     }
-
-    /**
-     * Map Post entity to PostResponse DTO.
-     *
-     * @param post the post entity
-     * @param currentUser the current user (can be null)
-     * @return the post DTO
-     */
-    private PostResponse mapPostToDto(Post post, User currentUser) {
-        PostResponse.PostResponseBuilder builder = PostResponse.builder()
-                .id(post.getId())
-                .title(post.getTitle())
-                .content(post.getContent())
-                .createdAt(post.getCreatedAt())
-                .updatedAt(post.getUpdatedAt())
-                .forumId(post.getForum().getId())
-                .forumName(post.getForum().getName())
-                .commentCount(post.getComments() != null ? post.getComments().size() : 0);
-
-        // Map author
-        if (post.getUser() != null) {
-            UserSummaryDto author = UserSummaryDto.builder()
-                    .id(post.getUser().getId())
-                    .username(post.getUser().getUsername())
-                    .displayName(post.getUser().getDisplayName())
-                    .build();
-            builder.author(author);
-        }
-
-        // Map content
-        if (post.getContents() != null && !post.getContents().isEmpty()) {
-            List<PostContentResponse> contentResponses = post.getContents().stream()
-                    .map(this::mapContentToDto)
-                    .collect(Collectors.toList());
-            builder.contents(contentResponses);
-        }
-
-        // Set permissions
-        if (currentUser != null) {
-            boolean isAuthor = post.getUser() != null && 
-                    post.getUser().getId().equals(currentUser.getId());
-            boolean isAdmin = forumService.hasForumAccess(
-                    post.getForum().getId(), currentUser.getId(), AccessLevel.ADMIN);
-            
-            builder.canEdit(isAuthor || isAdmin);
-            builder.canDelete(isAuthor || isAdmin);
-        }
-
-        return builder.build();
-    }
-
-    /**
-     * Map Content entity to PostContentResponse DTO.
-     *
-     * @param content the content entity
-     * @return the content DTO
-     */
-    private PostContentResponse mapContentToDto(Content content) {
-        String contentUrl = null;
-        if (!content.isStoredInDb() && content.getContentPath() != null) {
-            // Generate URL for content stored on disk
-            contentUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
-                    .path("/content/")
-                    .path(content.getFilename())
-                    .toUriString();
-        } else if (content.isStoredInDb()) {
-            // Generate URL for content stored in DB
-            contentUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
-                    .path("/api/content/")
-                    .path(content.getId().toString())
-                    .toUriString();
-        }
-
-        return PostContentResponse.builder()
-                .id(content.getId())
-                .filename(content.getFilename())
-                .description(content.getDescription())
-                .contentType(content.getContentType())
-                .contentUrl(contentUrl)
-                .createdAt(content.getCreatedAt())
-                .build();
-    }
 }
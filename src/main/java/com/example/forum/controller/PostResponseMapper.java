@@ -0,0 +1,126 @@
+package com.example.forum.controller;
+
+import com.example.forum.content.ImageVariantGenerator;
+import com.example.forum.dto.post.PostContentResponse;
+import com.example.forum.dto.post.PostResponse;
+import com.example.forum.dto.user.UserSummaryDto;
+import com.example.forum.model.AccessLevel;
+import com.example.forum.model.Content;
+import com.example.forum.model.ContentType;
+import com.example.forum.model.Post;
+import com.example.forum.service.ForumService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Maps posts and their content to the DTOs returned by the controllers that list posts.
+ */
+@Component
+@RequiredArgsConstructor
+public class PostResponseMapper {
+
+    private final ForumService forumService;
+    private final ImageVariantGenerator imageVariantGenerator;
+
+    /**
+     * Map Post entity to PostResponse DTO.
+     *
+     * @param post the post entity
+     * @param currentUserId the ID of the current user (can be null)
+     * @return the post DTO
+     */
+    public PostResponse mapPostToDto(Post post, Long currentUserId) {
+        PostResponse.PostResponseBuilder builder = PostResponse.builder()
+                .id(post.getId())
+                .title(post.getTitle())
+                .content(post.getContent())
+                .createdAt(post.getCreatedAt())
+                .updatedAt(post.getUpdatedAt())
+                .forumId(post.getForum().getId())
+                .forumName(post.getForum().getName())
+                .commentCount(post.getCommentCount())
+                .score(post.getScore());
+
+        // Map author
+        if (post.getUser() != null) {
+            UserSummaryDto author = UserSummaryDto.builder()
+                    .id(post.getUser().getId())
+                    .username(post.getUser().getUsername())
+                    .displayName(post.getUser().getDisplayName())
+                    .build();
+            builder.author(author);
+        }
+
+        // Map content
+        if (post.getContents() != null && !post.getContents().isEmpty()) {
+            List<PostContentResponse> contentResponses = post.getContents().stream()
+                    .map(this::mapContentToDto)
+                    .collect(Collectors.toList());
+            builder.contents(contentResponses);
+        }
+
+        // Set permissions
+        if (currentUserId != null) {
+            boolean isAuthor = post.getUser() != null && 
+                    post.getUser().getId().equals(currentUserId);
+            boolean isAdmin = forumService.hasForumAccess(
+                    post.getForum().getId(), currentUserId, AccessLevel.ADMIN);
+            
+            builder.canEdit(isAuthor || isAdmin);
+            builder.canDelete(isAuthor || isAdmin);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Map Content entity to PostContentResponse DTO.
+     *
+     * @param content the content entity
+     * @return the content DTO
+     */
+    public PostContentResponse mapContentToDto(Content content) {
+        // Content is served by ID wherever it is stored, so the download can be access checked
+        String contentUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/content/")
+                .path(content.getId().toString())
+                .toUriString();
+
+        return PostContentResponse.builder()
+                .id(content.getId())
+                .filename(content.getFilename())
+                .description(content.getDescription())
+                .contentType(content.getContentType())
+                .contentUrl(contentUrl)
+                .variantUrls(mapVariantUrls(content))
+                .createdAt(content.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * Build the URLs of the resized variants of an image. A variant that was not generated
+     * yet redirects to the image itself.
+     *
+     * @param content the content entity
+     * @return the variant URLs by name, or null if the content is not an image
+     */
+    private Map<String, String> mapVariantUrls(Content content) {
+        if (content.getContentType() != ContentType.IMAGE) {
+            return null;
+        }
+        Map<String, String> variantUrls = new LinkedHashMap<>();
+        for (String name : imageVariantGenerator.variantNames()) {
+            variantUrls.put(name, ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/api/content/{id}/variants/{name}")
+                    .buildAndExpand(content.getId(), name)
+                    .toUriString());
+        }
+        return variantUrls;
+    }
+}
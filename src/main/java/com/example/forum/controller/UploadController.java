@@ -0,0 +1,245 @@
+package com.example.forum.controller;
+
+import com.example.forum.dto.upload.CreateUploadRequest;
+import com.example.forum.dto.upload.UploadResponse;
+import com.example.forum.exception.BadRequestException;
+import com.example.forum.model.Content;
+import com.example.forum.model.UploadSession;
+import com.example.forum.service.UploadService;
+import com.example.forum.service.UserService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Optional;
+
+/**
+ * Controller for resumable uploads of large video and audio attachments.
+ * <p>
+ * The protocol follows tus: an upload is created with its length, chunks are sent with
+ * {@code PATCH} and an {@code Upload-Offset} header, and {@code HEAD} reports how far the
+ * upload got. Unlike tus, chunks may arrive in any order, so an upload must be completed
+ * explicitly once every byte was sent.
+ */
+@RestController
+@RequestMapping("/api/uploads")
+@RequiredArgsConstructor
+@Tag(name = "Uploads", description = "Resumable upload API")
+public class UploadController {
+
+    static final String UPLOAD_OFFSET = "Upload-Offset";
+    static final String UPLOAD_LENGTH = "Upload-Length";
+    static final String UPLOAD_CHECKSUM = "Upload-Checksum";
+    static final String CHUNK_MEDIA_TYPE = "application/offset+octet-stream";
+
+    private final UploadService uploadService;
+    private final UserService userService;
+
+    /**
+     * Start a resumable upload.
+     *
+     * @param request the upload creation request
+     * @return the new upload
+     */
+    @PostMapping
+    @Operation(summary = "Start a resumable upload to a post or comment")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Upload created",
+                    content = @io.swagger.v3.oas.annotations.media.Content(
+                            schema = @Schema(implementation = UploadResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input or content type"),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not authorized to add content"),
+            @ApiResponse(responseCode = "404", description = "Post or comment not found")
+    })
+    public ResponseEntity<UploadResponse> createUpload(@Valid @RequestBody CreateUploadRequest request) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        UploadSession session = uploadService.createUpload(
+                request.getPostId(),
+                request.getCommentId(),
+                request.getFilename(),
+                request.getDescription(),
+                request.getContentType(),
+                request.getLength(),
+                request.isStoreInDb(),
+                currentUserId.get());
+
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{id}")
+                .buildAndExpand(session.getId())
+                .toUri();
+        return ResponseEntity.created(location)
+                .header(UPLOAD_OFFSET, "0")
+                .header(UPLOAD_LENGTH, Long.toString(session.getLength()))
+                .body(mapUploadToDto(session, 0));
+    }
+
+    /**
+     * Get the state of an upload. {@code HEAD} returns only the offset headers.
+     *
+     * @param id the upload ID
+     * @return the upload
+     */
+    @GetMapping("/{id}")
+    @Operation(summary = "Get how many bytes of an upload were received")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @io.swagger.v3.oas.annotations.media.Content(
+                            schema = @Schema(implementation = UploadResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not the owner of this upload"),
+            @ApiResponse(responseCode = "404", description = "Upload not found or expired")
+    })
+    public ResponseEntity<UploadResponse> getUpload(
+            @Parameter(description = "ID of the upload") @PathVariable String id) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        UploadSession session = uploadService.getUpload(id, currentUserId.get());
+        long offset = uploadService.getUploadOffset(id, currentUserId.get());
+        return ResponseEntity.ok()
+                .header(UPLOAD_OFFSET, Long.toString(offset))
+                .header(UPLOAD_LENGTH, Long.toString(session.getLength()))
+                .body(mapUploadToDto(session, offset));
+    }
+
+    /**
+     * Write a chunk of an upload at the given offset.
+     *
+     * @param id       the upload ID
+     * @param offset   the offset of the first byte of the chunk
+     * @param checksum the optional chunk checksum, {@code sha256 <base64 digest>}
+     * @param request  the HTTP request whose body is the chunk
+     * @return no content, with the contiguous offset in the {@code Upload-Offset} header
+     * @throws IOException if the chunk cannot be read from the client
+     */
+    @PatchMapping(value = "/{id}", consumes = CHUNK_MEDIA_TYPE)
+    @Operation(summary = "Upload a chunk of bytes at an offset")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Chunk stored"),
+            @ApiResponse(responseCode = "400", description = "Chunk out of bounds, incomplete or with a bad checksum"),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not the owner of this upload"),
+            @ApiResponse(responseCode = "404", description = "Upload not found or expired")
+    })
+    public ResponseEntity<Void> writeChunk(
+            @Parameter(description = "ID of the upload") @PathVariable String id,
+            @RequestHeader(UPLOAD_OFFSET) long offset,
+            @RequestHeader(value = UPLOAD_CHECKSUM, required = false) String checksum,
+            HttpServletRequest request) throws IOException {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (request.getContentLengthLong() < 0) {
+            throw new BadRequestException("Chunks must be sent with a Content-Length");
+        }
+
+        long uploadOffset;
+        try (InputStream body = request.getInputStream()) {
+            uploadOffset = uploadService.writeChunk(
+                    id, offset, request.getContentLengthLong(), body, checksum, currentUserId.get());
+        }
+        return ResponseEntity.noContent()
+                .header(UPLOAD_OFFSET, Long.toString(uploadOffset))
+                .build();
+    }
+
+    /**
+     * Complete an upload once every byte was received.
+     *
+     * @param id the upload ID
+     * @return the completed upload with the URL of the created content
+     */
+    @PostMapping("/{id}/complete")
+    @Operation(summary = "Turn a fully received upload into content")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Content created",
+                    content = @io.swagger.v3.oas.annotations.media.Content(
+                            schema = @Schema(implementation = UploadResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Upload is missing bytes"),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not authorized to add content"),
+            @ApiResponse(responseCode = "404", description = "Upload not found or expired")
+    })
+    public ResponseEntity<UploadResponse> completeUpload(
+            @Parameter(description = "ID of the upload") @PathVariable String id) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        UploadSession session = uploadService.getUpload(id, currentUserId.get());
+        Content content = uploadService.completeUpload(id, currentUserId.get());
+
+        UploadResponse response = mapUploadToDto(session, session.getLength());
+        response.setContentId(content.getId());
+        response.setContentUrl(ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/content/")
+                .path(content.getId().toString())
+                .toUriString());
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    /**
+     * Abandon an upload.
+     *
+     * @param id the upload ID
+     * @return no content
+     */
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Abandon an upload and delete its bytes")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Upload deleted"),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "403", description = "Not the owner of this upload"),
+            @ApiResponse(responseCode = "404", description = "Upload not found or expired")
+    })
+    public ResponseEntity<Void> cancelUpload(
+            @Parameter(description = "ID of the upload") @PathVariable String id) {
+        Optional<Long> currentUserId = userService.getCurrentUserId();
+        if (currentUserId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        uploadService.cancelUpload(id, currentUserId.get());
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Map UploadSession entity to UploadResponse DTO.
+     *
+     * @param session the upload
+     * @param offset  the contiguous offset
+     * @return the upload DTO
+     */
+    private UploadResponse mapUploadToDto(UploadSession session, long offset) {
+        return UploadResponse.builder()
+                .id(session.getId())
+                .filename(session.getFilename())
+                .contentType(session.getContentType())
+                .length(session.getLength())
+                .offset(offset)
+                .expiresAt(session.getExpiresAt())
+                .build();
+    }
+}
@@ -8,6 +8,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 /**
  * DTO for comment content response.
@@ -33,6 +34,9 @@ public class CommentContentResponse {
     
     @Schema(description = "URL to access the content", example = "http://example.com/api/content/42")
     private String contentUrl;
+
+    @Schema(description = "URLs of resized variants of an image by name, such as thumbnail", nullable = true)
+    private Map<String, String> variantUrls;
     
     @Schema(description = "Date and time when the content was uploaded", example = "2023-01-15T10:30:45")
     private LocalDateTime createdAt;
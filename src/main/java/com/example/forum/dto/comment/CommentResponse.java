@@ -44,6 +44,9 @@ public class CommentResponse {
     @Schema(description = "Number of replies to this comment", example = "5")
     private int replyCount;
     
+    @Schema(description = "Upvotes minus downvotes; may lag behind the latest votes by a fraction of a second", example = "12")
+    private int score;
+    
     @Schema(description = "List of content attachments for this comment")
     private List<CommentContentResponse> contents;
     
@@ -0,0 +1,28 @@
+package com.example.forum.dto.forum;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO for a node of the whole forum tree.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ForumTreeNode {
+
+    private Long id;
+    private String name;
+    private String description;
+    private Long parentForumId;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private int postCount;
+    private List<ForumTreeNode> subForums;
+}
@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 /**
  * DTO for post content response.
@@ -22,6 +23,8 @@ public class PostContentResponse {
     private String description;
     private ContentType contentType;
     private String contentUrl;
+    // Resized variants of images by name, such as "thumbnail"
+    private Map<String, String> variantUrls;
     private LocalDateTime createdAt;
 }
 
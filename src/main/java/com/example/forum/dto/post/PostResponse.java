@@ -27,6 +27,7 @@ public class PostResponse {
     private Long forumId;
     private String forumName;
     private int commentCount;
+    private int score;
     private List<PostContentResponse> contents;
     
     // Access information
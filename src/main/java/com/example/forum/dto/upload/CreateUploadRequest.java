@@ -0,0 +1,39 @@
+package com.example.forum.dto.upload;
+
+import com.example.forum.model.ContentType;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for starting a resumable upload to a post or a comment.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreateUploadRequest {
+
+    // Exactly one of postId and commentId is set
+    private Long postId;
+
+    private Long commentId;
+
+    @NotBlank(message = "Filename is required")
+    private String filename;
+
+    private String description;
+
+    @NotNull(message = "Content type is required")
+    private ContentType contentType;
+
+    @NotNull(message = "Length is required")
+    @Positive(message = "Length must be positive")
+    private Long length;
+
+    private boolean storeInDb;
+}
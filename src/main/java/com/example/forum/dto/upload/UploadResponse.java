@@ -0,0 +1,30 @@
+package com.example.forum.dto.upload;
+
+import com.example.forum.model.ContentType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for the state of a resumable upload.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadResponse {
+
+    private String id;
+    private String filename;
+    private ContentType contentType;
+    private long length;
+    // Number of bytes received without gaps from the start of the file
+    private long offset;
+    private LocalDateTime expiresAt;
+    // Set once the upload is complete
+    private Long contentId;
+    private String contentUrl;
+}
@@ -0,0 +1,57 @@
+package com.example.forum.events;
+
+import com.example.forum.exception.BadRequestException;
+
+/**
+ * What a subscriber listens to: the events of every post of a forum, or of one post and its
+ * comments. Written as {@code forum:<id>} or {@code post:<id>}.
+ *
+ * @param kind whether the topic is a forum or a post
+ * @param id   the ID of the forum or post
+ */
+public record EventTopic(Kind kind, Long id) {
+
+    /**
+     * The kinds of topics.
+     */
+    public enum Kind {
+        FORUM,
+        POST
+    }
+
+    public static EventTopic forum(Long forumId) {
+        return new EventTopic(Kind.FORUM, forumId);
+    }
+
+    public static EventTopic post(Long postId) {
+        return new EventTopic(Kind.POST, postId);
+    }
+
+    /**
+     * Parse a topic written as {@code forum:<id>} or {@code post:<id>}.
+     *
+     * @param topic the topic
+     * @return the parsed topic
+     * @throws BadRequestException if the topic is malformed
+     */
+    public static EventTopic parse(String topic) {
+        int separator = topic == null ? -1 : topic.indexOf(':');
+        if (separator < 0) {
+            throw new BadRequestException("Invalid topic, expected forum:<id> or post:<id>");
+        }
+        try {
+            Kind kind = Kind.valueOf(topic.substring(0, separator).toUpperCase());
+            return new EventTopic(kind, Long.parseLong(topic.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid topic, expected forum:<id> or post:<id>", e);
+        }
+    }
+
+    /**
+     * @param event an event
+     * @return whether the event belongs to this topic
+     */
+    boolean matches(ForumEvent event) {
+        return id.equals(kind == Kind.FORUM ? event.forumId() : event.postId());
+    }
+}
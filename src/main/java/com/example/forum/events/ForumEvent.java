@@ -0,0 +1,95 @@
+package com.example.forum.events;
+
+import com.example.forum.model.Comment;
+import com.example.forum.model.Post;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A change to a post or comment, pushed to the subscribers of its forum and of its post.
+ * <p>
+ * Events only carry IDs and the new score of votes, clients load the content itself through the
+ * API as usual.
+ *
+ * @param type       what changed
+ * @param forumId    the ID of the forum of the post
+ * @param postId     the ID of the post, or of the post of the comment
+ * @param commentId  the ID of the comment, or null for post events
+ * @param score      the score after a vote, or null for other events
+ * @param occurredAt when the change was made
+ */
+public record ForumEvent(Type type, Long forumId, Long postId, Long commentId, Integer score,
+                         LocalDateTime occurredAt) {
+
+    /**
+     * The kinds of changes.
+     */
+    public enum Type {
+        POST_CREATED(false),
+        POST_UPDATED(true),
+        POST_DELETED(false),
+        POST_VOTED(true),
+        COMMENT_CREATED(false),
+        COMMENT_UPDATED(true),
+        COMMENT_DELETED(false),
+        COMMENT_VOTED(true);
+
+        // Whether a later event of the same type and target makes this one redundant
+        private final boolean replaceable;
+
+        Type(boolean replaceable) {
+            this.replaceable = replaceable;
+        }
+    }
+
+    // Identifies the events a burst is reduced to
+    private record Key(Type type, Long postId, Long commentId) {
+    }
+
+    /**
+     * Describe a change to a post.
+     *
+     * @param type what changed
+     * @param post the post
+     * @return the event
+     */
+    public static ForumEvent of(Type type, Post post) {
+        return new ForumEvent(type, post.getForum().getId(), post.getId(), null,
+                type == Type.POST_VOTED ? post.getScore() : null, LocalDateTime.now());
+    }
+
+    /**
+     * Describe a change to a comment.
+     *
+     * @param type    what changed
+     * @param comment the comment
+     * @return the event
+     */
+    public static ForumEvent of(Type type, Comment comment) {
+        Post post = comment.getPost();
+        return new ForumEvent(type, post.getForum().getId(), post.getId(), comment.getId(),
+                type == Type.COMMENT_VOTED ? comment.getScore() : null, LocalDateTime.now());
+    }
+
+    /**
+     * Reduce a burst of events to the ones a subscriber needs: only the last update and the
+     * last vote of each post or comment is kept, in the place of the first one.
+     *
+     * @param burst the events in the order they were published
+     * @return the remaining events
+     */
+    static List<ForumEvent> coalesce(List<ForumEvent> burst) {
+        if (burst.size() < 2) {
+            return burst;
+        }
+        Map<Object, ForumEvent> latest = new LinkedHashMap<>();
+        for (ForumEvent event : burst) {
+            Object key = event.type().replaceable ? new Key(event.type(), event.postId(), event.commentId()) : event;
+            latest.put(key, event);
+        }
+        return List.copyOf(latest.values());
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.forum.events;
+
+import com.example.forum.exception.AccessDeniedException;
+import com.example.forum.exception.ResourceNotFoundException;
+import com.example.forum.model.AccessLevel;
+import com.example.forum.model.Post;
+import com.example.forum.repository.PostRepository;
+import com.example.forum.service.ForumService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * Pushes changes to posts and comments to the clients listening to their forum or post, over
+ * SSE, WebSocket and GraphQL subscriptions.
+ * <p>
+ * Events are published once the transaction that made the change commits, into a Reactor sink
+ * that hands them to every subscriber without waiting for any of them. Each subscriber then has
+ * its own pipeline: a bounded buffer that drops its oldest events when the client does not keep
+ * up, bursts of updates and votes of the same target reduced to the last one, and delivery on a
+ * virtual thread, so a slow client only delays and loses its own events.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ForumEventBus {
+
+    // Largest number of events reduced at once
+    private static final int MAX_BURST = 64;
+
+    private final ForumService forumService;
+    private final PostRepository postRepository;
+
+    private final Sinks.Many<ForumEvent> sink = Sinks.many().multicast().directBestEffort();
+    private final Scheduler scheduler =
+            Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "forum-events");
+
+    @Value("${app.events.buffer-size:256}")
+    private int bufferSize = 256;
+
+    @Value("${app.events.coalesce-ms:250}")
+    private long coalesceMs = 250;
+
+    /**
+     * Publish an event once the current transaction commits, or right away if there is no
+     * transaction. Events of rolled back changes are never published.
+     *
+     * @param event the event
+     */
+    public void publish(ForumEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    emit(event);
+                }
+            });
+        } else {
+            emit(event);
+        }
+    }
+
+    /**
+     * Listen to the events of a topic. The user needs READ access to the forum of the topic
+     * when subscribing; later changes of access do not end the subscription.
+     *
+     * @param topic  the forum or post to listen to
+     * @param userId the ID of the user listening
+     * @return the events, delivered on a virtual thread; never completes
+     * @throws AccessDeniedException     if the user cannot read the forum
+     * @throws ResourceNotFoundException if the post does not exist
+     */
+    public Flux<ForumEvent> subscribe(EventTopic topic, Long userId) {
+        Long forumId = topic.id();
+        if (topic.kind() == EventTopic.Kind.POST) {
+            Post post = postRepository.findById(topic.id())
+                    .orElseThrow(() -> new ResourceNotFoundException("Post", "id", topic.id()));
+            forumId = post.getForum().getId();
+        }
+        if (!forumService.hasForumAccess(forumId, userId, AccessLevel.READ)) {
+            throw new AccessDeniedException("forum", "subscribe to");
+        }
+
+        return sink.asFlux()
+                .filter(topic::matches)
+                .onBackpressureBuffer(bufferSize,
+                        dropped -> log.debug("Subscriber of {} is too slow, dropped {}", topic, dropped),
+                        BufferOverflowStrategy.DROP_OLDEST)
+                .bufferTimeout(MAX_BURST, Duration.ofMillis(coalesceMs), true)
+                .flatMapIterable(ForumEvent::coalesce, 1)
+                .publishOn(scheduler, MAX_BURST);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.dispose();
+    }
+
+    // The sink needs serialized emissions, and handing an event over never blocks on a subscriber
+    private synchronized void emit(ForumEvent event) {
+        sink.tryEmitNext(event);
+    }
+}
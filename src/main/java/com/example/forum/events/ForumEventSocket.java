@@ -0,0 +1,80 @@
+package com.example.forum.events;
+
+import com.example.forum.security.AuthenticatedUser;
+import com.example.forum.security.HandshakeAuthenticator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.Session;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * WebSocket endpoint pushing the events of one topic to a client, as JSON text messages.
+ * <p>
+ * The topic is the {@code topic} query parameter, e.g. {@code /ws/events?topic=forum:1}. The
+ * user is resolved during the handshake, see {@link HandshakeAuthenticator}.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ForumEventSocket extends Endpoint {
+
+    private static final String SUBSCRIPTION = "subscription";
+
+    private final ForumEventBus forumEventBus;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+        AuthenticatedUser user = (AuthenticatedUser) config.getUserProperties().get(HandshakeAuthenticator.USER);
+        if (user == null) {
+            close(session, new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "Not authenticated"));
+            return;
+        }
+
+        List<String> topics = session.getRequestParameterMap().get("topic");
+        Disposable subscription;
+        try {
+            EventTopic topic = EventTopic.parse(topics == null || topics.isEmpty() ? null : topics.get(0));
+            subscription = forumEventBus.subscribe(topic, user.id()).subscribe(event -> {
+                try {
+                    // Blocks the virtual thread of this subscriber until the client took the message
+                    session.getBasicRemote().sendText(objectMapper.writeValueAsString(event));
+                } catch (IOException e) {
+                    throw Exceptions.propagate(e);
+                }
+            }, error -> close(session, new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "Delivery failed")));
+        } catch (RuntimeException e) {
+            close(session, new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, String.valueOf(e.getMessage())));
+            return;
+        }
+        session.getUserProperties().put(SUBSCRIPTION, subscription);
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        Disposable subscription = (Disposable) session.getUserProperties().remove(SUBSCRIPTION);
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    @Override
+    public void onError(Session session, Throwable error) {
+        log.debug("Event socket {} failed", session.getId(), error);
+    }
+
+    private static void close(Session session, CloseReason reason) {
+        try {
+            session.close(reason);
+        } catch (IOException e) {
+            log.debug("Could not close event socket {}", session.getId(), e);
+        }
+    }
+}
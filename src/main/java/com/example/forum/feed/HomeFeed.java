@@ -0,0 +1,251 @@
+package com.example.forum.feed;
+
+import com.example.forum.cache.ForumPermissionCache;
+import com.example.forum.ranking.PostPosition;
+import com.example.forum.ranking.PostRanking;
+import com.example.forum.service.ForumService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The home feeds of users: the newest posts across every forum a user can read, including the
+ * forums they inherit access to through the hierarchy.
+ * <p>
+ * The feed of a user who read it recently is kept in memory, bounded to the newest
+ * {@code app.feed.capacity} posts, and new posts are fanned out to the feeds of the readers of
+ * their forum as they are created. Other users, and pages past the end of a kept feed, are served
+ * by merging the per-forum recency lists of {@link PostRanking} on read. Reading a feed keeps it
+ * until it has not been read for {@code app.feed.idle-ms}.
+ * <p>
+ * A kept feed is only valid for the forums the user could read when it was built, so it is
+ * rebuilt whenever the {@link ForumPermissionCache#generation(Long) generation} of the user's
+ * permissions moves on, which changes of other users' access leave alone. Deleted posts stay in
+ * the kept feeds and are skipped when the posts are loaded.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HomeFeed {
+
+    private static final class UserFeed {
+
+        private final long generation;
+        private final Set<Long> forumIds;
+        private final NavigableSet<PostPosition> items = new ConcurrentSkipListSet<>();
+        private final AtomicInteger size = new AtomicInteger();
+        // Whether the feed holds every post of its forums, so that no page continues past its end
+        private volatile boolean complete = true;
+        private volatile long lastRead = System.nanoTime();
+
+        private UserFeed(long generation, Set<Long> forumIds) {
+            this.generation = generation;
+            this.forumIds = Set.copyOf(forumIds);
+        }
+    }
+
+    // The next post of one forum in a merge, followed by the older ones
+    private record Head(PostPosition position, Iterator<PostPosition> rest) {
+    }
+
+    private final PostRanking postRanking;
+    private final ForumService forumService;
+    private final ForumPermissionCache permissionCache;
+
+    private final Map<Long, UserFeed> feeds = new ConcurrentHashMap<>();
+    // The kept feeds that include each forum, to fan new posts out to
+    private final Map<Long, Set<UserFeed>> readers = new ConcurrentHashMap<>();
+
+    @Value("${app.feed.capacity:100}")
+    private int capacity = 100;
+
+    @Value("${app.feed.max-users:10000}")
+    private int maxUsers = 10000;
+
+    @Value("${app.feed.idle-ms:1800000}")
+    private long idleMs = 1800000;
+
+    /**
+     * Get the positions of the posts of a user's feed, newest first.
+     *
+     * @param userId the ID of the user
+     * @param after  the position to start after, or null to start with the newest post
+     * @param limit  the maximum number of positions
+     * @return the positions of the posts
+     */
+    public List<PostPosition> read(Long userId, PostPosition after, int limit) {
+        if (userId == null) {
+            return List.of();
+        }
+        UserFeed feed = feeds.get(userId);
+        if (feed == null || feed.generation != permissionCache.generation(userId)) {
+            feed = build(userId);
+        }
+        feed.lastRead = System.nanoTime();
+
+        List<PostPosition> page = new ArrayList<>(limit);
+        NavigableSet<PostPosition> items = after == null ? feed.items : feed.items.tailSet(after, false);
+        for (PostPosition item : items) {
+            if (page.size() == limit) {
+                return page;
+            }
+            page.add(item);
+        }
+        if (!feed.complete && page.size() < limit) {
+            // The feed is the newest posts of its forums, so the older ones follow its last post
+            PostPosition last = page.isEmpty() ? after : page.get(page.size() - 1);
+            page.addAll(merge(feed.forumIds, last, limit - page.size()));
+        }
+        return page;
+    }
+
+    /**
+     * Add a new post to the kept feeds of the readers of its forum. Must be called after
+     * {@link PostRanking#postCreated}. Undone if the current transaction rolls back.
+     *
+     * @param postId the ID of the post
+     */
+    public void postCreated(Long postId) {
+        PostPosition position = postRanking.position(postId);
+        if (position == null) {
+            return;
+        }
+        Set<UserFeed> forumReaders = readers.getOrDefault(position.forumId(), Set.of());
+        forumReaders.forEach(feed -> add(feed, position));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        forumReaders.forEach(feed -> remove(feed, position));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Drop the feeds that were not read for {@code app.feed.idle-ms}.
+     *
+     * @return the number of dropped feeds
+     */
+    @Scheduled(fixedDelayString = "${app.feed.expire-interval-ms:60000}",
+               initialDelayString = "${app.feed.expire-interval-ms:60000}")
+    public int expireIdle() {
+        long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(idleMs);
+        int expired = 0;
+        for (Map.Entry<Long, UserFeed> entry : feeds.entrySet()) {
+            UserFeed feed = entry.getValue();
+            if (feed.lastRead - cutoff < 0 && feeds.remove(entry.getKey(), feed)) {
+                unsubscribe(feed);
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            log.debug("Dropped {} idle home feeds", expired);
+        }
+        return expired;
+    }
+
+    /**
+     * Build the feed of a user by merging the recency lists of the forums they can read, and
+     * keep it for the next pages and visits.
+     */
+    private UserFeed build(Long userId) {
+        // Read the generation first, so a change of access while building invalidates the feed
+        long generation = permissionCache.generation(userId);
+        UserFeed feed = new UserFeed(generation, forumService.getReadableForumIds(userId));
+        // Subscribe before merging, so posts created meanwhile are either merged or fanned out
+        feed.forumIds.forEach(forumId -> readers.compute(forumId, (id, subscribed) -> {
+            Set<UserFeed> updated = subscribed != null ? subscribed : ConcurrentHashMap.newKeySet();
+            updated.add(feed);
+            return updated;
+        }));
+        List<PostPosition> newest = merge(feed.forumIds, null, capacity + 1);
+        newest.forEach(position -> add(feed, position));
+
+        if (feeds.size() >= maxUsers && !feeds.containsKey(userId)) {
+            expireIdle();
+            Iterator<Long> it = feeds.keySet().iterator();
+            if (feeds.size() >= maxUsers && it.hasNext()) {
+                UserFeed evicted = feeds.remove(it.next());
+                if (evicted != null) {
+                    unsubscribe(evicted);
+                }
+            }
+        }
+        UserFeed replaced = feeds.put(userId, feed);
+        if (replaced != null) {
+            unsubscribe(replaced);
+        }
+        return feed;
+    }
+
+    /**
+     * Merge the recency lists of forums, newest first.
+     */
+    private List<PostPosition> merge(Set<Long> forumIds, PostPosition after, int limit) {
+        PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparing(Head::position));
+        for (Long forumId : forumIds) {
+            Iterator<PostPosition> created = postRanking.newest(forumId, after);
+            if (created.hasNext()) {
+                heads.add(new Head(created.next(), created));
+            }
+        }
+        List<PostPosition> merged = new ArrayList<>(Math.min(limit, 1024));
+        while (merged.size() < limit && !heads.isEmpty()) {
+            Head head = heads.poll();
+            merged.add(head.position());
+            if (head.rest().hasNext()) {
+                heads.add(new Head(head.rest().next(), head.rest()));
+            }
+        }
+        return merged;
+    }
+
+    private void add(UserFeed feed, PostPosition position) {
+        // Once older posts were dropped, an older post would leave a gap before the merged ones
+        if (!feed.complete) {
+            Iterator<PostPosition> oldest = feed.items.descendingIterator();
+            if (!oldest.hasNext() || position.compareTo(oldest.next()) > 0) {
+                return;
+            }
+        }
+        if (feed.items.add(position) && feed.size.incrementAndGet() > capacity) {
+            feed.complete = false;
+            if (feed.items.pollLast() != null) {
+                feed.size.decrementAndGet();
+            }
+        }
+    }
+
+    private void remove(UserFeed feed, PostPosition position) {
+        if (feed.items.remove(position)) {
+            feed.size.decrementAndGet();
+        }
+    }
+
+    private void unsubscribe(UserFeed feed) {
+        feed.forumIds.forEach(forumId -> readers.computeIfPresent(forumId, (id, subscribed) -> {
+            subscribed.remove(feed);
+            return subscribed.isEmpty() ? null : subscribed;
+        }));
+    }
+}
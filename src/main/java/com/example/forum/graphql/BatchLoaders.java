@@ -0,0 +1,70 @@
+package com.example.forum.graphql;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Helpers for {@code @BatchMapping} resolvers that load the targets of a many-to-one
+ * association for a whole batch of source entities with a single {@code IN (...)} query.
+ */
+final class BatchLoaders {
+
+    private BatchLoaders() {
+    }
+
+    /**
+     * Resolve one target per source, in source order.
+     *
+     * @param sources    the source entities of the batch
+     * @param foreignKey reads the target ID from a source (without initializing lazy proxies), may return null
+     * @param loader     loads all targets for a set of IDs with one query
+     * @param targetId   reads the ID of a loaded target
+     * @param <S>        the source type
+     * @param <T>        the target type
+     * @return the targets, null where a source has no target
+     */
+    static <S, T> List<T> loadOne(List<S> sources, Function<S, Long> foreignKey,
+                                  Function<Collection<Long>, List<T>> loader, Function<T, Long> targetId) {
+        Set<Long> ids = sources.stream()
+                .map(foreignKey)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<Long, T> targetsById = ids.isEmpty() ? Map.of() : loader.apply(ids).stream()
+                .collect(Collectors.toMap(targetId, Function.identity(), (a, b) -> a));
+        return sources.stream()
+                .map(source -> {
+                    Long id = foreignKey.apply(source);
+                    return id != null ? targetsById.get(id) : null;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Resolve a list of children per source, in source order.
+     *
+     * @param sources  the source entities of the batch
+     * @param sourceId reads the ID of a source
+     * @param loader   loads all children for a set of source IDs with one query
+     * @param parentId reads the source ID a loaded child belongs to
+     * @param <S>      the source type
+     * @param <T>      the child type
+     * @return the children of each source, empty lists where a source has none
+     */
+    static <S, T> List<List<T>> loadMany(List<S> sources, Function<S, Long> sourceId,
+                                         Function<Collection<Long>, List<T>> loader, Function<T, Long> parentId) {
+        Set<Long> ids = sources.stream()
+                .map(sourceId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<Long, List<T>> childrenByParent = ids.isEmpty() ? Map.of() : loader.apply(ids).stream()
+                .collect(Collectors.groupingBy(parentId));
+        return sources.stream()
+                .map(source -> childrenByParent.getOrDefault(sourceId.apply(source), List.of()))
+                .collect(Collectors.toList());
+    }
+}
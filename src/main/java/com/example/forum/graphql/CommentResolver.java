@@ -1,32 +1,51 @@
 package com.example.forum.graphql;
 
+import com.example.forum.events.EventTopic;
+import com.example.forum.events.ForumEvent;
+import com.example.forum.events.ForumEventBus;
 import com.example.forum.model.Comment;
 import com.example.forum.model.Post;
 import com.example.forum.model.User;
+import com.example.forum.pagination.CursorPage;
+import com.example.forum.repository.CommentRepository;
+import com.example.forum.repository.PostRepository;
 import com.example.forum.repository.UserRepository;
+import com.example.forum.security.AuthenticatedUser;
 import com.example.forum.service.CommentService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.graphql.data.method.annotation.SubscriptionMapping;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Controller
 public class CommentResolver {
     private final CommentService commentService;
     private final UserRepository userRepository;
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final ForumEventBus forumEventBus;
+    private final EventEntities eventEntities;
 
-    public CommentResolver(CommentService commentService, UserRepository userRepository) {
+    public CommentResolver(CommentService commentService, UserRepository userRepository,
+                           PostRepository postRepository, CommentRepository commentRepository,
+                           ForumEventBus forumEventBus, EventEntities eventEntities) {
         this.commentService = commentService;
         this.userRepository = userRepository;
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.forumEventBus = forumEventBus;
+        this.eventEntities = eventEntities;
     }
 
     private Long getCurrentUserId() {
@@ -40,8 +59,9 @@ public class CommentResolver {
         Object principal = authentication.getPrincipal();
         
         // Handle different principal types
-        if (principal instanceof User) {
-            return ((User) principal).getId();
+        if (principal instanceof AuthenticatedUser authenticatedUser) {
+            // JWT-authenticated requests carry the user ID, no lookup needed
+            return authenticatedUser.id();
         } else if (principal instanceof String) {
             // If principal is a username string, find the user by username
             String username = (String) principal;
@@ -69,6 +89,14 @@ public class CommentResolver {
         return commentService.getCommentsByPost(postId, getCurrentUserId(), PageRequest.of(page, size));
     }
     
+    @QueryMapping
+    public CursorPage<Comment> postCommentsByCursor(
+            @Argument Long postId,
+            @Argument String after,
+            @Argument int size) {
+        return commentService.getCommentsByPostAfter(postId, getCurrentUserId(), after, size);
+    }
+    
     @QueryMapping
     public Page<Comment> commentReplies(
             @Argument Long commentId, 
@@ -124,28 +152,46 @@ public class CommentResolver {
         return commentService.downvoteComment(id, getCurrentUserId());
     }
     
-    // Field resolvers
+    @MutationMapping
+    public Comment clearCommentVote(@Argument Long id) {
+        return commentService.clearCommentVote(id, getCurrentUserId());
+    }
+    
+    // Subscriptions check READ access once, when subscribing; see ForumEventBus for the buffering
+    
+    @SubscriptionMapping
+    public Flux<Comment> commentAdded(@Argument Long postId) {
+        return forumEventBus.subscribe(EventTopic.post(postId), getCurrentUserId())
+                .filter(event -> event.type() == ForumEvent.Type.COMMENT_CREATED)
+                // Loaded once for all subscribers, skipping comments deleted in the meantime
+                .concatMap(eventEntities::comment);
+    }
+    
+    // Field resolvers, batched per request so each association costs one IN query
     
-    @SchemaMapping(typeName = "Comment", field = "author")
-    public User author(Comment comment) {
-        return comment.getUser();
+    @BatchMapping(typeName = "Comment", field = "author")
+    public List<User> author(List<Comment> comments) {
+        return BatchLoaders.loadOne(comments, comment -> comment.getUser().getId(),
+                userRepository::findAllById, User::getId);
     }
     
-    @SchemaMapping(typeName = "Comment", field = "post")
-    public Post post(Comment comment) {
-        return comment.getPost();
+    @BatchMapping(typeName = "Comment", field = "post")
+    public List<Post> post(List<Comment> comments) {
+        return BatchLoaders.loadOne(comments, comment -> comment.getPost().getId(),
+                postRepository::findAllById, Post::getId);
     }
     
-    @SchemaMapping(typeName = "Comment", field = "parentComment")
-    public Comment parentComment(Comment comment) {
-        return comment.getParentComment();
+    @BatchMapping(typeName = "Comment", field = "parentComment")
+    public List<Comment> parentComment(List<Comment> comments) {
+        return BatchLoaders.loadOne(comments,
+                comment -> comment.getParentComment() != null ? comment.getParentComment().getId() : null,
+                commentRepository::findAllById, Comment::getId);
     }
     
-    @SchemaMapping(typeName = "Comment", field = "replies")
-    public List<Comment> replies(Comment comment) {
-        return comment.getReplies()
-                .stream()
-                .collect(Collectors.toList());
+    @BatchMapping(typeName = "Comment", field = "replies")
+    public List<List<Comment>> replies(List<Comment> comments) {
+        return BatchLoaders.loadMany(comments, Comment::getId,
+                commentRepository::findByParentCommentIdIn, reply -> reply.getParentComment().getId());
     }
     
     @SchemaMapping(typeName = "CommentPage", field = "hasNext")
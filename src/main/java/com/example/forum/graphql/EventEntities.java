@@ -0,0 +1,56 @@
+package com.example.forum.graphql;
+
+import com.example.forum.events.ForumEvent;
+import com.example.forum.model.Comment;
+import com.example.forum.model.Post;
+import com.example.forum.repository.CommentRepository;
+import com.example.forum.repository.PostRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Loads the post or comment of an event for GraphQL subscriptions, once per event rather than
+ * once per subscriber.
+ * <p>
+ * Every subscriber of a topic receives the same event instance from the
+ * {@link com.example.forum.events.ForumEventBus}, so the first one to get to it loads the entity
+ * and the others are handed the cached result. Entries are only weakly keyed by the event and
+ * disappear once no subscriber buffers it anymore. Entities deleted before the event is
+ * delivered come back empty.
+ */
+@Component
+@RequiredArgsConstructor
+class EventEntities {
+
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+
+    // The cached loads must not refer to their event, or the event would never be collected
+    private final Map<ForumEvent, Mono<Post>> posts = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Map<ForumEvent, Mono<Comment>> comments = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * @param event a post event
+     * @return the post of the event, or empty if it was deleted
+     */
+    Mono<Post> post(ForumEvent event) {
+        Long postId = event.postId();
+        return posts.computeIfAbsent(event,
+                key -> Mono.fromCallable(() -> postRepository.findById(postId).orElse(null)).cache());
+    }
+
+    /**
+     * @param event a comment event
+     * @return the comment of the event, or empty if it was deleted
+     */
+    Mono<Comment> comment(ForumEvent event) {
+        Long commentId = event.commentId();
+        return comments.computeIfAbsent(event,
+                key -> Mono.fromCallable(() -> commentRepository.findById(commentId).orElse(null)).cache());
+    }
+}
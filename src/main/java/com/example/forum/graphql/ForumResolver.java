@@ -1,5 +1,6 @@
 package com.example.forum.graphql;
 
+import com.example.forum.dto.forum.ForumTreeNode;
 import com.example.forum.model.Forum;
 import com.example.forum.service.ForumService;
 import org.springframework.graphql.data.method.annotation.Argument;
@@ -9,8 +10,8 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Controller;
-import com.example.forum.model.User;
 import com.example.forum.repository.UserRepository;
+import com.example.forum.security.AuthenticatedUser;
 
 import java.util.List;
 
@@ -35,8 +36,9 @@ public class ForumResolver {
         Object principal = authentication.getPrincipal();
         
         // Handle different principal types
-        if (principal instanceof User) {
-            return ((User) principal).getId();
+        if (principal instanceof AuthenticatedUser authenticatedUser) {
+            // JWT-authenticated requests carry the user ID, no lookup needed
+            return authenticatedUser.id();
         } else if (principal instanceof String) {
             // If principal is a username string, find the user by username
             String username = (String) principal;
@@ -54,6 +56,11 @@ public class ForumResolver {
         return forumService.getRootForums();
     }
 
+    @QueryMapping
+    public List<ForumTreeNode> forumTree() {
+        return forumService.getForumTree();
+    }
+
     @QueryMapping
     public Forum forum(@Argument Long id) {
         return forumService.getForumById(id);
@@ -0,0 +1,212 @@
+package com.example.forum.graphql;
+
+import com.example.forum.security.AuthenticatedUser;
+import com.example.forum.security.HandshakeAuthenticator;
+import com.example.forum.security.JwtAuthenticationFilter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.ExecutionResult;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.MessageHandler;
+import jakarta.websocket.Session;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.graphql.ExecutionGraphQlResponse;
+import org.springframework.graphql.ExecutionGraphQlService;
+import org.springframework.graphql.execution.SubscriptionPublisherException;
+import org.springframework.graphql.support.DefaultExecutionGraphQlRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WebSocket endpoint serving GraphQL queries, mutations and subscriptions with the
+ * <a href="https://github.com/enisdenjo/graphql-ws/blob/master/PROTOCOL.md">graphql-transport-ws</a>
+ * protocol, as used by the {@code graphql-ws} client.
+ * <p>
+ * There is one instance per session. The user is resolved during the handshake, see
+ * {@link HandshakeAuthenticator}, or from an {@code Authorization} entry in the payload of the
+ * {@code connection_init} message, since browsers cannot send headers with the handshake.
+ * Operations run as that user, through the same {@link ExecutionGraphQlService} as HTTP requests.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class GraphQlWebSocket extends Endpoint {
+
+    public static final String SUBPROTOCOL = "graphql-transport-ws";
+
+    private static final TypeReference<Map<String, Object>> MESSAGE = new TypeReference<>() {
+    };
+
+    private final ExecutionGraphQlService graphQlService;
+    private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final ObjectMapper objectMapper;
+
+    // Running operations by the ID the client gave them
+    private final Map<String, Disposable> operations = new ConcurrentHashMap<>();
+    private volatile boolean initialized;
+    private volatile AuthenticatedUser user;
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+        user = (AuthenticatedUser) config.getUserProperties().get(HandshakeAuthenticator.USER);
+        session.addMessageHandler(String.class, (MessageHandler.Whole<String>) text -> handle(session, text));
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        operations.values().forEach(Disposable::dispose);
+        operations.clear();
+    }
+
+    @Override
+    public void onError(Session session, Throwable error) {
+        log.debug("GraphQL socket {} failed", session.getId(), error);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void handle(Session session, String text) {
+        Map<String, Object> message;
+        try {
+            message = objectMapper.readValue(text, MESSAGE);
+        } catch (JsonProcessingException e) {
+            close(session, 4400, "Invalid message");
+            return;
+        }
+
+        Object type = message.get("type");
+        Object id = message.get("id");
+        Object payload = message.get("payload");
+        if ("connection_init".equals(type)) {
+            if (initialized) {
+                close(session, 4429, "Too many initialisation requests");
+                return;
+            }
+            initialized = true;
+            if (payload instanceof Map<?, ?> params && params.get("Authorization") instanceof String header
+                    && header.startsWith("Bearer ")) {
+                jwtAuthenticationFilter.authenticate(header.substring(7)).ifPresent(found -> user = found);
+            }
+            send(session, Map.of("type", "connection_ack"));
+        } else if ("ping".equals(type)) {
+            send(session, Map.of("type", "pong"));
+        } else if ("pong".equals(type)) {
+            // Reply to a ping of ours, nothing to do
+        } else if ("subscribe".equals(type) && id instanceof String operationId && payload instanceof Map<?, ?> request
+                && request.get("query") instanceof String query) {
+            if (!initialized) {
+                close(session, 4401, "Unauthorized");
+                return;
+            }
+            Disposable.Swap operation = Disposables.swap();
+            if (operations.putIfAbsent(operationId, operation) != null) {
+                close(session, 4409, "Subscriber for " + operationId + " already exists");
+                return;
+            }
+            operation.update(execute(session, operationId, new DefaultExecutionGraphQlRequest(query,
+                    (String) request.get("operationName"), (Map<String, Object>) request.get("variables"),
+                    (Map<String, Object>) request.get("extensions"), operationId, null)));
+        } else if ("complete".equals(type) && id instanceof String operationId) {
+            Disposable operation = operations.remove(operationId);
+            if (operation != null) {
+                operation.dispose();
+            }
+        } else {
+            close(session, 4400, "Invalid message");
+        }
+    }
+
+    private Disposable execute(Session session, String id, DefaultExecutionGraphQlRequest request) {
+        // Resolvers of the root field run while subscribing, this is where they read the user
+        SecurityContext previous = SecurityContextHolder.getContext();
+        SecurityContextHolder.setContext(securityContext());
+        try {
+            return graphQlService.execute(request)
+                    .flatMapMany(response -> results(session, id, response))
+                    .subscribe(result -> send(session, Map.of("id", id, "type", "next", "payload", result)),
+                            error -> {
+                                if (operations.remove(id) != null) {
+                                    send(session, Map.of("id", id, "type", "error", "payload", errors(error)));
+                                }
+                            },
+                            () -> {
+                                if (operations.remove(id) != null) {
+                                    send(session, Map.of("id", id, "type", "complete"));
+                                }
+                            });
+        } finally {
+            SecurityContextHolder.setContext(previous);
+        }
+    }
+
+    private Flux<Map<String, Object>> results(Session session, String id, ExecutionGraphQlResponse response) {
+        if (response.getData() instanceof Publisher<?> publisher) {
+            return Flux.from(publisher).map(result -> ((ExecutionResult) result).toSpecification());
+        }
+        if (!response.isValid()) {
+            // Rejected before execution, e.g. an unknown field, or failed at the root, e.g. no access
+            if (operations.remove(id) != null) {
+                send(session, Map.of("id", id, "type", "error", "payload",
+                        response.getExecutionResult().getErrors().stream().map(GraphQLError::toSpecification).toList()));
+            }
+            return Flux.empty();
+        }
+        return Flux.just(response.toMap());
+    }
+
+    private SecurityContext securityContext() {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        AuthenticatedUser current = user;
+        if (current != null) {
+            context.setAuthentication(new UsernamePasswordAuthenticationToken(current, null,
+                    List.of(new SimpleGrantedAuthority("ROLE_" + current.role().name()))));
+        }
+        return context;
+    }
+
+    private static List<Map<String, Object>> errors(Throwable error) {
+        if (error instanceof SubscriptionPublisherException e) {
+            return e.getErrors().stream().map(GraphQLError::toSpecification).toList();
+        }
+        return List.of(GraphqlErrorBuilder.newError().message(String.valueOf(error.getMessage())).build()
+                .toSpecification());
+    }
+
+    private void send(Session session, Map<String, Object> message) {
+        if (!session.isOpen()) {
+            return;
+        }
+        try {
+            String text = objectMapper.writeValueAsString(message);
+            // Results of several operations are sent from different threads
+            synchronized (session) {
+                session.getBasicRemote().sendText(text);
+            }
+        } catch (IOException e) {
+            log.debug("Could not send to GraphQL socket {}", session.getId(), e);
+        }
+    }
+
+    private static void close(Session session, int code, String reason) {
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.getCloseCode(code), reason));
+        } catch (IOException e) {
+            log.debug("Could not close GraphQL socket {}", session.getId(), e);
+        }
+    }
+}
@@ -1,29 +1,54 @@
 package com.example.forum.graphql;
 
+import com.example.forum.events.EventTopic;
+import com.example.forum.events.ForumEvent;
+import com.example.forum.events.ForumEventBus;
+import com.example.forum.model.Comment;
 import com.example.forum.model.Forum;
 import com.example.forum.model.Post;
 import com.example.forum.model.User;
+import com.example.forum.pagination.CursorPage;
+import com.example.forum.ranking.RankingMode;
+import com.example.forum.ranking.RankingWindow;
+import com.example.forum.repository.CommentRepository;
+import com.example.forum.repository.ForumRepository;
 import com.example.forum.repository.UserRepository;
+import com.example.forum.security.AuthenticatedUser;
 import com.example.forum.service.PostService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.graphql.data.method.annotation.SubscriptionMapping;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
 
 @Controller
 public class PostResolver {
     private final PostService postService;
     private final UserRepository userRepository;
+    private final ForumRepository forumRepository;
+    private final CommentRepository commentRepository;
+    private final ForumEventBus forumEventBus;
+    private final EventEntities eventEntities;
 
-    public PostResolver(PostService postService, UserRepository userRepository) {
+    public PostResolver(PostService postService, UserRepository userRepository,
+                        ForumRepository forumRepository, CommentRepository commentRepository,
+                        ForumEventBus forumEventBus, EventEntities eventEntities) {
         this.postService = postService;
         this.userRepository = userRepository;
+        this.forumRepository = forumRepository;
+        this.commentRepository = commentRepository;
+        this.forumEventBus = forumEventBus;
+        this.eventEntities = eventEntities;
     }
 
     private Long getCurrentUserId() {
@@ -37,8 +62,9 @@ public class PostResolver {
         Object principal = authentication.getPrincipal();
         
         // Handle different principal types
-        if (principal instanceof User) {
-            return ((User) principal).getId();
+        if (principal instanceof AuthenticatedUser authenticatedUser) {
+            // JWT-authenticated requests carry the user ID, no lookup needed
+            return authenticatedUser.id();
         } else if (principal instanceof String) {
             // If principal is a username string, find the user by username
             String username = (String) principal;
@@ -56,6 +82,22 @@ public class PostResolver {
         return postService.getPostsByForum(forumId, getCurrentUserId(), PageRequest.of(page, size));
     }
 
+    @QueryMapping
+    public Page<Post> rankedPosts(@Argument Long forumId, @Argument RankingMode rank, @Argument RankingWindow window,
+                                  @Argument int page, @Argument int size) {
+        return postService.getRankedPostsByForum(forumId, getCurrentUserId(), rank, window, PageRequest.of(page, size));
+    }
+
+    @QueryMapping
+    public CursorPage<Post> postsByCursor(@Argument Long forumId, @Argument String after, @Argument int size) {
+        return postService.getPostsByForumAfter(forumId, getCurrentUserId(), after, size);
+    }
+
+    @QueryMapping
+    public CursorPage<Post> feed(@Argument String after, @Argument int size) {
+        return postService.getHomeFeed(getCurrentUserId(), after, size);
+    }
+
     @QueryMapping
     public Post post(@Argument Long id) {
         return postService.getPostById(id, getCurrentUserId());
@@ -87,16 +129,57 @@ public class PostResolver {
         postService.deletePost(id, getCurrentUserId());
         return true;
     }
-    // Field resolvers
+
+    @MutationMapping
+    public Post upvotePost(@Argument Long id) {
+        return postService.upvotePost(id, getCurrentUserId());
+    }
+
+    @MutationMapping
+    public Post downvotePost(@Argument Long id) {
+        return postService.downvotePost(id, getCurrentUserId());
+    }
+
+    @MutationMapping
+    public Post clearPostVote(@Argument Long id) {
+        return postService.clearPostVote(id, getCurrentUserId());
+    }
+    
+    // Subscriptions check READ access once, when subscribing; see ForumEventBus for the buffering
+    
+    @SubscriptionMapping
+    public Flux<Post> postAdded(@Argument Long forumId) {
+        return forumEventBus.subscribe(EventTopic.forum(forumId), getCurrentUserId())
+                .filter(event -> event.type() == ForumEvent.Type.POST_CREATED)
+                // Loaded once for all subscribers, skipping posts deleted in the meantime
+                .concatMap(eventEntities::post);
+    }
+    
+    @SubscriptionMapping
+    public Flux<ForumEvent> voteChanged(@Argument Long postId) {
+        return forumEventBus.subscribe(EventTopic.post(postId), getCurrentUserId())
+                .filter(event -> event.type() == ForumEvent.Type.POST_VOTED
+                        || event.type() == ForumEvent.Type.COMMENT_VOTED);
+    }
+    
+    // Field resolvers, batched per request so each association costs one IN query
+    
+    @BatchMapping(typeName = "Post", field = "author")
+    public List<User> author(List<Post> posts) {
+        return BatchLoaders.loadOne(posts, post -> post.getUser().getId(),
+                userRepository::findAllById, User::getId);
+    }
     
-    @SchemaMapping(typeName = "Post", field = "author")
-    public User author(Post post) {
-        return post.getUser();
+    @BatchMapping(typeName = "Post", field = "forum")
+    public List<Forum> forum(List<Post> posts) {
+        return BatchLoaders.loadOne(posts, post -> post.getForum().getId(),
+                forumRepository::findAllById, Forum::getId);
     }
     
-    @SchemaMapping(typeName = "Post", field = "forum")
-    public Forum forum(Post post) {
-        return post.getForum();
+    @BatchMapping(typeName = "Post", field = "comments")
+    public List<List<Comment>> comments(List<Post> posts) {
+        return BatchLoaders.loadMany(posts, Post::getId,
+                commentRepository::findByPostIdIn, comment -> comment.getPost().getId());
     }
     
     @SchemaMapping(typeName = "PostPage", field = "hasNext")
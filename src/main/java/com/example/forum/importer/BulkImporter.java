@@ -0,0 +1,615 @@
+package com.example.forum.importer;
+
+import com.example.forum.cache.ForumTreeCache;
+import com.example.forum.exception.AccessDeniedException;
+import com.example.forum.exception.BadRequestException;
+import com.example.forum.feed.HomeFeed;
+import com.example.forum.model.AccessLevel;
+import com.example.forum.model.Comment;
+import com.example.forum.model.Forum;
+import com.example.forum.model.ForumAccess;
+import com.example.forum.model.ImportJob;
+import com.example.forum.model.Post;
+import com.example.forum.model.Role;
+import com.example.forum.model.User;
+import com.example.forum.ranking.PostRanking;
+import com.example.forum.repository.ForumClosureRepository;
+import com.example.forum.repository.ImportJobRepository;
+import com.example.forum.search.SearchDocument;
+import com.example.forum.search.SearchEngine;
+import com.example.forum.service.ForumService;
+import com.example.forum.service.UserService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Imports users, forums, posts and comments from an NDJSON stream of {@link ImportRecord}s,
+ * e.g. to migrate a legacy board.
+ * <p>
+ * Records are read in batches, and each batch is inserted with JDBC batch statements in one
+ * transaction, instead of loading the user, forum and post of every record the way the
+ * services do. Permissions are checked once per target forum. Legacy IDs are mapped to the
+ * new IDs in {@link OffHeapLongMap}s in a work directory of the import, so the mapping of
+ * millions of records does not live on the heap.
+ * <p>
+ * The number of committed lines is stored with the job in the same transaction as the
+ * records. If an import fails, sending the same stream again with the same job ID skips the
+ * committed lines and continues after them.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BulkImporter {
+
+    /**
+     * Outcome of an import.
+     */
+    public record Result(String jobId, long records, long resumedFrom, long users, long forums, long posts,
+                         long comments, long elapsedMs, long recordsPerSecond) {
+    }
+
+    // Job IDs name the work directory, so keep them to safe file names
+    private static final Pattern JOB_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    // Stored as the password of users imported without one; no BCrypt hash matches it
+    private static final String NO_PASSWORD = "!";
+
+    // Keeps IN lists well below the bind parameter limits of the supported databases
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
+    private static final long PROGRESS_INTERVAL_NANOS = 10_000_000_000L;
+
+    private final ImportJobRepository importJobRepository;
+    private final ForumClosureRepository forumClosureRepository;
+    private final ForumService forumService;
+    private final UserService userService;
+    private final ForumTreeCache forumTreeCache;
+    private final SearchEngine searchEngine;
+    private final PostRanking postRanking;
+    private final HomeFeed homeFeed;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.import.work-dir:./import-work}")
+    private String workDir;
+
+    @Value("${app.import.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${app.import.initial-map-capacity:65536}")
+    private long initialMapCapacity = 65536;
+
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Import the records of a stream, or resume an import that failed.
+     *
+     * @param input  the NDJSON stream, one record per line
+     * @param jobId  the ID of the import to resume, or null to start a new one
+     * @param userId the ID of the importing user
+     * @return the number of imported records of each kind and the throughput
+     * @throws BadRequestException   if a record is invalid, or the import is already running or completed
+     * @throws AccessDeniedException if the user may not import into a forum, or import users
+     */
+    public Result importRecords(InputStream input, String jobId, Long userId) {
+        String id = jobId != null ? jobId : UUID.randomUUID().toString();
+        if (!JOB_ID.matcher(id).matches()) {
+            throw new BadRequestException("Invalid import job ID: " + id);
+        }
+        if (!running.add(id)) {
+            throw new BadRequestException("Import " + id + " is already running");
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            ImportJob job = transactionTemplate.execute(status -> start(id, userId));
+            long resumedFrom = job.getRecords();
+            long start = System.nanoTime();
+            try (Run run = new Run(job, Paths.get(workDir, id))) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+                run.skip(reader, resumedFrom);
+                while (Boolean.TRUE.equals(transactionTemplate.execute(status -> run.importBatch(reader)))) {
+                    run.logProgress(start, resumedFrom);
+                }
+                transactionTemplate.executeWithoutResult(status -> importJobRepository.findById(id)
+                        .ifPresent(completed -> completed.setStatus(ImportJob.Status.COMPLETED)));
+                run.deleteFiles();
+
+                long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+                Result result = new Result(id, run.lines, resumedFrom, run.counts[0], run.counts[1],
+                        run.counts[2], run.counts[3], elapsedMs, (run.lines - resumedFrom) * 1000 / elapsedMs);
+                log.info("Import {} completed: {} users, {} forums, {} posts and {} comments in {} ms ({} records/s)",
+                        id, result.users(), result.forums(), result.posts(), result.comments(), elapsedMs,
+                        result.recordsPerSecond());
+                return result;
+            } catch (IOException e) {
+                throw fail(transactionTemplate, id, new UncheckedIOException("Failed to read import " + id, e));
+            } catch (RuntimeException e) {
+                throw fail(transactionTemplate, id, e);
+            }
+        } finally {
+            running.remove(id);
+        }
+    }
+
+    private ImportJob start(String id, Long userId) {
+        ImportJob job = importJobRepository.findById(id).orElse(null);
+        if (job == null) {
+            return importJobRepository.save(ImportJob.builder()
+                    .id(id)
+                    .userId(userId)
+                    .status(ImportJob.Status.RUNNING)
+                    .build());
+        }
+        if (!job.getUserId().equals(userId)) {
+            throw new AccessDeniedException("import", "resume");
+        }
+        if (job.getStatus() == ImportJob.Status.COMPLETED) {
+            throw new BadRequestException("Import " + id + " is already completed");
+        }
+        job.setStatus(ImportJob.Status.RUNNING);
+        job.setLastError(null);
+        return job;
+    }
+
+    private RuntimeException fail(TransactionTemplate transactionTemplate, String id, RuntimeException e) {
+        String error = String.valueOf(e.getMessage());
+        transactionTemplate.executeWithoutResult(status -> importJobRepository.findById(id).ifPresent(job -> {
+            job.setStatus(ImportJob.Status.FAILED);
+            job.setLastError(error.length() > 500 ? error.substring(0, 500) : error);
+        }));
+        log.warn("Import {} failed: {}", id, error);
+        return e;
+    }
+
+    /**
+     * Allocate an ID from the same sequence and pool that Hibernate uses for the entity.
+     */
+    private long nextId(Class<?> entityType) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        IdentifierGenerator generator = (IdentifierGenerator) session.getFactory().getMappingMetamodel()
+                .getEntityDescriptor(entityType).getGenerator();
+        return ((Number) generator.generate(session, null)).longValue();
+    }
+
+    private record PendingUser(long line, long legacyId, String username, String email, String displayName,
+                               String password, LocalDateTime createdAt) {
+    }
+
+    private record PendingForum(long id, Long parentId, String name, String description, LocalDateTime createdAt) {
+    }
+
+    private record PendingPost(long line, long id, long forumId, Long legacyUserId, String title, String content,
+                               LocalDateTime createdAt) {
+    }
+
+    private record PendingComment(long line, long id, long postId, long forumId, Long parentId, Long legacyUserId,
+                                  String content, LocalDateTime createdAt) {
+    }
+
+    /**
+     * The records of one batch, with their IDs allocated but not inserted yet.
+     */
+    private static final class Batch {
+        private int lines;
+        private final List<PendingUser> users = new ArrayList<>();
+        private final List<PendingForum> forums = new ArrayList<>();
+        private final List<PendingPost> posts = new ArrayList<>();
+        private final List<PendingComment> comments = new ArrayList<>();
+        private final Map<Long, Integer> forumPostCounts = new HashMap<>();
+        private final Map<Long, Integer> postCommentCounts = new HashMap<>();
+        private final Map<Long, Integer> commentReplyCounts = new HashMap<>();
+    }
+
+    /**
+     * State of an import while it runs.
+     */
+    private final class Run implements Closeable {
+
+        private final String jobId;
+        private final Long userId;
+        private final Path directory;
+        private final ObjectReader recordReader = objectMapper.readerFor(ImportRecord.class);
+
+        // Legacy IDs to new IDs, and the forums of the imported posts
+        private final OffHeapLongMap users;
+        private final OffHeapLongMap forums;
+        private final OffHeapLongMap posts;
+        private final OffHeapLongMap comments;
+        private final OffHeapLongMap postForums;
+
+        // Highest access level checked so far on each target forum
+        private final Map<Long, AccessLevel> checkedForums = new HashMap<>();
+        private boolean usersAllowed;
+
+        private long lines;
+        private final long[] counts = new long[4];
+        private long lastProgress = System.nanoTime();
+
+        Run(ImportJob job, Path directory) throws IOException {
+            this.jobId = job.getId();
+            this.userId = job.getUserId();
+            this.directory = directory;
+            Files.createDirectories(directory);
+            users = OffHeapLongMap.open(directory.resolve("users.map"), initialMapCapacity);
+            forums = OffHeapLongMap.open(directory.resolve("forums.map"), initialMapCapacity);
+            posts = OffHeapLongMap.open(directory.resolve("posts.map"), initialMapCapacity);
+            comments = OffHeapLongMap.open(directory.resolve("comments.map"), initialMapCapacity);
+            postForums = OffHeapLongMap.open(directory.resolve("post-forums.map"), initialMapCapacity);
+        }
+
+        void skip(BufferedReader reader, long count) throws IOException {
+            while (lines < count && reader.readLine() != null) {
+                lines++;
+            }
+        }
+
+        /**
+         * Read and insert the next batch of records in the current transaction.
+         *
+         * @return whether there may be more records
+         */
+        Boolean importBatch(BufferedReader reader) {
+            Batch batch = new Batch();
+            try {
+                String line;
+                while (batch.lines < batchSize && (line = reader.readLine()) != null) {
+                    lines++;
+                    batch.lines++;
+                    if (!line.isBlank()) {
+                        add(batch, parse(line));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read import " + jobId, e);
+            }
+            if (batch.lines == 0) {
+                return false;
+            }
+            insert(batch);
+            ImportJob job = importJobRepository.findById(jobId).orElseThrow();
+            job.setRecords(lines);
+            job.setUsers(counts[0]);
+            job.setForums(counts[1]);
+            job.setPosts(counts[2]);
+            job.setComments(counts[3]);
+            // The new IDs must be on disk before the rows they refer to are committed
+            for (OffHeapLongMap map : List.of(users, forums, posts, comments, postForums)) {
+                map.force();
+            }
+            return batch.lines == batchSize;
+        }
+
+        void logProgress(long start, long resumedFrom) {
+            long now = System.nanoTime();
+            if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                lastProgress = now;
+                log.info("Import {}: {} records, {} records/s", jobId, lines,
+                        (lines - resumedFrom) * 1_000_000_000L / Math.max(1, now - start));
+            }
+        }
+
+        private ImportRecord parse(String line) {
+            try {
+                return recordReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                throw invalid("invalid record: " + e.getOriginalMessage());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void add(Batch batch, ImportRecord record) {
+            if (record.type() == null || record.id() == null) {
+                throw invalid("type and id are required");
+            }
+            try {
+                switch (record.type()) {
+                    case USER -> addUser(batch, record);
+                    case FORUM -> addForum(batch, record);
+                    case POST -> addPost(batch, record);
+                    case COMMENT -> addComment(batch, record);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write the ID maps of import " + jobId, e);
+            }
+        }
+
+        private void addUser(Batch batch, ImportRecord record) {
+            if (!usersAllowed) {
+                if (userService.getUserById(userId).getRole() != Role.ADMIN) {
+                    throw new AccessDeniedException("users", "import");
+                }
+                usersAllowed = true;
+            }
+            if (isBlank(record.username()) || isBlank(record.email())) {
+                throw invalid("users need a username and an email");
+            }
+            batch.users.add(new PendingUser(lines, record.id(), record.username(), record.email(),
+                    record.displayName(), record.passwordHash() != null ? record.passwordHash() : NO_PASSWORD,
+                    createdAt(record)));
+        }
+
+        private void addForum(Batch batch, ImportRecord record) throws IOException {
+            if (isBlank(record.name())) {
+                throw invalid("forums need a name");
+            }
+            Long parentId = null;
+            if (record.parentId() != null) {
+                parentId = resolve(forums, record.parentId(), "parent forum");
+            } else if (record.targetParentId() != null) {
+                checkAccess(record.targetParentId(), AccessLevel.ADMIN);
+                parentId = record.targetParentId();
+            }
+            long id = nextId(Forum.class);
+            forums.put(record.id(), id);
+            batch.forums.add(new PendingForum(id, parentId, record.name(), record.description(), createdAt(record)));
+        }
+
+        private void addPost(Batch batch, ImportRecord record) throws IOException {
+            if (isBlank(record.title()) || isBlank(record.content())) {
+                throw invalid("posts need a title and content");
+            }
+            long forumId;
+            if (record.forumId() != null) {
+                forumId = resolve(forums, record.forumId(), "forum");
+            } else if (record.targetForumId() != null) {
+                checkAccess(record.targetForumId(), AccessLevel.WRITE);
+                forumId = record.targetForumId();
+            } else {
+                throw invalid("posts need a forumId or targetForumId");
+            }
+            long id = nextId(Post.class);
+            posts.put(record.id(), id);
+            postForums.put(id, forumId);
+            batch.posts.add(new PendingPost(lines, id, forumId, record.userId(), record.title(), record.content(),
+                    createdAt(record)));
+            batch.forumPostCounts.merge(forumId, 1, Integer::sum);
+        }
+
+        private void addComment(Batch batch, ImportRecord record) throws IOException {
+            if (record.postId() == null || isBlank(record.content())) {
+                throw invalid("comments need a postId and content");
+            }
+            long postId = resolve(posts, record.postId(), "post");
+            Long parentId = record.parentId() != null ? resolve(comments, record.parentId(), "parent comment") : null;
+            long id = nextId(Comment.class);
+            comments.put(record.id(), id);
+            batch.comments.add(new PendingComment(lines, id, postId, postForums.get(postId), parentId,
+                    record.userId(), record.content(), createdAt(record)));
+            batch.postCommentCounts.merge(postId, 1, Integer::sum);
+            if (parentId != null) {
+                batch.commentReplyCounts.merge(parentId, 1, Integer::sum);
+            }
+        }
+
+        /**
+         * Check the access of the importing user to an existing forum, once per forum.
+         */
+        private void checkAccess(Long forumId, AccessLevel level) {
+            AccessLevel checked = checkedForums.get(forumId);
+            if (checked != null && checked.compareTo(level) >= 0) {
+                return;
+            }
+            if (!forumService.hasForumAccess(forumId, userId, level)) {
+                throw new AccessDeniedException("forum", "import into");
+            }
+            checkedForums.put(forumId, level);
+        }
+
+        private long resolve(OffHeapLongMap map, long legacyId, String what) {
+            long id = map.get(legacyId);
+            if (id == 0) {
+                throw invalid("unknown " + what + " " + legacyId + ", it must be imported before");
+            }
+            return id;
+        }
+
+        private BadRequestException invalid(String message) {
+            return invalid(lines, message);
+        }
+
+        private void insert(Batch batch) {
+            insertUsers(batch.users);
+            insertForums(batch.forums);
+
+            List<Object[]> postRows = new ArrayList<>(batch.posts.size());
+            for (PendingPost post : batch.posts) {
+                postRows.add(new Object[]{post.id(), post.title(), post.content(), post.forumId(),
+                        author(post.legacyUserId(), post.line()), post.createdAt(), post.createdAt()});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO posts (id, title, content, forum_id, user_id, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)", postRows);
+
+            List<Object[]> commentRows = new ArrayList<>(batch.comments.size());
+            for (PendingComment comment : batch.comments) {
+                commentRows.add(new Object[]{comment.id(), comment.content(), comment.postId(), comment.parentId(),
+                        author(comment.legacyUserId(), comment.line()), comment.createdAt(), comment.createdAt()});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO comments (id, content, post_id, parent_comment_id, user_id, " +
+                    "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)", commentRows);
+
+            adjustCounts("UPDATE forums SET post_count = post_count + ? WHERE id = ?", batch.forumPostCounts);
+            adjustCounts("UPDATE posts SET comment_count = comment_count + ? WHERE id = ?", batch.postCommentCounts);
+            adjustCounts("UPDATE comments SET reply_count = reply_count + ? WHERE id = ?", batch.commentReplyCounts);
+
+            for (PendingPost post : batch.posts) {
+                postRanking.postCreated(post.id(), post.forumId(), post.createdAt());
+                homeFeed.postCreated(post.id());
+            }
+            batch.postCommentCounts.forEach(postRanking::commentsChanged);
+
+            for (PendingPost post : batch.posts) {
+                searchEngine.index(SearchDocument.ofPost(post.id(), post.forumId(), post.title(), post.content()));
+            }
+            for (PendingComment comment : batch.comments) {
+                searchEngine.index(SearchDocument.ofComment(comment.id(), comment.forumId(), comment.postId(),
+                        comment.content()));
+            }
+            counts[0] += batch.users.size();
+            counts[1] += batch.forums.size();
+            counts[2] += batch.posts.size();
+            counts[3] += batch.comments.size();
+        }
+
+        /**
+         * Insert the new users, and map users whose username already exists to the existing user.
+         */
+        private void insertUsers(List<PendingUser> pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            Map<String, Long> existing = new HashMap<>();
+            for (List<PendingUser> chunk : chunks(pending)) {
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                jdbcTemplate.query("SELECT id, username FROM users WHERE username IN (" + placeholders + ")",
+                        rs -> {
+                            existing.put(rs.getString(2), rs.getLong(1));
+                        },
+                        chunk.stream().map(PendingUser::username).toArray());
+            }
+            // Usernames repeated within the stream are the same user too
+            Map<String, Object[]> rows = new LinkedHashMap<>();
+            try {
+                for (PendingUser user : pending) {
+                    Long id = existing.get(user.username());
+                    if (id == null) {
+                        id = nextId(User.class);
+                        existing.put(user.username(), id);
+                        rows.put(user.username(), new Object[]{id, user.username(), user.password(), user.email(),
+                                user.displayName() != null ? user.displayName() : user.username(), Role.USER.name(),
+                                true, user.createdAt(), user.createdAt()});
+                    }
+                    users.put(user.legacyId(), id);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write the ID maps of import " + jobId, e);
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO users (id, username, password, email, display_name, role, active, " +
+                    "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", new ArrayList<>(rows.values()));
+        }
+
+        /**
+         * Insert the forums, index them in the closure table and make the importing user their admin,
+         * the same as for forums created through the API.
+         */
+        private void insertForums(List<PendingForum> pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<Object[]> forumRows = new ArrayList<>(pending.size());
+            List<Object[]> accessRows = new ArrayList<>(pending.size());
+            LocalDateTime now = LocalDateTime.now();
+            for (PendingForum forum : pending) {
+                forumRows.add(new Object[]{forum.id(), forum.name(), forum.description(), forum.parentId(),
+                        forum.createdAt(), forum.createdAt()});
+                accessRows.add(new Object[]{nextId(ForumAccess.class), userId, forum.id(), AccessLevel.ADMIN.name(),
+                        now, now});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO forums (id, name, description, parent_forum_id, created_at, " +
+                    "updated_at) VALUES (?, ?, ?, ?, ?, ?)", forumRows);
+            jdbcTemplate.batchUpdate("INSERT INTO forum_access (id, user_id, forum_id, access_level, granted_at, " +
+                    "updated_at) VALUES (?, ?, ?, ?, ?, ?)", accessRows);
+            // Parents come before their subforums, so their closure rows exist already
+            for (PendingForum forum : pending) {
+                if (forum.parentId() == null) {
+                    forumClosureRepository.insertRoot(forum.id());
+                } else {
+                    forumClosureRepository.insertLeaf(forum.parentId(), forum.id());
+                }
+            }
+            forumTreeCache.invalidate();
+        }
+
+        // Names the job, so that imports started without a job ID can be resumed too
+        private BadRequestException invalid(long line, String message) {
+            return new BadRequestException("Line " + line + " of import " + jobId + ": " + message);
+        }
+
+        private long author(Long legacyUserId, long line) {
+            if (legacyUserId == null) {
+                return userId;
+            }
+            long id = users.get(legacyUserId);
+            if (id == 0) {
+                throw invalid(line, "unknown user " + legacyUserId + ", it must be imported before");
+            }
+            return id;
+        }
+
+        private void adjustCounts(String sql, Map<Long, Integer> deltas) {
+            if (!deltas.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, deltas.entrySet().stream()
+                        .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                        .toList());
+            }
+        }
+
+        void deleteFiles() throws IOException {
+            for (OffHeapLongMap map : List.of(users, forums, posts, comments, postForums)) {
+                map.delete();
+            }
+            Files.deleteIfExists(directory);
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (OffHeapLongMap map : List.of(users, forums, posts, comments, postForums)) {
+                map.close();
+            }
+        }
+    }
+
+    private static LocalDateTime createdAt(ImportRecord record) {
+        return record.createdAt() != null ? record.createdAt() : LocalDateTime.now();
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static <T> List<List<T>> chunks(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += LOOKUP_BATCH_SIZE) {
+            chunks.add(items.subList(i, Math.min(items.size(), i + LOOKUP_BATCH_SIZE)));
+        }
+        return chunks;
+    }
+}
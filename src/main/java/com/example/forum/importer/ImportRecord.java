@@ -0,0 +1,54 @@
+package com.example.forum.importer;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+
+/**
+ * One line of an NDJSON import stream. Every record has a type and the ID it had in the
+ * legacy system, and refers to other records by their legacy IDs. A record must come after
+ * the records it refers to.
+ * <pre>
+ * {"type":"user","id":7,"username":"alice","email":"alice@example.com","passwordHash":"$2a$10$..."}
+ * {"type":"forum","id":1,"name":"General","targetParentId":42}
+ * {"type":"forum","id":2,"parentId":1,"name":"Off topic"}
+ * {"type":"post","id":10,"forumId":2,"userId":7,"title":"Hello","content":"...","createdAt":"2015-03-01T10:15:00"}
+ * {"type":"comment","id":100,"postId":10,"userId":7,"content":"..."}
+ * {"type":"comment","id":101,"postId":10,"parentId":100,"content":"..."}
+ * </pre>
+ *
+ * @param type           the kind of record
+ * @param id             the legacy ID of the record
+ * @param parentId       the legacy ID of the parent forum of a forum, or of the parent comment of a reply
+ * @param targetParentId the ID of an existing forum to create a top-level imported forum in
+ * @param forumId        the legacy ID of the forum of a post
+ * @param targetForumId  the ID of an existing forum to create a post in
+ * @param postId         the legacy ID of the post of a comment
+ * @param userId         the legacy ID of the author, the importing user if absent
+ * @param username       the username of a user; an existing user with this name is reused
+ * @param email          the email address of a user
+ * @param displayName    the display name of a user
+ * @param passwordHash   the BCrypt hash of the password of a user; the user cannot log in without it
+ * @param name           the name of a forum
+ * @param description    the description of a forum
+ * @param title          the title of a post
+ * @param content        the text of a post or comment
+ * @param createdAt      when the record was created in the legacy system, now if absent
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ImportRecord(Type type, Long id, Long parentId, Long targetParentId, Long forumId, Long targetForumId,
+                           Long postId, Long userId, String username, String email, String displayName,
+                           String passwordHash, String name, String description, String title, String content,
+                           LocalDateTime createdAt) {
+
+    /**
+     * The kinds of imported records.
+     */
+    public enum Type {
+        @JsonProperty("user") USER,
+        @JsonProperty("forum") FORUM,
+        @JsonProperty("post") POST,
+        @JsonProperty("comment") COMMENT
+    }
+}
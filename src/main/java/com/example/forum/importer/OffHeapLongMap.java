@@ -0,0 +1,208 @@
+package com.example.forum.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Map of long keys to positive long values, kept in a memory-mapped file instead of the heap.
+ * <p>
+ * An import maps tens of millions of legacy IDs to new IDs, which as boxed entries of a heap
+ * map would cost several gigabytes and long GC pauses. Here each entry takes 16 bytes of an
+ * open addressing table in a file, paged in and out by the operating system. Entries written
+ * before a crash of the process stay in the file, so an interrupted import can open it again.
+ * <p>
+ * Not thread safe.
+ */
+class OffHeapLongMap implements Closeable {
+
+    private static final int SLOT_BYTES = 16;
+    // 2^26 slots, i.e. 1 GiB per mapped segment
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_SLOTS = 1L << SEGMENT_SHIFT;
+    private static final long MIN_CAPACITY = 1L << 10;
+    private static final double MAX_LOAD = 0.7;
+
+    private final Path file;
+    private FileChannel channel;
+    private MappedByteBuffer[] segments;
+    private long capacity;
+    private long size;
+
+    private OffHeapLongMap(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Open the map stored in a file, or create an empty one.
+     *
+     * @param file            the file
+     * @param initialCapacity the number of slots of a new file, rounded up to a power of two
+     * @return the map
+     * @throws IOException if the file cannot be opened or created
+     */
+    static OffHeapLongMap open(Path file, long initialCapacity) throws IOException {
+        OffHeapLongMap map = new OffHeapLongMap(file);
+        if (Files.exists(file)) {
+            map.map(file, Files.size(file) / SLOT_BYTES);
+            map.size = map.countEntries();
+        } else {
+            long capacity = Long.highestOneBit(Math.max(MIN_CAPACITY, initialCapacity) - 1) << 1;
+            map.map(file, capacity);
+        }
+        return map;
+    }
+
+    /**
+     * Get the value of a key.
+     *
+     * @param key the key
+     * @return the value, or 0 if the key is not in the map
+     */
+    long get(long key) {
+        long mask = capacity - 1;
+        for (long slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            long value = value(slot);
+            if (value == 0) {
+                return 0;
+            }
+            if (key(slot) == key) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Set the value of a key, replacing any previous value.
+     *
+     * @param key   the key
+     * @param value the value, which must be positive
+     * @throws IOException if the map has to grow and the file cannot be resized
+     */
+    void put(long key, long value) throws IOException {
+        if (value <= 0) {
+            throw new IllegalArgumentException("Values must be positive: " + value);
+        }
+        if (size + 1 > capacity * MAX_LOAD) {
+            grow();
+        }
+        if (insert(key, value)) {
+            size++;
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Write the entries to disk, so that they survive a crash of the operating system too.
+     */
+    void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        segments = null;
+        channel.close();
+    }
+
+    /**
+     * Close the map and delete its file.
+     */
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+
+    private boolean insert(long key, long value) {
+        long mask = capacity - 1;
+        for (long slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            long existing = value(slot);
+            if (existing == 0 || key(slot) == key) {
+                MappedByteBuffer segment = segments[(int) (slot >>> SEGMENT_SHIFT)];
+                int offset = (int) (slot & (SEGMENT_SLOTS - 1)) * SLOT_BYTES;
+                segment.putLong(offset, key);
+                segment.putLong(offset + 8, value);
+                return existing == 0;
+            }
+        }
+    }
+
+    /**
+     * Rehash the entries into a file of twice the size, and swap it in for the current file.
+     */
+    private void grow() throws IOException {
+        Path grown = file.resolveSibling(file.getFileName() + ".grow");
+        Files.deleteIfExists(grown);
+        OffHeapLongMap larger = new OffHeapLongMap(grown);
+        larger.map(grown, capacity * 2);
+        for (long slot = 0; slot < capacity; slot++) {
+            long value = value(slot);
+            if (value != 0) {
+                larger.insert(key(slot), value);
+            }
+        }
+        larger.force();
+        close();
+        Files.move(grown, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = larger.channel;
+        segments = larger.segments;
+        capacity = larger.capacity;
+    }
+
+    private void map(Path path, long slots) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        // New regions of the file read as zeros, i.e. as empty slots
+        long bytes = slots * SLOT_BYTES;
+        if (channel.size() < bytes) {
+            channel.write(ByteBuffer.allocate(1), bytes - 1);
+        }
+        capacity = slots;
+        int count = (int) ((slots + SEGMENT_SLOTS - 1) >>> SEGMENT_SHIFT);
+        segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long position = (long) i * SEGMENT_SLOTS * SLOT_BYTES;
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position,
+                    Math.min(SEGMENT_SLOTS * SLOT_BYTES, bytes - position));
+        }
+    }
+
+    private long countEntries() {
+        long count = 0;
+        for (long slot = 0; slot < capacity; slot++) {
+            if (value(slot) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private long key(long slot) {
+        return segments[(int) (slot >>> SEGMENT_SHIFT)].getLong((int) (slot & (SEGMENT_SLOTS - 1)) * SLOT_BYTES);
+    }
+
+    private long value(long slot) {
+        return segments[(int) (slot >>> SEGMENT_SHIFT)].getLong((int) (slot & (SEGMENT_SLOTS - 1)) * SLOT_BYTES + 8);
+    }
+
+    // Finalizer of MurmurHash3, spreads sequential IDs over the table
+    private static long hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb93e53fe1a85L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
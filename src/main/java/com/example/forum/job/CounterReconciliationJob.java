@@ -0,0 +1,58 @@
+package com.example.forum.job;
+
+import com.example.forum.repository.CommentRepository;
+import com.example.forum.repository.ForumRepository;
+import com.example.forum.repository.PostRepository;
+import com.example.forum.service.impl.VoteCounters;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Periodically repairs the denormalized post, comment and reply counters.
+ * <p>
+ * The counters are maintained on every write, so this only fixes drift caused by rows that were
+ * changed outside the application or by cascading deletes. Scores are rebuilt from the votes,
+ * see {@link VoteCounters#reconcile()}. It also runs once on startup, see
+ * {@link com.example.forum.config.PostRankingInitializer}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CounterReconciliationJob {
+
+    /**
+     * Number of counters repaired per entity type, and of posts and comments whose score was
+     * repaired.
+     */
+    public record Result(int forums, int posts, int comments, int scores) {
+    }
+
+    private final ForumRepository forumRepository;
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final VoteCounters voteCounters;
+
+    /**
+     * Recompute every counter and fix the ones that drifted.
+     *
+     * @return the number of repaired rows per entity type
+     */
+    @Scheduled(fixedDelayString = "${app.counters.reconcile-interval-ms:3600000}",
+               initialDelayString = "${app.counters.reconcile-interval-ms:3600000}")
+    @Transactional
+    public Result reconcile() {
+        Result result = new Result(
+                forumRepository.reconcilePostCounts(),
+                postRepository.reconcileCommentCounts(),
+                commentRepository.reconcileReplyCounts(),
+                voteCounters.reconcile());
+        if (result.forums() + result.posts() + result.comments() + result.scores() > 0) {
+            log.warn("Repaired drifted counters: {} forums, {} posts, {} comments, {} scores",
+                    result.forums(), result.posts(), result.comments(), result.scores());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.forum.job;
+
+import com.example.forum.content.ContentLayoutMigrator;
+import com.example.forum.content.FileSystemContentStorage;
+import com.example.forum.repository.ContentBlobRepository;
+import com.example.forum.repository.ContentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Periodically deletes files in the content storage directory that no content points at.
+ * <p>
+ * Deletions are queued in the transaction that released the bytes, so this only reclaims files
+ * leaked some other way, such as uploads moved into place by a transaction that then rolled
+ * back, or spool files left by a crash. The directory is walked without listing it in memory,
+ * and the files are checked against the database in batches. Recent files are left alone
+ * because they may belong to a transaction that has not committed yet, and resumable uploads
+ * are left to {@link UploadExpiryJob}. Files being moved by the {@link ContentLayoutMigrator}
+ * are left alone too, since a hard-linked new path looks as old as the file it links to.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrphanFileSweepJob {
+
+    /**
+     * Outcome of a sweep.
+     */
+    public record Result(long scanned, long deleted, long reclaimedBytes, boolean dryRun) {
+    }
+
+    private final ContentBlobRepository contentBlobRepository;
+    private final ContentRepository contentRepository;
+    private final ContentLayoutMigrator contentLayoutMigrator;
+
+    @Value("${app.content.storage.path:./content-storage}")
+    private String contentStoragePath;
+
+    @Value("${app.content.sweeper.min-age-ms:86400000}")
+    private long minAgeMs = 86400000;
+
+    @Value("${app.content.sweeper.batch-size:500}")
+    private int batchSize = 500;
+
+    /**
+     * Delete the orphaned files.
+     *
+     * @return the number of scanned and deleted files and the bytes reclaimed
+     */
+    @Scheduled(fixedDelayString = "${app.content.sweeper.interval-ms:86400000}",
+               initialDelayString = "${app.content.sweeper.interval-ms:86400000}")
+    public Result sweep() {
+        return sweep(false);
+    }
+
+    /**
+     * Find the orphaned files, and delete them unless this is a dry run.
+     *
+     * @param dryRun whether to only report what would be deleted
+     * @return the number of scanned and orphaned files and their total size
+     */
+    public Result sweep(boolean dryRun) {
+        Path directory = Paths.get(contentStoragePath);
+        if (!Files.isDirectory(directory)) {
+            return new Result(0, 0, 0, dryRun);
+        }
+        Sweep sweep = new Sweep(directory, Instant.now().minusMillis(minAgeMs), dryRun);
+        try {
+            Files.walkFileTree(directory, sweep);
+            sweep.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to sweep " + directory, e);
+        }
+        Result result = new Result(sweep.scanned, sweep.deleted, sweep.reclaimedBytes, dryRun);
+        if (result.deleted() > 0) {
+            log.info("{} {} orphaned content files ({} bytes) out of {}", dryRun ? "Found" : "Deleted",
+                    result.deleted(), result.reclaimedBytes(), result.scanned());
+        }
+        return result;
+    }
+
+    private final class Sweep extends SimpleFileVisitor<Path> {
+
+        private final Path uploads;
+        private final Instant cutoff;
+        private final boolean dryRun;
+        // Candidate files of the current batch and their sizes
+        private final Map<Path, Long> batch = new LinkedHashMap<>();
+
+        private long scanned;
+        private long deleted;
+        private long reclaimedBytes;
+
+        Sweep(Path directory, Instant cutoff, boolean dryRun) {
+            this.uploads = directory.resolve("uploads");
+            this.cutoff = cutoff;
+            this.dryRun = dryRun;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            return dir.equals(uploads) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            if (!attrs.isRegularFile()) {
+                return FileVisitResult.CONTINUE;
+            }
+            scanned++;
+            if (attrs.lastModifiedTime().toInstant().isBefore(cutoff)) {
+                batch.put(file, attrs.size());
+                if (batch.size() >= batchSize) {
+                    flush();
+                }
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+            // The file was deleted while the directory was walked
+            if (!(e instanceof NoSuchFileException)) {
+                log.warn("Failed to read {}", file, e);
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        void flush() {
+            // Checked before the rows, as a new path stops being pending once its rows committed
+            batch.keySet().removeIf(contentLayoutMigrator::isPending);
+            if (batch.isEmpty()) {
+                return;
+            }
+            // Paths are stored as they were resolved against the configured directory, but
+            // check their absolute form too in case the setting was spelled differently
+            Map<String, Path> names = new LinkedHashMap<>();
+            for (Path file : batch.keySet()) {
+                names.put(file.toString(), file);
+                names.put(file.toAbsolutePath().normalize().toString(), file);
+            }
+            List<String> candidates = List.copyOf(names.keySet());
+            Set<Path> referenced = new HashSet<>();
+            contentBlobRepository.findLocationsIn(FileSystemContentStorage.NAME, candidates)
+                    .forEach(location -> referenced.add(names.get(location)));
+            contentRepository.findContentPathsIn(candidates)
+                    .forEach(path -> referenced.add(names.get(path)));
+
+            for (Map.Entry<Path, Long> entry : batch.entrySet()) {
+                if (referenced.contains(entry.getKey())) {
+                    continue;
+                }
+                try {
+                    if (dryRun || Files.deleteIfExists(entry.getKey())) {
+                        deleted++;
+                        reclaimedBytes += entry.getValue();
+                    }
+                } catch (IOException e) {
+                    log.warn("Failed to delete orphaned file {}", entry.getKey(), e);
+                }
+            }
+            batch.clear();
+        }
+    }
+}
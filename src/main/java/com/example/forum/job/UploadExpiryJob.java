@@ -0,0 +1,34 @@
+package com.example.forum.job;
+
+import com.example.forum.service.UploadService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically deletes resumable uploads that were abandoned before they were completed,
+ * together with their part files.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UploadExpiryJob {
+
+    private final UploadService uploadService;
+
+    /**
+     * Delete the expired uploads.
+     *
+     * @return the number of deleted uploads
+     */
+    @Scheduled(fixedDelayString = "${app.content.upload.purge-interval-ms:3600000}",
+               initialDelayString = "${app.content.upload.purge-interval-ms:3600000}")
+    public int purge() {
+        int purged = uploadService.purgeExpiredUploads();
+        if (purged > 0) {
+            log.info("Deleted {} expired uploads", purged);
+        }
+        return purged;
+    }
+}
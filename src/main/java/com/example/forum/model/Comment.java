@@ -9,6 +9,7 @@ import lombok.Setter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -20,7 +21,9 @@ import java.util.Set;
  * Entity representing a comment on a post or another comment.
  */
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+        @Index(name = "idx_comments_post_parent_created", columnList = "post_id, parent_comment_id, created_at, id")
+})
 @Getter
 @Setter
 @Builder
@@ -31,7 +34,8 @@ import java.util.Set;
 public class Comment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comments_seq")
+    @SequenceGenerator(name = "comments_seq", sequenceName = "comments_seq", allocationSize = 50)
     private Long id;
 
     @Column(columnDefinition = "TEXT", nullable = false)
@@ -45,6 +49,18 @@ public class Comment {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
 
+    // Denormalized number of direct replies, maintained with atomic UPDATE statements only
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    @Default
+    private int replyCount = 0;
+
+    // Net votes, updated in batches by VoteCounters shortly after the votes commit
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    @Default
+    private int score = 0;
+
     // Relationships
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "post_id", nullable = false)
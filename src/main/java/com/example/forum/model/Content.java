@@ -22,12 +22,13 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@ToString(exclude = {"post", "comment"})
-@EqualsAndHashCode(exclude = {"post", "comment"})
+@ToString(exclude = {"post", "comment", "blob"})
+@EqualsAndHashCode(exclude = {"post", "comment", "blob"})
 public class Content {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "contents_seq")
+    @SequenceGenerator(name = "contents_seq", sequenceName = "contents_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -46,10 +47,12 @@ public class Content {
     @Column(nullable = false)
     private ContentType contentType;
 
-    // Optional binary data if stored in DB
-    @Lob
-    @Column(columnDefinition = "BLOB")
-    private byte[] data;
+    // Shared stored bytes, keyed by hash. Content uploaded before blobs were introduced
+    // keeps its file in contentPath, or its bytes in the unmapped data column, which is
+    // only ever streamed over JDBC.
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "blob_id")
+    private ContentBlob blob;
 
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
@@ -0,0 +1,58 @@
+package com.example.forum.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing the stored bytes of an upload, shared by every piece of content
+ * with the same SHA-256 hash.
+ */
+@Entity
+@Table(name = "content_blobs")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class ContentBlob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Lowercase hex SHA-256 of the bytes
+    @Column(nullable = false, unique = true, length = 64)
+    private String sha256;
+
+    @Column(nullable = false)
+    private long size;
+
+    // Indicates if the bytes are stored in the database or in an external backend
+    @Column(nullable = false)
+    private boolean storedInDb;
+
+    // Name of the ContentStorage backend holding the bytes
+    @Column(nullable = false, length = 32)
+    private String storage;
+
+    // Backend-specific location of the bytes: a file path, data row ID or object key
+    @Column(nullable = false)
+    private String location;
+
+    // Number of content rows that point at this blob
+    @Column(nullable = false)
+    private int refCount;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,32 @@
+package com.example.forum.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.sql.Blob;
+
+/**
+ * Entity holding the bytes of a blob stored in the database. The {@link ContentBlob} records
+ * the ID of this row as its location, and the bytes are bound and read as a JDBC stream.
+ */
+@Entity
+@Table(name = "content_blob_data")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContentBlobData {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Lob
+    @Column(nullable = false)
+    private Blob data;
+}
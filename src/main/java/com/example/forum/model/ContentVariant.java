@@ -0,0 +1,62 @@
+package com.example.forum.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing a resized copy of an image, such as its thumbnail. The bytes are a
+ * {@link ContentBlob} like those of any upload.
+ */
+@Entity
+@Table(name = "content_variants", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_content_variants_content_name", columnNames = {"content_id", "name"})
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString(exclude = {"content", "blob"})
+public class ContentVariant {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "content_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Content content;
+
+    // Name of the configured size, such as "thumbnail"
+    @Column(nullable = false, length = 32)
+    private String name;
+
+    // Image format the variant was encoded in, such as "jpg"
+    @Column(nullable = false, length = 8)
+    private String format;
+
+    @Column(nullable = false)
+    private int width;
+
+    @Column(nullable = false)
+    private int height;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "blob_id", nullable = false)
+    private ContentBlob blob;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -10,6 +10,7 @@ import lombok.Setter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -32,7 +33,8 @@ import java.util.Set;
 public class Forum {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "forums_seq")
+    @SequenceGenerator(name = "forums_seq", sequenceName = "forums_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -59,6 +61,12 @@ public class Forum {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
 
+    // Denormalized number of posts, maintained with atomic UPDATE statements only
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    @Default
+    private int postCount = 0;
+
     // Relationships
     @OneToMany(mappedBy = "forum", cascade = CascadeType.ALL)
     @Default
@@ -28,7 +28,8 @@ import java.time.LocalDateTime;
 public class ForumAccess {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "forum_access_seq")
+    @SequenceGenerator(name = "forum_access_seq", sequenceName = "forum_access_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,57 @@
+package com.example.forum.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.io.Serializable;
+
+/**
+ * Entity representing one row of the forum closure table. There is a row for every
+ * (ancestor, descendant) pair in the forum hierarchy, including a depth-0 row linking each
+ * forum to itself, so ancestors, descendants and depth can be read with a single query.
+ */
+@Entity
+@Table(name = "forum_closure", indexes = {
+        @Index(name = "idx_forum_closure_descendant", columnList = "descendant_id, depth")
+})
+@IdClass(ForumClosure.Key.class)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class ForumClosure {
+
+    @Id
+    @Column(name = "ancestor_id", nullable = false)
+    private Long ancestorId;
+
+    @Id
+    @Column(name = "descendant_id", nullable = false)
+    private Long descendantId;
+
+    // Number of levels between the ancestor and the descendant (0 for the self row)
+    @Column(nullable = false)
+    private int depth;
+
+    /**
+     * Composite primary key of a closure row.
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long ancestorId;
+        private Long descendantId;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.forum.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing a bulk import and its checkpoint. The number of imported records is
+ * updated in the transaction that inserts them, so an import that failed can be resumed by
+ * sending the same stream again and skipping the records counted here.
+ */
+@Entity
+@Table(name = "import_jobs")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class ImportJob {
+
+    /**
+     * State of an import.
+     */
+    public enum Status {
+        RUNNING,
+        FAILED,
+        COMPLETED
+    }
+
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    // The user running the import, who is the only one allowed to resume it
+    @Column(nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    // Lines of the stream that are committed, blank lines included
+    @Column(nullable = false)
+    private long records;
+
+    @Column(nullable = false)
+    private long users;
+
+    @Column(nullable = false)
+    private long forums;
+
+    @Column(nullable = false)
+    private long posts;
+
+    @Column(nullable = false)
+    private long comments;
+
+    @Column(length = 500)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
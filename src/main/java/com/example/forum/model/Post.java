@@ -10,6 +10,7 @@ import lombok.Setter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -21,7 +22,9 @@ import java.util.Set;
  * Entity representing a post in a forum.
  */
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_forum_created", columnList = "forum_id, created_at, id")
+})
 @Getter
 @Setter
 @Builder
@@ -32,7 +35,8 @@ import java.util.Set;
 public class Post {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "posts_seq")
+    @SequenceGenerator(name = "posts_seq", sequenceName = "posts_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -50,6 +54,29 @@ public class Post {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
 
+    // Denormalized number of comments including replies, maintained with atomic UPDATE statements only
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    @Default
+    private int commentCount = 0;
+
+    // Net votes, updated in batches by VoteCounters shortly after the votes commit
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    @Default
+    private int score = 0;
+
+    // Upvotes and downvotes behind the score, which the controversial ranking needs apart
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    @Default
+    private int upvotes = 0;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    @Default
+    private int downvotes = 0;
+
     // Relationships
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "forum_id", nullable = false)
@@ -0,0 +1,54 @@
+package com.example.forum.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing stored bytes waiting to be deleted. The row is inserted in the
+ * transaction that released the bytes, so it exists exactly when that transaction commits,
+ * and is removed once the bytes are gone.
+ */
+@Entity
+@Table(name = "storage_deletions", indexes = {
+        @Index(name = "idx_storage_deletions_next_attempt", columnList = "next_attempt_at, id")
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class StorageDeletion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Name of the ContentStorage backend holding the bytes
+    @Column(nullable = false, length = 32)
+    private String storage;
+
+    @Column(nullable = false)
+    private String location;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(length = 500)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
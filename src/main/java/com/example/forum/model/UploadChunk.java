@@ -0,0 +1,43 @@
+package com.example.forum.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Entity recording a verified run of bytes written to the part file of an upload. Chunks may
+ * arrive in any order, and a retried chunk may overlap one that was already received.
+ */
+@Entity
+@Table(name = "upload_chunks", indexes = {
+        @Index(name = "idx_upload_chunks_session", columnList = "session_id, start_offset")
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString(exclude = "session")
+public class UploadChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "session_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private UploadSession session;
+
+    @Column(nullable = false)
+    private long startOffset;
+
+    @Column(nullable = false)
+    private long size;
+}
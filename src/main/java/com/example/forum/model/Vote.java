@@ -0,0 +1,59 @@
+package com.example.forum.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing the vote of a user on a post or comment. A user has at most one vote
+ * per post or comment, and the score of the post or comment is the sum of its votes.
+ */
+@Entity
+@Table(name = "votes",
+        uniqueConstraints = @UniqueConstraint(name = "uk_votes_user_target",
+                columnNames = {"user_id", "target", "target_id"}),
+        indexes = @Index(name = "idx_votes_target", columnList = "target, target_id"))
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString(exclude = "user")
+public class Vote {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "votes_seq")
+    @SequenceGenerator(name = "votes_seq", sequenceName = "votes_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private VoteTarget target;
+
+    @Column(name = "target_id", nullable = false)
+    private Long targetId;
+
+    // 1 for an upvote, -1 for a downvote
+    @Column(name = "vote_value", nullable = false)
+    private int value;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
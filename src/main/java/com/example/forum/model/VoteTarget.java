@@ -0,0 +1,9 @@
+package com.example.forum.model;
+
+/**
+ * The kinds of entities that can be voted on.
+ */
+public enum VoteTarget {
+    POST,
+    COMMENT
+}
@@ -0,0 +1,69 @@
+package com.example.forum.pagination;
+
+import com.example.forum.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Keyset pagination position over {@code (createdAt, id)}.
+ * <p>
+ * Clients only ever see the opaque encoded form, so the key layout can change without
+ * breaking them.
+ *
+ * @param createdAt the creation time of the last row of the previous page
+ * @param id        the ID of the last row of the previous page, used as a tie-breaker
+ */
+public record Cursor(LocalDateTime createdAt, Long id) {
+
+    private static final char SEPARATOR = ',';
+
+    /**
+     * Create the cursor pointing after the given row. Timestamps are truncated to the
+     * microsecond precision the database stores.
+     *
+     * @param createdAt the creation time of the row
+     * @param id        the ID of the row
+     * @return the cursor
+     */
+    public static Cursor after(LocalDateTime createdAt, Long id) {
+        return new Cursor(createdAt.truncatedTo(ChronoUnit.MICROS), id);
+    }
+
+    /**
+     * Encode the cursor as an opaque URL-safe string.
+     *
+     * @return the encoded cursor
+     */
+    public String encode() {
+        String raw = createdAt + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor previously produced by {@link #encode()}.
+     *
+     * @param encoded the encoded cursor, may be null or blank for the first page
+     * @return the cursor, or null for the first page
+     * @throws BadRequestException if the cursor is malformed
+     */
+    public static Cursor decode(String encoded) {
+        if (encoded == null || encoded.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return new Cursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor", e);
+        }
+    }
+}
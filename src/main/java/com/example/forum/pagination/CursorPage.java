@@ -0,0 +1,62 @@
+package com.example.forum.pagination;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page of results fetched with keyset pagination. Unlike {@link org.springframework.data.domain.Page}
+ * it carries no total count, so no count query is needed.
+ *
+ * @param content    the rows of this page
+ * @param nextCursor the cursor to request the next page with, or null if this is the last page
+ * @param hasNext    whether there are more rows after this page
+ * @param <T>        the row type
+ */
+public record CursorPage<T>(List<T> content, String nextCursor, boolean hasNext) {
+
+    /** Largest page size a client may request. */
+    public static final int MAX_SIZE = 100;
+
+    /**
+     * Build a page from a result fetched with {@code size + 1} rows: the extra row only
+     * signals that another page exists and is not returned.
+     *
+     * @param rows      the fetched rows, at most {@code size + 1}
+     * @param size      the requested page size
+     * @param createdAt extracts the creation time of a row
+     * @param id        extracts the ID of a row
+     * @param <T>       the row type
+     * @return the page
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size,
+                                       Function<T, LocalDateTime> createdAt, Function<T, Long> id) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null, false);
+        }
+        List<T> content = rows.subList(0, size);
+        T last = content.get(size - 1);
+        return new CursorPage<>(content, Cursor.after(createdAt.apply(last), id.apply(last)).encode(), true);
+    }
+
+    /**
+     * Clamp a requested page size to {@code 1..MAX_SIZE}.
+     *
+     * @param size the requested size
+     * @return the size to use
+     */
+    public static int clampSize(int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    /**
+     * Convert the rows of this page, keeping the cursor.
+     *
+     * @param mapper the row mapper
+     * @param <R>    the new row type
+     * @return the converted page
+     */
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        return new CursorPage<>(content.stream().map(mapper).toList(), nextCursor, hasNext);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.forum.ranking;
+
+/**
+ * The place of a post in the order of creation across forums, newest first, with higher IDs
+ * first among posts created in the same second.
+ *
+ * @param createdAt the creation time of the post in seconds since the epoch
+ * @param postId    the ID of the post
+ * @param forumId   the ID of the forum of the post; not part of the order
+ */
+public record PostPosition(long createdAt, long postId, long forumId) implements Comparable<PostPosition> {
+
+    @Override
+    public int compareTo(PostPosition other) {
+        int byTime = Long.compare(other.createdAt, createdAt);
+        return byTime != 0 ? byTime : Long.compare(other.postId, postId);
+    }
+}
@@ -0,0 +1,327 @@
+package com.example.forum.ranking;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps the posts of every forum sorted by each {@link RankingMode} in memory, so that listing
+ * the hot or top posts of a forum reads the first entries of a sorted set instead of sorting the
+ * posts of the forum in the database.
+ * <p>
+ * Each forum has one {@link ConcurrentSkipListSet} per mode, plus one sorted by creation time
+ * for listings limited to a {@link RankingWindow}. Those scan the posts of the window and keep
+ * the best ones in a heap bounded by the requested page. A post is re-ranked whenever one of its
+ * counters changes: comments as they are written, votes when {@code VoteCounters} writes them.
+ * Changes made in a transaction are applied right away and undone if it rolls back.
+ * <p>
+ * The counters are stored with the posts, so the rankings are loaded from the posts table on
+ * startup and reloaded periodically, which also repairs any drift.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PostRanking {
+
+    // Sorted by descending rank, newer posts first among equal ranks
+    private record Entry(double rank, long postId) implements Comparable<Entry> {
+
+        @Override
+        public int compareTo(Entry other) {
+            int byRank = Double.compare(other.rank, rank);
+            return byRank != 0 ? byRank : Long.compare(other.postId, postId);
+        }
+    }
+
+    private static final class ForumPosts {
+
+        private final Map<RankingMode, NavigableSet<Entry>> ranked = new EnumMap<>(RankingMode.class);
+        private final NavigableSet<Entry> newest = new ConcurrentSkipListSet<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        private ForumPosts() {
+            for (RankingMode mode : RankingMode.values()) {
+                ranked.put(mode, new ConcurrentSkipListSet<>());
+            }
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // All mutations of a post go through compute() on this map, which serializes them per post
+    private final ConcurrentHashMap<Long, PostStats> posts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, ForumPosts> forums = new ConcurrentHashMap<>();
+
+    /**
+     * Get a page of the IDs of the posts of a forum, best first.
+     *
+     * @param forumId  the ID of the forum
+     * @param mode     the order of the posts
+     * @param window   the maximum age of the posts
+     * @param pageable the page to get; its sort is ignored
+     * @return the IDs of the posts
+     */
+    public Page<Long> rank(Long forumId, RankingMode mode, RankingWindow window, Pageable pageable) {
+        ForumPosts forum = forums.get(forumId);
+        if (forum == null) {
+            return Page.empty(pageable);
+        }
+        long cutoff = window.cutoff(now());
+        if (cutoff == Long.MIN_VALUE) {
+            List<Long> ids = forum.ranked.get(mode).stream()
+                    .skip(pageable.getOffset())
+                    .limit(pageable.getPageSize())
+                    .map(Entry::postId)
+                    .toList();
+            return new PageImpl<>(ids, pageable, forum.size.get());
+        }
+
+        // Keep the best offset + size posts of the window, with the worst of them at the head
+        long keep = pageable.getOffset() + pageable.getPageSize();
+        PriorityQueue<Entry> best = new PriorityQueue<>(Comparator.reverseOrder());
+        long total = 0;
+        for (Entry created : forum.newest.headSet(new Entry(cutoff, Long.MIN_VALUE))) {
+            PostStats stats = posts.get(created.postId());
+            if (stats == null) {
+                continue;
+            }
+            total++;
+            best.add(new Entry(mode.rank(stats), stats.postId()));
+            if (best.size() > keep) {
+                best.poll();
+            }
+        }
+        List<Entry> sorted = new ArrayList<>(best);
+        sorted.sort(null);
+        List<Long> ids = sorted.stream()
+                .skip(pageable.getOffset())
+                .map(Entry::postId)
+                .toList();
+        return new PageImpl<>(ids, pageable, total);
+    }
+
+    /**
+     * Iterate over the posts of a forum from the newest to the oldest. The iterator is weakly
+     * consistent: it may or may not see posts added or removed while iterating.
+     *
+     * @param forumId the ID of the forum
+     * @param after   the position to start after, or null to start with the newest post
+     * @return the positions of the posts
+     */
+    public Iterator<PostPosition> newest(Long forumId, PostPosition after) {
+        ForumPosts forum = forums.get(forumId);
+        if (forum == null) {
+            return Collections.emptyIterator();
+        }
+        NavigableSet<Entry> created = after == null
+                ? forum.newest
+                : forum.newest.tailSet(new Entry(after.createdAt(), after.postId()), false);
+        return created.stream()
+                .map(entry -> new PostPosition((long) entry.rank(), entry.postId(), forumId))
+                .iterator();
+    }
+
+    /**
+     * Get the position of a post in the order of creation.
+     *
+     * @param postId the ID of the post
+     * @return the position, or null if the post is unknown
+     */
+    public PostPosition position(Long postId) {
+        PostStats stats = posts.get(postId);
+        return stats == null ? null : new PostPosition(stats.createdAt(), stats.postId(), stats.forumId());
+    }
+
+    /**
+     * Add a new post. Undone if the current transaction rolls back.
+     *
+     * @param postId    the ID of the post
+     * @param forumId   the ID of the forum of the post
+     * @param createdAt the creation time of the post, or null for now if the post is not
+     *                  inserted yet and its creation time is generated on insert
+     */
+    public void postCreated(Long postId, Long forumId, LocalDateTime createdAt) {
+        long created = createdAt != null ? toSeconds(createdAt) : now();
+        put(new PostStats(postId, forumId, created, 0, 0, 0));
+        onRollback(() -> remove(postId));
+    }
+
+    /**
+     * Remove deleted posts. Undone if the current transaction rolls back.
+     *
+     * @param postIds the IDs of the posts
+     */
+    public void postsDeleted(Collection<Long> postIds) {
+        List<PostStats> removed = new ArrayList<>(postIds.size());
+        for (Long postId : postIds) {
+            PostStats stats = remove(postId);
+            if (stats != null) {
+                removed.add(stats);
+            }
+        }
+        onRollback(() -> removed.forEach(this::put));
+    }
+
+    /**
+     * Re-rank a post after comments were added to or removed from it. Undone if the current
+     * transaction rolls back.
+     *
+     * @param postId the ID of the post
+     * @param delta  the change of the number of comments
+     */
+    public void commentsChanged(Long postId, int delta) {
+        update(postId, stats -> stats.withComments(delta));
+        onRollback(() -> update(postId, stats -> stats.withComments(-delta)));
+    }
+
+    /**
+     * Re-rank a post after votes on it were written to the database.
+     *
+     * @param postId         the ID of the post
+     * @param upvoteDelta    the change of the number of upvotes
+     * @param downvoteDelta  the change of the number of downvotes
+     */
+    public void votesChanged(Long postId, long upvoteDelta, long downvoteDelta) {
+        update(postId, stats -> stats.withVotes(upvoteDelta, downvoteDelta));
+    }
+
+    /**
+     * Load the counters of all posts from the database, replacing the ones that differ.
+     * <p>
+     * A change applied to a post between reading its row and replacing its counters is lost
+     * until the next reload.
+     *
+     * @return the number of posts whose counters were replaced, added or removed
+     */
+    @Scheduled(fixedDelayString = "${app.ranking.reload-interval-ms:3600000}",
+               initialDelayString = "${app.ranking.reload-interval-ms:3600000}")
+    public int reload() {
+        // Posts created while loading are not in this set, so they are not mistaken for deleted ones
+        Set<Long> known = new HashSet<>(posts.keySet());
+        int[] changed = {0};
+        jdbcTemplate.query("SELECT id, forum_id, created_at, upvotes, downvotes, comment_count FROM posts", rs -> {
+            PostStats loaded = new PostStats(rs.getLong(1), rs.getLong(2),
+                    toSeconds(rs.getTimestamp(3).toLocalDateTime()), rs.getLong(4), rs.getLong(5), rs.getLong(6));
+            known.remove(loaded.postId());
+            if (!loaded.equals(posts.get(loaded.postId()))) {
+                put(loaded);
+                changed[0]++;
+            }
+        });
+        for (Long deleted : known) {
+            remove(deleted);
+            changed[0]++;
+        }
+        if (changed[0] > 0) {
+            log.info("Updated the rankings of {} posts", changed[0]);
+        }
+        return changed[0];
+    }
+
+    private void put(PostStats stats) {
+        posts.compute(stats.postId(), (id, old) -> {
+            if (old != null) {
+                unindex(old);
+            }
+            index(stats);
+            return stats;
+        });
+    }
+
+    private PostStats remove(Long postId) {
+        PostStats[] removed = {null};
+        posts.computeIfPresent(postId, (id, old) -> {
+            unindex(old);
+            removed[0] = old;
+            return null;
+        });
+        return removed[0];
+    }
+
+    private void update(Long postId, UnaryOperator<PostStats> change) {
+        posts.computeIfPresent(postId, (id, old) -> {
+            PostStats updated = change.apply(old);
+            ForumPosts forum = forum(updated.forumId());
+            for (RankingMode mode : RankingMode.values()) {
+                Entry before = new Entry(mode.rank(old), id);
+                Entry after = new Entry(mode.rank(updated), id);
+                if (!before.equals(after)) {
+                    // Readers may miss the post in between, but never see it twice
+                    forum.ranked.get(mode).remove(before);
+                    forum.ranked.get(mode).add(after);
+                }
+            }
+            return updated;
+        });
+    }
+
+    private void index(PostStats stats) {
+        ForumPosts forum = forum(stats.forumId());
+        for (RankingMode mode : RankingMode.values()) {
+            forum.ranked.get(mode).add(new Entry(mode.rank(stats), stats.postId()));
+        }
+        forum.newest.add(new Entry(stats.createdAt(), stats.postId()));
+        forum.size.incrementAndGet();
+    }
+
+    private void unindex(PostStats stats) {
+        ForumPosts forum = forum(stats.forumId());
+        for (RankingMode mode : RankingMode.values()) {
+            forum.ranked.get(mode).remove(new Entry(mode.rank(stats), stats.postId()));
+        }
+        forum.newest.remove(new Entry(stats.createdAt(), stats.postId()));
+        forum.size.decrementAndGet();
+    }
+
+    private ForumPosts forum(long forumId) {
+        return forums.computeIfAbsent(forumId, id -> new ForumPosts());
+    }
+
+    private static void onRollback(Runnable undo) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        undo.run();
+                    }
+                }
+            });
+        }
+    }
+
+    private static long now() {
+        return toSeconds(LocalDateTime.now());
+    }
+
+    // Creation times are stored in the local time of the server, so any fixed offset compares them
+    private static long toSeconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.forum.ranking;
+
+/**
+ * The counters of a post that its ranks are computed from.
+ *
+ * @param postId    the ID of the post
+ * @param forumId   the ID of the forum of the post
+ * @param createdAt the creation time of the post in seconds since the epoch
+ * @param upvotes   the number of upvotes
+ * @param downvotes the number of downvotes
+ * @param comments  the number of comments including replies
+ */
+record PostStats(long postId, long forumId, long createdAt, long upvotes, long downvotes, long comments) {
+
+    PostStats withVotes(long upvoteDelta, long downvoteDelta) {
+        return new PostStats(postId, forumId, createdAt, upvotes + upvoteDelta, downvotes + downvoteDelta, comments);
+    }
+
+    PostStats withComments(long delta) {
+        return new PostStats(postId, forumId, createdAt, upvotes, downvotes, comments + delta);
+    }
+
+    long score() {
+        return upvotes - downvotes;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.forum.ranking;
+
+/**
+ * Orders in which the posts of a forum can be listed, best first.
+ */
+public enum RankingMode {
+
+    /**
+     * Score on a logarithmic scale plus a bonus that grows with the creation time, so a post
+     * needs ten times the score to outrank a post created 12.5 hours later. The rank of a post
+     * never changes with time, only the posts it competes with do.
+     */
+    HOT {
+        @Override
+        double rank(PostStats stats) {
+            long score = stats.score();
+            double order = Math.log10(Math.max(Math.abs(score), 1));
+            return Math.signum(score) * order + (stats.createdAt() - HOT_EPOCH_SECONDS) / HOT_DECAY_SECONDS;
+        }
+    },
+
+    /**
+     * Upvotes minus downvotes.
+     */
+    TOP {
+        @Override
+        double rank(PostStats stats) {
+            return stats.score();
+        }
+    },
+
+    /**
+     * Number of comments including replies.
+     */
+    ACTIVE {
+        @Override
+        double rank(PostStats stats) {
+            return stats.comments();
+        }
+    },
+
+    /**
+     * Many votes split evenly between up and down. Posts voted on in only one direction have
+     * no controversy at all.
+     */
+    CONTROVERSIAL {
+        @Override
+        double rank(PostStats stats) {
+            if (stats.upvotes() <= 0 || stats.downvotes() <= 0) {
+                return 0;
+            }
+            double balance = (double) Math.min(stats.upvotes(), stats.downvotes())
+                    / Math.max(stats.upvotes(), stats.downvotes());
+            return Math.pow(stats.upvotes() + stats.downvotes(), balance);
+        }
+    };
+
+    // 2024-01-01T00:00:00Z, keeps the time bonus small enough for doubles to resolve the score
+    private static final long HOT_EPOCH_SECONDS = 1_704_067_200L;
+    private static final double HOT_DECAY_SECONDS = 45_000;
+
+    abstract double rank(PostStats stats);
+}
@@ -0,0 +1,29 @@
+package com.example.forum.ranking;
+
+import java.time.Duration;
+
+/**
+ * Age limits for ranked listings, e.g. the top posts of the week.
+ */
+public enum RankingWindow {
+    DAY(Duration.ofDays(1)),
+    WEEK(Duration.ofDays(7)),
+    MONTH(Duration.ofDays(30)),
+    YEAR(Duration.ofDays(365)),
+    ALL(null);
+
+    private final Duration age;
+
+    RankingWindow(Duration age) {
+        this.age = age;
+    }
+
+    /**
+     * @param nowSeconds the current time in seconds since the epoch
+     * @return the creation time of the oldest post in the window in seconds since the epoch,
+     *         or {@link Long#MIN_VALUE} for no limit
+     */
+    long cutoff(long nowSeconds) {
+        return age == null ? Long.MIN_VALUE : nowSeconds - age.toSeconds();
+    }
+}
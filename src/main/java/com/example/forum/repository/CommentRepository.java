@@ -4,9 +4,13 @@ import com.example.forum.model.Comment;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -24,6 +28,29 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
      */
     Page<Comment> findByPostIdAndParentCommentIsNull(Long postId, Pageable pageable);
     
+    /**
+     * Find the oldest top-level comments of a post, without a count query.
+     *
+     * @param postId the ID of the post
+     * @param pageable limits the number of rows
+     * @return the comments, oldest first
+     */
+    @Query("SELECT c FROM Comment c WHERE c.post.id = ?1 AND c.parentComment IS NULL ORDER BY c.createdAt, c.id")
+    List<Comment> findFirstTopLevelByPostKeyset(Long postId, Pageable pageable);
+    
+    /**
+     * Find the top-level comments of a post that come after a keyset position, without a count query.
+     *
+     * @param postId the ID of the post
+     * @param createdAt the creation time of the last comment already returned
+     * @param id the ID of the last comment already returned
+     * @param pageable limits the number of rows
+     * @return the comments newer than the position, oldest first
+     */
+    @Query("SELECT c FROM Comment c WHERE c.post.id = ?1 AND c.parentComment IS NULL " +
+           "AND (c.createdAt > ?2 OR (c.createdAt = ?2 AND c.id > ?3)) ORDER BY c.createdAt, c.id")
+    List<Comment> findNextTopLevelByPostKeyset(Long postId, LocalDateTime createdAt, Long id, Pageable pageable);
+    
     /**
      * Find all reply comments for a specific parent comment.
      *
@@ -33,6 +60,24 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
      */
     Page<Comment> findByParentCommentId(Long parentCommentId, Pageable pageable);
     
+    /**
+     * Find the direct replies of several comments at once.
+     *
+     * @param parentCommentIds the IDs of the parent comments
+     * @return the replies, oldest first
+     */
+    @Query("SELECT c FROM Comment c WHERE c.parentComment.id IN ?1 ORDER BY c.createdAt, c.id")
+    List<Comment> findByParentCommentIdIn(Collection<Long> parentCommentIds);
+    
+    /**
+     * Find all comments of several posts at once.
+     *
+     * @param postIds the IDs of the posts
+     * @return the comments, oldest first
+     */
+    @Query("SELECT c FROM Comment c WHERE c.post.id IN ?1 ORDER BY c.createdAt, c.id")
+    List<Comment> findByPostIdIn(Collection<Long> postIds);
+    
     /**
      * Find all comments made by a specific user.
      *
@@ -42,6 +87,16 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
      */
     Page<Comment> findByUserId(Long userId, Pageable pageable);
     
+    /**
+     * Find the comments made by a specific user on posts in any of the given forums.
+     *
+     * @param userId the ID of the user
+     * @param forumIds the IDs of the forums to include
+     * @param pageable pagination parameters
+     * @return a page of comments
+     */
+    Page<Comment> findByUserIdAndPostForumIdIn(Long userId, Collection<Long> forumIds, Pageable pageable);
+    
     /**
      * Count the number of comments for a post.
      *
@@ -68,5 +123,102 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
      */
     @Query("SELECT c FROM Comment c WHERE LOWER(c.content) LIKE LOWER(CONCAT('%', ?1, '%'))")
     Page<Comment> searchByContent(String searchTerm, Pageable pageable);
-}
+    
+    /**
+     * Find comments on posts in any of the given forums containing the given text in their content.
+     *
+     * @param searchTerm the text to search for
+     * @param forumIds the IDs of the forums to include
+     * @param pageable pagination parameters
+     * @return a page of comments matching the search
+     */
+    @Query("SELECT c FROM Comment c WHERE c.post.forum.id IN ?2 AND LOWER(c.content) LIKE LOWER(CONCAT('%', ?1, '%'))")
+    Page<Comment> searchByContentInForums(String searchTerm, Collection<Long> forumIds, Pageable pageable);
+    
+    /**
+     * Flat view of a comment with just the fields that are full-text indexed.
+     */
+    interface SearchRow {
+        Long getId();
+        Long getForumId();
+        Long getPostId();
+        String getContent();
+    }
+    
+    /**
+     * Load the searchable fields of the comments after an ID, ordered by ID. Used to rebuild the
+     * search index in batches.
+     *
+     * @param afterId the last comment ID already loaded, 0 to start
+     * @param pageable limits the number of rows
+     * @return the comments
+     */
+    @Query("SELECT c.id AS id, p.forum.id AS forumId, p.id AS postId, c.content AS content " +
+           "FROM Comment c JOIN c.post p WHERE c.id > ?1 ORDER BY c.id")
+    List<SearchRow> findSearchRowsAfter(Long afterId, Pageable pageable);
+    
+    /**
+     * Atomically add to the reply counter of a comment.
+     *
+     * @param commentId the ID of the comment
+     * @param delta the amount to add (negative to subtract)
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE Comment c SET c.replyCount = c.replyCount + ?2 WHERE c.id = ?1")
+    int adjustReplyCount(Long commentId, int delta);
+    
+    /**
+     * Reset every reply counter that differs from the actual number of direct replies.
+     *
+     * @return the number of repaired comments
+     */
+    @Modifying
+    @Query("UPDATE Comment c SET c.replyCount = (SELECT CAST(COUNT(r) AS Integer) FROM Comment r WHERE r.parentComment.id = c.id) " +
+           "WHERE c.replyCount <> (SELECT CAST(COUNT(r) AS Integer) FROM Comment r WHERE r.parentComment.id = c.id)")
+    int reconcileReplyCounts();
 
+    /**
+     * Find the IDs of a comment and all of its replies, at any depth, with one recursive query.
+     *
+     * @param commentId the ID of the root comment
+     * @return the IDs of the comment and its descendants, or an empty list if it does not exist
+     */
+    @Query(value = "WITH RECURSIVE subtree(id) AS (" +
+                   "SELECT id FROM comments WHERE id = :commentId " +
+                   "UNION ALL " +
+                   "SELECT c.id FROM comments c JOIN subtree s ON c.parent_comment_id = s.id) " +
+                   "SELECT id FROM subtree",
+           nativeQuery = true)
+    List<Long> findSubtreeIds(@Param("commentId") Long commentId);
+
+    /**
+     * Find the IDs of all comments on the given posts.
+     *
+     * @param postIds the IDs of the posts
+     * @return the IDs of the comments
+     */
+    @Query("SELECT c.id FROM Comment c WHERE c.post.id IN ?1")
+    List<Long> findIdsByPostIdIn(Collection<Long> postIds);
+
+    /**
+     * Unlink comments from their parents, so that a set of comments can be deleted in any order.
+     *
+     * @param ids the IDs of the comments
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE Comment c SET c.parentComment = NULL WHERE c.id IN ?1")
+    int detachFromParents(Collection<Long> ids);
+
+    /**
+     * Delete comments with a single statement. Comments already loaded in the current
+     * persistence context are detached.
+     *
+     * @param ids the IDs of the comments
+     * @return the number of deleted rows
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Comment c WHERE c.id IN ?1")
+    int deleteByIdIn(Collection<Long> ids);
+}
@@ -0,0 +1,24 @@
+package com.example.forum.repository;
+
+import com.example.forum.model.ContentBlobData;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for ContentBlobData entity operations.
+ */
+@Repository
+public interface ContentBlobDataRepository extends JpaRepository<ContentBlobData, Long> {
+
+    /**
+     * Delete stored bytes without loading them first.
+     *
+     * @param id the ID of the stored bytes
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM ContentBlobData d WHERE d.id = ?1")
+    int deleteDataById(Long id);
+}
@@ -0,0 +1,133 @@
+package com.example.forum.repository;
+
+import com.example.forum.model.ContentBlob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for ContentBlob entity operations. Blobs are looked up by ID or hash, and their
+ * bytes are held by a {@link com.example.forum.content.ContentStorage} backend.
+ */
+@Repository
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, Long> {
+
+    /**
+     * Where a blob is stored.
+     */
+    interface BlobRef {
+        Long getId();
+        boolean isStoredInDb();
+        String getStorage();
+        String getLocation();
+    }
+
+    /**
+     * A stored file and the row pointing at it.
+     */
+    interface FileRef {
+        Long getId();
+        String getLocation();
+    }
+
+    /**
+     * Find where the blob with the given hash is stored.
+     *
+     * @param sha256 the lowercase hex SHA-256 of the bytes
+     * @return an Optional containing the blob reference if found
+     */
+    @Query("SELECT b.id AS id, b.storedInDb AS storedInDb, b.storage AS storage, b.location AS location " +
+           "FROM ContentBlob b WHERE b.sha256 = ?1")
+    Optional<BlobRef> findRefBySha256(String sha256);
+
+    /**
+     * Find where a blob is stored.
+     *
+     * @param id the ID of the blob
+     * @return an Optional containing the blob reference if found
+     */
+    @Query("SELECT b.id AS id, b.storedInDb AS storedInDb, b.storage AS storage, b.location AS location " +
+           "FROM ContentBlob b WHERE b.id = ?1")
+    Optional<BlobRef> findRefById(Long id);
+
+    /**
+     * Adjust the number of references to a blob.
+     *
+     * @param id the ID of the blob
+     * @param delta the number of references added, negative if removed
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE ContentBlob b SET b.refCount = b.refCount + ?2 WHERE b.id = ?1")
+    int adjustRefCount(Long id, int delta);
+
+    /**
+     * Delete a blob if nothing references it anymore.
+     *
+     * @param id the ID of the blob
+     * @return 1 if the blob was deleted, 0 otherwise
+     */
+    @Modifying
+    @Query("DELETE FROM ContentBlob b WHERE b.id = ?1 AND b.refCount <= 0")
+    int deleteIfUnreferenced(Long id);
+
+    /**
+     * Check whether a blob is stored at a location.
+     *
+     * @param storage  the name of the backend
+     * @param location the location in the backend
+     * @return true if a blob is stored there
+     */
+    boolean existsByStorageAndLocation(String storage, String location);
+
+    /**
+     * Find which of the given locations hold a blob.
+     *
+     * @param storage   the name of the backend
+     * @param locations the locations to check
+     * @return the locations that hold a blob
+     */
+    @Query("SELECT b.location FROM ContentBlob b WHERE b.storage = ?1 AND b.location IN ?2")
+    List<String> findLocationsIn(String storage, Collection<String> locations);
+
+    /**
+     * Find the locations of the blobs in a backend, in ID order.
+     *
+     * @param storage the name of the backend
+     * @param afterId only return blobs with a greater ID
+     * @param pageable the batch size
+     * @return the IDs and locations of the blobs
+     */
+    @Query("SELECT b.id AS id, b.location AS location FROM ContentBlob b " +
+           "WHERE b.storage = ?1 AND b.id > ?2 ORDER BY b.id")
+    List<FileRef> findLocationsAfter(String storage, Long afterId, Pageable pageable);
+
+    /**
+     * Point a blob at a new location if it is still at the old one.
+     *
+     * @param id   the ID of the blob
+     * @param from the old location
+     * @param to   the new location
+     * @return 1 if the blob was moved, 0 otherwise
+     */
+    @Modifying
+    @Query("UPDATE ContentBlob b SET b.location = ?3 WHERE b.id = ?1 AND b.location = ?2")
+    int relocate(Long id, String from, String to);
+
+    /**
+     * Adjust the number of references to several blobs by the same amount.
+     *
+     * @param ids   the IDs of the blobs
+     * @param delta the number of references added to each, negative if removed
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE ContentBlob b SET b.refCount = b.refCount + ?2 WHERE b.id IN ?1")
+    int adjustRefCounts(Collection<Long> ids, int delta);
+}
@@ -2,9 +2,16 @@ package com.example.forum.repository;
 
 import com.example.forum.model.Content;
 import com.example.forum.model.ContentType;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,6 +37,24 @@ public interface ContentRepository extends JpaRepository<Content, Long> {
      */
     List<Content> findByCommentId(Long commentId);
     
+    /**
+     * Find all content attached to the comments of a specific post.
+     *
+     * @param postId the ID of the post
+     * @return a list of content items
+     */
+    List<Content> findByCommentPostId(Long postId);
+    
+    /**
+     * Find all content attached to the posts and comments of a specific forum.
+     *
+     * @param forumId the ID of the forum
+     * @return a list of content items
+     */
+    @Query("SELECT c FROM Content c LEFT JOIN c.post p LEFT JOIN c.comment cm LEFT JOIN cm.post cp " +
+           "WHERE p.forum.id = ?1 OR cp.forum.id = ?1")
+    List<Content> findAllInForum(Long forumId);
+    
     /**
      * Find all content of a specific type attached to a post.
      *
@@ -55,6 +80,51 @@ public interface ContentRepository extends JpaRepository<Content, Long> {
      * @return an Optional containing the content if found
      */
     Optional<Content> findByFilename(String filename);
+
+    /**
+     * Load a piece of content and lock its row until the transaction ends. Deleting content
+     * and adding image variants to it both take this lock, so a variant is never added to
+     * content whose variants were already released.
+     *
+     * @param id the ID of the content
+     * @return an Optional containing the content if found
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Content c WHERE c.id = ?1")
+    Optional<Content> findByIdForUpdate(Long id);
+    
+    /**
+     * Metadata needed to serve a piece of content, without its binary data.
+     */
+    interface DownloadRow {
+        Long getId();
+        String getFilename();
+        ContentType getContentType();
+        boolean isStoredInDb();
+        String getContentPath();
+        LocalDateTime getCreatedAt();
+        Long getForumId();
+        Long getBlobId();
+        String getSha256();
+        String getBlobStorage();
+        String getBlobLocation();
+        Long getBlobSize();
+    }
+    
+    /**
+     * Load the metadata of a piece of content together with the forum of the post or comment
+     * it is attached to. Unlike {@link #findById}, this never reads the binary data.
+     *
+     * @param id the ID of the content
+     * @return an Optional containing the metadata if found
+     */
+    @Query("SELECT c.id AS id, c.filename AS filename, c.contentType AS contentType, " +
+           "c.storedInDb AS storedInDb, c.contentPath AS contentPath, c.createdAt AS createdAt, " +
+           "COALESCE(p.forum.id, cp.forum.id) AS forumId, b.id AS blobId, b.sha256 AS sha256, " +
+           "b.storage AS blobStorage, b.location AS blobLocation, b.size AS blobSize " +
+           "FROM Content c LEFT JOIN c.post p LEFT JOIN c.comment cm LEFT JOIN cm.post cp " +
+           "LEFT JOIN c.blob b WHERE c.id = ?1")
+    Optional<DownloadRow> findDownloadRowById(Long id);
     
     /**
      * Delete all content attached to a specific post.
@@ -69,5 +139,89 @@ public interface ContentRepository extends JpaRepository<Content, Long> {
      * @param commentId the ID of the comment
      */
     void deleteByCommentId(Long commentId);
-}
 
+    /**
+     * Check whether any content points at a file.
+     *
+     * @param contentPath the path of the file
+     * @return true if content points at the file
+     */
+    boolean existsByContentPath(String contentPath);
+
+    /**
+     * Find which of the given paths some content points at.
+     *
+     * @param contentPaths the paths to check
+     * @return the paths that content points at
+     */
+    @Query("SELECT DISTINCT c.contentPath FROM Content c WHERE c.contentPath IN ?1")
+    List<String> findContentPathsIn(Collection<String> contentPaths);
+
+    /**
+     * Find the files of content stored before blobs were introduced, in ID order.
+     *
+     * @param afterId only return content with a greater ID
+     * @param pageable the batch size
+     * @return the IDs and file paths of the content
+     */
+    @Query("SELECT c.id AS id, c.contentPath AS location FROM Content c " +
+           "WHERE c.blob IS NULL AND c.storedInDb = false AND c.contentPath IS NOT NULL AND c.id > ?1 ORDER BY c.id")
+    List<ContentBlobRepository.FileRef> findLegacyFilesAfter(Long afterId, Pageable pageable);
+
+    /**
+     * Point all content at a file's new path.
+     *
+     * @param from the old path
+     * @param to   the new path
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE Content c SET c.contentPath = ?2 WHERE c.contentPath = ?1")
+    int relocateContentPath(String from, String to);
+
+    /**
+     * Find all content attached to the given comments.
+     *
+     * @param commentIds the IDs of the comments
+     * @return a list of content items
+     */
+    List<Content> findByCommentIdIn(Collection<Long> commentIds);
+
+    /**
+     * Find all content attached to the given posts, not including their comments.
+     *
+     * @param postIds the IDs of the posts
+     * @return a list of content items
+     */
+    List<Content> findByPostIdIn(Collection<Long> postIds);
+
+    /**
+     * Lock pieces of content, waiting for any variants being added to them.
+     *
+     * @param ids the IDs of the content
+     * @return the locked content
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Content c WHERE c.id IN ?1")
+    List<Content> findAllByIdForUpdate(Collection<Long> ids);
+
+    /**
+     * Delete all content attached to the given comments with a single statement.
+     *
+     * @param commentIds the IDs of the comments
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM Content c WHERE c.comment.id IN ?1")
+    int deleteByCommentIdIn(Collection<Long> commentIds);
+
+    /**
+     * Delete all content attached to the given posts with a single statement.
+     *
+     * @param postIds the IDs of the posts
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM Content c WHERE c.post.id IN ?1")
+    int deleteByPostIdIn(Collection<Long> postIds);
+}
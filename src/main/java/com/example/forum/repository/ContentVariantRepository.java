@@ -0,0 +1,82 @@
+package com.example.forum.repository;
+
+import com.example.forum.model.ContentVariant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for ContentVariant entity operations.
+ */
+@Repository
+public interface ContentVariantRepository extends JpaRepository<ContentVariant, Long> {
+
+    /**
+     * Find the IDs of the blobs holding the variants of a piece of content.
+     *
+     * @param contentId the ID of the content
+     * @return the blob IDs
+     */
+    @Query("SELECT v.blob.id FROM ContentVariant v WHERE v.content.id = ?1")
+    List<Long> findBlobIdsByContentId(Long contentId);
+
+    /**
+     * Find the names of the variants generated for a piece of content.
+     *
+     * @param contentId the ID of the content
+     * @return the variant names
+     */
+    @Query("SELECT v.name FROM ContentVariant v WHERE v.content.id = ?1")
+    List<String> findNamesByContentId(Long contentId);
+
+    /**
+     * Load the metadata of a variant together with the forum of the post or comment its
+     * content is attached to, in the same shape as a download of the content itself.
+     *
+     * @param contentId the ID of the content
+     * @param name      the name of the variant
+     * @return an Optional containing the metadata if the variant was generated
+     */
+    @Query("SELECT c.id AS id, CONCAT(v.name, '.', v.format) AS filename, c.contentType AS contentType, " +
+           "b.storedInDb AS storedInDb, b.location AS contentPath, v.createdAt AS createdAt, " +
+           "COALESCE(p.forum.id, cp.forum.id) AS forumId, b.id AS blobId, b.sha256 AS sha256, " +
+           "b.storage AS blobStorage, b.location AS blobLocation, b.size AS blobSize " +
+           "FROM ContentVariant v JOIN v.content c JOIN v.blob b " +
+           "LEFT JOIN c.post p LEFT JOIN c.comment cm LEFT JOIN cm.post cp " +
+           "WHERE c.id = ?1 AND v.name = ?2")
+    Optional<ContentRepository.DownloadRow> findDownloadRow(Long contentId, String name);
+
+    /**
+     * Delete the variants of a piece of content. Their blobs are released by the caller.
+     *
+     * @param contentId the ID of the content
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM ContentVariant v WHERE v.content.id = ?1")
+    int deleteByContentId(Long contentId);
+
+    /**
+     * Find the blobs holding the variants of the given pieces of content.
+     *
+     * @param contentIds the IDs of the original content
+     * @return the blob IDs, one per variant
+     */
+    @Query("SELECT v.blob.id FROM ContentVariant v WHERE v.content.id IN ?1")
+    List<Long> findBlobIdsByContentIdIn(Collection<Long> contentIds);
+
+    /**
+     * Delete the variants of the given pieces of content.
+     *
+     * @param contentIds the IDs of the original content
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM ContentVariant v WHERE v.content.id IN ?1")
+    int deleteByContentIdIn(Collection<Long> contentIds);
+}
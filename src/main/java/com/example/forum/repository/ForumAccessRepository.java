@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,6 +25,15 @@ public interface ForumAccessRepository extends JpaRepository<ForumAccess, Long>
      */
     Optional<ForumAccess> findByUserIdAndForumId(Long userId, Long forumId);
     
+    /**
+     * Find a user's access entries for a set of forums.
+     *
+     * @param userId the ID of the user
+     * @param forumIds the IDs of the forums
+     * @return a list of forum accesses
+     */
+    List<ForumAccess> findByUserIdAndForumIdIn(Long userId, Collection<Long> forumIds);
+    
     /**
      * Find all forums a user has a specific access level to.
      *
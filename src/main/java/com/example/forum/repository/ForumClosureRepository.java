@@ -0,0 +1,145 @@
+package com.example.forum.repository;
+
+import com.example.forum.model.Forum;
+import com.example.forum.model.ForumClosure;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for the forum closure table.
+ */
+@Repository
+public interface ForumClosureRepository extends JpaRepository<ForumClosure, ForumClosure.Key> {
+
+    /**
+     * Find the IDs of a forum and all of its ancestors, nearest first.
+     *
+     * @param forumId the ID of the forum
+     * @return the forum ID followed by its ancestor IDs, or an empty list if the forum has no closure rows
+     */
+    @Query("SELECT c.ancestorId FROM ForumClosure c WHERE c.descendantId = ?1 ORDER BY c.depth")
+    List<Long> findAncestorIds(Long forumId);
+
+    /**
+     * Find a forum and all of its descendants, ordered by depth.
+     *
+     * @param forumId the ID of the subtree root
+     * @return the subtree forums, or an empty list if the forum has no closure rows
+     */
+    @Query("SELECT f FROM ForumClosure c JOIN Forum f ON f.id = c.descendantId " +
+           "WHERE c.ancestorId = ?1 ORDER BY c.depth, f.id")
+    List<Forum> findSubtree(Long forumId);
+
+    /**
+     * Find the IDs of every forum a user can read: the forums the user has an access entry for
+     * and all of their descendants.
+     *
+     * @param userId the ID of the user
+     * @return the readable forum IDs
+     */
+    @Query("SELECT DISTINCT c.descendantId FROM ForumClosure c WHERE c.ancestorId IN " +
+           "(SELECT fa.forum.id FROM ForumAccess fa WHERE fa.user.id = ?1)")
+    List<Long> findReadableForumIds(Long userId);
+
+    /**
+     * Get the depth of a forum in the hierarchy (0 for root forums).
+     *
+     * @param forumId the ID of the forum
+     * @return the depth, or null if the forum has no closure rows
+     */
+    @Query("SELECT MAX(c.depth) FROM ForumClosure c WHERE c.descendantId = ?1")
+    Integer findDepth(Long forumId);
+
+    /**
+     * Add the closure rows for a new root forum.
+     *
+     * @param forumId the ID of the new forum
+     */
+    @Modifying
+    @Query(value = "INSERT INTO forum_closure (ancestor_id, descendant_id, depth) VALUES (:forumId, :forumId, 0)",
+           nativeQuery = true)
+    void insertRoot(@Param("forumId") Long forumId);
+
+    /**
+     * Add the closure rows for a new leaf forum below a parent.
+     *
+     * @param parentId the ID of the parent forum
+     * @param forumId  the ID of the new forum
+     */
+    @Modifying
+    @Query(value = "INSERT INTO forum_closure (ancestor_id, descendant_id, depth) " +
+                   "SELECT ancestor_id, CAST(:forumId AS BIGINT), depth + 1 FROM forum_closure WHERE descendant_id = :parentId " +
+                   "UNION ALL SELECT CAST(:forumId AS BIGINT), CAST(:forumId AS BIGINT), 0",
+           nativeQuery = true)
+    void insertLeaf(@Param("parentId") Long parentId, @Param("forumId") Long forumId);
+
+    /**
+     * Remove the rows linking a subtree to the ancestors of its root, keeping the rows inside the subtree.
+     *
+     * @param forumId the ID of the subtree root
+     */
+    @Modifying
+    @Query(value = "DELETE FROM forum_closure " +
+                   "WHERE descendant_id IN (SELECT descendant_id FROM forum_closure WHERE ancestor_id = :forumId) " +
+                   "AND ancestor_id NOT IN (SELECT descendant_id FROM forum_closure WHERE ancestor_id = :forumId)",
+           nativeQuery = true)
+    void detachSubtree(@Param("forumId") Long forumId);
+
+    /**
+     * Link a detached subtree below a new parent by adding a row for every
+     * (ancestor of parent, node in subtree) pair.
+     *
+     * @param forumId  the ID of the subtree root
+     * @param parentId the ID of the new parent forum
+     */
+    @Modifying
+    @Query(value = "INSERT INTO forum_closure (ancestor_id, descendant_id, depth) " +
+                   "SELECT p.ancestor_id, s.descendant_id, p.depth + s.depth + 1 " +
+                   "FROM forum_closure p CROSS JOIN forum_closure s " +
+                   "WHERE p.descendant_id = :parentId AND s.ancestor_id = :forumId",
+           nativeQuery = true)
+    void attachSubtree(@Param("forumId") Long forumId, @Param("parentId") Long parentId);
+
+    /**
+     * Delete all closure rows referencing a forum.
+     *
+     * @param forumId the ID of the forum
+     */
+    @Modifying
+    @Query("DELETE FROM ForumClosure c WHERE c.ancestorId = ?1 OR c.descendantId = ?1")
+    void deleteByForumId(Long forumId);
+
+    /**
+     * Count forums that are missing their self row, i.e. forums created without maintaining the closure.
+     *
+     * @return the number of forums without closure rows
+     */
+    @Query("SELECT COUNT(f) FROM Forum f WHERE NOT EXISTS " +
+           "(SELECT c FROM ForumClosure c WHERE c.ancestorId = f.id AND c.descendantId = f.id)")
+    long countForumsWithoutClosure();
+
+    /**
+     * Delete every closure row.
+     */
+    @Modifying
+    @Query("DELETE FROM ForumClosure c")
+    void deleteAllRows();
+
+    /**
+     * Rebuild the whole closure table from the parent_forum_id references.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO forum_closure (ancestor_id, descendant_id, depth) " +
+                   "WITH RECURSIVE tree (ancestor_id, descendant_id, depth) AS (" +
+                   "  SELECT id, id, 0 FROM forums " +
+                   "  UNION ALL " +
+                   "  SELECT t.ancestor_id, f.id, t.depth + 1 FROM tree t JOIN forums f ON f.parent_forum_id = t.descendant_id" +
+                   ") SELECT ancestor_id, descendant_id, depth FROM tree",
+           nativeQuery = true)
+    void rebuildFromParentLinks();
+}
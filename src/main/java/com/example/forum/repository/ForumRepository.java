@@ -2,9 +2,11 @@ package com.example.forum.repository;
 
 import com.example.forum.model.Forum;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -53,5 +55,47 @@ public interface ForumRepository extends JpaRepository<Forum, Long> {
      */
     @Query("SELECT CASE WHEN COUNT(f) > 0 THEN true ELSE false END FROM Forum f WHERE f.parentForum.id = ?1")
     boolean hasSubForums(Long forumId);
+    
+    /**
+     * Flat view of a forum without any of its associations.
+     */
+    interface ForumTreeRow {
+        Long getId();
+        String getName();
+        String getDescription();
+        Long getParentForumId();
+        LocalDateTime getCreatedAt();
+        LocalDateTime getUpdatedAt();
+        int getPostCount();
+    }
+    
+    /**
+     * Load every forum as a flat row, ordered by ID, in a single query.
+     *
+     * @return all forums without their associations
+     */
+    @Query("SELECT f.id AS id, f.name AS name, f.description AS description, p.id AS parentForumId, " +
+           "f.createdAt AS createdAt, f.updatedAt AS updatedAt, f.postCount AS postCount FROM Forum f LEFT JOIN f.parentForum p ORDER BY f.id")
+    List<ForumTreeRow> findAllTreeRows();
+    
+    /**
+     * Atomically add to the post counter of a forum.
+     *
+     * @param forumId the ID of the forum
+     * @param delta the amount to add (negative to subtract)
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE Forum f SET f.postCount = f.postCount + ?2 WHERE f.id = ?1")
+    int adjustPostCount(Long forumId, int delta);
+    
+    /**
+     * Reset every post counter that differs from the actual number of posts.
+     *
+     * @return the number of repaired forums
+     */
+    @Modifying
+    @Query("UPDATE Forum f SET f.postCount = (SELECT CAST(COUNT(p) AS Integer) FROM Post p WHERE p.forum.id = f.id) " +
+           "WHERE f.postCount <> (SELECT CAST(COUNT(p) AS Integer) FROM Post p WHERE p.forum.id = f.id)")
+    int reconcilePostCounts();
 }
-
@@ -0,0 +1,12 @@
+package com.example.forum.repository;
+
+import com.example.forum.model.ImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for ImportJob entity operations.
+ */
+@Repository
+public interface ImportJobRepository extends JpaRepository<ImportJob, String> {
+}
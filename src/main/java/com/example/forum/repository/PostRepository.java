@@ -4,9 +4,12 @@ import com.example.forum.model.Post;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -24,6 +27,29 @@ public interface PostRepository extends JpaRepository<Post, Long> {
      */
     Page<Post> findByForumId(Long forumId, Pageable pageable);
     
+    /**
+     * Find the newest posts of a forum, without a count query.
+     *
+     * @param forumId the ID of the forum
+     * @param pageable limits the number of rows
+     * @return the posts, newest first
+     */
+    @Query("SELECT p FROM Post p WHERE p.forum.id = ?1 ORDER BY p.createdAt DESC, p.id DESC")
+    List<Post> findFirstByForumKeyset(Long forumId, Pageable pageable);
+    
+    /**
+     * Find the posts of a forum that come after a keyset position, without a count query.
+     *
+     * @param forumId the ID of the forum
+     * @param createdAt the creation time of the last post already returned
+     * @param id the ID of the last post already returned
+     * @param pageable limits the number of rows
+     * @return the posts older than the position, newest first
+     */
+    @Query("SELECT p FROM Post p WHERE p.forum.id = ?1 AND (p.createdAt < ?2 OR (p.createdAt = ?2 AND p.id < ?3)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Post> findNextByForumKeyset(Long forumId, LocalDateTime createdAt, Long id, Pageable pageable);
+    
     /**
      * Find all posts created by a specific user.
      *
@@ -33,6 +59,16 @@ public interface PostRepository extends JpaRepository<Post, Long> {
      */
     Page<Post> findByUserId(Long userId, Pageable pageable);
     
+    /**
+     * Find the posts created by a specific user in any of the given forums.
+     *
+     * @param userId the ID of the user
+     * @param forumIds the IDs of the forums to include
+     * @param pageable pagination parameters
+     * @return a page of posts
+     */
+    Page<Post> findByUserIdAndForumIdIn(Long userId, Collection<Long> forumIds, Pageable pageable);
+    
     /**
      * Find posts containing the given text in their title or content.
      *
@@ -43,6 +79,17 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     @Query("SELECT p FROM Post p WHERE LOWER(p.title) LIKE LOWER(CONCAT('%', ?1, '%')) OR LOWER(p.content) LIKE LOWER(CONCAT('%', ?1, '%'))")
     Page<Post> searchByTitleOrContent(String searchTerm, Pageable pageable);
     
+    /**
+     * Find posts in any of the given forums containing the given text in their title or content.
+     *
+     * @param searchTerm the text to search for
+     * @param forumIds the IDs of the forums to include
+     * @param pageable pagination parameters
+     * @return a page of posts matching the search
+     */
+    @Query("SELECT p FROM Post p WHERE p.forum.id IN ?2 AND (LOWER(p.title) LIKE LOWER(CONCAT('%', ?1, '%')) OR LOWER(p.content) LIKE LOWER(CONCAT('%', ?1, '%')))")
+    Page<Post> searchByTitleOrContentInForums(String searchTerm, Collection<Long> forumIds, Pageable pageable);
+    
     /**
      * Find posts in a specific forum containing the given text in their title or content.
      *
@@ -54,6 +101,28 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     @Query("SELECT p FROM Post p WHERE p.forum.id = ?1 AND (LOWER(p.title) LIKE LOWER(CONCAT('%', ?2, '%')) OR LOWER(p.content) LIKE LOWER(CONCAT('%', ?2, '%')))")
     Page<Post> searchByForumAndTitleOrContent(Long forumId, String searchTerm, Pageable pageable);
     
+    /**
+     * Flat view of a post with just the fields that are full-text indexed.
+     */
+    interface SearchRow {
+        Long getId();
+        Long getForumId();
+        String getTitle();
+        String getContent();
+    }
+    
+    /**
+     * Load the searchable fields of the posts after an ID, ordered by ID. Used to rebuild the
+     * search index in batches.
+     *
+     * @param afterId the last post ID already loaded, 0 to start
+     * @param pageable limits the number of rows
+     * @return the posts
+     */
+    @Query("SELECT p.id AS id, p.forum.id AS forumId, p.title AS title, p.content AS content " +
+           "FROM Post p WHERE p.id > ?1 ORDER BY p.id")
+    List<SearchRow> findSearchRowsAfter(Long afterId, Pageable pageable);
+    
     /**
      * Count the number of posts in a forum.
      *
@@ -61,15 +130,46 @@ public interface PostRepository extends JpaRepository<Post, Long> {
      * @return the count of posts
      */
     long countByForumId(Long forumId);
+
     
     /**
-     * Find all posts in forums that the user has access to.
+     * Atomically add to the comment counter of a post.
      *
-     * @param userId the ID of the user
-     * @param pageable pagination parameters
-     * @return a page of posts
+     * @param postId the ID of the post
+     * @param delta the amount to add (negative to subtract)
+     * @return the number of updated rows
      */
-    @Query("SELECT p FROM Post p JOIN p.forum f JOIN f.forumAccesses fa WHERE fa.user.id = ?1")
-    Page<Post> findPostsInAccessibleForums(Long userId, Pageable pageable);
-}
+    @Modifying
+    @Query("UPDATE Post p SET p.commentCount = p.commentCount + ?2 WHERE p.id = ?1")
+    int adjustCommentCount(Long postId, int delta);
+    
+    /**
+     * Reset every comment counter that differs from the actual number of comments.
+     *
+     * @return the number of repaired posts
+     */
+    @Modifying
+    @Query("UPDATE Post p SET p.commentCount = (SELECT CAST(COUNT(c) AS Integer) FROM Comment c WHERE c.post.id = p.id) " +
+           "WHERE p.commentCount <> (SELECT CAST(COUNT(c) AS Integer) FROM Comment c WHERE c.post.id = p.id)")
+    int reconcileCommentCounts();
+
+    /**
+     * Find the IDs of all posts in a forum.
+     *
+     * @param forumId the ID of the forum
+     * @return the IDs of the posts
+     */
+    @Query("SELECT p.id FROM Post p WHERE p.forum.id = ?1")
+    List<Long> findIdsByForumId(Long forumId);
 
+    /**
+     * Delete posts with a single statement. Posts already loaded in the current persistence
+     * context are detached.
+     *
+     * @param ids the IDs of the posts
+     * @return the number of deleted rows
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Post p WHERE p.id IN ?1")
+    int deleteByIdIn(Collection<Long> ids);
+}
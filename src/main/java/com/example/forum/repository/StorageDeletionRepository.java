@@ -0,0 +1,41 @@
+package com.example.forum.repository;
+
+import com.example.forum.model.StorageDeletion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for StorageDeletion entity operations.
+ */
+@Repository
+public interface StorageDeletionRepository extends JpaRepository<StorageDeletion, Long> {
+
+    /**
+     * Find deletions that are due, oldest first.
+     *
+     * @param now      the current time
+     * @param pageable the batch size
+     * @return the due deletions
+     */
+    @Query("SELECT d FROM StorageDeletion d WHERE d.nextAttemptAt <= ?1 ORDER BY d.id")
+    List<StorageDeletion> findDue(LocalDateTime now, Pageable pageable);
+
+    /**
+     * Record a failed attempt and when to try again.
+     *
+     * @param id            the ID of the deletion
+     * @param nextAttemptAt when to try again
+     * @param lastError     the error of this attempt
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE StorageDeletion d SET d.attempts = d.attempts + 1, d.nextAttemptAt = ?2, d.lastError = ?3 " +
+           "WHERE d.id = ?1")
+    int recordFailure(Long id, LocalDateTime nextAttemptAt, String lastError);
+}
@@ -0,0 +1,22 @@
+package com.example.forum.repository;
+
+import com.example.forum.model.UploadChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for UploadChunk entity operations.
+ */
+@Repository
+public interface UploadChunkRepository extends JpaRepository<UploadChunk, Long> {
+
+    /**
+     * Find the chunks received for an upload, in file order.
+     *
+     * @param sessionId the ID of the upload
+     * @return the chunks ordered by offset
+     */
+    List<UploadChunk> findBySessionIdOrderByStartOffset(String sessionId);
+}
@@ -0,0 +1,25 @@
+package com.example.forum.repository;
+
+import com.example.forum.model.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for UploadSession entity operations.
+ */
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    /**
+     * Find the IDs of uploads that expired before they were completed.
+     *
+     * @param now the current time
+     * @return the IDs of the expired uploads
+     */
+    @Query("SELECT s.id FROM UploadSession s WHERE s.expiresAt < ?1")
+    List<String> findExpiredIds(LocalDateTime now);
+}
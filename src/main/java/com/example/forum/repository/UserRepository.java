@@ -1,7 +1,10 @@
 package com.example.forum.repository;
 
 import com.example.forum.model.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -19,6 +22,17 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return an Optional containing the user if found
      */
     Optional<User> findByUsername(String username);
+
+    /**
+     * Find a user and lock their row until the current transaction ends, to serialize changes
+     * that are made per user.
+     *
+     * @param id the ID of the user
+     * @return an Optional containing the user if found
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = ?1")
+    Optional<User> findByIdForUpdate(Long id);
     
     /**
      * Find a user by their email address.
@@ -0,0 +1,40 @@
+package com.example.forum.repository;
+
+import com.example.forum.model.Vote;
+import com.example.forum.model.VoteTarget;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Repository for Vote entity operations.
+ */
+@Repository
+public interface VoteRepository extends JpaRepository<Vote, Long> {
+
+    /**
+     * Find the vote of a user on a post or comment.
+     *
+     * @param userId   the ID of the user
+     * @param target   whether the vote is on a post or a comment
+     * @param targetId the ID of the post or comment
+     * @return the vote, if the user voted
+     */
+    @Query("SELECT v FROM Vote v WHERE v.user.id = ?1 AND v.target = ?2 AND v.targetId = ?3")
+    Optional<Vote> findByUserAndTarget(Long userId, VoteTarget target, Long targetId);
+
+    /**
+     * Delete the votes on posts or comments.
+     *
+     * @param target    whether the votes are on posts or comments
+     * @param targetIds the IDs of the posts or comments
+     * @return the number of deleted votes
+     */
+    @Modifying
+    @Query("DELETE FROM Vote v WHERE v.target = ?1 AND v.targetId IN ?2")
+    int deleteByTargetIn(VoteTarget target, Collection<Long> targetIds);
+}
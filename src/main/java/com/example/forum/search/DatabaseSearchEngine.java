@@ -0,0 +1,52 @@
+package com.example.forum.search;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Search engine that keeps no index; the services fall back to their {@code LIKE} queries.
+ * Enabled with {@code app.search.engine=database}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.search.engine", havingValue = "database")
+public class DatabaseSearchEngine implements SearchEngine {
+
+    @Override
+    public Optional<SearchHits> search(SearchDocument.Kind kind, String query, Collection<Long> forumIds,
+                                       Pageable pageable) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void index(SearchDocument document) {
+    }
+
+    @Override
+    public void delete(SearchDocument.Kind kind, Long id) {
+    }
+
+    @Override
+    public void deleteByPosts(Collection<Long> postIds) {
+    }
+
+    @Override
+    public void deleteByForum(Long forumId) {
+    }
+
+    @Override
+    public void clear(SearchDocument.Kind kind) {
+    }
+
+    @Override
+    public long documentCount(SearchDocument.Kind kind) {
+        return -1;
+    }
+
+    @Override
+    public void flush() {
+    }
+}
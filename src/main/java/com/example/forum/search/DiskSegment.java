@@ -0,0 +1,191 @@
+package com.example.forum.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable segment file, memory-mapped for reading.
+ * <p>
+ * Layout: a header (magic, version, document count, term count), the document table (fixed-size
+ * rows), the postings of every term as (localDoc, termFrequency) int pairs, and the term
+ * dictionary (term, postings offset, postings count). The file ends with the offset of the
+ * dictionary.
+ */
+final class DiskSegment implements Segment {
+
+    private static final int MAGIC = 0x46534547; // "FSEG"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int DOC_SIZE = 4 * Long.BYTES + Integer.BYTES;
+
+    private record TermEntry(int offset, int count) {
+    }
+
+    private final String name;
+    private final MappedByteBuffer buffer;
+    private final int docCount;
+    private final Map<String, TermEntry> dictionary;
+
+    private DiskSegment(String name, MappedByteBuffer buffer, int docCount, Map<String, TermEntry> dictionary) {
+        this.name = name;
+        this.buffer = buffer;
+        this.docCount = docCount;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Write a segment file. The file is written under a temporary name and moved into place
+     * once it has been synced, so a crash never leaves a partial segment behind.
+     *
+     * @param file   the segment file
+     * @param source the documents and postings to write
+     * @return the opened segment
+     * @throws IOException if the file cannot be written
+     */
+    static DiskSegment write(Path file, Segment source) throws IOException {
+        List<String> terms = new ArrayList<>();
+        source.terms().forEach(terms::add);
+        Collections.sort(terms);
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream stream = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(source.size());
+            out.writeInt(terms.size());
+            for (int i = 0; i < source.size(); i++) {
+                DocMeta doc = source.doc(i);
+                out.writeLong(doc.docNo());
+                out.writeLong(doc.entityId());
+                out.writeLong(doc.forumId());
+                out.writeLong(doc.postId());
+                out.writeInt(doc.length());
+            }
+
+            int[] offsets = new int[terms.size()];
+            int[] counts = new int[terms.size()];
+            for (int t = 0; t < terms.size(); t++) {
+                offsets[t] = out.size();
+                int index = t;
+                source.postings(terms.get(t), (localDoc, tf) -> {
+                    try {
+                        out.writeInt(localDoc);
+                        out.writeInt(tf);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    counts[index]++;
+                });
+            }
+
+            int dictionaryOffset = out.size();
+            for (int t = 0; t < terms.size(); t++) {
+                byte[] bytes = terms.get(t).getBytes(StandardCharsets.UTF_8);
+                out.writeShort(bytes.length);
+                out.write(bytes);
+                out.writeInt(offsets[t]);
+                out.writeInt(counts[t]);
+            }
+            out.writeInt(dictionaryOffset);
+            out.flush();
+            channel.force(true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(file);
+    }
+
+    /**
+     * Open and map an existing segment file.
+     *
+     * @param file the segment file
+     * @return the opened segment
+     * @throws IOException if the file cannot be read or is not a segment file
+     */
+    static DiskSegment open(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_SIZE + Integer.BYTES || buffer.getInt(0) != MAGIC
+                || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a search segment file: " + file);
+        }
+        int docCount = buffer.getInt(8);
+        int termCount = buffer.getInt(12);
+
+        ByteBuffer dict = buffer.duplicate();
+        dict.position(buffer.getInt(buffer.capacity() - Integer.BYTES));
+        Map<String, TermEntry> dictionary = new HashMap<>(termCount * 2);
+        for (int t = 0; t < termCount; t++) {
+            byte[] bytes = new byte[dict.getShort()];
+            dict.get(bytes);
+            dictionary.put(new String(bytes, StandardCharsets.UTF_8), new TermEntry(dict.getInt(), dict.getInt()));
+        }
+        return new DiskSegment(file.getFileName().toString(), buffer, docCount, dictionary);
+    }
+
+    /**
+     * @return the file name of the segment
+     */
+    String name() {
+        return name;
+    }
+
+    @Override
+    public int size() {
+        return docCount;
+    }
+
+    @Override
+    public DocMeta doc(int localDoc) {
+        int offset = HEADER_SIZE + localDoc * DOC_SIZE;
+        return new DocMeta(buffer.getLong(offset), buffer.getLong(offset + 8), buffer.getLong(offset + 16),
+                buffer.getLong(offset + 24), buffer.getInt(offset + 32));
+    }
+
+    /**
+     * Read only the document number of a document, without allocating its metadata.
+     */
+    long docNo(int localDoc) {
+        return buffer.getLong(HEADER_SIZE + localDoc * DOC_SIZE);
+    }
+
+    @Override
+    public void postings(String term, PostingVisitor visitor) {
+        TermEntry entry = dictionary.get(term);
+        if (entry == null) {
+            return;
+        }
+        int offset = entry.offset();
+        for (int i = 0; i < entry.count(); i++, offset += 8) {
+            visitor.visit(buffer.getInt(offset), buffer.getInt(offset + 4));
+        }
+    }
+
+    @Override
+    public Iterable<String> terms() {
+        return dictionary.keySet();
+    }
+}
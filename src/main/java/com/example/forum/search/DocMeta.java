@@ -0,0 +1,13 @@
+package com.example.forum.search;
+
+/**
+ * Per-document data stored in a segment next to the postings.
+ *
+ * @param docNo    the index-wide document number, never reused
+ * @param entityId the ID of the indexed post or comment
+ * @param forumId  the forum the document belongs to
+ * @param postId   the post the document belongs to (the post itself for posts)
+ * @param length   the number of tokens, used for BM25 length normalization
+ */
+record DocMeta(long docNo, long entityId, long forumId, long postId, int length) {
+}
@@ -0,0 +1,556 @@
+package com.example.forum.search;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Embedded inverted index with BM25 ranking for one kind of document.
+ * <p>
+ * New documents are buffered in a {@link MemorySegment} and written to an immutable, memory-mapped
+ * {@link DiskSegment} once the buffer is full or the index is committed. Updates and deletes never
+ * touch existing segments: the old document is tombstoned by its document number and purged when
+ * segments are merged. The manifest (segment list, tombstones, next document number) is replaced
+ * atomically on every commit.
+ * <p>
+ * Every mutation returns a {@link Change} that can be {@link #revert reverted} (when the database
+ * transaction rolls back) or {@link #release released} (when it commits). Tombstoned documents of
+ * an unreleased change are kept through merges so the revert can resurrect them.
+ */
+@Slf4j
+final class InvertedIndex implements Closeable {
+
+    private static final int MANIFEST_MAGIC = 0x46494458; // "FIDX"
+    private static final int MANIFEST_VERSION = 1;
+    private static final String MANIFEST = "manifest";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * The documents added and tombstoned by one mutation.
+     */
+    record Change(List<DocMeta> added, List<DocMeta> removed) {
+
+        boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    /**
+     * One page of ranked entity IDs and the total number of matching documents.
+     */
+    record Hits(List<Long> entityIds, long total) {
+    }
+
+    private record Match(DocMeta doc, int termFrequency) {
+    }
+
+    private record Scored(long entityId, long docNo, double score) {
+    }
+
+    private final Path directory;
+    private final int flushThreshold;
+    private final int maxSegments;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<DiskSegment> segments = new ArrayList<>();
+    private MemorySegment buffer = new MemorySegment();
+    private final Set<Long> tombstones = new HashSet<>();
+    private final Map<Long, DocMeta> liveByEntity = new HashMap<>();
+    // Entity IDs of the live documents by post and by forum, so deleting a post or forum only
+    // visits its own documents
+    private final Map<Long, Set<Long>> liveByPost = new HashMap<>();
+    private final Map<Long, Set<Long>> liveByForum = new HashMap<>();
+    private final Map<Long, Integer> pinned = new HashMap<>();
+    private long liveLength;
+    private long nextDocNo = 1;
+    private long nextSegmentGeneration = 1;
+    private boolean dirty;
+
+    private InvertedIndex(Path directory, int flushThreshold, int maxSegments) {
+        this.directory = directory;
+        this.flushThreshold = flushThreshold;
+        this.maxSegments = maxSegments;
+    }
+
+    /**
+     * Open the index stored in a directory, creating an empty one if there is none.
+     *
+     * @param directory      the index directory
+     * @param flushThreshold the number of buffered documents that triggers a segment write
+     * @param maxSegments    the number of segments that triggers a merge
+     * @return the opened index
+     * @throws IOException if the index cannot be read
+     */
+    static InvertedIndex open(Path directory, int flushThreshold, int maxSegments) throws IOException {
+        Files.createDirectories(directory);
+        InvertedIndex index = new InvertedIndex(directory, flushThreshold, maxSegments);
+        index.load();
+        return index;
+    }
+
+    /**
+     * Index a document, replacing the previous version of the same entity.
+     *
+     * @return the change, to be released or reverted
+     */
+    Change add(long entityId, long forumId, long postId, String text) {
+        List<String> tokens = Tokenizer.tokenize(text);
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        for (String token : tokens) {
+            termFrequencies.merge(token, 1, Integer::sum);
+        }
+
+        lock.writeLock().lock();
+        try {
+            List<DocMeta> removed = new ArrayList<>(1);
+            DocMeta previous = liveByEntity.get(entityId);
+            if (previous != null) {
+                tombstone(previous, true);
+                removed.add(previous);
+            }
+            DocMeta doc = new DocMeta(nextDocNo++, entityId, forumId, postId, tokens.size());
+            buffer.addDocument(doc, termFrequencies);
+            live(doc);
+            dirty = true;
+            if (buffer.size() >= flushThreshold) {
+                flushQuietly();
+            }
+            return new Change(List.of(doc), removed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the document of an entity.
+     *
+     * @return the change, to be released or reverted
+     */
+    Change delete(long entityId) {
+        lock.writeLock().lock();
+        try {
+            DocMeta doc = liveByEntity.get(entityId);
+            if (doc == null) {
+                return new Change(List.of(), List.of());
+            }
+            tombstone(doc, true);
+            dirty = true;
+            return new Change(List.of(), List.of(doc));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove every document of some posts: the posts themselves and their comments.
+     *
+     * @return the change, to be released or reverted
+     */
+    Change deleteByPosts(Collection<Long> postIds) {
+        lock.writeLock().lock();
+        try {
+            List<DocMeta> removed = new ArrayList<>();
+            for (Long postId : postIds) {
+                tombstoneAll(liveByPost.get(postId), removed);
+            }
+            return new Change(List.of(), removed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove every document of a forum.
+     *
+     * @return the change, to be released or reverted
+     */
+    Change deleteByForum(long forumId) {
+        lock.writeLock().lock();
+        try {
+            List<DocMeta> removed = new ArrayList<>();
+            tombstoneAll(liveByForum.get(forumId), removed);
+            return new Change(List.of(), removed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Undo a change: tombstone the documents it added and resurrect the ones it removed, unless
+     * the entity has been re-indexed since.
+     */
+    void revert(Change change) {
+        lock.writeLock().lock();
+        try {
+            for (DocMeta doc : change.added()) {
+                DocMeta live = liveByEntity.get(doc.entityId());
+                if (live != null && live.docNo() == doc.docNo()) {
+                    tombstone(doc, false);
+                }
+            }
+            for (DocMeta doc : change.removed()) {
+                unpin(doc);
+                if (!liveByEntity.containsKey(doc.entityId()) && tombstones.remove(doc.docNo())) {
+                    live(doc);
+                }
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Make a change permanent, allowing its tombstoned documents to be purged.
+     */
+    void release(Change change) {
+        if (change.removed().isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            change.removed().forEach(this::unpin);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rank the live documents against a query with BM25. Documents matching any query term
+     * are returned, best match first.
+     *
+     * @param query   the query text
+     * @param forumIds restrict the result to documents of these forums, or null for all forums
+     * @param offset  the number of ranked documents to skip
+     * @param limit   the maximum number of documents to return
+     * @return the requested page of entity IDs and the total number of matches
+     */
+    Hits search(String query, Collection<Long> forumIds, long offset, int limit) {
+        Set<String> terms = new LinkedHashSet<>(Tokenizer.tokenize(query));
+        lock.readLock().lock();
+        try {
+            int documentCount = liveByEntity.size();
+            if (terms.isEmpty() || documentCount == 0) {
+                return new Hits(List.of(), 0);
+            }
+            double averageLength = Math.max(1.0, (double) liveLength / documentCount);
+
+            Map<Long, Scored> scores = new HashMap<>();
+            List<Segment> all = new ArrayList<>(segments);
+            all.add(buffer);
+            for (String term : terms) {
+                List<Match> matches = new ArrayList<>();
+                for (Segment segment : all) {
+                    segment.postings(term, (localDoc, tf) -> {
+                        DocMeta doc = segment.doc(localDoc);
+                        if (!tombstones.contains(doc.docNo())) {
+                            matches.add(new Match(doc, tf));
+                        }
+                    });
+                }
+                // Document frequency counts every live document, not just the filtered forums
+                double idf = Math.log(1 + (documentCount - matches.size() + 0.5) / (matches.size() + 0.5));
+                for (Match match : matches) {
+                    DocMeta doc = match.doc();
+                    if (forumIds != null && !forumIds.contains(doc.forumId())) {
+                        continue;
+                    }
+                    double tf = match.termFrequency();
+                    double norm = K1 * (1 - B + B * doc.length() / averageLength);
+                    double score = idf * tf * (K1 + 1) / (tf + norm);
+                    scores.merge(doc.entityId(), new Scored(doc.entityId(), doc.docNo(), score),
+                            (a, b) -> new Scored(a.entityId(), a.docNo(), a.score() + b.score()));
+                }
+            }
+
+            List<Long> page = scores.values().stream()
+                    .sorted(Comparator.comparingDouble(Scored::score).reversed()
+                            .thenComparing(Comparator.comparingLong(Scored::docNo).reversed()))
+                    .skip(offset)
+                    .limit(limit)
+                    .map(Scored::entityId)
+                    .toList();
+            return new Hits(page, scores.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of live (searchable) documents
+     */
+    long liveCount() {
+        lock.readLock().lock();
+        try {
+            return liveByEntity.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of on-disk segments
+     */
+    int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Remove every document and segment file. Document numbers keep increasing so outstanding
+     * changes cannot resurrect documents of the cleared index.
+     */
+    void clear() throws IOException {
+        lock.writeLock().lock();
+        try {
+            List<DiskSegment> old = List.copyOf(segments);
+            segments.clear();
+            buffer = new MemorySegment();
+            tombstones.clear();
+            liveByEntity.clear();
+            liveByPost.clear();
+            liveByForum.clear();
+            pinned.clear();
+            liveLength = 0;
+            writeManifest();
+            for (DiskSegment segment : old) {
+                Files.deleteIfExists(directory.resolve(segment.name()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Write buffered documents to a segment and persist the manifest.
+     */
+    void commit() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (buffer.size() > 0) {
+                flush();
+            } else if (dirty) {
+                writeManifest();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        commit();
+    }
+
+    private void live(DocMeta doc) {
+        liveByEntity.put(doc.entityId(), doc);
+        liveByPost.computeIfAbsent(doc.postId(), id -> new HashSet<>()).add(doc.entityId());
+        liveByForum.computeIfAbsent(doc.forumId(), id -> new HashSet<>()).add(doc.entityId());
+        liveLength += doc.length();
+    }
+
+    private void tombstone(DocMeta doc, boolean pin) {
+        liveByEntity.remove(doc.entityId());
+        removeFrom(liveByPost, doc.postId(), doc.entityId());
+        removeFrom(liveByForum, doc.forumId(), doc.entityId());
+        liveLength -= doc.length();
+        tombstones.add(doc.docNo());
+        if (pin) {
+            pinned.merge(doc.docNo(), 1, Integer::sum);
+        }
+    }
+
+    private void tombstoneAll(Set<Long> entityIds, List<DocMeta> removed) {
+        if (entityIds == null) {
+            return;
+        }
+        // Tombstoning removes the entities from the set being iterated
+        for (Long entityId : List.copyOf(entityIds)) {
+            DocMeta doc = liveByEntity.get(entityId);
+            tombstone(doc, true);
+            removed.add(doc);
+        }
+        dirty = true;
+    }
+
+    private static void removeFrom(Map<Long, Set<Long>> index, long key, long entityId) {
+        Set<Long> entityIds = index.get(key);
+        if (entityIds != null && entityIds.remove(entityId) && entityIds.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private void unpin(DocMeta doc) {
+        pinned.computeIfPresent(doc.docNo(), (docNo, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            // The documents stay in the buffer and are written by the next commit
+            log.warn("Failed to write search segment in {}", directory, e);
+        }
+    }
+
+    private void flush() throws IOException {
+        Path file = directory.resolve(String.format("seg-%08d%s", nextSegmentGeneration++, SEGMENT_SUFFIX));
+        segments.add(DiskSegment.write(file, buffer));
+        buffer = new MemorySegment();
+        if (segments.size() > maxSegments) {
+            merge();
+        }
+        writeManifest();
+    }
+
+    /**
+     * Merge every segment into one, dropping tombstoned documents that no outstanding change
+     * can resurrect.
+     */
+    private void merge() throws IOException {
+        MemorySegment merged = new MemorySegment();
+        List<int[]> mappings = new ArrayList<>(segments.size());
+        Set<Long> purged = new HashSet<>();
+        for (DiskSegment segment : segments) {
+            int[] mapping = new int[segment.size()];
+            for (int i = 0; i < segment.size(); i++) {
+                DocMeta doc = segment.doc(i);
+                if (tombstones.contains(doc.docNo()) && !pinned.containsKey(doc.docNo())) {
+                    mapping[i] = -1;
+                    purged.add(doc.docNo());
+                } else {
+                    mapping[i] = merged.addDocument(doc);
+                }
+            }
+            mappings.add(mapping);
+        }
+        // Terms are visited segment by segment, so each term's postings stay in document order
+        for (int s = 0; s < segments.size(); s++) {
+            int[] mapping = mappings.get(s);
+            for (String term : segments.get(s).terms()) {
+                segments.get(s).postings(term, (localDoc, tf) -> {
+                    if (mapping[localDoc] >= 0) {
+                        merged.addPosting(term, mapping[localDoc], tf);
+                    }
+                });
+            }
+        }
+
+        Path file = directory.resolve(String.format("seg-%08d%s", nextSegmentGeneration++, SEGMENT_SUFFIX));
+        DiskSegment result = DiskSegment.write(file, merged);
+        List<DiskSegment> old = List.copyOf(segments);
+        segments.clear();
+        segments.add(result);
+        tombstones.removeAll(purged);
+        writeManifest();
+        for (DiskSegment segment : old) {
+            Files.deleteIfExists(directory.resolve(segment.name()));
+        }
+        log.debug("Merged {} search segments in {}, purged {} deleted documents", old.size(), directory,
+                purged.size());
+    }
+
+    private void writeManifest() throws IOException {
+        Path tmp = directory.resolve(MANIFEST + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MANIFEST_MAGIC);
+            out.writeInt(MANIFEST_VERSION);
+            out.writeLong(nextDocNo);
+            out.writeLong(nextSegmentGeneration);
+            out.writeInt(segments.size());
+            for (DiskSegment segment : segments) {
+                out.writeUTF(segment.name());
+            }
+            out.writeInt(tombstones.size());
+            for (Long docNo : tombstones) {
+                out.writeLong(docNo);
+            }
+        }
+        Files.move(tmp, directory.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        dirty = false;
+    }
+
+    private void load() throws IOException {
+        Path manifest = directory.resolve(MANIFEST);
+        Set<String> names = new HashSet<>();
+        Set<Long> storedTombstones = new HashSet<>();
+        if (Files.exists(manifest)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifest)))) {
+                if (in.readInt() != MANIFEST_MAGIC || in.readInt() != MANIFEST_VERSION) {
+                    throw new IOException("Not a search index manifest: " + manifest);
+                }
+                nextDocNo = in.readLong();
+                nextSegmentGeneration = in.readLong();
+                int segmentCount = in.readInt();
+                for (int i = 0; i < segmentCount; i++) {
+                    String name = in.readUTF();
+                    names.add(name);
+                    segments.add(DiskSegment.open(directory.resolve(name)));
+                }
+                int tombstoneCount = in.readInt();
+                for (int i = 0; i < tombstoneCount; i++) {
+                    storedTombstones.add(in.readLong());
+                }
+            }
+        }
+        deleteUnreferencedFiles(names);
+
+        for (DiskSegment segment : segments) {
+            for (int i = 0; i < segment.size(); i++) {
+                DocMeta doc = segment.doc(i);
+                if (storedTombstones.contains(doc.docNo())) {
+                    // Tombstones of documents that never reached a segment are dropped here
+                    tombstones.add(doc.docNo());
+                    continue;
+                }
+                DocMeta previous = liveByEntity.get(doc.entityId());
+                if (previous != null) {
+                    tombstone(previous, false);
+                }
+                live(doc);
+            }
+        }
+        log.info("Opened search index {} with {} segments and {} documents", directory, segments.size(),
+                liveByEntity.size());
+    }
+
+    private void deleteUnreferencedFiles(Set<String> referenced) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                boolean stale = name.endsWith(".tmp") || (name.endsWith(SEGMENT_SUFFIX) && !referenced.contains(name));
+                if (stale) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.forum.search;
+
+import com.example.forum.exception.StorageException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Search engine backed by one {@link InvertedIndex} per document kind, stored below
+ * {@code app.search.index.path}. This is the default engine.
+ * <p>
+ * Index changes are applied immediately so they are visible to the transaction that made them.
+ * They are recorded per transaction and undone, newest first, if the transaction rolls back.
+ */
+@Component
+@ConditionalOnProperty(name = "app.search.engine", havingValue = "index", matchIfMissing = true)
+@Slf4j
+public class InvertedIndexSearchEngine implements SearchEngine {
+
+    private record TrackedChange(InvertedIndex index, InvertedIndex.Change change) {
+    }
+
+    /**
+     * The changes made by one transaction.
+     */
+    private final class PendingChanges implements TransactionSynchronization {
+
+        private final List<TrackedChange> changes = new ArrayList<>();
+
+        private InvertedIndexSearchEngine owner() {
+            return InvertedIndexSearchEngine.this;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status == STATUS_COMMITTED) {
+                changes.forEach(tracked -> tracked.index().release(tracked.change()));
+            } else {
+                for (int i = changes.size() - 1; i >= 0; i--) {
+                    changes.get(i).index().revert(changes.get(i).change());
+                }
+            }
+        }
+    }
+
+    private final Map<SearchDocument.Kind, InvertedIndex> indexes = new EnumMap<>(SearchDocument.Kind.class);
+
+    @Value("${app.search.index.path:./search-index}")
+    private String indexPath = "./search-index";
+
+    @Value("${app.search.index.flush-threshold:1000}")
+    private int flushThreshold = 1000;
+
+    @Value("${app.search.index.max-segments:10}")
+    private int maxSegments = 10;
+
+    @PostConstruct
+    void open() {
+        Path root = Path.of(indexPath);
+        try {
+            indexes.put(SearchDocument.Kind.POST, InvertedIndex.open(root.resolve("posts"), flushThreshold, maxSegments));
+            indexes.put(SearchDocument.Kind.COMMENT,
+                    InvertedIndex.open(root.resolve("comments"), flushThreshold, maxSegments));
+        } catch (IOException e) {
+            throw new StorageException("Could not open search index at " + root.toAbsolutePath(), e);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        for (InvertedIndex index : indexes.values()) {
+            try {
+                index.close();
+            } catch (IOException e) {
+                log.warn("Failed to commit search index on shutdown", e);
+            }
+        }
+    }
+
+    @Override
+    public Optional<SearchHits> search(SearchDocument.Kind kind, String query, Collection<Long> forumIds,
+                                       Pageable pageable) {
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        int limit = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+        InvertedIndex.Hits hits = indexes.get(kind).search(query, forumIds, offset, limit);
+        return Optional.of(new SearchHits(hits.entityIds(), hits.total()));
+    }
+
+    @Override
+    public void index(SearchDocument document) {
+        InvertedIndex index = indexes.get(document.kind());
+        track(index, index.add(document.id(), document.forumId(), document.postId(), document.text()));
+    }
+
+    @Override
+    public void delete(SearchDocument.Kind kind, Long id) {
+        InvertedIndex index = indexes.get(kind);
+        track(index, index.delete(id));
+    }
+
+    @Override
+    public void deleteByPosts(Collection<Long> postIds) {
+        // Posts are indexed under their own ID as post ID
+        for (InvertedIndex index : indexes.values()) {
+            track(index, index.deleteByPosts(postIds));
+        }
+    }
+
+    @Override
+    public void deleteByForum(Long forumId) {
+        for (InvertedIndex index : indexes.values()) {
+            track(index, index.deleteByForum(forumId));
+        }
+    }
+
+    @Override
+    public void clear(SearchDocument.Kind kind) {
+        try {
+            indexes.get(kind).clear();
+        } catch (IOException e) {
+            throw new StorageException("Could not clear search index", e);
+        }
+    }
+
+    @Override
+    public long documentCount(SearchDocument.Kind kind) {
+        return indexes.get(kind).liveCount();
+    }
+
+    /**
+     * Write buffered documents to disk so a restart does not need a rebuild.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${app.search.index.commit-interval-ms:60000}",
+               initialDelayString = "${app.search.index.commit-interval-ms:60000}")
+    public void flush() {
+        for (InvertedIndex index : indexes.values()) {
+            try {
+                index.commit();
+            } catch (IOException e) {
+                throw new StorageException("Could not commit search index", e);
+            }
+        }
+    }
+
+    private void track(InvertedIndex index, InvertedIndex.Change change) {
+        if (change.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            index.release(change);
+            return;
+        }
+        PendingChanges pending = null;
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges candidate && candidate.owner() == this) {
+                pending = candidate;
+                break;
+            }
+        }
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.changes.add(new TrackedChange(index, change));
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.forum.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mutable in-memory segment. New documents are buffered here until the segment is written
+ * to disk; it is also used to assemble merged segments.
+ */
+final class MemorySegment implements Segment {
+
+    /**
+     * Growable list of (localDoc, termFrequency) pairs.
+     */
+    private static final class Postings {
+        private int[] data = new int[8];
+        private int size;
+
+        void add(int localDoc, int termFrequency) {
+            if (size + 2 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = localDoc;
+            data[size++] = termFrequency;
+        }
+    }
+
+    private final List<DocMeta> docs = new ArrayList<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    /**
+     * Append a document.
+     *
+     * @param meta            the document data
+     * @param termFrequencies the number of occurrences of each term in the document
+     * @return the position of the document inside this segment
+     */
+    int addDocument(DocMeta meta, Map<String, Integer> termFrequencies) {
+        int localDoc = addDocument(meta);
+        termFrequencies.forEach((term, tf) -> addPosting(term, localDoc, tf));
+        return localDoc;
+    }
+
+    /**
+     * Append a document without postings; add them with {@link #addPosting}.
+     *
+     * @param meta the document data
+     * @return the position of the document inside this segment
+     */
+    int addDocument(DocMeta meta) {
+        docs.add(meta);
+        return docs.size() - 1;
+    }
+
+    /**
+     * Add a posting. Postings of a term must be added in document order.
+     *
+     * @param term          the term
+     * @param localDoc      the position of the document inside this segment
+     * @param termFrequency the number of occurrences of the term in the document
+     */
+    void addPosting(String term, int localDoc, int termFrequency) {
+        postings.computeIfAbsent(term, t -> new Postings()).add(localDoc, termFrequency);
+    }
+
+    @Override
+    public int size() {
+        return docs.size();
+    }
+
+    @Override
+    public DocMeta doc(int localDoc) {
+        return docs.get(localDoc);
+    }
+
+    @Override
+    public void postings(String term, PostingVisitor visitor) {
+        Postings list = postings.get(term);
+        if (list == null) {
+            return;
+        }
+        for (int i = 0; i < list.size; i += 2) {
+            visitor.visit(list.data[i], list.data[i + 1]);
+        }
+    }
+
+    @Override
+    public Iterable<String> terms() {
+        return postings.keySet();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.forum.search;
+
+import com.example.forum.model.Comment;
+import com.example.forum.model.Post;
+
+/**
+ * A post or comment as seen by the search engine.
+ *
+ * @param kind    whether this is a post or a comment
+ * @param id      the ID of the post or comment
+ * @param forumId the forum the document belongs to
+ * @param postId  the post the document belongs to (the post itself for posts)
+ * @param text    the searchable text
+ */
+public record SearchDocument(Kind kind, Long id, Long forumId, Long postId, String text) {
+
+    /**
+     * The kinds of searchable documents. Each kind has its own index.
+     */
+    public enum Kind {
+        POST,
+        COMMENT
+    }
+
+    /**
+     * Create the search document of a post. Title and content are searched together.
+     *
+     * @param post the post
+     * @return the search document
+     */
+    public static SearchDocument of(Post post) {
+        return ofPost(post.getId(), post.getForum().getId(), post.getTitle(), post.getContent());
+    }
+
+    /**
+     * Create the search document of a comment.
+     *
+     * @param comment the comment
+     * @return the search document
+     */
+    public static SearchDocument of(Comment comment) {
+        Post post = comment.getPost();
+        return ofComment(comment.getId(), post.getForum().getId(), post.getId(), comment.getContent());
+    }
+
+    /**
+     * Create the search document of a post that is not loaded as an entity.
+     *
+     * @param id      the ID of the post
+     * @param forumId the forum of the post
+     * @param title   the title of the post
+     * @param content the content of the post
+     * @return the search document
+     */
+    public static SearchDocument ofPost(Long id, Long forumId, String title, String content) {
+        return new SearchDocument(Kind.POST, id, forumId, id, title + "\n" + content);
+    }
+
+    /**
+     * Create the search document of a comment that is not loaded as an entity.
+     *
+     * @param id      the ID of the comment
+     * @param forumId the forum of the post of the comment
+     * @param postId  the post of the comment
+     * @param content the content of the comment
+     * @return the search document
+     */
+    public static SearchDocument ofComment(Long id, Long forumId, Long postId, String content) {
+        return new SearchDocument(Kind.COMMENT, id, forumId, postId, content);
+    }
+}
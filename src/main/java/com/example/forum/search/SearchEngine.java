@@ -0,0 +1,72 @@
+package com.example.forum.search;
+
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Full-text search over posts and comments. The implementation is selected with
+ * {@code app.search.engine}.
+ */
+public interface SearchEngine {
+
+    /**
+     * Search posts or comments.
+     *
+     * @param kind     the kind of documents to search
+     * @param query    the query text
+     * @param forumIds restrict the search to these forums, or null for all forums
+     * @param pageable the requested page
+     * @return the ranked hits, or empty if this engine keeps no index and the caller should
+     * query the database instead
+     */
+    Optional<SearchHits> search(SearchDocument.Kind kind, String query, Collection<Long> forumIds, Pageable pageable);
+
+    /**
+     * Add or replace a document. The change is undone if the surrounding transaction rolls back.
+     *
+     * @param document the document
+     */
+    void index(SearchDocument document);
+
+    /**
+     * Remove a document.
+     *
+     * @param kind the kind of the document
+     * @param id   the ID of the post or comment
+     */
+    void delete(SearchDocument.Kind kind, Long id);
+
+    /**
+     * Remove posts and all of their comments.
+     *
+     * @param postIds the post IDs
+     */
+    void deleteByPosts(Collection<Long> postIds);
+
+    /**
+     * Remove all posts and comments of a forum.
+     *
+     * @param forumId the forum ID
+     */
+    void deleteByForum(Long forumId);
+
+    /**
+     * Remove every document of a kind. Used before a rebuild.
+     *
+     * @param kind the kind of documents
+     */
+    void clear(SearchDocument.Kind kind);
+
+    /**
+     * @param kind the kind of documents
+     * @return the number of searchable documents, or -1 if this engine keeps no index
+     */
+    long documentCount(SearchDocument.Kind kind);
+
+    /**
+     * Persist pending index changes.
+     */
+    void flush();
+}
@@ -0,0 +1,47 @@
+package com.example.forum.search;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * One page of search results.
+ *
+ * @param ids       the IDs of the matching posts or comments, best match first
+ * @param totalHits the total number of matches
+ */
+public record SearchHits(List<Long> ids, long totalHits) {
+
+    /**
+     * Load the entities of the hits and return them as a page in rank order. Hits whose entity
+     * no longer exists are skipped.
+     *
+     * @param loader   loads the entities by ID, in any order
+     * @param idFn     extracts the ID of an entity
+     * @param pageable the requested page
+     * @return the page of entities
+     */
+    public <T> Page<T> toPage(Function<List<Long>, List<T>> loader, Function<T, Long> idFn, Pageable pageable) {
+        if (ids.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, totalHits);
+        }
+        Map<Long, T> byId = new HashMap<>();
+        for (T entity : loader.apply(ids)) {
+            byId.put(idFn.apply(entity), entity);
+        }
+        List<T> content = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            T entity = byId.get(id);
+            if (entity != null) {
+                content.add(entity);
+            }
+        }
+        return new PageImpl<>(content, pageable, totalHits);
+    }
+}
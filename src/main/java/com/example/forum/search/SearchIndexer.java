@@ -0,0 +1,101 @@
+package com.example.forum.search;
+
+import com.example.forum.repository.CommentRepository;
+import com.example.forum.repository.PostRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Rebuilds the search index from the database.
+ * <p>
+ * Rows are read in ID-ordered batches, each in its own short transaction. Posts and comments
+ * written while a rebuild runs are indexed by the services as usual, so nothing is lost; searches
+ * only see a partial result until the rebuild finishes.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SearchIndexer {
+
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Number of documents indexed per kind.
+     */
+    public record Result(long posts, long comments) {
+    }
+
+    private final SearchEngine searchEngine;
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+
+    /**
+     * Drop the index and re-index every post and comment.
+     *
+     * @return the number of indexed documents
+     */
+    public Result rebuild() {
+        Result result = new Result(rebuildPosts(), rebuildComments());
+        log.info("Rebuilt search index: {} posts, {} comments", result.posts(), result.comments());
+        return result;
+    }
+
+    /**
+     * Rebuild the index of each kind whose document count differs from the database, e.g. after
+     * the index directory was lost or the application was not shut down cleanly.
+     */
+    public void rebuildIfInconsistent() {
+        long indexedPosts = searchEngine.documentCount(SearchDocument.Kind.POST);
+        if (indexedPosts >= 0 && indexedPosts != postRepository.count()) {
+            log.info("Search index has {} posts but the database has {}, rebuilding", indexedPosts,
+                    postRepository.count());
+            rebuildPosts();
+        }
+        long indexedComments = searchEngine.documentCount(SearchDocument.Kind.COMMENT);
+        if (indexedComments >= 0 && indexedComments != commentRepository.count()) {
+            log.info("Search index has {} comments but the database has {}, rebuilding", indexedComments,
+                    commentRepository.count());
+            rebuildComments();
+        }
+    }
+
+    private long rebuildPosts() {
+        searchEngine.clear(SearchDocument.Kind.POST);
+        long count = 0;
+        long afterId = 0;
+        List<PostRepository.SearchRow> rows;
+        do {
+            rows = postRepository.findSearchRowsAfter(afterId, PageRequest.of(0, BATCH_SIZE));
+            for (PostRepository.SearchRow row : rows) {
+                searchEngine.index(SearchDocument.ofPost(row.getId(), row.getForumId(), row.getTitle(),
+                        row.getContent()));
+                afterId = row.getId();
+            }
+            count += rows.size();
+        } while (rows.size() == BATCH_SIZE);
+        searchEngine.flush();
+        return count;
+    }
+
+    private long rebuildComments() {
+        searchEngine.clear(SearchDocument.Kind.COMMENT);
+        long count = 0;
+        long afterId = 0;
+        List<CommentRepository.SearchRow> rows;
+        do {
+            rows = commentRepository.findSearchRowsAfter(afterId, PageRequest.of(0, BATCH_SIZE));
+            for (CommentRepository.SearchRow row : rows) {
+                searchEngine.index(SearchDocument.ofComment(row.getId(), row.getForumId(), row.getPostId(),
+                        row.getContent()));
+                afterId = row.getId();
+            }
+            count += rows.size();
+        } while (rows.size() == BATCH_SIZE);
+        searchEngine.flush();
+        return count;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.forum.search;
+
+/**
+ * Read access shared by the in-memory write buffer and the immutable on-disk segments.
+ * Documents are addressed by their position inside the segment.
+ */
+interface Segment {
+
+    /**
+     * Receives the postings of a term.
+     */
+    @FunctionalInterface
+    interface PostingVisitor {
+        void visit(int localDoc, int termFrequency);
+    }
+
+    /**
+     * @return the number of documents in the segment, including deleted ones
+     */
+    int size();
+
+    /**
+     * @param localDoc the position of the document inside the segment
+     * @return the document data
+     */
+    DocMeta doc(int localDoc);
+
+    /**
+     * Visit every posting of a term, in document order.
+     *
+     * @param term    the term
+     * @param visitor receives the postings
+     */
+    void postings(String term, PostingVisitor visitor);
+
+    /**
+     * @return every term of the segment
+     */
+    Iterable<String> terms();
+}
@@ -0,0 +1,37 @@
+package com.example.forum.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into lower-cased word tokens for indexing and querying.
+ */
+final class Tokenizer {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    private Tokenizer() {
+    }
+
+    /**
+     * Tokenize a text. Tokens longer than {@value #MAX_TOKEN_LENGTH} characters are dropped.
+     *
+     * @param text the text, may be null
+     * @return the tokens in text order, including duplicates
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        for (String token : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty() && token.length() <= MAX_TOKEN_LENGTH) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
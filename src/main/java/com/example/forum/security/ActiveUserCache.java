@@ -0,0 +1,103 @@
+package com.example.forum.security;
+
+import com.example.forum.model.Role;
+import com.example.forum.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short-lived cache of whether a user is still active and which role they have, used to accept
+ * JWTs without loading the user on every request.
+ * <p>
+ * Entries expire after {@code app.security.active-user-cache.ttl-ms}. Deactivating a user or
+ * changing their role evicts the entry, so revocation takes effect on the next request.
+ */
+@Component
+@RequiredArgsConstructor
+public class ActiveUserCache {
+
+    /**
+     * The cached state of a user. A {@code null} role means the user does not exist.
+     */
+    public record Status(boolean active, Role role) {
+    }
+
+    private record Entry(Status status, long expiresAt) {
+    }
+
+    private final UserRepository userRepository;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    @Value("${app.security.active-user-cache.ttl-ms:30000}")
+    private long ttlMs = 30000;
+
+    @Value("${app.security.active-user-cache.max-size:10000}")
+    private int maxSize = 10000;
+
+    /**
+     * Get the status of a user, loading it if it is not cached or has expired.
+     *
+     * @param userId the user ID
+     * @return the user's status
+     */
+    public Status getStatus(Long userId) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(userId);
+        if (entry != null && entry.expiresAt() > now) {
+            return entry.status();
+        }
+
+        long current = generation.get();
+        Status status = userRepository.findById(userId)
+                .map(user -> new Status(user.isActive(), user.getRole()))
+                .orElse(new Status(false, null));
+        if (entries.size() >= maxSize) {
+            evictExpiredOrOne(now);
+        }
+        entries.put(userId, new Entry(status, now + ttlMs));
+        // Drop the entry again if it was evicted while we were loading it
+        if (generation.get() != current) {
+            entries.remove(userId);
+        }
+        return status;
+    }
+
+    /**
+     * Evict a user whose status changed. The eviction is repeated after the surrounding
+     * transaction completes so the old status cannot be re-cached in between.
+     *
+     * @param userId the user ID
+     */
+    public void evict(Long userId) {
+        generation.incrementAndGet();
+        entries.remove(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    generation.incrementAndGet();
+                    entries.remove(userId);
+                }
+            });
+        }
+    }
+
+    private void evictExpiredOrOne(long now) {
+        entries.values().removeIf(entry -> entry.expiresAt() <= now);
+        Iterator<Long> it = entries.keySet().iterator();
+        if (entries.size() >= maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
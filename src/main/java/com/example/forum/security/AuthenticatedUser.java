@@ -0,0 +1,40 @@
+package com.example.forum.security;
+
+import com.example.forum.model.Role;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.Serializable;
+import java.security.Principal;
+import java.util.Optional;
+
+/**
+ * Principal stored in the security context for JWT-authenticated requests. It carries the user
+ * ID and role from the token, so the current user can be identified without a database query.
+ *
+ * @param id       the user ID
+ * @param username the username
+ * @param role     the user's role
+ */
+public record AuthenticatedUser(Long id, String username, Role role) implements Principal, Serializable {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    /**
+     * Get the principal of the current request.
+     *
+     * @return the authenticated user, or empty if the request is anonymous or was authenticated
+     * another way
+     */
+    public static Optional<AuthenticatedUser> current() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return Optional.of(user);
+        }
+        return Optional.empty();
+    }
+}
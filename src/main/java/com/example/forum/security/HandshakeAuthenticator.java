@@ -0,0 +1,52 @@
+package com.example.forum.security;
+
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.HandshakeResponse;
+import jakarta.websocket.server.HandshakeRequest;
+import jakarta.websocket.server.ServerEndpointConfig;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Creates the instances of a WebSocket endpoint and resolves the user of each handshake.
+ * <p>
+ * Browsers cannot send headers with a WebSocket handshake, so the JWT is taken from the
+ * {@code Authorization} header or the {@code access_token} query parameter, and checked here
+ * rather than by the security filter chain. The user is stored in the user properties of the
+ * session under {@link #USER}, and is absent for anonymous sessions.
+ */
+@RequiredArgsConstructor
+public class HandshakeAuthenticator extends ServerEndpointConfig.Configurator {
+
+    /** Key of the {@link AuthenticatedUser} in the user properties of a session. */
+    public static final String USER = "user";
+
+    private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final Supplier<? extends Endpoint> endpoints;
+
+    @Override
+    public <T> T getEndpointInstance(Class<T> endpointClass) {
+        return endpointClass.cast(endpoints.get());
+    }
+
+    @Override
+    public void modifyHandshake(ServerEndpointConfig sec, HandshakeRequest request, HandshakeResponse response) {
+        // The user properties of the config passed here are those of the new session
+        String jwt = token(request);
+        if (jwt != null) {
+            jwtAuthenticationFilter.authenticate(jwt).ifPresent(user -> sec.getUserProperties().put(USER, user));
+        }
+    }
+
+    private static String token(HandshakeRequest request) {
+        for (String header : request.getHeaders().getOrDefault("Authorization", List.of())) {
+            if (header.startsWith("Bearer ")) {
+                return header.substring(7);
+            }
+        }
+        List<String> accessToken = request.getParameterMap().get("access_token");
+        return accessToken == null || accessToken.isEmpty() ? null : accessToken.get(0);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.forum.security;
 
+import com.example.forum.model.User;
+import com.example.forum.repository.UserRepository;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,24 +9,32 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Filter for JWT token authentication.
+ * <p>
+ * In stateless mode the user ID and role are taken from the token and only checked against the
+ * {@link ActiveUserCache}, so most requests are authenticated without a database query. Tokens
+ * without those claims, and every token when stateless mode is off, are checked by loading the
+ * user. Either way the principal is an {@link AuthenticatedUser}.
  */
 @Slf4j
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider tokenProvider;
-    private final UserDetailsService userDetailsService;
+    private final ActiveUserCache activeUserCache;
+    private final UserRepository userRepository;
+    private final boolean stateless;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -32,15 +42,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromJWT(jwt);
-                
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+            if (StringUtils.hasText(jwt)) {
+                authenticate(jwt)
+                        .ifPresent(principal -> {
+                            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                                    principal, null,
+                                    List.of(new SimpleGrantedAuthority("ROLE_" + principal.role().name())));
+                            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                            SecurityContextHolder.getContext().setAuthentication(authentication);
+                        });
             }
         } catch (Exception ex) {
             log.error("Could not set user authentication in security context", ex);
@@ -49,6 +59,39 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Resolve the user of a token, for connections that do not pass through this filter.
+     *
+     * @param jwt the token
+     * @return the principal, or empty if the token is invalid or its user may not sign in
+     */
+    public Optional<AuthenticatedUser> authenticate(String jwt) {
+        return tokenProvider.parseToken(jwt).flatMap(this::resolvePrincipal);
+    }
+
+    /**
+     * Check that the user of a valid token may still sign in.
+     *
+     * @param claims the token claims
+     * @return the principal, or empty if the user is inactive, unknown or changed role
+     */
+    private Optional<AuthenticatedUser> resolvePrincipal(JwtTokenProvider.TokenClaims claims) {
+        if (stateless && claims.userId() != null && claims.role() != null) {
+            ActiveUserCache.Status status = activeUserCache.getStatus(claims.userId());
+            // A role change invalidates tokens issued with the old role
+            if (!status.active() || status.role() != claims.role()) {
+                return Optional.empty();
+            }
+            return Optional.of(new AuthenticatedUser(claims.userId(), claims.username(), claims.role()));
+        }
+
+        Optional<User> user = userRepository.findByUsername(claims.username());
+        if (user.isEmpty() || !user.get().isActive()) {
+            return Optional.empty();
+        }
+        return Optional.of(new AuthenticatedUser(user.get().getId(), user.get().getUsername(), user.get().getRole()));
+    }
+
     /**
      * Extract JWT token from request.
      *
@@ -63,4 +106,3 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         return null;
     }
 }
-
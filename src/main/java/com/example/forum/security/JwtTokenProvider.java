@@ -1,22 +1,16 @@
 package com.example.forum.security;
 
+import com.example.forum.model.Role;
+import com.example.forum.model.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
-import io.jsonwebtoken.security.SignatureException;
 import lombok.extern.slf4j.Slf4j;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import java.security.Key;
-import java.util.Arrays;
-import java.util.Collection;
 import java.util.Date;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 /**
  * Provider for JWT token operations.
@@ -25,6 +19,16 @@ import java.util.stream.Collectors;
 @Slf4j
 public class JwtTokenProvider {
 
+    /**
+     * The identity carried by a token. The user ID and role are null for tokens issued before
+     * they were added to the claims.
+     */
+    public record TokenClaims(String username, Long userId, Role role) {
+    }
+
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String ROLE_CLAIM = "role";
+
     @Value("${app.jwt.secret:default-secret-key-that-is-long-enough-for-security}")
     private String jwtSecret;
 
@@ -40,25 +44,21 @@ public class JwtTokenProvider {
     }
 
     /**
-     * Generate a JWT token for a user.
+     * Generate a JWT token for a user, embedding the user ID and role so requests can be
+     * authenticated without loading the user.
      *
-     * @param authentication the authentication object
+     * @param user the authenticated user
      * @return the JWT token
      */
-    public String generateToken(Authentication authentication) {
-        UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
-        
+    public String generateToken(User user) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
-        
-        // Collect user authorities to include in the token
-        String authorities = authentication.getAuthorities().stream()
-                .map(GrantedAuthority::getAuthority)
-                .collect(Collectors.joining(","));
-        
+
         return Jwts.builder()
-                .setSubject(userPrincipal.getUsername())
-                .claim("roles", authorities)
+                .setSubject(user.getUsername())
+                .claim("roles", "ROLE_" + user.getRole().name())
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(ROLE_CLAIM, user.getRole().name())
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
                 .signWith(key)
@@ -66,78 +66,35 @@ public class JwtTokenProvider {
     }
 
     /**
-     * Get username from JWT token.
-     *
-     * @param token the JWT token
-     * @return the username
-     */
-    public String getUsernameFromJWT(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        
-        return claims.getSubject();
-    }
-
-    /**
-     * Get authorities from JWT token.
+     * Validate a JWT token and read its identity claims, parsing the token only once.
      *
      * @param token the JWT token
-     * @return the collection of authorities
+     * @return the claims, or empty if the token is invalid or expired
      */
-    public Collection<? extends GrantedAuthority> getAuthoritiesFromJWT(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        
-        String roles = (String) claims.get("roles");
-        
-        return Arrays.stream(roles.split(","))
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * Create authentication from JWT token.
-     *
-     * @param token       the JWT token
-     * @param userDetails the user details
-     * @return the authentication
-     */
-    public Authentication getAuthentication(String token, UserDetails userDetails) {
-        Collection<? extends GrantedAuthority> authorities = getAuthoritiesFromJWT(token);
-        
-        return new UsernamePasswordAuthenticationToken(userDetails, "", authorities);
-    }
-
-    /**
-     * Validate JWT token.
-     *
-     * @param authToken the JWT token
-     * @return true if valid, false otherwise
-     */
-    public boolean validateToken(String authToken) {
+    public Optional<TokenClaims> parseToken(String token) {
+        Claims claims;
         try {
-            Jwts.parserBuilder()
+            claims = Jwts.parserBuilder()
                     .setSigningKey(key)
                     .build()
-                    .parseClaimsJws(authToken);
-            return true;
-        } catch (SignatureException ex) {
-            log.error("Invalid JWT signature");
-        } catch (MalformedJwtException ex) {
-            log.error("Invalid JWT token");
-        } catch (ExpiredJwtException ex) {
-            log.error("Expired JWT token");
-        } catch (UnsupportedJwtException ex) {
-            log.error("Unsupported JWT token");
-        } catch (IllegalArgumentException ex) {
-            log.error("JWT claims string is empty");
+                    .parseClaimsJws(token)
+                    .getBody();
+        } catch (JwtException | IllegalArgumentException ex) {
+            log.error("Invalid JWT token: {}", ex.getMessage());
+            return Optional.empty();
+        }
+
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        String role = claims.get(ROLE_CLAIM, String.class);
+        Role parsedRole = null;
+        if (role != null) {
+            try {
+                parsedRole = Role.valueOf(role);
+            } catch (IllegalArgumentException ex) {
+                log.error("Unknown role in JWT token: {}", role);
+                return Optional.empty();
+            }
         }
-        return false;
+        return Optional.of(new TokenClaims(claims.getSubject(), userId != null ? userId.longValue() : null, parsedRole));
     }
 }
@@ -3,6 +3,7 @@ package com.example.forum.service;
 import com.example.forum.model.Comment;
 import com.example.forum.model.Content;
 import com.example.forum.model.ContentType;
+import com.example.forum.pagination.CursorPage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.multipart.MultipartFile;
@@ -71,6 +72,17 @@ public interface CommentService {
      */
     Page<Comment> getCommentsByPost(Long postId, Long userId, Pageable pageable);
 
+    /**
+     * Get the top-level comments of a post, oldest first, using keyset pagination.
+     *
+     * @param postId the post ID
+     * @param userId the ID of the user requesting the comments
+     * @param after  the cursor returned with the previous page, or null for the first page
+     * @param size   the page size
+     * @return a page of comments with the cursor of the next page
+     */
+    CursorPage<Comment> getCommentsByPostAfter(Long postId, Long userId, String after, int size);
+
     /**
      * Get all replies to a comment, with pagination.
      *
@@ -100,7 +112,7 @@ public interface CommentService {
     void deleteCommentContent(Long contentId, Long userId);
 
     /**
-     * Upvote a comment.
+     * Upvote a comment. Upvoting a comment the user already upvoted changes nothing.
      *
      * @param commentId the comment ID
      * @param userId the user ID
@@ -109,7 +121,7 @@ public interface CommentService {
     Comment upvoteComment(Long commentId, Long userId);
 
     /**
-     * Downvote a comment.
+     * Downvote a comment. Downvoting a comment the user already downvoted changes nothing.
      *
      * @param commentId the comment ID
      * @param userId the user ID
@@ -117,6 +129,15 @@ public interface CommentService {
      */
     Comment downvoteComment(Long commentId, Long userId);
 
+    /**
+     * Withdraw the vote of a user on a comment, if any.
+     *
+     * @param commentId the comment ID
+     * @param userId the user ID
+     * @return the updated comment
+     */
+    Comment clearCommentVote(Long commentId, Long userId);
+
     /**
      * Search for comments by content.
      *
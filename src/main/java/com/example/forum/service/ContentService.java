@@ -0,0 +1,31 @@
+package com.example.forum.service;
+
+import com.example.forum.repository.ContentRepository;
+
+import java.util.Optional;
+
+/**
+ * Service interface for serving content attached to posts and comments.
+ */
+public interface ContentService {
+
+    /**
+     * Get the metadata of a piece of content so it can be downloaded.
+     *
+     * @param id      the content ID
+     * @param userId  the ID of the user downloading the content (for permission check)
+     * @return the content metadata, without its binary data
+     */
+    ContentRepository.DownloadRow getContentForDownload(Long id, Long userId);
+
+    /**
+     * Get the metadata of a resized variant of an image so it can be downloaded.
+     *
+     * @param id      the content ID
+     * @param name    the variant name, such as "thumbnail"
+     * @param userId  the ID of the user downloading the variant (for permission check)
+     * @return the variant metadata, or empty if the variant was not generated (yet) and the
+     *         image itself should be served instead
+     */
+    Optional<ContentRepository.DownloadRow> getVariantForDownload(Long id, String name, Long userId);
+}
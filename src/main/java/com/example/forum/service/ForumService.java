@@ -1,9 +1,11 @@
 package com.example.forum.service;
 
+import com.example.forum.dto.forum.ForumTreeNode;
 import com.example.forum.model.AccessLevel;
 import com.example.forum.model.Forum;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Service interface for managing forum-related operations.
@@ -54,6 +56,44 @@ public interface ForumService {
      */
     List<Forum> getSubforums(Long parentId);
 
+    /**
+     * Get the whole forum hierarchy with post counts.
+     *
+     * @return the root forums with their subforums nested inside them
+     */
+    List<ForumTreeNode> getForumTree();
+
+    /**
+     * Get the IDs of a forum and all of its ancestors, nearest first.
+     *
+     * @param forumId the forum ID
+     * @return the forum ID followed by the IDs of its ancestors up to the root
+     */
+    List<Long> getAncestorIds(Long forumId);
+
+    /**
+     * Get a forum together with all of its descendants, ordered by depth.
+     *
+     * @param forumId the ID of the subtree root
+     * @return the forums of the subtree, starting with the root
+     */
+    List<Forum> getForumSubtree(Long forumId);
+
+    /**
+     * Get the depth of a forum in the hierarchy.
+     *
+     * @param forumId the forum ID
+     * @return the depth (0 for root forums)
+     */
+    int getForumDepth(Long forumId);
+
+    /**
+     * Rebuild the forum hierarchy index if any forum is missing from it.
+     *
+     * @return true if the index was rebuilt, false if it was already complete
+     */
+    boolean rebuildForumHierarchyIfIncomplete();
+
     /**
      * Update a forum's details.
      *
@@ -108,6 +148,15 @@ public interface ForumService {
      */
     List<Forum> getForumsByUserAccessLevel(Long userId, AccessLevel accessLevel);
 
+    /**
+     * Get the IDs of every forum a user can read, including forums readable through access
+     * inherited from an ancestor forum. Used to filter listings and searches in the query.
+     *
+     * @param userId the user ID, may be null
+     * @return the readable forum IDs, empty for anonymous users
+     */
+    Set<Long> getReadableForumIds(Long userId);
+
     /**
      * Check if a user has a specific access level to a forum.
      *
@@ -3,6 +3,9 @@ package com.example.forum.service;
 import com.example.forum.model.Content;
 import com.example.forum.model.ContentType;
 import com.example.forum.model.Post;
+import com.example.forum.pagination.CursorPage;
+import com.example.forum.ranking.RankingMode;
+import com.example.forum.ranking.RankingWindow;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.multipart.MultipartFile;
@@ -63,6 +66,41 @@ public interface PostService {
      */
     Page<Post> getPostsByForum(Long forumId, Long userId, Pageable pageable);
 
+    /**
+     * Get the posts in a forum, newest first, using keyset pagination.
+     *
+     * @param forumId the forum ID
+     * @param userId  the ID of the user viewing the posts
+     * @param after   the cursor returned with the previous page, or null for the first page
+     * @param size    the page size
+     * @return a page of posts with the cursor of the next page
+     */
+    CursorPage<Post> getPostsByForumAfter(Long forumId, Long userId, String after, int size);
+
+    /**
+     * Get the posts in a forum ranked by their votes or comments, best first.
+     *
+     * @param forumId  the forum ID
+     * @param userId   the ID of the user viewing the posts
+     * @param mode     the ranking
+     * @param window   the maximum age of the posts
+     * @param pageable the pagination information; its sort is ignored
+     * @return a page of posts
+     */
+    Page<Post> getRankedPostsByForum(Long forumId, Long userId, RankingMode mode, RankingWindow window,
+                                     Pageable pageable);
+
+    /**
+     * Get the home feed of a user: the newest posts across every forum the user can read,
+     * including the forums they inherit access to, using keyset pagination.
+     *
+     * @param userId the ID of the user
+     * @param after  the cursor returned with the previous page, or null for the first page
+     * @param size   the page size
+     * @return a page of posts with the cursor of the next page
+     */
+    CursorPage<Post> getHomeFeed(Long userId, String after, int size);
+
     /**
      * Get all posts by a user, with pagination.
      *
@@ -124,5 +162,32 @@ public interface PostService {
      * @param userId    the ID of the user deleting the content
      */
     void deletePostContent(Long contentId, Long userId);
+
+    /**
+     * Upvote a post. Upvoting a post the user already upvoted changes nothing.
+     *
+     * @param postId the post ID
+     * @param userId the ID of the voting user
+     * @return the updated post
+     */
+    Post upvotePost(Long postId, Long userId);
+
+    /**
+     * Downvote a post. Downvoting a post the user already downvoted changes nothing.
+     *
+     * @param postId the post ID
+     * @param userId the ID of the voting user
+     * @return the updated post
+     */
+    Post downvotePost(Long postId, Long userId);
+
+    /**
+     * Withdraw the vote of a user on a post, if any.
+     *
+     * @param postId the post ID
+     * @param userId the ID of the voting user
+     * @return the updated post
+     */
+    Post clearPostVote(Long postId, Long userId);
 }
 
@@ -0,0 +1,89 @@
+package com.example.forum.service;
+
+import com.example.forum.model.Content;
+import com.example.forum.model.ContentType;
+import com.example.forum.model.UploadSession;
+
+import java.io.InputStream;
+
+/**
+ * Service interface for resumable uploads of large video and audio attachments.
+ * <p>
+ * An upload is created with its total length, its bytes are sent as chunks at explicit
+ * offsets, in any order and possibly in parallel, and it becomes a piece of content once
+ * every byte has arrived.
+ */
+public interface UploadService {
+
+    /**
+     * Start a resumable upload to a post or a comment.
+     *
+     * @param postId      the ID of the post, or null if uploading to a comment
+     * @param commentId   the ID of the comment, or null if uploading to a post
+     * @param filename    the name of the file
+     * @param description the content description
+     * @param contentType the content type, VIDEO or AUDIO
+     * @param length      the total number of bytes
+     * @param storeInDb   whether to store the content in the database
+     * @param userId      the ID of the user uploading
+     * @return the upload
+     */
+    UploadSession createUpload(Long postId, Long commentId, String filename, String description,
+                               ContentType contentType, long length, boolean storeInDb, Long userId);
+
+    /**
+     * Get an upload in progress.
+     *
+     * @param id     the upload ID
+     * @param userId the ID of the user who started the upload
+     * @return the upload
+     */
+    UploadSession getUpload(String id, Long userId);
+
+    /**
+     * Get the number of bytes received without gaps from the start of the file, which is
+     * where a client that lost track of its chunks resumes.
+     *
+     * @param id     the upload ID
+     * @param userId the ID of the user who started the upload
+     * @return the contiguous offset
+     */
+    long getUploadOffset(String id, Long userId);
+
+    /**
+     * Write a chunk of an upload at its offset. A retried chunk simply overwrites the bytes.
+     *
+     * @param id       the upload ID
+     * @param offset   the offset of the first byte of the chunk
+     * @param length   the number of bytes in the chunk
+     * @param data     the bytes of the chunk
+     * @param checksum the chunk checksum as {@code sha256 <base64 digest>}, or null
+     * @param userId   the ID of the user who started the upload
+     * @return the contiguous offset after the chunk was written
+     */
+    long writeChunk(String id, long offset, long length, InputStream data, String checksum, Long userId);
+
+    /**
+     * Turn a fully received upload into content of its post or comment.
+     *
+     * @param id     the upload ID
+     * @param userId the ID of the user who started the upload
+     * @return the created content
+     */
+    Content completeUpload(String id, Long userId);
+
+    /**
+     * Abandon an upload and delete the bytes received so far.
+     *
+     * @param id     the upload ID
+     * @param userId the ID of the user who started the upload
+     */
+    void cancelUpload(String id, Long userId);
+
+    /**
+     * Delete uploads that were not completed before they expired.
+     *
+     * @return the number of deleted uploads
+     */
+    int purgeExpiredUploads();
+}
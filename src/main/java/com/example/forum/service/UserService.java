@@ -134,6 +134,14 @@ public interface UserService {
      */
     List<User> searchUsers(String searchTerm);
 
+    /**
+     * Get the ID of the currently authenticated user. For JWT-authenticated requests this does
+     * not query the database.
+     *
+     * @return the current user ID, or empty if not authenticated
+     */
+    Optional<Long> getCurrentUserId();
+
     /**
      * Get the currently authenticated user.
      *
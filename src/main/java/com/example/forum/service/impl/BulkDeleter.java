@@ -0,0 +1,109 @@
+package com.example.forum.service.impl;
+
+import com.example.forum.content.ContentBlobStore;
+import com.example.forum.model.VoteTarget;
+import com.example.forum.ranking.PostRanking;
+import com.example.forum.repository.CommentRepository;
+import com.example.forum.repository.ContentRepository;
+import com.example.forum.repository.PostRepository;
+import com.example.forum.repository.VoteRepository;
+import com.example.forum.search.SearchDocument;
+import com.example.forum.search.SearchEngine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Deletes comment threads and posts together with their content using set-based statements.
+ * <p>
+ * Rows are deleted by ID in batches, so the number of statements grows with the number of
+ * batches rather than with the number of comments, and no comment is loaded as an entity.
+ * Callers check permissions and maintain the counters of the surviving rows before calling in,
+ * because comments and posts already loaded in the persistence context are detached by the
+ * deletes.
+ */
+@Component
+@RequiredArgsConstructor
+public class BulkDeleter {
+
+    // Keeps IN lists well below the bind parameter limits of the supported databases
+    static final int BATCH_SIZE = 1000;
+
+    private final CommentRepository commentRepository;
+    private final PostRepository postRepository;
+    private final ContentRepository contentRepository;
+    private final VoteRepository voteRepository;
+    private final ContentBlobStore contentBlobStore;
+    private final SearchEngine searchEngine;
+    private final PostRanking postRanking;
+
+    /**
+     * Delete comments and their content. Replies of the comments must be in the set too.
+     *
+     * @param commentIds the IDs of the comments
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleteComments(List<Long> commentIds) {
+        deleteCommentRows(commentIds);
+        commentIds.forEach(id -> searchEngine.delete(SearchDocument.Kind.COMMENT, id));
+    }
+
+    /**
+     * Delete posts with all of their comments and content.
+     *
+     * @param postIds the IDs of the posts
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deletePosts(List<Long> postIds) {
+        for (List<Long> batch : batches(postIds)) {
+            deleteCommentRows(commentRepository.findIdsByPostIdIn(batch));
+            contentBlobStore.releaseAll(contentRepository.findByPostIdIn(batch));
+            contentRepository.deleteByPostIdIn(batch);
+            voteRepository.deleteByTargetIn(VoteTarget.POST, batch);
+            postRepository.deleteByIdIn(batch);
+            postRanking.postsDeleted(batch);
+            // Removes the comments of the posts from the index too
+            searchEngine.deleteByPosts(batch);
+        }
+    }
+
+    /**
+     * Delete every post in a forum with all of its comments and content.
+     *
+     * @param forumId the ID of the forum
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleteForumPosts(Long forumId) {
+        deletePosts(postRepository.findIdsByForumId(forumId));
+    }
+
+    private void deleteCommentRows(List<Long> commentIds) {
+        List<List<Long>> batches = batches(commentIds);
+        for (List<Long> batch : batches) {
+            contentBlobStore.releaseAll(contentRepository.findByCommentIdIn(batch));
+            contentRepository.deleteByCommentIdIn(batch);
+            voteRepository.deleteByTargetIn(VoteTarget.COMMENT, batch);
+        }
+        // Replies point at their parents, so unlink them all before deleting in any order
+        for (List<Long> batch : batches) {
+            commentRepository.detachFromParents(batch);
+        }
+        for (List<Long> batch : batches) {
+            commentRepository.deleteByIdIn(batch);
+        }
+    }
+
+    private static List<List<Long>> batches(List<Long> ids) {
+        if (ids.size() <= BATCH_SIZE) {
+            return ids.isEmpty() ? List.of() : List.of(ids);
+        }
+        int count = (ids.size() + BATCH_SIZE - 1) / BATCH_SIZE;
+        return IntStream.range(0, count)
+                .mapToObj(i -> ids.subList(i * BATCH_SIZE, Math.min(ids.size(), (i + 1) * BATCH_SIZE)))
+                .toList();
+    }
+}
@@ -1,32 +1,36 @@
 package com.example.forum.service.impl;
 
+import com.example.forum.content.ContentBlobStore;
+import com.example.forum.content.ImageVariantGenerator;
+import com.example.forum.events.ForumEvent;
+import com.example.forum.events.ForumEventBus;
 import com.example.forum.exception.AccessDeniedException;
 import com.example.forum.exception.BadRequestException;
 import com.example.forum.exception.ResourceNotFoundException;
-import com.example.forum.exception.StorageException;
 import com.example.forum.model.*;
+import com.example.forum.pagination.Cursor;
+import com.example.forum.pagination.CursorPage;
+import com.example.forum.ranking.PostRanking;
 import com.example.forum.repository.CommentRepository;
 import com.example.forum.repository.ContentRepository;
+import com.example.forum.repository.PostRepository;
+import com.example.forum.search.SearchDocument;
+import com.example.forum.search.SearchEngine;
 import com.example.forum.service.CommentService;
 import com.example.forum.service.ForumService;
 import com.example.forum.service.PostService;
 import com.example.forum.service.UserService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.List;
-import java.util.UUID;
+import java.util.Set;
 
 /**
  * Implementation of the CommentService interface.
@@ -37,12 +41,17 @@ public class CommentServiceImpl implements CommentService {
 
     private final CommentRepository commentRepository;
     private final ContentRepository contentRepository;
+    private final PostRepository postRepository;
     private final PostService postService;
     private final UserService userService;
     private final ForumService forumService;
-
-    @Value("${app.content.storage.path:./content-storage}")
-    private String contentStoragePath;
+    private final SearchEngine searchEngine;
+    private final ContentBlobStore contentBlobStore;
+    private final ImageVariantGenerator imageVariantGenerator;
+    private final BulkDeleter bulkDeleter;
+    private final VoteRecorder voteRecorder;
+    private final PostRanking postRanking;
+    private final ForumEventBus forumEventBus;
 
     @Override
     @Transactional
@@ -70,7 +79,11 @@ public class CommentServiceImpl implements CommentService {
                 .parentComment(null)
                 .build();
 
-        return commentRepository.save(comment);
+        comment = commentRepository.save(comment);
+        adjustCounters(post, null, 1);
+        searchEngine.index(SearchDocument.of(comment));
+        forumEventBus.publish(ForumEvent.of(ForumEvent.Type.COMMENT_CREATED, comment));
+        return comment;
     }
 
     @Override
@@ -100,7 +113,11 @@ public class CommentServiceImpl implements CommentService {
                 .parentComment(parentComment)
                 .build();
 
-        return commentRepository.save(reply);
+        reply = commentRepository.save(reply);
+        adjustCounters(post, parentComment, 1);
+        searchEngine.index(SearchDocument.of(reply));
+        forumEventBus.publish(ForumEvent.of(ForumEvent.Type.COMMENT_CREATED, reply));
+        return reply;
     }
     @Override
     @Transactional(readOnly = true)
@@ -138,7 +155,10 @@ public class CommentServiceImpl implements CommentService {
         // Update content
         comment.setContent(content);
         
-        return commentRepository.save(comment);
+        comment = commentRepository.save(comment);
+        searchEngine.index(SearchDocument.of(comment));
+        forumEventBus.publish(ForumEvent.of(ForumEvent.Type.COMMENT_UPDATED, comment));
+        return comment;
     }
 
     @Override
@@ -155,44 +175,19 @@ public class CommentServiceImpl implements CommentService {
             throw new AccessDeniedException("You do not have permission to delete this comment");
         }
 
-        // If the comment has replies, we need to handle them
-        List<Comment> replies = commentRepository.findByParentCommentId(id, Pageable.unpaged()).getContent();
-        
-        // Option 1: Delete all replies recursively
-        // This approach recursively deletes all nested comments
-        for (Comment reply : replies) {
-            deleteComment(reply.getId(), userId);
-        }
-
-        // Option 2: Orphan the replies (make them top-level comments)
-        // Uncomment this block if you prefer to orphan replies instead of deleting them
-        /*
-        for (Comment reply : replies) {
-            reply.setParentComment(null);
-            commentRepository.save(reply);
+        // Find the whole thread below the comment with one query, then delete it in batches
+        List<Long> threadIds = commentRepository.findSubtreeIds(id);
+        Post post = comment.getPost();
+        postRepository.adjustCommentCount(post.getId(), -threadIds.size());
+        post.setCommentCount(post.getCommentCount() - threadIds.size());
+        postRanking.commentsChanged(post.getId(), -threadIds.size());
+        Comment parent = comment.getParentComment();
+        if (parent != null) {
+            commentRepository.adjustReplyCount(parent.getId(), -1);
+            parent.setReplyCount(parent.getReplyCount() - 1);
         }
-        */
-
-        // Delete any content associated with the comment
-        List<Content> contents = contentRepository.findByCommentId(id);
-        for (Content content : contents) {
-            // Delete file from disk if it's not stored in DB
-            if (!content.isStoredInDb() && content.getContentPath() != null) {
-                try {
-                    Path filePath = Paths.get(content.getContentPath());
-                    Files.deleteIfExists(filePath);
-                } catch (IOException e) {
-                    // Log the error but continue with deletion
-                    System.err.println("Failed to delete file: " + content.getContentPath());
-                }
-            }
-        }
-
-        // Delete all content records
-        contentRepository.deleteByCommentId(id);
-
-        // Delete the comment
-        commentRepository.delete(comment);
+        bulkDeleter.deleteComments(threadIds);
+        forumEventBus.publish(ForumEvent.of(ForumEvent.Type.COMMENT_DELETED, comment));
     }
 
     @Override
@@ -205,6 +200,22 @@ public class CommentServiceImpl implements CommentService {
         return commentRepository.findByPostIdAndParentCommentIsNull(postId, pageable);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Comment> getCommentsByPostAfter(Long postId, Long userId, String after, int size) {
+        // Check post exists and user has access
+        postService.getPostById(postId, userId);
+
+        Cursor cursor = Cursor.decode(after);
+        int pageSize = CursorPage.clampSize(size);
+        // Fetch one extra row to find out whether there is a next page
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<Comment> rows = cursor == null
+                ? commentRepository.findFirstTopLevelByPostKeyset(postId, limit)
+                : commentRepository.findNextTopLevelByPostKeyset(postId, cursor.createdAt(), cursor.id(), limit);
+        return CursorPage.of(rows, pageSize, Comment::getCreatedAt, Comment::getId);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Page<Comment> getRepliesByComment(Long commentId, Long userId, Pageable pageable) {
@@ -221,13 +232,12 @@ public class CommentServiceImpl implements CommentService {
         // Validate author exists
         userService.getUserById(authorId);
 
-        // Get comments by author
-        Page<Comment> comments = commentRepository.findByUserId(authorId, pageable);
-
-        // Filter comments to only include those in forums the requesting user has access to
-        // TODO: Implement forum access filtering logic
-        
-        return comments;
+        // Only include comments in forums the requesting user can read
+        Set<Long> readableForumIds = forumService.getReadableForumIds(userId);
+        if (readableForumIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return commentRepository.findByUserIdAndPostForumIdIn(authorId, readableForumIds, pageable);
     }
     
     @Override
@@ -237,13 +247,16 @@ public class CommentServiceImpl implements CommentService {
             throw new BadRequestException("Search term cannot be empty");
         }
 
-        // Search for comments
-        Page<Comment> comments = commentRepository.searchByContent(searchTerm, pageable);
+        // Only search forums the user can read, so pages stay full and totals stay exact
+        Set<Long> readableForumIds = forumService.getReadableForumIds(userId);
+        if (readableForumIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
 
-        // Filter comments to only include those in forums the user has access to
-        // TODO: Implement forum access filtering logic
-        
-        return comments;
+        // Search for comments, falling back to a database scan if no search index is kept
+        return searchEngine.search(SearchDocument.Kind.COMMENT, searchTerm, readableForumIds, pageable)
+                .map(hits -> hits.toPage(commentRepository::findAllById, Comment::getId, pageable))
+                .orElseGet(() -> commentRepository.searchByContentInForums(searchTerm, readableForumIds, pageable));
     }
 
     @Override
@@ -264,44 +277,24 @@ public class CommentServiceImpl implements CommentService {
             throw new BadRequestException("File cannot be empty");
         }
 
-        try {
-            // Generate a unique filename
-            String originalFilename = StringUtils.cleanPath(file.getOriginalFilename());
-            String fileExtension = "";
-            if (originalFilename.contains(".")) {
-                fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            }
-            String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
-            // Create content object
-            Content content = Content.builder()
-                    .post(null)
-                    .comment(comment)
-                    .filename(originalFilename)
-                    .description(description)
-                    .contentType(contentType)
-                    .storedInDb(storeInDb)
-                    .build();
-
-            if (storeInDb) {
-                // Store file in database
-                content.setData(file.getBytes());
-                content.setContentPath("db://" + uniqueFilename);
-            } else {
-                // Store file on disk
-                Path storageDirectory = Paths.get(contentStoragePath);
-                if (!Files.exists(storageDirectory)) {
-                    Files.createDirectories(storageDirectory);
-                }
-
-                Path destination = storageDirectory.resolve(uniqueFilename);
-                Files.copy(file.getInputStream(), destination, StandardCopyOption.REPLACE_EXISTING);
-                content.setContentPath(destination.toString());
-            }
-
-            return contentRepository.save(content);
-        } catch (IOException e) {
-            throw new StorageException("Failed to store file", e);
-        }
+        // Create content object
+        String originalFilename = StringUtils.cleanPath(file.getOriginalFilename());
+        Content content = Content.builder()
+                .post(null)
+                .comment(comment)
+                .filename(originalFilename)
+                .description(description)
+                .contentType(contentType)
+                .storedInDb(storeInDb)
+                .build();
+
+        // Store the bytes, sharing them with any identical upload
+        contentBlobStore.attach(content, file, storeInDb);
+        content = contentRepository.save(content);
+
+        // Thumbnails are generated in the background once the upload is committed
+        imageVariantGenerator.scheduleAfterCommit(content);
+        return content;
     }
 
     @Override
@@ -335,16 +328,8 @@ public class CommentServiceImpl implements CommentService {
             throw new AccessDeniedException("You do not have permission to delete content from this comment");
         }
 
-        // Delete file from disk if not stored in DB
-        if (!content.isStoredInDb() && content.getContentPath() != null) {
-            try {
-                Path filePath = Paths.get(content.getContentPath());
-                Files.deleteIfExists(filePath);
-            } catch (IOException e) {
-                // Log the error but continue with deletion
-                System.err.println("Failed to delete file: " + content.getContentPath());
-            }
-        }
+        // Delete the bytes if nothing else references them
+        contentBlobStore.release(content);
 
         // Delete the content record
         contentRepository.delete(content);
@@ -353,22 +338,44 @@ public class CommentServiceImpl implements CommentService {
     @Override
     @Transactional
     public Comment upvoteComment(Long commentId, Long userId) {
-        // Get the comment
-        Comment comment = getCommentById(commentId, userId);
-
-        // Implementation would track user's vote and update the comment's vote count
-        // For simplicity, we just return the comment
-        return comment;
+        return vote(commentId, userId, 1);
     }
 
     @Override
     @Transactional
     public Comment downvoteComment(Long commentId, Long userId) {
-        // Get the comment
-        Comment comment = getCommentById(commentId, userId);
+        return vote(commentId, userId, -1);
+    }
+
+    @Override
+    @Transactional
+    public Comment clearCommentVote(Long commentId, Long userId) {
+        return vote(commentId, userId, 0);
+    }
 
-        // Implementation would track user's vote and update the comment's vote count
-        // For simplicity, we just return the comment
+    private Comment vote(Long commentId, Long userId, int value) {
+        // Voting needs READ access to the forum, the same as seeing the comment
+        Comment comment = getCommentById(commentId, userId);
+        comment.setScore(voteRecorder.vote(VoteTarget.COMMENT, commentId, comment.getScore(), userId, value));
+        forumEventBus.publish(ForumEvent.of(ForumEvent.Type.COMMENT_VOTED, comment));
         return comment;
     }
+
+    /**
+     * Atomically update the comment counter of a post and the reply counter of the parent comment,
+     * mirroring the change on the loaded entities.
+     *
+     * @param post the post of the comment
+     * @param parentComment the parent comment, or null for a top-level comment
+     * @param delta the amount to add (negative to subtract)
+     */
+    private void adjustCounters(Post post, Comment parentComment, int delta) {
+        postRepository.adjustCommentCount(post.getId(), delta);
+        post.setCommentCount(post.getCommentCount() + delta);
+        postRanking.commentsChanged(post.getId(), delta);
+        if (parentComment != null) {
+            commentRepository.adjustReplyCount(parentComment.getId(), delta);
+            parentComment.setReplyCount(parentComment.getReplyCount() + delta);
+        }
+    }
 }
@@ -0,0 +1,55 @@
+package com.example.forum.service.impl;
+
+import com.example.forum.content.ImageVariantGenerator;
+import com.example.forum.exception.AccessDeniedException;
+import com.example.forum.exception.ResourceNotFoundException;
+import com.example.forum.model.AccessLevel;
+import com.example.forum.model.ContentType;
+import com.example.forum.repository.ContentRepository;
+import com.example.forum.repository.ContentVariantRepository;
+import com.example.forum.service.ContentService;
+import com.example.forum.service.ForumService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Implementation of the ContentService interface.
+ */
+@Service
+@RequiredArgsConstructor
+public class ContentServiceImpl implements ContentService {
+
+    private final ContentRepository contentRepository;
+    private final ContentVariantRepository contentVariantRepository;
+    private final ForumService forumService;
+    private final ImageVariantGenerator imageVariantGenerator;
+
+    @Override
+    @Transactional(readOnly = true)
+    public ContentRepository.DownloadRow getContentForDownload(Long id, Long userId) {
+        ContentRepository.DownloadRow content = contentRepository.findDownloadRowById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Content", "id", id));
+
+        // Content is readable by anyone who can read the post or comment it is attached to
+        if (content.getForumId() == null
+                || !forumService.hasForumAccess(content.getForumId(), userId, AccessLevel.READ)) {
+            throw new AccessDeniedException("content", "view");
+        }
+
+        return content;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ContentRepository.DownloadRow> getVariantForDownload(Long id, String name, Long userId) {
+        ContentRepository.DownloadRow content = getContentForDownload(id, userId);
+        if (content.getContentType() != ContentType.IMAGE || !imageVariantGenerator.variantNames().contains(name)) {
+            throw new ResourceNotFoundException("Content variant", "name", name);
+        }
+
+        return contentVariantRepository.findDownloadRow(id, name);
+    }
+}
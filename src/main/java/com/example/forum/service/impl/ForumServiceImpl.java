@@ -1,5 +1,8 @@
 package com.example.forum.service.impl;
 
+import com.example.forum.cache.ForumPermissionCache;
+import com.example.forum.cache.ForumTreeCache;
+import com.example.forum.dto.forum.ForumTreeNode;
 import com.example.forum.exception.AccessDeniedException;
 import com.example.forum.exception.BadRequestException;
 import com.example.forum.exception.DuplicateResourceException;
@@ -9,15 +12,25 @@ import com.example.forum.model.Forum;
 import com.example.forum.model.ForumAccess;
 import com.example.forum.model.User;
 import com.example.forum.repository.ForumAccessRepository;
+import com.example.forum.repository.ForumClosureRepository;
 import com.example.forum.repository.ForumRepository;
+import com.example.forum.search.SearchEngine;
 import com.example.forum.service.ForumService;
 import com.example.forum.service.UserService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -25,11 +38,17 @@ import java.util.stream.Collectors;
  */
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class ForumServiceImpl implements ForumService {
 
     private final ForumRepository forumRepository;
     private final ForumAccessRepository forumAccessRepository;
+    private final ForumClosureRepository forumClosureRepository;
     private final UserService userService;
+    private final ForumPermissionCache permissionCache;
+    private final ForumTreeCache forumTreeCache;
+    private final SearchEngine searchEngine;
+    private final BulkDeleter bulkDeleter;
 
     @Override
     @Transactional
@@ -56,6 +75,8 @@ public class ForumServiceImpl implements ForumService {
                 .build();
         
         forum = forumRepository.save(forum);
+        forumClosureRepository.insertRoot(forum.getId());
+        forumTreeCache.invalidate();
         
         // Grant admin access to the creator
         ForumAccess access = ForumAccess.builder()
@@ -65,6 +86,7 @@ public class ForumServiceImpl implements ForumService {
                 .build();
         
         forumAccessRepository.save(access);
+        permissionCache.invalidateUserAccess(creatorId, forum.getId());
         
         return forum;
     }
@@ -105,6 +127,13 @@ public class ForumServiceImpl implements ForumService {
                 .build();
         
         forum = forumRepository.save(forum);
+        if (forumClosureRepository.findDepth(parentId) == null) {
+            // Parent was created without maintaining the hierarchy index - rebuild it, including the new forum
+            rebuildForumHierarchyIfIncomplete();
+        } else {
+            forumClosureRepository.insertLeaf(parentId, forum.getId());
+        }
+        forumTreeCache.invalidate();
         
         // Grant admin access to the creator
         ForumAccess access = ForumAccess.builder()
@@ -114,6 +143,9 @@ public class ForumServiceImpl implements ForumService {
                 .build();
         
         forumAccessRepository.save(access);
+        permissionCache.invalidateUserAccess(creatorId, forum.getId());
+        // Everyone who can read the parent may read the new subforum too
+        permissionCache.invalidateForum(forum.getId());
         
         return forum;
     }
@@ -142,6 +174,115 @@ public class ForumServiceImpl implements ForumService {
         return forumRepository.findByParentForumId(parentId);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<ForumTreeNode> getForumTree() {
+        return forumTreeCache.get(this::buildForumTree);
+    }
+
+    /**
+     * Build the forum tree from one flat forum query.
+     *
+     * @return the root nodes, ordered by ID
+     */
+    private List<ForumTreeNode> buildForumTree() {
+        // Rows are ordered by ID, so children keep a stable order below their parent
+        List<ForumRepository.ForumTreeRow> rows = forumRepository.findAllTreeRows();
+        Map<Long, ForumTreeNode> nodesById = new HashMap<>();
+        for (ForumRepository.ForumTreeRow row : rows) {
+            nodesById.put(row.getId(), ForumTreeNode.builder()
+                    .id(row.getId())
+                    .name(row.getName())
+                    .description(row.getDescription())
+                    .parentForumId(row.getParentForumId())
+                    .createdAt(row.getCreatedAt())
+                    .updatedAt(row.getUpdatedAt())
+                    .postCount(row.getPostCount())
+                    .subForums(new ArrayList<>())
+                    .build());
+        }
+
+        List<ForumTreeNode> roots = new ArrayList<>();
+        for (ForumRepository.ForumTreeRow row : rows) {
+            ForumTreeNode node = nodesById.get(row.getId());
+            ForumTreeNode parent = row.getParentForumId() != null ? nodesById.get(row.getParentForumId()) : null;
+            if (parent != null) {
+                parent.getSubForums().add(node);
+            } else {
+                roots.add(node);
+            }
+        }
+        return List.copyOf(roots);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Long> getAncestorIds(Long forumId) {
+        List<Long> ancestorIds = forumClosureRepository.findAncestorIds(forumId);
+        if (!ancestorIds.isEmpty()) {
+            return ancestorIds;
+        }
+
+        // Forum is not indexed in the closure table yet - walk the parent references instead
+        Forum forum = getForumById(forumId);
+        Set<Long> path = new LinkedHashSet<>();
+        while (forum != null && path.add(forum.getId())) {
+            forum = forum.getParentForum();
+        }
+        return new ArrayList<>(path);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Forum> getForumSubtree(Long forumId) {
+        List<Forum> subtree = forumClosureRepository.findSubtree(forumId);
+        if (!subtree.isEmpty()) {
+            return subtree;
+        }
+
+        // Forum is not indexed in the closure table yet - walk the subforum collections instead
+        List<Forum> result = new ArrayList<>();
+        List<Forum> level = List.of(getForumById(forumId));
+        Set<Long> visited = new LinkedHashSet<>();
+        while (!level.isEmpty()) {
+            List<Forum> nextLevel = new ArrayList<>();
+            for (Forum forum : level) {
+                if (visited.add(forum.getId())) {
+                    result.add(forum);
+                    nextLevel.addAll(forum.getSubForums());
+                }
+            }
+            nextLevel.sort(Comparator.comparing(Forum::getId));
+            level = nextLevel;
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public int getForumDepth(Long forumId) {
+        Integer depth = forumClosureRepository.findDepth(forumId);
+        if (depth != null) {
+            return depth;
+        }
+        return getAncestorIds(forumId).size() - 1;
+    }
+
+    @Override
+    @Transactional
+    public boolean rebuildForumHierarchyIfIncomplete() {
+        long missing = forumClosureRepository.countForumsWithoutClosure();
+        if (missing == 0) {
+            return false;
+        }
+
+        log.info("{} forums are missing from the forum closure table, rebuilding it", missing);
+        forumClosureRepository.deleteAllRows();
+        forumClosureRepository.rebuildFromParentLinks();
+        permissionCache.invalidateAll();
+        return true;
+    }
+
     @Override
     @Transactional
     public Forum updateForum(Long id, String name, String description, Long userId) {
@@ -185,6 +326,7 @@ public class ForumServiceImpl implements ForumService {
         
         // Save if changes were made
         if (changed) {
+            forumTreeCache.invalidate();
             return forumRepository.save(forum);
         }
         
@@ -209,9 +351,17 @@ public class ForumServiceImpl implements ForumService {
         
         // Delete all forum accesses
         forumAccessRepository.deleteByForumId(id);
-        
-        // Delete the forum
-        forumRepository.delete(forum);
+
+        // Delete the posts, comments and content of the forum in batches of set-based statements
+        bulkDeleter.deleteForumPosts(id);
+
+        // Delete the forum and its hierarchy rows
+        forumClosureRepository.deleteByForumId(id);
+        forumRepository.deleteById(id);
+        permissionCache.invalidateForum(id);
+        forumTreeCache.invalidate();
+        // Only drops documents the posts did not take with them, looked up rather than scanned for
+        searchEngine.deleteByForum(id);
     }
 
     @Override
@@ -251,17 +401,23 @@ public class ForumServiceImpl implements ForumService {
             }
             
             // Check for circular reference
-            Forum checkParent = newParent;
-            while (checkParent != null) {
-                if (checkParent.getId().equals(id)) {
-                    throw new BadRequestException("Cannot move a forum to be a subforum of itself or one of its descendants");
-                }
-                checkParent = checkParent.getParentForum();
+            if (getAncestorIds(newParentId).contains(id)) {
+                throw new BadRequestException("Cannot move a forum to be a subforum of itself or one of its descendants");
             }
             
             forum.setParentForum(newParent);
         }
         
+        // Re-link the whole subtree in the closure table
+        forumClosureRepository.detachSubtree(id);
+        if (newParentId != null) {
+            forumClosureRepository.attachSubtree(id, newParentId);
+        }
+        
+        // Inherited permissions of the whole subtree may have changed
+        permissionCache.invalidateForum(id);
+        forumTreeCache.invalidate();
+        
         return forumRepository.save(forum);
     }
 
@@ -304,49 +460,105 @@ public class ForumServiceImpl implements ForumService {
                 .map(ForumAccess::getForum)
                 .collect(Collectors.toList());
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Set<Long> getReadableForumIds(Long userId) {
+        if (userId == null) {
+            return Set.of();
+        }
+        // Every access level includes READ, and access is inherited by all descendants
+        return new HashSet<>(forumClosureRepository.findReadableForumIds(userId));
+    }
+
     @Override
     @Transactional(readOnly = true)
     public boolean hasForumAccess(Long forumId, Long userId, AccessLevel accessLevel) {
+        if (forumId == null || userId == null) {
+            return false;
+        }
+
+        // Serve from the resolved-permission cache when possible
+        ForumPermissionCache.Entry entry = permissionCache.get(userId, forumId);
+        if (entry == null) {
+            long generation = permissionCache.generation(userId);
+            entry = resolveEffectiveAccess(forumId, userId);
+            if (entry == null) {
+                // Unknown user or forum - nothing worth caching
+                return false;
+            }
+            permissionCache.put(userId, forumId, entry.level(), entry.path(), generation);
+        }
+
+        return entry.level() != null && entry.level().compareTo(accessLevel) >= 0;
+    }
+
+    /**
+     * Resolve a user's effective access level to a forum. Access granted on a forum is inherited
+     * by all of its subforums, so the effective level is the highest level found on the forum or
+     * any of its ancestors.
+     *
+     * @param forumId the forum ID
+     * @param userId  the user ID
+     * @return the resolved entry, or null if the user or forum does not exist
+     */
+    private ForumPermissionCache.Entry resolveEffectiveAccess(Long forumId, Long userId) {
+        List<Long> ancestorIds = forumClosureRepository.findAncestorIds(forumId);
+        if (ancestorIds.isEmpty()) {
+            return resolveEffectiveAccessByParentWalk(forumId, userId);
+        }
+
+        // One query for the user's access entries on the forum and all of its ancestors
+        AccessLevel effectiveLevel = forumAccessRepository.findByUserIdAndForumIdIn(userId, ancestorIds).stream()
+                .map(ForumAccess::getAccessLevel)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+
+        return new ForumPermissionCache.Entry(effectiveLevel, new LinkedHashSet<>(ancestorIds));
+    }
+
+    /**
+     * Resolve a user's effective access level by walking the parent references one level at a
+     * time. Only used for forums that are not indexed in the closure table yet.
+     *
+     * @param forumId the forum ID
+     * @param userId  the user ID
+     * @return the resolved entry, or null if the user or forum does not exist
+     */
+    private ForumPermissionCache.Entry resolveEffectiveAccessByParentWalk(Long forumId, Long userId) {
         // Validate user exists first
         try {
             userService.getUserById(userId);
         } catch (ResourceNotFoundException e) {
-            return false;
+            return null;
         }
 
         // Check if forum exists
         Optional<Forum> forumOpt = forumRepository.findById(forumId);
         if (forumOpt.isEmpty()) {
-            return false;
+            return null;
         }
-        Forum forum = forumOpt.get();
-        // Get the forum access for the user
-        Optional<ForumAccess> userAccess = forumAccessRepository.findByUserIdAndForumId(userId, forumId);
-        if (userAccess.isPresent()) {
-            AccessLevel userLevel = userAccess.get().getAccessLevel();
-            
-            // ADMIN has all permissions
-            if (userLevel == AccessLevel.ADMIN) {
-                return true;
-            }
-            
-            // WRITE has READ permission
-            if (userLevel == AccessLevel.WRITE && accessLevel == AccessLevel.READ) {
-                return true;
+
+        AccessLevel effectiveLevel = null;
+        Set<Long> path = new LinkedHashSet<>();
+        Forum current = forumOpt.get();
+        while (current != null && path.add(current.getId())) {
+            Optional<ForumAccess> userAccess = forumAccessRepository.findByUserIdAndForumId(userId, current.getId());
+            if (userAccess.isPresent()) {
+                AccessLevel level = userAccess.get().getAccessLevel();
+                if (effectiveLevel == null || level.compareTo(effectiveLevel) > 0) {
+                    effectiveLevel = level;
+                }
             }
-            
-            // Direct level match
-            if (userLevel == accessLevel) {
-                return true;
+
+            // ADMIN is the highest level, ancestors cannot change the outcome
+            if (effectiveLevel == AccessLevel.ADMIN) {
+                break;
             }
+            current = current.getParentForum();
         }
 
-        // If no direct access and this forum has a parent, check parent forums recursively
-        if (forum.getParentForum() != null) {
-            return hasForumAccess(forum.getParentForum().getId(), userId, accessLevel);
-        }
-        
-        return false;
+        return new ForumPermissionCache.Entry(effectiveLevel, path);
     }
 
     @Override
@@ -380,6 +592,7 @@ public class ForumServiceImpl implements ForumService {
             forumAccessRepository.save(access);
         }
         
+        permissionCache.invalidateUserAccess(userId, forumId);
         return true;
     }
 
@@ -415,6 +628,7 @@ public class ForumServiceImpl implements ForumService {
         
         // Delete the access
         forumAccessRepository.delete(accessToRevoke.get());
+        permissionCache.invalidateUserAccess(userId, forumId);
         return true;
     }
 
@@ -456,6 +670,7 @@ public class ForumServiceImpl implements ForumService {
         ForumAccess access = existingAccess.get();
         access.setAccessLevel(accessLevel);
         forumAccessRepository.save(access);
+        permissionCache.invalidateUserAccess(userId, forumId);
         
         return true;
     }
@@ -1,31 +1,47 @@
 package com.example.forum.service.impl;
 
+import com.example.forum.cache.ForumTreeCache;
+import com.example.forum.content.ContentBlobStore;
+import com.example.forum.content.ImageVariantGenerator;
+import com.example.forum.events.ForumEvent;
+import com.example.forum.events.ForumEventBus;
 import com.example.forum.exception.AccessDeniedException;
 import com.example.forum.exception.BadRequestException;
 import com.example.forum.exception.ResourceNotFoundException;
-import com.example.forum.exception.StorageException;
+import com.example.forum.feed.HomeFeed;
 import com.example.forum.model.*;
+import com.example.forum.pagination.Cursor;
+import com.example.forum.pagination.CursorPage;
+import com.example.forum.ranking.PostPosition;
+import com.example.forum.ranking.PostRanking;
+import com.example.forum.ranking.RankingMode;
+import com.example.forum.ranking.RankingWindow;
 import com.example.forum.repository.ContentRepository;
+import com.example.forum.repository.ForumRepository;
 import com.example.forum.repository.PostRepository;
+import com.example.forum.search.SearchDocument;
+import com.example.forum.search.SearchEngine;
 import com.example.forum.service.ForumService;
 import com.example.forum.service.PostService;
 import com.example.forum.service.UserService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Implementation of the PostService interface.
@@ -36,11 +52,18 @@ public class PostServiceImpl implements PostService {
 
     private final PostRepository postRepository;
     private final ContentRepository contentRepository;
+    private final ForumRepository forumRepository;
     private final ForumService forumService;
     private final UserService userService;
-
-    @Value("${app.content.storage.path:./content-storage}")
-    private String contentStoragePath;
+    private final ForumTreeCache forumTreeCache;
+    private final SearchEngine searchEngine;
+    private final ContentBlobStore contentBlobStore;
+    private final ImageVariantGenerator imageVariantGenerator;
+    private final BulkDeleter bulkDeleter;
+    private final VoteRecorder voteRecorder;
+    private final PostRanking postRanking;
+    private final HomeFeed homeFeed;
+    private final ForumEventBus forumEventBus;
 
     @Override
     @Transactional
@@ -70,7 +93,14 @@ public class PostServiceImpl implements PostService {
                 .forum(forum)
                 .build();
 
-        return postRepository.save(post);
+        post = postRepository.save(post);
+        adjustForumPostCount(forum, 1);
+        postRanking.postCreated(post.getId(), forum.getId(), post.getCreatedAt());
+        homeFeed.postCreated(post.getId());
+        forumTreeCache.invalidate();
+        searchEngine.index(SearchDocument.of(post));
+        forumEventBus.publish(ForumEvent.of(ForumEvent.Type.POST_CREATED, post));
+        return post;
     }
 
     @Override
@@ -118,7 +148,9 @@ public class PostServiceImpl implements PostService {
 
         // Save if changes were made
         if (changed) {
-            return postRepository.save(post);
+            post = postRepository.save(post);
+            searchEngine.index(SearchDocument.of(post));
+            forumEventBus.publish(ForumEvent.of(ForumEvent.Type.POST_UPDATED, post));
         }
 
         return post;
@@ -139,26 +171,12 @@ public class PostServiceImpl implements PostService {
             throw new AccessDeniedException("post", "delete");
         }
 
-        // Delete any content associated with the post
-        List<Content> contents = contentRepository.findByPostId(id);
-        for (Content content : contents) {
-            // Delete file from disk if it's not stored in DB
-            if (!content.isStoredInDb() && content.getContentPath() != null) {
-                try {
-                    Path filePath = Paths.get(content.getContentPath());
-                    Files.deleteIfExists(filePath);
-                } catch (IOException e) {
-                    // Log the error but continue with deletion
-                    System.err.println("Failed to delete file: " + content.getContentPath());
-                }
-            }
-        }
-
-        // Delete all content records
-        contentRepository.deleteByPostId(id);
+        adjustForumPostCount(post.getForum(), -1);
 
-        // Delete the post
-        postRepository.delete(post);
+        // Delete the post with its comments and all of their content in a few statements
+        bulkDeleter.deletePosts(List.of(id));
+        forumTreeCache.invalidate();
+        forumEventBus.publish(ForumEvent.of(ForumEvent.Type.POST_DELETED, post));
     }
 
     @Override
@@ -172,19 +190,88 @@ public class PostServiceImpl implements PostService {
         return postRepository.findByForumId(forumId, pageable);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Post> getPostsByForumAfter(Long forumId, Long userId, String after, int size) {
+        // Check if user has at least READ access to the forum
+        if (!forumService.hasForumAccess(forumId, userId, AccessLevel.READ)) {
+            throw new AccessDeniedException("forum", "view posts in");
+        }
+
+        Cursor cursor = Cursor.decode(after);
+        int pageSize = CursorPage.clampSize(size);
+        // Fetch one extra row to find out whether there is a next page
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<Post> rows = cursor == null
+                ? postRepository.findFirstByForumKeyset(forumId, limit)
+                : postRepository.findNextByForumKeyset(forumId, cursor.createdAt(), cursor.id(), limit);
+        return CursorPage.of(rows, pageSize, Post::getCreatedAt, Post::getId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Post> getRankedPostsByForum(Long forumId, Long userId, RankingMode mode, RankingWindow window,
+                                            Pageable pageable) {
+        // Check if user has at least READ access to the forum
+        if (!forumService.hasForumAccess(forumId, userId, AccessLevel.READ)) {
+            throw new AccessDeniedException("forum", "view posts in");
+        }
+
+        // The order comes from the in-memory ranking, the database only loads the page by ID
+        Page<Long> ids = postRanking.rank(forumId, mode, window, pageable);
+        Map<Long, Post> posts = postRepository.findAllById(ids.getContent()).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        List<Post> ranked = ids.getContent().stream()
+                .map(posts::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(ranked, pageable, ids.getTotalElements());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Post> getHomeFeed(Long userId, String after, int size) {
+        Cursor cursor = Cursor.decode(after);
+        int pageSize = CursorPage.clampSize(size);
+        // The feed positions are in whole seconds, like the creation times of the recency lists
+        PostPosition start = cursor == null ? null
+                : new PostPosition(cursor.createdAt().toEpochSecond(ZoneOffset.UTC), cursor.id(), 0);
+        // Fetch one extra position to find out whether there is a next page
+        List<PostPosition> positions = homeFeed.read(userId, start, pageSize + 1);
+        boolean hasNext = positions.size() > pageSize;
+        if (hasNext) {
+            positions = positions.subList(0, pageSize);
+        }
+
+        Map<Long, Post> posts = postRepository.findAllById(positions.stream().map(PostPosition::postId).toList())
+                .stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        List<Post> feed = positions.stream()
+                .map(position -> posts.get(position.postId()))
+                .filter(Objects::nonNull)
+                .toList();
+        // Continue after the last position even if its post was deleted meanwhile
+        String nextCursor = null;
+        if (hasNext) {
+            PostPosition last = positions.get(positions.size() - 1);
+            nextCursor = Cursor.after(LocalDateTime.ofEpochSecond(last.createdAt(), 0, ZoneOffset.UTC), last.postId())
+                    .encode();
+        }
+        return new CursorPage<>(feed, nextCursor, hasNext);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Page<Post> getPostsByUser(Long authorId, Long userId, Pageable pageable) {
         // Validate author exists
         userService.getUserById(authorId);
 
-        // Get posts by author
-        Page<Post> posts = postRepository.findByUserId(authorId, pageable);
-
-        // Filter posts to only include those in forums the requesting user has access to
-        // TODO: Implement forum access filtering logic
-        
-        return posts;
+        // Only include posts in forums the requesting user can read
+        Set<Long> readableForumIds = forumService.getReadableForumIds(userId);
+        if (readableForumIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return postRepository.findByUserIdAndForumIdIn(authorId, readableForumIds, pageable);
     }
     
     @Override
@@ -194,12 +281,16 @@ public class PostServiceImpl implements PostService {
             throw new BadRequestException("Search term cannot be empty");
         }
 
-        // Search for posts
-        Page<Post> posts = postRepository.searchByTitleOrContent(searchTerm, pageable);
+        // Only search forums the user can read, so pages stay full and totals stay exact
+        Set<Long> readableForumIds = forumService.getReadableForumIds(userId);
+        if (readableForumIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
 
-        // Filter posts to only include those in forums the user has access to
-        // TODO: Implement forum access filtering logic
-        return posts;
+        // Search for posts, falling back to a database scan if no search index is kept
+        return searchEngine.search(SearchDocument.Kind.POST, searchTerm, readableForumIds, pageable)
+                .map(hits -> hits.toPage(postRepository::findAllById, Post::getId, pageable))
+                .orElseGet(() -> postRepository.searchByTitleOrContentInForums(searchTerm, readableForumIds, pageable));
     }
 
     @Override
@@ -214,7 +305,9 @@ public class PostServiceImpl implements PostService {
             throw new AccessDeniedException("forum", "view posts in");
         }
 
-        return postRepository.searchByForumAndTitleOrContent(forumId, searchTerm, pageable);
+        return searchEngine.search(SearchDocument.Kind.POST, searchTerm, List.of(forumId), pageable)
+                .map(hits -> hits.toPage(postRepository::findAllById, Post::getId, pageable))
+                .orElseGet(() -> postRepository.searchByForumAndTitleOrContent(forumId, searchTerm, pageable));
     }
 
     @Override
@@ -236,45 +329,24 @@ public class PostServiceImpl implements PostService {
             throw new BadRequestException("File cannot be empty");
         }
 
-        try {
-            // Generate a unique filename
-            String originalFilename = StringUtils.cleanPath(file.getOriginalFilename());
-            String fileExtension = "";
-            if (originalFilename.contains(".")) {
-                fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            }
-            String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
-
-            // Create content object
-            Content content = Content.builder()
-                    .post(post)
-                    .comment(null)
-                    .filename(originalFilename)
-                    .description(description)
-                    .contentType(contentType)
-                    .storedInDb(storeInDb)
-                    .build();
-
-            if (storeInDb) {
-                // Store file in database
-                content.setData(file.getBytes());
-                content.setContentPath("db://" + uniqueFilename);
-            } else {
-                // Store file on disk
-                Path storageDirectory = Paths.get(contentStoragePath);
-                if (!Files.exists(storageDirectory)) {
-                    Files.createDirectories(storageDirectory);
-                }
-
-                Path destination = storageDirectory.resolve(uniqueFilename);
-                Files.copy(file.getInputStream(), destination, StandardCopyOption.REPLACE_EXISTING);
-                content.setContentPath(destination.toString());
-            }
-
-            return contentRepository.save(content);
-        } catch (IOException e) {
-            throw new StorageException("Failed to store file", e);
-        }
+        // Create content object
+        String originalFilename = StringUtils.cleanPath(file.getOriginalFilename());
+        Content content = Content.builder()
+                .post(post)
+                .comment(null)
+                .filename(originalFilename)
+                .description(description)
+                .contentType(contentType)
+                .storedInDb(storeInDb)
+                .build();
+
+        // Store the bytes, sharing them with any identical upload
+        contentBlobStore.attach(content, file, storeInDb);
+        content = contentRepository.save(content);
+
+        // Thumbnails are generated in the background once the upload is committed
+        imageVariantGenerator.scheduleAfterCommit(content);
+        return content;
     }
 
     @Override
@@ -309,18 +381,47 @@ public class PostServiceImpl implements PostService {
             throw new AccessDeniedException("post content", "delete");
         }
 
-        // Delete file from disk if not stored in DB
-        if (!content.isStoredInDb() && content.getContentPath() != null) {
-            try {
-                Path filePath = Paths.get(content.getContentPath());
-                Files.deleteIfExists(filePath);
-            } catch (IOException e) {
-                // Log the error but continue with deletion
-                System.err.println("Failed to delete file: " + content.getContentPath());
-            }
-        }
+        // Delete the bytes if nothing else references them
+        contentBlobStore.release(content);
 
         // Delete the content record
         contentRepository.delete(content);
     }
+
+    @Override
+    @Transactional
+    public Post upvotePost(Long postId, Long userId) {
+        return vote(postId, userId, 1);
+    }
+
+    @Override
+    @Transactional
+    public Post downvotePost(Long postId, Long userId) {
+        return vote(postId, userId, -1);
+    }
+
+    @Override
+    @Transactional
+    public Post clearPostVote(Long postId, Long userId) {
+        return vote(postId, userId, 0);
+    }
+
+    private Post vote(Long postId, Long userId, int value) {
+        // Voting needs READ access to the forum, the same as seeing the post
+        Post post = getPostById(postId, userId);
+        post.setScore(voteRecorder.vote(VoteTarget.POST, postId, post.getScore(), userId, value));
+        forumEventBus.publish(ForumEvent.of(ForumEvent.Type.POST_VOTED, post));
+        return post;
+    }
+
+    /**
+     * Atomically update the post counter of a forum and mirror the change on the loaded entity.
+     *
+     * @param forum the forum
+     * @param delta the amount to add (negative to subtract)
+     */
+    private void adjustForumPostCount(Forum forum, int delta) {
+        forumRepository.adjustPostCount(forum.getId(), delta);
+        forum.setPostCount(forum.getPostCount() + delta);
+    }
 }
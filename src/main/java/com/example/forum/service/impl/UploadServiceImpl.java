@@ -0,0 +1,428 @@
+package com.example.forum.service.impl;
+
+import com.example.forum.content.ContentBlobStore;
+import com.example.forum.exception.AccessDeniedException;
+import com.example.forum.exception.BadRequestException;
+import com.example.forum.exception.ResourceNotFoundException;
+import com.example.forum.exception.StorageException;
+import com.example.forum.model.*;
+import com.example.forum.repository.ContentRepository;
+import com.example.forum.repository.UploadChunkRepository;
+import com.example.forum.repository.UploadSessionRepository;
+import com.example.forum.service.CommentService;
+import com.example.forum.service.ForumService;
+import com.example.forum.service.PostService;
+import com.example.forum.service.UploadService;
+import com.example.forum.service.UserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Implementation of the UploadService interface.
+ * <p>
+ * Each upload has a part file of its declared length. Chunks are written into it with
+ * positional {@link FileChannel} writes, so several can be in flight at once, and a chunk is
+ * only recorded once all of its bytes arrived and matched their checksum. Writing a chunk
+ * holds no database transaction while the bytes are streamed.
+ * <p>
+ * Chunks are written under the read lock of their upload and the upload is completed under its
+ * write lock, so the part file is never hashed or stored while a chunk is still being written
+ * into it. Either side is rejected while the other one holds the lock.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UploadServiceImpl implements UploadService {
+
+    private static final String CHECKSUM_ALGORITHM = "sha256";
+    private static final String PART_SUFFIX = ".part";
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UploadChunkRepository uploadChunkRepository;
+    private final ContentRepository contentRepository;
+    private final PostService postService;
+    private final CommentService commentService;
+    private final ForumService forumService;
+    private final UserService userService;
+    private final ContentBlobStore contentBlobStore;
+
+    // Part files live next to stored content, so finished uploads can be moved into place
+    @Value("${app.content.storage.path:./content-storage}")
+    private String contentStoragePath;
+
+    @Value("${app.content.upload.max-length-bytes:2147483648}")
+    private long maxLength;
+
+    @Value("${app.content.upload.max-chunk-bytes:16777216}")
+    private long maxChunkLength;
+
+    @Value("${app.content.upload.expiry-ms:86400000}")
+    private long expiryMs;
+
+    // Locks of the uploads written or completed since the application started, by upload ID
+    private final Map<String, ReadWriteLock> uploadLocks = new ConcurrentHashMap<>();
+
+    @Override
+    @Transactional
+    public UploadSession createUpload(Long postId, Long commentId, String filename, String description,
+                                      ContentType contentType, long length, boolean storeInDb, Long userId) {
+        if (contentType != ContentType.VIDEO && contentType != ContentType.AUDIO) {
+            throw new BadRequestException("Resumable uploads are only accepted for video and audio");
+        }
+        if ((postId == null) == (commentId == null)) {
+            throw new BadRequestException("An upload must be attached to either a post or a comment");
+        }
+        if (filename == null || filename.trim().isEmpty()) {
+            throw new BadRequestException("Filename cannot be empty");
+        }
+        if (length <= 0 || length > maxLength) {
+            throw new BadRequestException("Upload length must be between 1 and " + maxLength + " bytes");
+        }
+
+        UploadSession session = UploadSession.builder()
+                .id(UUID.randomUUID().toString())
+                .user(userService.getUserById(userId))
+                .filename(StringUtils.cleanPath(filename))
+                .description(description)
+                .contentType(contentType)
+                .storeInDb(storeInDb)
+                .length(length)
+                .expiresAt(LocalDateTime.now().plusNanos(expiryMs * 1_000_000))
+                .build();
+        if (postId != null) {
+            session.setPost(postService.getPostById(postId, userId));
+        } else {
+            session.setComment(commentService.getCommentById(commentId, userId));
+        }
+        checkCanAttach(session, userId);
+
+        try {
+            Files.createDirectories(partFile(session.getId()).getParent());
+            Files.createFile(partFile(session.getId()));
+        } catch (IOException e) {
+            throw new StorageException("Failed to create upload", e);
+        }
+        return uploadSessionRepository.save(session);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UploadSession getUpload(String id, Long userId) {
+        UploadSession session = uploadSessionRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload", "id", id));
+        if (!session.getUser().getId().equals(userId)) {
+            throw new AccessDeniedException("upload", "access");
+        }
+        if (session.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new ResourceNotFoundException("Upload", "id", id);
+        }
+        return session;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getUploadOffset(String id, Long userId) {
+        getUpload(id, userId);
+        return contiguousOffset(uploadChunkRepository.findBySessionIdOrderByStartOffset(id));
+    }
+
+    @Override
+    public long writeChunk(String id, long offset, long length, InputStream data, String checksum, Long userId) {
+        // Looked up before its lock is created, so made-up IDs leave no lock behind
+        getUpload(id, userId);
+        Lock lock = uploadLock(id).readLock();
+        if (!lock.tryLock()) {
+            throw new BadRequestException("Upload is being completed");
+        }
+        try {
+            return write(id, offset, length, data, checksum, userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long write(String id, long offset, long length, InputStream data, String checksum, Long userId) {
+        UploadSession session = getUpload(id, userId);
+        if (offset < 0 || length <= 0 || offset + length > session.getLength()) {
+            throw new BadRequestException("Chunk must lie within the " + session.getLength() + " bytes of the upload");
+        }
+        if (length > maxChunkLength) {
+            throw new BadRequestException("Chunks cannot be larger than " + maxChunkLength + " bytes");
+        }
+        byte[] expectedDigest = parseChecksum(checksum);
+
+        MessageDigest digest = sha256();
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(partFile(id), StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[(int) Math.min(length, 64 * 1024)];
+            int read;
+            while (written < length
+                    && (read = data.read(buffer, 0, (int) Math.min(buffer.length, length - written))) > 0) {
+                digest.update(buffer, 0, read);
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    written += channel.write(chunk, offset + written);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("Upload", "id", id);
+        } catch (IOException e) {
+            throw new StorageException("Failed to write upload chunk", e);
+        }
+
+        // Bytes that were written but not recorded are simply sent again
+        if (written != length) {
+            throw new BadRequestException("Chunk ended after " + written + " of " + length + " bytes");
+        }
+        if (expectedDigest != null && !MessageDigest.isEqual(expectedDigest, digest.digest())) {
+            throw new BadRequestException("Chunk checksum does not match its bytes");
+        }
+
+        uploadChunkRepository.save(UploadChunk.builder()
+                .session(session)
+                .startOffset(offset)
+                .size(length)
+                .build());
+        return contiguousOffset(uploadChunkRepository.findBySessionIdOrderByStartOffset(id));
+    }
+
+    @Override
+    @Transactional
+    public Content completeUpload(String id, Long userId) {
+        // Held until the transaction ends, so no chunk is written into the part file being stored
+        Lock lock = uploadLock(id).writeLock();
+        if (!lock.tryLock()) {
+            throw new BadRequestException("Chunks of the upload are still being written");
+        }
+        boolean releasedLater = false;
+        try {
+            releasedLater = finishAfterCompletion(id, lock);
+            Content content = complete(id, userId);
+            if (!releasedLater) {
+                deletePartFile(id);
+            }
+            return content;
+        } finally {
+            if (!releasedLater) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private Content complete(String id, Long userId) {
+        UploadSession session = getUpload(id, userId);
+        List<UploadChunk> chunks = uploadChunkRepository.findBySessionIdOrderByStartOffset(id);
+        long received = contiguousOffset(chunks);
+        if (received < session.getLength()) {
+            throw new BadRequestException("Upload is missing bytes from offset " + received);
+        }
+        // Access may have been revoked while the upload was in progress
+        checkCanAttach(session, userId);
+
+        Path partFile = partFile(id);
+        if (!Files.isRegularFile(partFile)) {
+            throw new ResourceNotFoundException("Upload", "id", id);
+        }
+
+        Content content = Content.builder()
+                .post(session.getPost())
+                .comment(session.getComment())
+                .filename(session.getFilename())
+                .description(session.getDescription())
+                .contentType(session.getContentType())
+                .storedInDb(session.isStoreInDb())
+                .build();
+
+        // Store the bytes, sharing them with any identical upload. The part file itself is only
+        // deleted once this commits, so a failed completion can be retried
+        contentBlobStore.attach(content, assemble(id, partFile), session.isStoreInDb());
+        content = contentRepository.save(content);
+
+        uploadChunkRepository.deleteAll(chunks);
+        uploadSessionRepository.delete(session);
+        return content;
+    }
+
+    @Override
+    @Transactional
+    public void cancelUpload(String id, Long userId) {
+        UploadSession session = getUpload(id, userId);
+        uploadChunkRepository.deleteAll(uploadChunkRepository.findBySessionIdOrderByStartOffset(id));
+        uploadSessionRepository.delete(session);
+        deletePartFile(id);
+        uploadLocks.remove(id);
+    }
+
+    @Override
+    @Transactional
+    public int purgeExpiredUploads() {
+        List<String> expired = uploadSessionRepository.findExpiredIds(LocalDateTime.now());
+        for (String id : expired) {
+            uploadChunkRepository.deleteAll(uploadChunkRepository.findBySessionIdOrderByStartOffset(id));
+            uploadSessionRepository.deleteById(id);
+            deletePartFile(id);
+            uploadLocks.remove(id);
+        }
+
+        // Uploads deleted along with their post or comment leave their part file behind
+        Path directory = Paths.get(contentStoragePath, "uploads");
+        FileTime cutoff = FileTime.fromMillis(System.currentTimeMillis() - expiryMs);
+        try (DirectoryStream<Path> partFiles = Files.newDirectoryStream(directory, "*" + PART_SUFFIX)) {
+            for (Path partFile : partFiles) {
+                String id = partFile.getFileName().toString().replace(PART_SUFFIX, "");
+                if (Files.getLastModifiedTime(partFile).compareTo(cutoff) < 0
+                        && !uploadSessionRepository.existsById(id)) {
+                    deletePartFile(id);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // No upload was ever started
+        } catch (IOException e) {
+            log.warn("Failed to list part files in {}", directory, e);
+        }
+        return expired.size();
+    }
+
+    /**
+     * Check that the user may add content to the post or comment of an upload, with the same
+     * rules as a direct upload.
+     */
+    private void checkCanAttach(UploadSession session, Long userId) {
+        boolean isAuthor;
+        Long forumId;
+        if (session.getPost() != null) {
+            isAuthor = session.getPost().getUser().getId().equals(userId);
+            forumId = session.getPost().getForum().getId();
+        } else {
+            isAuthor = session.getComment().getUser().getId().equals(userId);
+            forumId = session.getComment().getPost().getForum().getId();
+        }
+        if (!isAuthor && !forumService.hasForumAccess(forumId, userId, AccessLevel.WRITE)) {
+            throw new AccessDeniedException(session.getPost() != null ? "post" : "comment", "add content to");
+        }
+    }
+
+    private ReadWriteLock uploadLock(String id) {
+        return uploadLocks.computeIfAbsent(id, key -> new ReentrantReadWriteLock());
+    }
+
+    /**
+     * Link the part file of an upload to a file that can be consumed by storing it, or copy it
+     * where the file system has no hard links.
+     */
+    private Path assemble(String id, Path partFile) {
+        Path assembled = partFile.resolveSibling(id + ".complete");
+        try {
+            Files.deleteIfExists(assembled);
+            try {
+                Files.createLink(assembled, partFile);
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(partFile, assembled);
+            }
+        } catch (IOException e) {
+            throw new StorageException("Failed to complete upload", e);
+        }
+        return assembled;
+    }
+
+    /**
+     * Release the lock of an upload once the current transaction ends. If the upload was
+     * completed, its part file is deleted and the lock forgotten.
+     *
+     * @return whether the lock will be released, false if there is no transaction
+     */
+    private boolean finishAfterCompletion(String id, Lock lock) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+                if (status == STATUS_COMMITTED) {
+                    deletePartFile(id);
+                    uploadLocks.remove(id);
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Find the end of the run of received bytes that starts at offset zero.
+     */
+    private static long contiguousOffset(List<UploadChunk> chunks) {
+        long offset = 0;
+        for (UploadChunk chunk : chunks) {
+            if (chunk.getStartOffset() > offset) {
+                break;
+            }
+            offset = Math.max(offset, chunk.getStartOffset() + chunk.getSize());
+        }
+        return offset;
+    }
+
+    private static byte[] parseChecksum(String checksum) {
+        if (checksum == null || checksum.isBlank()) {
+            return null;
+        }
+        String[] parts = checksum.trim().split(" ", 2);
+        if (parts.length != 2 || !parts[0].equalsIgnoreCase(CHECKSUM_ALGORITHM)) {
+            throw new BadRequestException("Checksum must be given as '" + CHECKSUM_ALGORITHM + " <base64 digest>'");
+        }
+        try {
+            return Base64.getDecoder().decode(parts[1].trim());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Checksum is not valid base64");
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private Path partFile(String id) {
+        return Paths.get(contentStoragePath, "uploads", id + PART_SUFFIX);
+    }
+
+    private void deletePartFile(String id) {
+        try {
+            Files.deleteIfExists(partFile(id));
+        } catch (IOException e) {
+            log.warn("Failed to delete part file of upload {}", id, e);
+        }
+    }
+}
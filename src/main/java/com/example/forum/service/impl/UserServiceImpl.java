@@ -6,6 +6,8 @@ import com.example.forum.exception.ResourceNotFoundException;
 import com.example.forum.model.Role;
 import com.example.forum.model.User;
 import com.example.forum.repository.UserRepository;
+import com.example.forum.security.ActiveUserCache;
+import com.example.forum.security.AuthenticatedUser;
 import com.example.forum.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
@@ -28,6 +30,7 @@ public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ActiveUserCache activeUserCache;
 
     @Override
     @Transactional
@@ -181,7 +184,9 @@ public class UserServiceImpl implements UserService {
     public User changeUserRole(Long id, Role role) {
         User user = getUserById(id);
         user.setRole(role);
-        return userRepository.save(user);
+        user = userRepository.save(user);
+        activeUserCache.evict(id);
+        return user;
     }
 
     @Override
@@ -190,6 +195,7 @@ public class UserServiceImpl implements UserService {
         User user = getUserById(id);
         user.setActive(false);
         userRepository.save(user);
+        activeUserCache.evict(id);
     }
 
     @Override
@@ -198,6 +204,7 @@ public class UserServiceImpl implements UserService {
         User user = getUserById(id);
         user.setActive(true);
         userRepository.save(user);
+        activeUserCache.evict(id);
     }
 
     @Override
@@ -213,8 +220,23 @@ public class UserServiceImpl implements UserService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Optional<Long> getCurrentUserId() {
+        // JWT-authenticated requests carry the ID in the principal
+        Optional<AuthenticatedUser> principal = AuthenticatedUser.current();
+        if (principal.isPresent()) {
+            return Optional.of(principal.get().id());
+        }
+        return getCurrentUser().map(User::getId);
+    }
+
     @Override
     public Optional<User> getCurrentUser() {
+        Optional<AuthenticatedUser> principal = AuthenticatedUser.current();
+        if (principal.isPresent()) {
+            return userRepository.findById(principal.get().id());
+        }
+
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated() || 
                 "anonymousUser".equals(authentication.getPrincipal())) {
@@ -0,0 +1,303 @@
+package com.example.forum.service.impl;
+
+import com.example.forum.model.VoteTarget;
+import com.example.forum.ranking.PostRanking;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+
+/**
+ * Collects score changes of posts and comments in memory and writes them to the database in
+ * batches, a few times per second.
+ * <p>
+ * Every vote changes the score of one row, so writing each vote through would make concurrent
+ * voters on a popular post wait for each other's row lock. Instead each post and comment with
+ * pending changes gets a {@link LongAdder} for upvotes and one for downvotes, which concurrent
+ * voters add to without contending, and each flush turns all changes to a row into one UPDATE
+ * statement. Scores read from the database lag behind the votes by up to one flush interval.
+ * Written changes to posts are passed on to {@link PostRanking}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VoteCounters {
+
+    private record Key(VoteTarget target, long id) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final PostRanking postRanking;
+
+    private static final class Counter {
+        final LongAdder upvotes = new LongAdder();
+        final LongAdder downvotes = new LongAdder();
+        // When the flusher first found the counter at zero, 0 while it is in use
+        long idleSinceNanos;
+    }
+
+    // Changes read from a counter: upvotes and downvotes
+    private record Delta(long upvotes, long downvotes) {
+
+        Delta plus(Delta other) {
+            return new Delta(upvotes + other.upvotes, downvotes + other.downvotes);
+        }
+
+        long score() {
+            return upvotes - downvotes;
+        }
+    }
+
+    // Counters are dropped only after a while without votes, so a vote that looked one up just
+    // before the drop is not lost
+    private static final long IDLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final ConcurrentHashMap<Key, Counter> pending = new ConcurrentHashMap<>();
+    // Counters dropped by the previous flush, read once more for changes that raced with the drop
+    private Map<Key, Counter> retired = new HashMap<>();
+    private final ReentrantLock flushing = new ReentrantLock();
+    // Shared by votes from before their transaction commits until their change is counted, and
+    // held exclusively while repairing, so a repair never finds a vote that is not counted yet
+    private final ReentrantReadWriteLock commits = new ReentrantReadWriteLock();
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // Written changes must stay written whatever happens to the caller's transaction
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushing.lock();
+        try {
+            flushPending();
+        } finally {
+            flushing.unlock();
+        }
+    }
+
+    /**
+     * Add to the score of a post or comment once the current transaction commits, or right
+     * away if there is no transaction.
+     *
+     * @param target        whether to change a post or a comment
+     * @param id            the ID of the post or comment
+     * @param upvoteDelta   the change of the number of upvotes
+     * @param downvoteDelta the change of the number of downvotes
+     */
+    public void add(VoteTarget target, Long id, int upvoteDelta, int downvoteDelta) {
+        if (upvoteDelta == 0 && downvoteDelta == 0) {
+            return;
+        }
+        Key key = new Key(target, id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private boolean committing;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    commits.readLock().lock();
+                    committing = true;
+                }
+
+                @Override
+                public void afterCommit() {
+                    add(counter(key), upvoteDelta, downvoteDelta);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (committing) {
+                        committing = false;
+                        commits.readLock().unlock();
+                    }
+                }
+            });
+        } else {
+            add(counter(key), upvoteDelta, downvoteDelta);
+        }
+    }
+
+    /**
+     * Get the change to the score of a post or comment that is not written to the database yet.
+     *
+     * @param target whether to look up a post or a comment
+     * @param id     the ID of the post or comment
+     * @return the pending change
+     */
+    public int pending(VoteTarget target, Long id) {
+        Counter counter = pending.get(new Key(target, id));
+        return counter != null ? (int) (counter.upvotes.sum() - counter.downvotes.sum()) : 0;
+    }
+
+    /**
+     * Write the pending changes to the database. If another thread is already flushing this
+     * returns immediately.
+     *
+     * @return the number of updated posts and comments
+     */
+    @Scheduled(fixedDelayString = "${app.votes.flush-interval-ms:250}")
+    public int flush() {
+        if (!flushing.tryLock()) {
+            return 0;
+        }
+        try {
+            return flushPending();
+        } finally {
+            flushing.unlock();
+        }
+    }
+
+    /**
+     * Recompute the scores of posts and comments from their votes and fix the ones that drifted,
+     * e.g. because votes were changed outside the application. Pending changes are written first,
+     * and votes wait for the repair before they commit.
+     *
+     * @return the number of repaired posts and comments
+     */
+    public int reconcile() {
+        flushing.lock();
+        commits.writeLock().lock();
+        try {
+            flushPending();
+            List<Object[]> posts = new ArrayList<>();
+            List<Object[]> comments = new ArrayList<>();
+            transactionTemplate.executeWithoutResult(status -> {
+                posts.addAll(jdbcTemplate.query(
+                        "SELECT p.id, p.upvotes, p.downvotes, COALESCE(v.upvotes, 0), COALESCE(v.downvotes, 0) " +
+                        "FROM posts p LEFT JOIN (SELECT target_id, " +
+                        "SUM(CASE WHEN vote_value = 1 THEN 1 ELSE 0 END) AS upvotes, " +
+                        "SUM(CASE WHEN vote_value = -1 THEN 1 ELSE 0 END) AS downvotes " +
+                        "FROM votes WHERE target = 'POST' GROUP BY target_id) v ON v.target_id = p.id " +
+                        "WHERE p.upvotes <> COALESCE(v.upvotes, 0) OR p.downvotes <> COALESCE(v.downvotes, 0) " +
+                        "OR p.score <> COALESCE(v.upvotes, 0) - COALESCE(v.downvotes, 0)",
+                        (rs, row) -> new Object[]{rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5)}));
+                comments.addAll(jdbcTemplate.query(
+                        "SELECT c.id, COALESCE(v.score, 0) FROM comments c LEFT JOIN (SELECT target_id, " +
+                        "SUM(vote_value) AS score FROM votes WHERE target = 'COMMENT' GROUP BY target_id) v " +
+                        "ON v.target_id = c.id WHERE c.score <> COALESCE(v.score, 0)",
+                        (rs, row) -> new Object[]{rs.getLong(2), rs.getLong(1)}));
+                if (!posts.isEmpty()) {
+                    jdbcTemplate.batchUpdate("UPDATE posts SET score = ?, upvotes = ?, downvotes = ? WHERE id = ?",
+                            posts.stream().map(row -> new Object[]{(long) row[3] - (long) row[4], row[3], row[4], row[0]})
+                                    .toList());
+                }
+                if (!comments.isEmpty()) {
+                    jdbcTemplate.batchUpdate("UPDATE comments SET score = ? WHERE id = ?", comments);
+                }
+            });
+            posts.forEach(row -> postRanking.votesChanged((Long) row[0],
+                    (long) row[3] - (long) row[1], (long) row[4] - (long) row[2]));
+            return posts.size() + comments.size();
+        } finally {
+            commits.writeLock().unlock();
+            flushing.unlock();
+        }
+    }
+
+    private int flushPending() {
+        Map<Key, Delta> deltas = new HashMap<>();
+        retired.forEach((key, counter) -> collect(deltas, key, counter));
+        retired = new HashMap<>();
+        long now = System.nanoTime();
+        for (Map.Entry<Key, Counter> entry : pending.entrySet()) {
+            Counter counter = entry.getValue();
+            if (counter.upvotes.sum() != 0 || counter.downvotes.sum() != 0) {
+                collect(deltas, entry.getKey(), counter);
+                counter.idleSinceNanos = 0;
+            } else if (counter.idleSinceNanos == 0) {
+                counter.idleSinceNanos = now;
+            } else if (now - counter.idleSinceNanos >= IDLE_NANOS && pending.remove(entry.getKey(), counter)) {
+                retired.put(entry.getKey(), counter);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Delta> posts = rows(deltas, VoteTarget.POST);
+        Map<Long, Delta> comments = rows(deltas, VoteTarget.COMMENT);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                update("UPDATE posts SET score = score + ?, upvotes = upvotes + ?, downvotes = downvotes + ? WHERE id = ?",
+                        posts, (id, delta) -> new Object[]{delta.score(), delta.upvotes(), delta.downvotes(), id});
+                update("UPDATE comments SET score = score + ? WHERE id = ?",
+                        comments, (id, delta) -> new Object[]{delta.score(), id});
+            });
+        } catch (RuntimeException e) {
+            // Keep the changes for the next flush
+            log.warn("Failed to write {} score changes, retrying later", deltas.size(), e);
+            deltas.forEach((key, delta) -> add(counter(key), delta.upvotes(), delta.downvotes()));
+            return 0;
+        }
+        // Only once the changes are written, so a failing ranking update cannot get them written twice
+        posts.forEach((id, delta) -> postRanking.votesChanged(id, delta.upvotes(), delta.downvotes()));
+        return deltas.size();
+    }
+
+    // Subtract what was read instead of resetting, so changes made meanwhile are kept
+    private static void collect(Map<Key, Delta> deltas, Key key, Counter counter) {
+        long upvotes = counter.upvotes.sum();
+        long downvotes = counter.downvotes.sum();
+        if (upvotes != 0 || downvotes != 0) {
+            add(counter, -upvotes, -downvotes);
+            deltas.merge(key, new Delta(upvotes, downvotes), Delta::plus);
+        }
+    }
+
+    // Sorted by ID, so that concurrent flushes of several instances lock rows in the same order
+    private static Map<Long, Delta> rows(Map<Key, Delta> deltas, VoteTarget target) {
+        Map<Long, Delta> rows = new TreeMap<>();
+        deltas.forEach((key, delta) -> {
+            if (key.target() == target) {
+                rows.put(key.id(), delta);
+            }
+        });
+        return rows;
+    }
+
+    private void update(String sql, Map<Long, Delta> rows, BiFunction<Long, Delta, Object[]> args) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>(rows.size());
+        rows.forEach((id, delta) -> batch.add(args.apply(id, delta)));
+        jdbcTemplate.batchUpdate(sql, batch);
+    }
+
+    private static void add(Counter counter, long upvoteDelta, long downvoteDelta) {
+        if (upvoteDelta != 0) {
+            counter.upvotes.add(upvoteDelta);
+        }
+        if (downvoteDelta != 0) {
+            counter.downvotes.add(downvoteDelta);
+        }
+    }
+
+    private Counter counter(Key key) {
+        return pending.computeIfAbsent(key, k -> new Counter());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.forum.service.impl;
+
+import com.example.forum.exception.ResourceNotFoundException;
+import com.example.forum.model.User;
+import com.example.forum.model.Vote;
+import com.example.forum.model.VoteTarget;
+import com.example.forum.repository.UserRepository;
+import com.example.forum.repository.VoteRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Records the votes of users on posts and comments and hands the resulting score changes to
+ * {@link VoteCounters}. Callers check that the user may see the post or comment.
+ */
+@Component
+@RequiredArgsConstructor
+public class VoteRecorder {
+
+    private final VoteRepository voteRepository;
+    private final UserRepository userRepository;
+    private final VoteCounters voteCounters;
+
+    /**
+     * Set the vote of a user on a post or comment. Setting the vote the user already cast
+     * changes nothing, so repeated requests are harmless.
+     *
+     * @param target      whether the vote is on a post or a comment
+     * @param targetId    the ID of the post or comment
+     * @param storedScore the score of the post or comment as loaded from the database
+     * @param userId      the ID of the user
+     * @param value       1 to upvote, -1 to downvote, 0 to withdraw the vote
+     * @return the score including this vote and the changes not written to the database yet
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int vote(VoteTarget target, Long targetId, int storedScore, Long userId, int value) {
+        // The votes of a user are recorded one at a time, so concurrent requests see each other's
+        // vote and a change is never counted twice. Locking the vote alone would not cover the
+        // first vote, which has no row to lock yet.
+        User user = userRepository.findByIdForUpdate(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
+        Optional<Vote> existing = voteRepository.findByUserAndTarget(userId, target, targetId);
+        int previous = existing.map(Vote::getValue).orElse(0);
+        if (value != previous) {
+            if (value == 0) {
+                voteRepository.delete(existing.get());
+            } else if (existing.isPresent()) {
+                existing.get().setValue(value);
+            } else {
+                voteRepository.save(Vote.builder()
+                        .user(user)
+                        .target(target)
+                        .targetId(targetId)
+                        .value(value)
+                        .build());
+            }
+            voteCounters.add(target, targetId, count(value, 1) - count(previous, 1),
+                    count(value, -1) - count(previous, -1));
+        }
+        // The change of this vote is only added to the counters once it commits
+        return storedScore + voteCounters.pending(target, targetId) + value - previous;
+    }
+
+    private static int count(int vote, int direction) {
+        return vote == direction ? 1 : 0;
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.forum.content;
+
+import com.example.forum.model.Content;
+import com.example.forum.model.ContentBlob;
+import com.example.forum.model.ContentBlobData;
+import com.example.forum.repository.ContentBlobDataRepository;
+import com.example.forum.repository.ContentBlobRepository;
+import com.example.forum.repository.ContentRepository;
+import com.example.forum.repository.ContentVariantRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the content-addressed blob store.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ContentBlobStoreTest {
+
+    // SHA-256 of "same bytes"
+    private static final String HASH = "58100dc8fc06562ce3e578231dc948e083520ee49c4b4ee5a5a28bb4b4003feb";
+
+    @TempDir
+    Path storage;
+
+    @Mock
+    private ContentBlobRepository contentBlobRepository;
+
+    @Mock
+    private ContentBlobDataRepository contentBlobDataRepository;
+
+    @Mock
+    private StorageDeletionQueue storageDeletionQueue;
+
+    private ContentBlobStore contentBlobStore;
+
+    @BeforeEach
+    void setUp() {
+        FileSystemContentStorage fileSystemStorage = new FileSystemContentStorage();
+        ReflectionTestUtils.setField(fileSystemStorage, "contentStoragePath", storage.toString());
+        ContentStorageRegistry registry = new ContentStorageRegistry(List.of(fileSystemStorage,
+                new DatabaseContentStorage(contentBlobDataRepository, mock(JdbcTemplate.class))));
+
+        contentBlobStore = new ContentBlobStore(contentBlobRepository, mock(ContentRepository.class),
+                mock(ContentVariantRepository.class), registry, storageDeletionQueue);
+        ReflectionTestUtils.setField(contentBlobStore, "contentStoragePath", storage.toString());
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void testIdenticalUploadsShareOneBlob() throws Exception {
+        when(contentBlobRepository.findRefBySha256(anyString())).thenReturn(Optional.empty());
+        when(contentBlobRepository.save(any(ContentBlob.class))).thenAnswer(invocation -> {
+            ContentBlob blob = invocation.getArgument(0);
+            blob.setId(1L);
+            return blob;
+        });
+
+        Content first = new Content();
+        contentBlobStore.attach(first, upload(), false);
+
+        String sha256 = first.getBlob().getSha256();
+        assertEquals(HASH, sha256);
+        // The blob is stored two directories down, named after its hash
+        Path file = Path.of(first.getContentPath());
+        assertEquals(storage.resolve("58").resolve("10"), file.getParent());
+        assertTrue(file.getFileName().toString().startsWith(sha256 + "-"));
+        assertEquals("same bytes", Files.readString(file));
+        assertEquals(1, first.getBlob().getRefCount());
+        // Only the blob is left in the storage directory
+        try (var files = Files.walk(storage)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+
+        // The second upload of the same bytes points at the first blob
+        when(contentBlobRepository.findRefBySha256(sha256))
+                .thenReturn(Optional.of(fileRef(file)));
+        when(contentBlobRepository.getReferenceById(1L)).thenReturn(first.getBlob());
+        when(contentBlobRepository.adjustRefCount(1L, 1)).thenReturn(1);
+
+        Content second = new Content();
+        contentBlobStore.attach(second, upload(), true);
+
+        assertSame(first.getBlob(), second.getBlob());
+        assertFalse(second.isStoredInDb());
+        assertEquals(file.toString(), second.getContentPath());
+        verify(contentBlobRepository).adjustRefCount(1L, 1);
+        verify(contentBlobRepository, times(1)).save(any(ContentBlob.class));
+    }
+
+    @Test
+    void testUploadStoresBytesAgainWhenMatchingBlobWasDeletedMeanwhile() throws Exception {
+        Path file = storage.resolve("58").resolve("10").resolve(HASH);
+        when(contentBlobRepository.findRefBySha256(HASH)).thenReturn(Optional.of(fileRef(file)));
+        // A concurrent release deleted the blob before the reference could be added
+        when(contentBlobRepository.adjustRefCount(1L, 1)).thenReturn(0);
+        when(contentBlobRepository.save(any(ContentBlob.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Content content = new Content();
+        contentBlobStore.attach(content, upload(), false);
+
+        verify(contentBlobRepository, never()).getReferenceById(any());
+        assertEquals(1, content.getBlob().getRefCount());
+        // Stored apart from the deleted blob, whose file may still be queued for deletion
+        assertNotEquals(file.toString(), content.getContentPath());
+        assertEquals("same bytes", Files.readString(Path.of(content.getContentPath())));
+    }
+
+    @Test
+    void testReleaseQueuesUnreferencedBlobForDeletion() throws Exception {
+        Path file = Files.writeString(storage.resolve(HASH), "same bytes");
+        Content content = new Content();
+        content.setBlob(ContentBlob.builder().id(1L).sha256(HASH)
+                .storage(FileSystemContentStorage.NAME).location(file.toString()).build());
+        when(contentBlobRepository.findRefById(1L)).thenReturn(Optional.of(fileRef(file)));
+        when(contentBlobRepository.deleteIfUnreferenced(1L)).thenReturn(1);
+
+        contentBlobStore.release(content);
+
+        verify(contentBlobRepository).adjustRefCount(1L, -1);
+        verify(contentBlobRepository, never()).deleteIfUnreferenced(any());
+        assertTrue(Files.exists(file));
+
+        // The blob row is deleted and its file queued for deletion in the same transaction,
+        // and the queue is processed once the commit succeeded
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        verify(contentBlobRepository).flush();
+        verify(storageDeletionQueue).enqueue(FileSystemContentStorage.NAME, file.toString());
+        verify(storageDeletionQueue, never()).processSoon();
+        assertTrue(Files.exists(file));
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        verify(storageDeletionQueue).processSoon();
+    }
+
+    @Test
+    void testReleaseKeepsBlobStillReferenced() throws Exception {
+        Path file = Files.writeString(storage.resolve(HASH), "same bytes");
+        Content content = new Content();
+        content.setBlob(ContentBlob.builder().id(1L).sha256(HASH)
+                .storage(FileSystemContentStorage.NAME).location(file.toString()).build());
+        when(contentBlobRepository.findRefById(1L)).thenReturn(Optional.of(fileRef(file)));
+        when(contentBlobRepository.deleteIfUnreferenced(1L)).thenReturn(0);
+
+        contentBlobStore.release(content);
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        TransactionSynchronizationUtils.triggerAfterCommit();
+
+        assertTrue(Files.exists(file));
+        verifyNoInteractions(storageDeletionQueue);
+    }
+
+    @Test
+    void testDatabaseBlobIsBoundAsStream() throws Exception {
+        when(contentBlobRepository.findRefBySha256(HASH)).thenReturn(Optional.empty());
+        when(contentBlobDataRepository.saveAndFlush(any(ContentBlobData.class))).thenAnswer(invocation -> {
+            ContentBlobData data = invocation.getArgument(0);
+            // The bytes are read from the spooled upload while the row is inserted
+            assertEquals("same bytes", new String(data.getData().getBinaryStream().readAllBytes()));
+            data.setId(5L);
+            return data;
+        });
+        when(contentBlobRepository.save(any(ContentBlob.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Content content = new Content();
+        contentBlobStore.attach(content, upload(), true);
+
+        assertTrue(content.isStoredInDb());
+        assertEquals("db://" + HASH, content.getContentPath());
+        assertEquals(DatabaseContentStorage.NAME, content.getBlob().getStorage());
+        assertEquals("5", content.getBlob().getLocation());
+        assertEquals(10L, content.getBlob().getSize());
+        // The spooled upload is gone
+        try (var files = Files.list(storage)) {
+            assertEquals(0, files.count());
+        }
+
+        // Releasing the last reference deletes the stored bytes too
+        when(contentBlobRepository.findRefById(any())).thenReturn(Optional.of(databaseRef(5L)));
+        when(contentBlobRepository.deleteIfUnreferenced(any())).thenReturn(1);
+        contentBlobStore.release(content);
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        verify(contentBlobDataRepository).deleteDataById(5L);
+        verify(storageDeletionQueue, never()).enqueue(anyString(), anyString());
+    }
+
+    private ContentBlobRepository.BlobRef ref(String storageName, String location) {
+        return new ContentBlobRepository.BlobRef() {
+            public Long getId() { return 1L; }
+            public boolean isStoredInDb() { return DatabaseContentStorage.NAME.equals(storageName); }
+            public String getStorage() { return storageName; }
+            public String getLocation() { return location; }
+        };
+    }
+
+    private ContentBlobRepository.BlobRef fileRef(Path file) {
+        return ref(FileSystemContentStorage.NAME, file.toString());
+    }
+
+    private ContentBlobRepository.BlobRef databaseRef(Long dataId) {
+        return ref(DatabaseContentStorage.NAME, dataId.toString());
+    }
+
+    private MockMultipartFile upload() {
+        return new MockMultipartFile("file", "photo.jpg", "image/jpeg", "same bytes".getBytes());
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.forum.content;
+
+import com.example.forum.model.ContentType;
+import com.example.forum.repository.ContentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for serving content files over HTTP.
+ */
+public class ContentDeliveryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ContentDelivery contentDelivery;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        contentDelivery = new ContentDelivery(mock(JdbcTemplate.class),
+                new ContentStorageRegistry(List.of(new FileSystemContentStorage())));
+        file = tempDir.resolve("clip.mp4");
+        Files.writeString(file, "0123456789abcdef");
+    }
+
+    @Test
+    void testFullDownloadHasStrongEtagAndCacheHeaders() throws Exception {
+        MockHttpServletResponse response = serve(ContentType.IMAGE, new MockHttpServletRequest("GET", "/"));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789abcdef", response.getContentAsString());
+        assertEquals(16, response.getContentLengthLong());
+        assertTrue(response.getHeader("ETag").startsWith("\"7-10-"));
+        assertEquals("max-age=86400, private", response.getHeader("Cache-Control"));
+        assertNull(response.getHeader("Accept-Ranges"));
+
+        // A matching If-None-Match revalidates without a body
+        MockHttpServletRequest revalidate = new MockHttpServletRequest("GET", "/");
+        revalidate.addHeader("If-None-Match", response.getHeader("ETag"));
+        MockHttpServletResponse notModified = serve(ContentType.IMAGE, revalidate);
+        assertEquals(304, notModified.getStatus());
+        assertEquals(0, notModified.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testByteRangesForMedia() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("Range", "bytes=4-7");
+        MockHttpServletResponse partial = serve(ContentType.VIDEO, request);
+
+        assertEquals(206, partial.getStatus());
+        assertEquals("4567", partial.getContentAsString());
+        assertEquals("bytes 4-7/16", partial.getHeader("Content-Range"));
+        assertEquals("bytes", partial.getHeader("Accept-Ranges"));
+
+        // Suffix ranges count from the end
+        MockHttpServletRequest suffix = new MockHttpServletRequest("GET", "/");
+        suffix.addHeader("Range", "bytes=-3");
+        assertEquals("def", serve(ContentType.AUDIO, suffix).getContentAsString());
+
+        MockHttpServletRequest outOfBounds = new MockHttpServletRequest("GET", "/");
+        outOfBounds.addHeader("Range", "bytes=100-");
+        MockHttpServletResponse unsatisfiable = serve(ContentType.VIDEO, outOfBounds);
+        assertEquals(416, unsatisfiable.getStatus());
+        assertEquals("bytes */16", unsatisfiable.getHeader("Content-Range"));
+
+        // A stale If-Range falls back to the whole content
+        MockHttpServletRequest stale = new MockHttpServletRequest("GET", "/");
+        stale.addHeader("Range", "bytes=4-7");
+        stale.addHeader("If-Range", "\"stale\"");
+        assertEquals(200, serve(ContentType.VIDEO, stale).getStatus());
+
+        // Ranges are not offered for other content types
+        MockHttpServletRequest image = new MockHttpServletRequest("GET", "/");
+        image.addHeader("Range", "bytes=4-7");
+        assertEquals(200, serve(ContentType.IMAGE, image).getStatus());
+    }
+
+    @Test
+    void testOnlyTheDeclaredKindOfMediaIsShownInline() throws Exception {
+        MockHttpServletResponse video = serve(ContentType.VIDEO, new MockHttpServletRequest("GET", "/"));
+        assertTrue(video.getContentType().startsWith("video/mp4"));
+        assertTrue(video.getHeader("Content-Disposition").startsWith("inline"));
+
+        // The filename does not match an image, so it is downloaded instead
+        MockHttpServletResponse image = serve(ContentType.IMAGE, new MockHttpServletRequest("GET", "/"));
+        assertTrue(image.getContentType().startsWith("application/octet-stream"));
+        assertTrue(image.getHeader("Content-Disposition").startsWith("attachment"));
+    }
+
+    @Test
+    void testSendfileIsDelegatedToContainer() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.setAttribute(FileSystemContentStorage.SENDFILE_SUPPORT, Boolean.TRUE);
+        request.addHeader("Range", "bytes=2-");
+        MockHttpServletResponse response = serve(ContentType.VIDEO, request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(file.toRealPath().toString(), request.getAttribute(FileSystemContentStorage.SENDFILE_FILENAME));
+        assertEquals(2L, request.getAttribute(FileSystemContentStorage.SENDFILE_START));
+        assertEquals(16L, request.getAttribute(FileSystemContentStorage.SENDFILE_END));
+    }
+
+    private MockHttpServletResponse serve(ContentType contentType, MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        contentDelivery.serve(fileRow(contentType), request, response);
+        return response;
+    }
+
+    private ContentRepository.DownloadRow fileRow(ContentType contentType) {
+        return new ContentRepository.DownloadRow() {
+            public Long getId() { return 7L; }
+            public String getFilename() { return "clip.mp4"; }
+            public ContentType getContentType() { return contentType; }
+            public boolean isStoredInDb() { return false; }
+            public String getContentPath() { return file.toString(); }
+            public LocalDateTime getCreatedAt() { return LocalDateTime.now(); }
+            public Long getForumId() { return 1L; }
+            public Long getBlobId() { return null; }
+            public String getSha256() { return null; }
+            public String getBlobStorage() { return null; }
+            public String getBlobLocation() { return null; }
+            public Long getBlobSize() { return null; }
+        };
+    }
+}
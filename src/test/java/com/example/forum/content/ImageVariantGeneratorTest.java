@@ -0,0 +1,143 @@
+package com.example.forum.content;
+
+import com.example.forum.model.Content;
+import com.example.forum.model.ContentBlob;
+import com.example.forum.model.ContentType;
+import com.example.forum.model.ContentVariant;
+import com.example.forum.repository.ContentRepository;
+import com.example.forum.repository.ContentVariantRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for generating resized variants of images.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ImageVariantGeneratorTest {
+
+    @TempDir
+    Path storage;
+
+    @Mock
+    private ContentRepository contentRepository;
+
+    @Mock
+    private ContentVariantRepository contentVariantRepository;
+
+    @Mock
+    private ContentBlobStore contentBlobStore;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ImageVariantGenerator generator;
+    private Path image;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        FileSystemContentStorage fileSystemStorage = new FileSystemContentStorage();
+        ReflectionTestUtils.setField(fileSystemStorage, "contentStoragePath", storage.toString());
+        generator = new ImageVariantGenerator(contentRepository, contentVariantRepository, contentBlobStore,
+                new ContentStorageRegistry(List.of(fileSystemStorage)), transactionManager);
+        ReflectionTestUtils.setField(generator, "contentStoragePath", storage.toString());
+        generator.init();
+
+        image = storage.resolve("photo");
+        ImageIO.write(new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB), "png", image.toFile());
+    }
+
+    @Test
+    void testOnlySizesSmallerThanTheImageAreGenerated() throws Exception {
+        Content content = Content.builder().id(7L).contentType(ContentType.IMAGE).build();
+        when(contentRepository.findDownloadRowById(7L)).thenReturn(Optional.of(row()));
+        when(contentRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(content));
+        when(contentVariantRepository.findNamesByContentId(7L)).thenReturn(List.of());
+        ContentBlob blob = ContentBlob.builder().id(3L).build();
+        when(contentBlobStore.store(any(Path.class), anyBoolean())).thenAnswer(invocation -> {
+            BufferedImage stored = ImageIO.read(invocation.<Path>getArgument(0).toFile());
+            assertEquals(160, stored.getWidth());
+            return blob;
+        });
+
+        // The 800 pixel variant would be larger than the image itself
+        assertEquals(1, generator.generate(7L));
+
+        ArgumentCaptor<ContentVariant> variant = ArgumentCaptor.forClass(ContentVariant.class);
+        verify(contentVariantRepository).save(variant.capture());
+        assertEquals("thumbnail", variant.getValue().getName());
+        assertEquals("jpg", variant.getValue().getFormat());
+        assertEquals(160, variant.getValue().getWidth());
+        assertEquals(80, variant.getValue().getHeight());
+        assertSame(blob, variant.getValue().getBlob());
+        assertEquals(1, generator.getStats().variantsCreated());
+        // Only the source image is left behind
+        try (var files = Files.list(storage)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void testImagesWithTooManyPixelsAreSkipped() throws Exception {
+        ReflectionTestUtils.setField(generator, "maxPixels", 400L * 200 - 1);
+        when(contentRepository.findDownloadRowById(7L)).thenReturn(Optional.of(row()));
+
+        assertEquals(0, generator.generate(7L));
+
+        verifyNoInteractions(contentBlobStore, contentVariantRepository);
+        assertEquals(1, generator.getStats().skipped());
+    }
+
+    @Test
+    void testLargeImagesAreSubsampledToTwiceTheLargestVariant() {
+        assertEquals(1, ImageVariantGenerator.subsampling(400, 800));
+        assertEquals(1, ImageVariantGenerator.subsampling(3000, 800));
+        assertEquals(25, ImageVariantGenerator.subsampling(40000, 800));
+    }
+
+    @Test
+    void testScalingKeepsAspectRatio() {
+        BufferedImage scaled = ImageVariantGenerator.scale(
+                new BufferedImage(3000, 1000, BufferedImage.TYPE_INT_ARGB), 160, true);
+
+        assertEquals(160, scaled.getWidth());
+        assertEquals(53, scaled.getHeight());
+        assertTrue(scaled.getColorModel().hasAlpha());
+    }
+
+    private ContentRepository.DownloadRow row() {
+        return new ContentRepository.DownloadRow() {
+            public Long getId() { return 7L; }
+            public String getFilename() { return "photo.png"; }
+            public ContentType getContentType() { return ContentType.IMAGE; }
+            public boolean isStoredInDb() { return false; }
+            public String getContentPath() { return image.toString(); }
+            public LocalDateTime getCreatedAt() { return LocalDateTime.now(); }
+            public Long getForumId() { return 1L; }
+            public Long getBlobId() { return 2L; }
+            public String getSha256() { return "abc"; }
+            public String getBlobStorage() { return FileSystemContentStorage.NAME; }
+            public String getBlobLocation() { return image.toString(); }
+            public Long getBlobSize() { return 0L; }
+        };
+    }
+}
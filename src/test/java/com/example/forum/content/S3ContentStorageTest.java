@@ -0,0 +1,187 @@
+package com.example.forum.content;
+
+import com.example.forum.exception.ResourceNotFoundException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the S3 backend against a minimal in-process S3 endpoint.
+ */
+public class S3ContentStorageTest {
+
+    private static final Pattern PART = Pattern.compile("<PartNumber>(\\d+)</PartNumber><ETag>([^<]+)</ETag>");
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private S3ContentStorage storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+
+        storage = new S3ContentStorage();
+        ReflectionTestUtils.setField(storage, "endpoint", "http://127.0.0.1:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(storage, "region", "us-east-1");
+        ReflectionTestUtils.setField(storage, "bucket", "forum");
+        ReflectionTestUtils.setField(storage, "accessKey", "test");
+        ReflectionTestUtils.setField(storage, "secretKey", "secret");
+        ReflectionTestUtils.setField(storage, "keyPrefix", "content/");
+        ReflectionTestUtils.setField(storage, "partSize", 4L);
+        ReflectionTestUtils.setField(storage, "uploadParallelism", 2);
+        ReflectionTestUtils.setField(storage, "directDownload", true);
+        ReflectionTestUtils.setField(storage, "presignTtlSeconds", 300L);
+        storage.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testSmallUploadIsSentInOnePut() throws Exception {
+        String key = storage.store("abc", spool("tiny"), 4);
+
+        assertTrue(key.startsWith("content/abc-"));
+        assertEquals("tiny", new String(objects.get("/forum/" + key), StandardCharsets.UTF_8));
+        // The same bytes stored again get an object of their own
+        assertNotEquals(key, storage.store("abc", spool("tiny"), 4));
+        assertTrue(uploads.isEmpty());
+    }
+
+    @Test
+    void testLargeUploadIsSentInParts() throws Exception {
+        String key = storage.store("def", spool("0123456789"), 10);
+
+        assertEquals("0123456789", new String(objects.get("/forum/" + key), StandardCharsets.UTF_8));
+        // The completed upload is no longer in progress
+        assertTrue(uploads.isEmpty());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        storage.transfer(key, 3, 5, new MockHttpServletRequest(), response);
+        assertEquals("34567", response.getContentAsString());
+    }
+
+    @Test
+    void testPresignedDownloadAndDelete() throws Exception {
+        String key = storage.store("ghi", spool("data"), 4);
+
+        URI url = storage.presign(key, MediaType.IMAGE_PNG, ContentDisposition.inline().filename("a.png").build())
+                .orElseThrow();
+        assertTrue(url.getRawQuery().contains("X-Amz-Signature="));
+        assertTrue(url.getRawQuery().contains("response-content-type=image%2Fpng"));
+        HttpResponse<String> direct = HttpClient.newHttpClient()
+                .send(HttpRequest.newBuilder(url).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals("data", direct.body());
+
+        storage.delete(key);
+        assertFalse(objects.containsKey("/forum/" + key));
+        // Deleting again is not an error, and reading a deleted object is
+        storage.delete(key);
+        assertThrows(ResourceNotFoundException.class, () ->
+                storage.transfer(key, 0, 4, new MockHttpServletRequest(), new MockHttpServletResponse()));
+    }
+
+    private Path spool(String data) throws IOException {
+        return Files.writeString(Files.createTempFile(tempDir, "spool", ".tmp"), data);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getRawPath();
+        String query = exchange.getRequestURI().getRawQuery() != null ? exchange.getRequestURI().getRawQuery() : "";
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        String method = exchange.getRequestMethod();
+
+        boolean presigned = query.contains("X-Amz-Signature=");
+        if (!presigned && !exchange.getRequestHeaders().getFirst("Authorization").startsWith("AWS4-HMAC-SHA256 ")) {
+            respond(exchange, 403, new byte[0]);
+            return;
+        }
+
+        if (method.equals("POST") && query.equals("uploads")) {
+            uploads.put("upload-1", new TreeMap<>());
+            respond(exchange, 200, ("<InitiateMultipartUploadResult><UploadId>upload-1</UploadId>"
+                    + "</InitiateMultipartUploadResult>").getBytes(StandardCharsets.UTF_8));
+        } else if (method.equals("PUT") && query.startsWith("partNumber=")) {
+            int part = Integer.parseInt(query.substring("partNumber=".length(), query.indexOf('&')));
+            uploads.get("upload-1").put(part, body);
+            exchange.getResponseHeaders().add("ETag", "\"etag-" + part + "\"");
+            respond(exchange, 200, new byte[0]);
+        } else if (method.equals("POST") && query.startsWith("uploadId=")) {
+            Map<Integer, byte[]> parts = uploads.remove("upload-1");
+            ByteArrayOutputStream assembled = new ByteArrayOutputStream();
+            Matcher matcher = PART.matcher(new String(body, StandardCharsets.UTF_8));
+            while (matcher.find()) {
+                assertEquals("\"etag-" + matcher.group(1) + "\"", matcher.group(2));
+                assembled.write(parts.get(Integer.parseInt(matcher.group(1))));
+            }
+            objects.put(path, assembled.toByteArray());
+            respond(exchange, 200, "<CompleteMultipartUploadResult/>".getBytes(StandardCharsets.UTF_8));
+        } else if (method.equals("PUT")) {
+            objects.put(path, body);
+            respond(exchange, 200, new byte[0]);
+        } else if (method.equals("GET")) {
+            byte[] object = objects.get(path);
+            if (object == null) {
+                respond(exchange, 404, new byte[0]);
+                return;
+            }
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range == null) {
+                respond(exchange, 200, object);
+                return;
+            }
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            int start = Integer.parseInt(bounds[0]);
+            int end = Integer.parseInt(bounds[1]);
+            respond(exchange, 206, Arrays.copyOfRange(object, start, end + 1));
+        } else if (method.equals("DELETE")) {
+            uploads.remove("upload-1");
+            respond(exchange, objects.remove(path) != null ? 204 : 404, new byte[0]);
+        } else {
+            respond(exchange, 405, new byte[0]);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
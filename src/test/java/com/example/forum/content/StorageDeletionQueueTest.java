@@ -0,0 +1,94 @@
+package com.example.forum.content;
+
+import com.example.forum.model.StorageDeletion;
+import com.example.forum.repository.ContentBlobRepository;
+import com.example.forum.repository.ContentRepository;
+import com.example.forum.repository.StorageDeletionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the outbox of stored bytes to delete.
+ */
+@ExtendWith(MockitoExtension.class)
+public class StorageDeletionQueueTest {
+
+    @TempDir
+    Path storage;
+
+    @Mock
+    private StorageDeletionRepository storageDeletionRepository;
+
+    @Mock
+    private ContentBlobRepository contentBlobRepository;
+
+    @Mock
+    private ContentRepository contentRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ContentStorage failingStorage;
+
+    private StorageDeletionQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        when(failingStorage.name()).thenReturn("failing");
+        ContentStorageRegistry registry = new ContentStorageRegistry(
+                List.of(new FileSystemContentStorage(), failingStorage));
+        queue = new StorageDeletionQueue(storageDeletionRepository, contentBlobRepository, contentRepository,
+                registry, transactionManager);
+        queue.init();
+    }
+
+    @Test
+    void testProcessDueDeletesFilesAndRetriesFailures() throws Exception {
+        Path orphan = Files.writeString(storage.resolve("orphan"), "bytes");
+        Path reused = Files.writeString(storage.resolve("reused"), "bytes");
+        StorageDeletion fileDeletion = deletion(1L, FileSystemContentStorage.NAME, orphan.toString());
+        StorageDeletion reusedDeletion = deletion(2L, FileSystemContentStorage.NAME, reused.toString());
+        StorageDeletion failedDeletion = deletion(3L, "failing", "key");
+        when(storageDeletionRepository.findDue(any(), any()))
+                .thenReturn(List.of(fileDeletion, reusedDeletion, failedDeletion));
+        // The same bytes were uploaded again before the deletion was processed
+        when(contentBlobRepository.existsByStorageAndLocation(anyString(), anyString()))
+                .thenAnswer(invocation -> reused.toString().equals(invocation.getArgument(1)));
+        doThrow(new IOException("unavailable")).when(failingStorage).delete("key");
+
+        assertEquals(2, queue.processDue());
+
+        assertFalse(Files.exists(orphan));
+        assertTrue(Files.exists(reused));
+        verify(storageDeletionRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(storageDeletionRepository).recordFailure(eq(3L), any(LocalDateTime.class),
+                eq("java.io.IOException: unavailable"));
+    }
+
+    private StorageDeletion deletion(Long id, String storageName, String location) {
+        return StorageDeletion.builder()
+                .id(id)
+                .storage(storageName)
+                .location(location)
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.forum.events;
+
+import com.example.forum.exception.AccessDeniedException;
+import com.example.forum.model.AccessLevel;
+import com.example.forum.repository.PostRepository;
+import com.example.forum.service.ForumService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for pushing events: topics, reducing bursts and isolating slow subscribers.
+ */
+@ExtendWith(MockitoExtension.class)
+class ForumEventBusTest {
+
+    private static final long USER = 3L;
+    private static final long FORUM = 1L;
+
+    @Mock
+    private ForumService forumService;
+
+    @Mock
+    private PostRepository postRepository;
+
+    private ForumEventBus bus;
+    private final List<Disposable> subscriptions = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        bus = new ForumEventBus(forumService, postRepository);
+        ReflectionTestUtils.setField(bus, "bufferSize", 16);
+        ReflectionTestUtils.setField(bus, "coalesceMs", 10L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        subscriptions.forEach(Disposable::dispose);
+        bus.shutdown();
+    }
+
+    private static ForumEvent event(ForumEvent.Type type, long forumId, long postId, Integer score) {
+        return new ForumEvent(type, forumId, postId, null, score, LocalDateTime.now());
+    }
+
+    private List<ForumEvent> listen(CountDownLatch gate) {
+        when(forumService.hasForumAccess(FORUM, USER, AccessLevel.READ)).thenReturn(true);
+        List<ForumEvent> received = new CopyOnWriteArrayList<>();
+        subscriptions.add(bus.subscribe(EventTopic.forum(FORUM), USER).subscribe(event -> {
+            try {
+                assertTrue(gate.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(event);
+        }));
+        return received;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for events");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void testDeliversTheTopicWithBurstsOfVotesReduced() throws Exception {
+        List<ForumEvent> received = listen(new CountDownLatch(0));
+
+        bus.publish(event(ForumEvent.Type.POST_VOTED, FORUM, 10L, 1));
+        bus.publish(event(ForumEvent.Type.POST_CREATED, 2L, 20L, null));
+        bus.publish(event(ForumEvent.Type.COMMENT_CREATED, FORUM, 10L, null));
+        bus.publish(event(ForumEvent.Type.POST_VOTED, FORUM, 10L, 2));
+        bus.publish(event(ForumEvent.Type.POST_VOTED, FORUM, 10L, 3));
+
+        await(() -> received.size() >= 2);
+        Thread.sleep(50);
+        // The other forum's post is filtered out, the votes are reduced to the last score
+        assertEquals(List.of(ForumEvent.Type.POST_VOTED, ForumEvent.Type.COMMENT_CREATED),
+                received.stream().map(ForumEvent::type).toList());
+        assertEquals(3, received.get(0).score());
+    }
+
+    @Test
+    void testSlowSubscriberOnlyLosesItsOwnOldestEvents() throws Exception {
+        CountDownLatch stuck = new CountDownLatch(1);
+        List<ForumEvent> slow = listen(stuck);
+        List<ForumEvent> fast = listen(new CountDownLatch(0));
+
+        int events = 1000;
+        for (int i = 1; i <= events; i++) {
+            bus.publish(event(ForumEvent.Type.POST_CREATED, FORUM, i, null));
+            if (i % 10 == 0) {
+                int published = i;
+                await(() -> fast.size() == published);
+            }
+        }
+        assertEquals(events, fast.get(events - 1).postId());
+
+        stuck.countDown();
+        await(() -> !slow.isEmpty() && slow.get(slow.size() - 1).postId() == events);
+        assertTrue(slow.size() < events / 2);
+    }
+
+    @Test
+    void testSubscribingNeedsReadAccess() {
+        when(forumService.hasForumAccess(FORUM, USER, AccessLevel.READ)).thenReturn(false);
+        assertThrows(AccessDeniedException.class, () -> bus.subscribe(EventTopic.forum(FORUM), USER));
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.forum.feed;
+
+import com.example.forum.cache.ForumPermissionCache;
+import com.example.forum.ranking.PostPosition;
+import com.example.forum.ranking.PostRanking;
+import com.example.forum.service.ForumService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the home feeds: merging forums on read, paging past the end of a kept feed, fanning
+ * out new posts and rebuilding feeds when access changes.
+ */
+@ExtendWith(MockitoExtension.class)
+class HomeFeedTest {
+
+    private static final long USER = 7L;
+
+    @Mock
+    private ForumService forumService;
+
+    private final PostRanking postRanking = new PostRanking(null);
+    private final ForumPermissionCache permissionCache = new ForumPermissionCache();
+    private final LocalDateTime now = LocalDateTime.now();
+    private HomeFeed homeFeed;
+
+    @BeforeEach
+    void setUp() {
+        homeFeed = new HomeFeed(postRanking, forumService, permissionCache);
+        ReflectionTestUtils.setField(homeFeed, "capacity", 3);
+    }
+
+    private void createPost(long postId, long forumId, int minutesAgo) {
+        postRanking.postCreated(postId, forumId, now.minusMinutes(minutesAgo));
+        homeFeed.postCreated(postId);
+    }
+
+    private List<Long> read(PostPosition after, int limit) {
+        return homeFeed.read(USER, after, limit).stream().map(PostPosition::postId).toList();
+    }
+
+    @Test
+    void testMergesReadableForumsPastTheEndOfTheKeptFeed() {
+        when(forumService.getReadableForumIds(USER)).thenReturn(Set.of(1L, 2L));
+        createPost(1L, 1L, 60);
+        createPost(2L, 2L, 50);
+        createPost(3L, 3L, 40);
+        createPost(4L, 1L, 30);
+        createPost(5L, 2L, 20);
+        createPost(6L, 1L, 10);
+
+        // Only the newest three are kept, the rest of the page is merged from the forums
+        assertEquals(List.of(6L, 5L, 4L, 2L, 1L), read(null, 10));
+        List<PostPosition> first = homeFeed.read(USER, null, 2);
+        assertEquals(List.of(4L, 2L), read(first.get(1), 2));
+        verify(forumService, times(1)).getReadableForumIds(USER);
+    }
+
+    @Test
+    void testFansOutNewPostsAndRebuildsWhenAccessChanges() {
+        when(forumService.getReadableForumIds(USER)).thenReturn(Set.of(1L), Set.of(1L, 2L));
+        createPost(1L, 1L, 30);
+        createPost(2L, 2L, 20);
+        assertEquals(List.of(1L), read(null, 10));
+
+        createPost(3L, 1L, 10);
+        createPost(4L, 2L, 5);
+        assertEquals(List.of(3L, 1L), read(null, 10));
+
+        // Access changes of other users keep the feed
+        permissionCache.invalidateUserAccess(USER + 1, 2L);
+        assertEquals(List.of(3L, 1L), read(null, 10));
+        verify(forumService, times(1)).getReadableForumIds(USER);
+
+        permissionCache.invalidateUserAccess(USER, 2L);
+        assertEquals(List.of(4L, 3L, 2L, 1L), read(null, 10));
+    }
+}
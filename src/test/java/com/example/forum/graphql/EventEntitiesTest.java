@@ -0,0 +1,52 @@
+package com.example.forum.graphql;
+
+import com.example.forum.events.ForumEvent;
+import com.example.forum.model.Post;
+import com.example.forum.repository.CommentRepository;
+import com.example.forum.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for loading the entities of events once for all subscribers.
+ */
+@ExtendWith(MockitoExtension.class)
+class EventEntitiesTest {
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private CommentRepository commentRepository;
+
+    @InjectMocks
+    private EventEntities eventEntities;
+
+    @Test
+    void testEachEventIsLoadedOnce() {
+        Post post = Post.builder().id(5L).build();
+        when(postRepository.findById(5L)).thenReturn(Optional.of(post));
+        when(commentRepository.findById(9L)).thenReturn(Optional.empty());
+        ForumEvent created = new ForumEvent(ForumEvent.Type.POST_CREATED, 1L, 5L, null, null, LocalDateTime.now());
+        ForumEvent commented = new ForumEvent(ForumEvent.Type.COMMENT_CREATED, 1L, 5L, 9L, null, LocalDateTime.now());
+
+        // Three subscribers receive the same events
+        for (int i = 0; i < 3; i++) {
+            assertSame(post, eventEntities.post(created).block());
+            // A comment deleted before delivery is skipped
+            assertNull(eventEntities.comment(commented).block());
+        }
+
+        verify(postRepository, times(1)).findById(5L);
+        verify(commentRepository, times(1)).findById(9L);
+    }
+}
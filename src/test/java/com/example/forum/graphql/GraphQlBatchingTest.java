@@ -0,0 +1,156 @@
+package com.example.forum.graphql;
+
+import com.example.forum.model.AccessLevel;
+import com.example.forum.model.Comment;
+import com.example.forum.model.Forum;
+import com.example.forum.model.Post;
+import com.example.forum.model.Role;
+import com.example.forum.model.User;
+import com.example.forum.service.CommentService;
+import com.example.forum.service.ForumService;
+import com.example.forum.service.PostService;
+import com.example.forum.service.UserService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.graphql.ExecutionGraphQlResponse;
+import org.springframework.graphql.ExecutionGraphQlService;
+import org.springframework.graphql.support.DefaultExecutionGraphQlRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that nested GraphQL fields are loaded in batches instead of one query per row.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class GraphQlBatchingTest {
+
+    private static final String NESTED_COMMENTS_QUERY = """
+            query($postId: Long!) {
+              postCommentsByCursor(postId: $postId, size: 50) {
+                content {
+                  id
+                  author { username }
+                  post { title forum { name } author { username } }
+                  replies {
+                    id
+                    author { username }
+                    parentComment { id }
+                    replies { id author { username } }
+                  }
+                }
+              }
+            }
+            """;
+
+    @Autowired
+    private ExecutionGraphQlService graphQlService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ForumService forumService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User admin;
+    private List<User> authors;
+    private Forum forum;
+
+    @BeforeEach
+    void setUp() {
+        admin = userService.registerUser("gqladmin", "password123", "gqladmin@example.com", "GraphQL Admin", Role.ADMIN);
+        authors = List.of(
+                userService.registerUser("gqlone", "password123", "gqlone@example.com", "GraphQL One", Role.USER),
+                userService.registerUser("gqltwo", "password123", "gqltwo@example.com", "GraphQL Two", Role.USER),
+                userService.registerUser("gqlthree", "password123", "gqlthree@example.com", "GraphQL Three", Role.USER));
+        forum = forumService.createForum("GraphQL Forum", "Batching test forum", admin.getId());
+        for (User author : authors) {
+            forumService.grantForumAccess(forum.getId(), author.getId(), AccessLevel.WRITE, admin.getId());
+        }
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(admin.getUsername(), null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testNestedCommentQueryUsesConstantNumberOfStatements() {
+        Post smallThread = createThread("Small thread", 2);
+        Post largeThread = createThread("Large thread", 8);
+
+        long smallStatements = countStatements(smallThread);
+        long largeStatements = countStatements(largeThread);
+
+        // Each association is loaded once per nesting level, whatever the number of rows
+        assertEquals(smallStatements, largeStatements);
+        assertTrue(largeStatements <= 15, "Expected at most 15 statements but got " + largeStatements);
+    }
+
+    /**
+     * Create a post with the given number of top-level comments, each with two replies
+     * and one nested reply, written by rotating authors.
+     */
+    private Post createThread(String title, int comments) {
+        Post post = postService.createPost(title, "Thread body", forum.getId(), authors.get(0).getId());
+        for (int i = 0; i < comments; i++) {
+            Comment comment = commentService.createComment(post.getId(), "Comment " + i, authors.get(i % 3).getId());
+            Comment reply = commentService.createReply(comment.getId(), "Reply " + i, authors.get((i + 1) % 3).getId());
+            commentService.createReply(comment.getId(), "Second reply " + i, authors.get((i + 2) % 3).getId());
+            commentService.createReply(reply.getId(), "Nested reply " + i, authors.get(i % 3).getId());
+        }
+        return post;
+    }
+
+    private long countStatements(Post post) {
+        // Start from an empty persistence context so nothing is served from the first-level cache
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        ExecutionGraphQlResponse response = graphQlService.execute(new DefaultExecutionGraphQlRequest(
+                NESTED_COMMENTS_QUERY, null, Map.of("postId", post.getId()), Map.of(), "batching-test", null))
+                .block();
+
+        assertNotNull(response);
+        assertTrue(response.getErrors().isEmpty(), () -> "GraphQL errors: " + response.getErrors());
+        List<?> content = response.field("postCommentsByCursor.content").getValue();
+        assertFalse(content.isEmpty());
+
+        long statements = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+        return statements;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.forum.graphql;
+
+import com.example.forum.model.Forum;
+import com.example.forum.model.Post;
+import com.example.forum.model.Role;
+import com.example.forum.model.User;
+import com.example.forum.service.ForumService;
+import com.example.forum.service.PostService;
+import com.example.forum.service.UserService;
+import graphql.ExecutionResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.graphql.ExecutionGraphQlResponse;
+import org.springframework.graphql.ExecutionGraphQlService;
+import org.springframework.graphql.execution.SubscriptionPublisherException;
+import org.springframework.graphql.support.DefaultExecutionGraphQlRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that GraphQL subscriptions receive the changes of committed transactions. Not
+ * transactional, since events are only published on commit.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class GraphQlSubscriptionTest {
+
+    private static final String POST_ADDED = """
+            subscription($forumId: Long!) {
+              postAdded(forumId: $forumId) { title author { username } }
+            }
+            """;
+
+    @Autowired
+    private ExecutionGraphQlService graphQlService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ForumService forumService;
+
+    @Autowired
+    private PostService postService;
+
+    private User admin;
+    private User outsider;
+    private Forum forum;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = Long.toString(System.nanoTime(), 36);
+        admin = userService.registerUser("subadmin" + suffix, "password123", "subadmin" + suffix + "@example.com",
+                "Subscription Admin", Role.ADMIN);
+        outsider = userService.registerUser("suboutsider" + suffix, "password123",
+                "suboutsider" + suffix + "@example.com", "Subscription Outsider", Role.USER);
+        forum = forumService.createForum("Subscription Forum " + suffix, "Subscription test forum", admin.getId());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        forumService.deleteForum(forum.getId(), admin.getId());
+    }
+
+    private ExecutionGraphQlResponse subscribe(User user) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user.getUsername(), null, List.of()));
+        return graphQlService.execute(new DefaultExecutionGraphQlRequest(
+                POST_ADDED, null, Map.of("forumId", forum.getId()), Map.of(), "subscription-test", null))
+                .block();
+    }
+
+    @Test
+    void testPostAddedReceivesCommittedPosts() {
+        ExecutionGraphQlResponse response = subscribe(admin);
+        assertNotNull(response);
+        assertTrue(response.getErrors().isEmpty(), () -> "GraphQL errors: " + response.getErrors());
+        Publisher<ExecutionResult> results = response.getData();
+
+        Flux<ExecutionResult> first = Flux.from(results).next().flux().cache();
+        first.subscribe();
+        Post post = postService.createPost("Live post", "Pushed to subscribers", forum.getId(), admin.getId());
+
+        ExecutionResult result = first.blockLast(Duration.ofSeconds(10));
+        assertNotNull(result);
+        assertTrue(result.getErrors().isEmpty(), () -> "GraphQL errors: " + result.getErrors());
+        Map<String, Map<String, Object>> data = result.getData();
+        assertEquals(post.getTitle(), data.get("postAdded").get("title"));
+        assertEquals(Map.of("username", admin.getUsername()), data.get("postAdded").get("author"));
+    }
+
+    @Test
+    void testSubscribingNeedsReadAccess() {
+        ExecutionGraphQlResponse response = subscribe(outsider);
+        assertNotNull(response);
+        Publisher<ExecutionResult> results = response.getData();
+
+        // Access is checked when the stream is subscribed to, before any event
+        SubscriptionPublisherException error = assertThrows(SubscriptionPublisherException.class,
+                () -> Flux.from(results).blockFirst(Duration.ofSeconds(10)));
+        assertFalse(error.getErrors().isEmpty());
+    }
+}
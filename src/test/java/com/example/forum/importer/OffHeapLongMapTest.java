@@ -0,0 +1,44 @@
+package com.example.forum.importer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the memory-mapped ID map: growth, overwrites and reopening the file.
+ */
+class OffHeapLongMapTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testEntriesSurviveGrowthAndReopen() throws Exception {
+        Path file = directory.resolve("ids.map");
+        // Starts with 1024 slots and has to double several times
+        try (OffHeapLongMap map = OffHeapLongMap.open(file, 1)) {
+            for (long key = -5000; key < 5000; key++) {
+                map.put(key * 7919, key + 10_000);
+            }
+            map.put(0, 42);
+            assertEquals(10_000, map.size());
+            assertEquals(42, map.get(0));
+            assertEquals(0, map.get(1));
+        }
+
+        try (OffHeapLongMap reopened = OffHeapLongMap.open(file, 1)) {
+            assertEquals(10_000, reopened.size());
+            for (long key = -5000; key < 5000; key++) {
+                if (key != 0) {
+                    assertEquals(key + 10_000, reopened.get(key * 7919));
+                }
+            }
+            reopened.delete();
+        }
+        assertFalse(Files.exists(file));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.forum.integration;
+
+import com.example.forum.model.Comment;
+import com.example.forum.model.Forum;
+import com.example.forum.model.Post;
+import com.example.forum.model.Role;
+import com.example.forum.model.User;
+import com.example.forum.repository.CommentRepository;
+import com.example.forum.repository.PostRepository;
+import com.example.forum.repository.UserRepository;
+import com.example.forum.service.ForumService;
+import com.example.forum.service.UserService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures inserting 100k comments through JPA, to check that sequence IDs and JDBC batching
+ * keep the number of statements far below the number of rows.
+ * <p>
+ * Only runs when asked for, on the in-memory H2 database of the tests by default:
+ * <pre>
+ * mvn test -Dtest=CommentInsertBenchmarkTest -Dbenchmark=true
+ * </pre>
+ * To run it on PostgreSQL, point the datasource at an empty database:
+ * <pre>
+ * mvn test -Dtest=CommentInsertBenchmarkTest -Dbenchmark=true \
+ *     -Dspring.datasource.url=jdbc:postgresql://localhost:5432/forum_bench?reWriteBatchedInserts=true \
+ *     -Dspring.datasource.driverClassName=org.postgresql.Driver \
+ *     -Dspring.datasource.username=forum -Dspring.datasource.password=forum \
+ *     -Dspring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect
+ * </pre>
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class CommentInsertBenchmarkTest {
+
+    private static final int COMMENTS = 100_000;
+    private static final int COMMENTS_PER_TRANSACTION = 5_000;
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ForumService forumService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private TransactionTemplate transactionTemplate;
+    private User author;
+    private Forum forum;
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        author = userService.registerUser("bench", "password123", "bench@example.com", "Bench User", Role.ADMIN);
+        forum = forumService.createForum("Benchmark Forum", "Comment insert benchmark", author.getId());
+        post = transactionTemplate.execute(status -> postRepository.save(Post.builder()
+                .title("Benchmark Post")
+                .content("Comments are inserted under this post")
+                .forum(forum)
+                .user(author)
+                .build()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> forumService.deleteForum(forum.getId(), author.getId()));
+        transactionTemplate.executeWithoutResult(status -> userRepository.deleteById(author.getId()));
+    }
+
+    @Test
+    void insertComments() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        long start = System.nanoTime();
+        for (int inserted = 0; inserted < COMMENTS; inserted += COMMENTS_PER_TRANSACTION) {
+            int first = inserted;
+            transactionTemplate.executeWithoutResult(status -> {
+                Post postRef = entityManager.getReference(Post.class, post.getId());
+                User authorRef = entityManager.getReference(User.class, author.getId());
+                for (int i = first; i < first + COMMENTS_PER_TRANSACTION; i++) {
+                    entityManager.persist(Comment.builder()
+                            .content("Benchmark comment " + i)
+                            .post(postRef)
+                            .user(authorRef)
+                            .build());
+                    // Keep the persistence context small, the rows are sent in batches anyway
+                    if ((i + 1) % BATCH_SIZE == 0) {
+                        entityManager.flush();
+                        entityManager.clear();
+                        postRef = entityManager.getReference(Post.class, post.getId());
+                        authorRef = entityManager.getReference(User.class, author.getId());
+                    }
+                }
+            });
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        long statements = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+
+        System.out.printf("Inserted %d comments in %d ms (%.0f rows/s) with %d JDBC statements%n",
+                COMMENTS, elapsedMs, COMMENTS * 1000.0 / Math.max(1, elapsedMs), statements);
+        assertEquals(COMMENTS, commentRepository.countByPostId(post.getId()));
+        // One insert per batch and one sequence call per allocated block of IDs
+        assertTrue(statements <= COMMENTS / BATCH_SIZE * 2 + 10,
+                "Expected batched inserts but " + statements + " statements were prepared");
+    }
+}
@@ -2,6 +2,7 @@ package com.example.forum.integration;
 
 import com.example.forum.dto.auth.JwtResponse;
 import com.example.forum.dto.auth.LoginRequest;
+import com.example.forum.dto.auth.PasswordResetRequest;
 import com.example.forum.dto.auth.RegisterRequest;
 import com.example.forum.dto.forum.CreateForumRequest;
 import com.example.forum.dto.forum.ForumAccessRequest;
@@ -146,6 +147,39 @@ public class ForumApiIntegrationTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    void testResetPasswordWithJwt() throws Exception {
+        PasswordResetRequest wrongPassword = PasswordResetRequest.builder()
+                .oldPassword("wrongpassword")
+                .newPassword("newpassword123")
+                .build();
+        mockMvc.perform(post("/api/auth/reset-password")
+                .header("Authorization", "Bearer " + userToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(wrongPassword)))
+                .andExpect(status().isUnauthorized());
+
+        PasswordResetRequest resetRequest = PasswordResetRequest.builder()
+                .oldPassword("password123")
+                .newPassword("newpassword123")
+                .build();
+        mockMvc.perform(post("/api/auth/reset-password")
+                .header("Authorization", "Bearer " + userToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(resetRequest)))
+                .andExpect(status().isOk());
+
+        // The new password is used for logging in
+        LoginRequest loginRequest = LoginRequest.builder()
+                .username("regular")
+                .password("newpassword123")
+                .build();
+        mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk());
+    }
+
     // Forum Management Tests
 
     @Test
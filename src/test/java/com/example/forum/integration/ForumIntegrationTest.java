@@ -1,18 +1,41 @@
 package com.example.forum.integration;
 
+import com.example.forum.content.ContentDelivery;
+import com.example.forum.content.ContentLayoutMigrator;
+import com.example.forum.dto.forum.ForumTreeNode;
+import com.example.forum.exception.AccessDeniedException;
+import com.example.forum.exception.BadRequestException;
+import com.example.forum.importer.BulkImporter;
+import com.example.forum.job.CounterReconciliationJob;
+import com.example.forum.job.OrphanFileSweepJob;
 import com.example.forum.model.AccessLevel;
 import com.example.forum.model.Comment;
 import com.example.forum.model.Content;
+import com.example.forum.model.ContentBlob;
 import com.example.forum.model.ContentType;
 import com.example.forum.model.Forum;
+import com.example.forum.model.ImportJob;
 import com.example.forum.model.Post;
 import com.example.forum.model.Role;
+import com.example.forum.model.UploadSession;
 import com.example.forum.model.User;
+import com.example.forum.model.VoteTarget;
+import com.example.forum.pagination.CursorPage;
+import com.example.forum.ranking.RankingMode;
+import com.example.forum.ranking.RankingWindow;
+import com.example.forum.repository.CommentRepository;
+import com.example.forum.repository.ContentBlobRepository;
+import com.example.forum.repository.ContentRepository;
 import com.example.forum.repository.ForumRepository;
+import com.example.forum.repository.ImportJobRepository;
+import com.example.forum.repository.PostRepository;
 import com.example.forum.repository.UserRepository;
+import com.example.forum.repository.VoteRepository;
 import com.example.forum.service.CommentService;
+import com.example.forum.service.ContentService;
 import com.example.forum.service.ForumService;
 import com.example.forum.service.PostService;
+import com.example.forum.service.UploadService;
 import com.example.forum.service.UserService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -21,11 +44,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.security.MessageDigest;
+import java.util.Base64;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -57,6 +93,45 @@ public class ForumIntegrationTest {
     @Autowired
     private ForumRepository forumRepository;
 
+    @Autowired
+    private CounterReconciliationJob counterReconciliationJob;
+
+    @Autowired
+    private ContentService contentService;
+
+    @Autowired
+    private ContentDelivery contentDelivery;
+
+    @Autowired
+    private UploadService uploadService;
+
+    @Autowired
+    private OrphanFileSweepJob orphanFileSweepJob;
+
+    @Autowired
+    private ContentLayoutMigrator contentLayoutMigrator;
+
+    @Autowired
+    private ContentBlobRepository contentBlobRepository;
+
+    @Autowired
+    private ContentRepository contentRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private BulkImporter bulkImporter;
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    @Autowired
+    private VoteRepository voteRepository;
+
     private User adminUser;
     private User regularUser;
     private User readerUser;
@@ -122,6 +197,59 @@ public class ForumIntegrationTest {
         assertEquals(grandchildForum.getId(), grandchildForums.get(0).getId());
     }
 
+    @Test
+    void testForumMoveUpdatesHierarchy() {
+        // Build root -> child -> grandchild and a separate target forum
+        Forum root = forumService.createForum("Move Root", "Root forum", adminUser.getId());
+        Forum child = forumService.createSubforum("Move Child", "Child forum", root.getId(), adminUser.getId());
+        Forum grandchild = forumService.createSubforum("Move Grandchild", "Grandchild forum", child.getId(), adminUser.getId());
+        Forum target = forumService.createForum("Move Target", "Target forum", adminUser.getId());
+
+        assertEquals(List.of(grandchild.getId(), child.getId(), root.getId()), forumService.getAncestorIds(grandchild.getId()));
+        assertEquals(2, forumService.getForumDepth(grandchild.getId()));
+        assertEquals(3, forumService.getForumSubtree(root.getId()).size());
+
+        // Reader gets access through the target forum only
+        forumService.grantForumAccess(target.getId(), readerUser.getId(), AccessLevel.READ, adminUser.getId());
+        assertFalse(forumService.hasForumAccess(grandchild.getId(), readerUser.getId(), AccessLevel.READ));
+
+        // Move the child subtree below the target
+        forumService.moveForum(child.getId(), target.getId(), adminUser.getId());
+
+        assertEquals(List.of(grandchild.getId(), child.getId(), target.getId()), forumService.getAncestorIds(grandchild.getId()));
+        assertEquals(1, forumService.getForumSubtree(root.getId()).size());
+        assertEquals(3, forumService.getForumSubtree(target.getId()).size());
+        assertTrue(forumService.hasForumAccess(grandchild.getId(), readerUser.getId(), AccessLevel.READ));
+
+        // Moving a forum below its own descendant is rejected
+        assertThrows(com.example.forum.exception.BadRequestException.class, () ->
+                forumService.moveForum(child.getId(), grandchild.getId(), adminUser.getId()));
+    }
+
+    @Test
+    void testForumTree() {
+        Forum nested = forumService.createSubforum("Nested Subforum", "Nested", subForum.getId(), adminUser.getId());
+        postService.createPost("Tree Post", "Counted in the tree", subForum.getId(), regularUser.getId());
+
+        ForumTreeNode root = forumService.getForumTree().stream()
+                .filter(node -> node.getId().equals(testForum.getId()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1, root.getSubForums().size());
+        ForumTreeNode sub = root.getSubForums().get(0);
+        assertEquals(subForum.getId(), sub.getId());
+        assertEquals(1, sub.getPostCount());
+        assertEquals(nested.getId(), sub.getSubForums().get(0).getId());
+
+        // Served from cache until a mutation invalidates it
+        assertSame(forumService.getForumTree(), forumService.getForumTree());
+        forumService.updateForum(nested.getId(), "Renamed Subforum", null, adminUser.getId());
+        assertEquals("Renamed Subforum", forumService.getForumTree().stream()
+                .filter(node -> node.getId().equals(testForum.getId()))
+                .findFirst().orElseThrow()
+                .getSubForums().get(0).getSubForums().get(0).getName());
+    }
+
     @Test
     void testForumAccessControl() {
         // Create a restricted forum
@@ -298,6 +426,69 @@ public class ForumIntegrationTest {
         });
     }
 
+    @Test
+    void testDenormalizedCounters() {
+        Post post = postService.createPost("Counted Post", "Post with counters", testForum.getId(), regularUser.getId());
+        Comment comment = commentService.createComment(post.getId(), "Top-level comment", regularUser.getId());
+        Comment reply = commentService.createReply(comment.getId(), "Reply", adminUser.getId());
+        commentService.createReply(reply.getId(), "Nested reply", regularUser.getId());
+
+        assertEquals(1, forumService.getForumById(testForum.getId()).getPostCount());
+        assertEquals(3, post.getCommentCount());
+        assertEquals(1, comment.getReplyCount());
+
+        // Deleting a reply removes its whole thread from the counters
+        commentService.deleteComment(reply.getId(), adminUser.getId());
+        assertEquals(1, post.getCommentCount());
+        assertEquals(0, comment.getReplyCount());
+
+        // The stored counters match the actual rows, so nothing needs repairing
+        assertEquals(new CounterReconciliationJob.Result(0, 0, 0, 0), counterReconciliationJob.reconcile());
+
+        commentService.deleteComment(comment.getId(), regularUser.getId());
+        postService.deletePost(post.getId(), regularUser.getId());
+        assertEquals(0, forumService.getForumById(testForum.getId()).getPostCount());
+        assertEquals(new CounterReconciliationJob.Result(0, 0, 0, 0), counterReconciliationJob.reconcile());
+    }
+
+    @Test
+    void testCursorPagination() {
+        List<Long> created = new java.util.ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(postService.createPost("Paged " + i, "Paged post", subForum.getId(), regularUser.getId()).getId());
+        }
+
+        // Walk all pages of two posts each, newest first
+        List<Long> seen = new java.util.ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<Post> page = postService.getPostsByForumAfter(subForum.getId(), readerUser.getId(), cursor, 2);
+            page.content().forEach(p -> seen.add(p.getId()));
+            cursor = page.nextCursor();
+            assertEquals(cursor != null, page.hasNext());
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(created.stream().sorted(java.util.Comparator.reverseOrder()).toList(), seen);
+
+        // Top-level comments come oldest first and replies are skipped
+        Post post = postService.getPostById(created.get(0), regularUser.getId());
+        Comment first = commentService.createComment(post.getId(), "First", regularUser.getId());
+        commentService.createReply(first.getId(), "Reply", regularUser.getId());
+        Comment second = commentService.createComment(post.getId(), "Second", regularUser.getId());
+
+        CursorPage<Comment> comments = commentService.getCommentsByPostAfter(post.getId(), readerUser.getId(), null, 1);
+        assertEquals(List.of(first.getId()), comments.content().stream().map(Comment::getId).toList());
+        comments = commentService.getCommentsByPostAfter(post.getId(), readerUser.getId(), comments.nextCursor(), 1);
+        assertEquals(List.of(second.getId()), comments.content().stream().map(Comment::getId).toList());
+        assertFalse(comments.hasNext());
+
+        assertThrows(com.example.forum.exception.BadRequestException.class, () ->
+                postService.getPostsByForumAfter(subForum.getId(), readerUser.getId(), "not-a-cursor", 2));
+    }
+
     @Test
     void testContentManagement() throws Exception {
         // Create a post
@@ -373,6 +564,187 @@ public class ForumIntegrationTest {
         assertEquals(0, updatedCommentContents.size());
     }
 
+    @Test
+    void testContentDownloadStreamsDatabaseBlob() throws Exception {
+        Post post = postService.createPost(
+                "Post with a video",
+                "This post has a video stored in the database.",
+                testForum.getId(),
+                regularUser.getId());
+        Content video = postService.addPostContent(
+                post.getId(),
+                new MockMultipartFile("clip.mp4", "clip.mp4", "video/mp4", "0123456789".getBytes()),
+                "A short clip",
+                ContentType.VIDEO,
+                true,
+                regularUser.getId());
+
+        // Seek into the clip as a reader of the forum
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/content/" + video.getId());
+        request.addHeader("Range", "bytes=3-5");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        contentDelivery.serve(contentService.getContentForDownload(video.getId(), readerUser.getId()), request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("345", response.getContentAsString());
+        assertEquals("bytes 3-5/10", response.getHeader("Content-Range"));
+        assertEquals("video/mp4", response.getContentType());
+        assertNotNull(response.getHeader("ETag"));
+
+        // Users without access to the forum cannot download it
+        User outsider = userService.registerUser("outsider", "password123", "outsider@example.com", "Outsider", Role.USER);
+        assertThrows(AccessDeniedException.class,
+                () -> contentService.getContentForDownload(video.getId(), outsider.getId()));
+    }
+
+    @Test
+    void testResumableUploadAcceptsChunksOutOfOrder() throws Exception {
+        Post post = postService.createPost(
+                "Post with a long video",
+                "This post has a video uploaded in chunks.",
+                testForum.getId(),
+                regularUser.getId());
+        UploadSession upload = uploadService.createUpload(post.getId(), null, "long.mp4", "A long clip",
+                ContentType.VIDEO, 10, false, regularUser.getId());
+
+        // The second chunk arrives first, so nothing is contiguous yet
+        assertEquals(0, uploadService.writeChunk(upload.getId(), 6, 4,
+                new ByteArrayInputStream("6789".getBytes()), null, regularUser.getId()));
+
+        // A chunk whose checksum does not match is rejected and not counted
+        String checksum = "sha256 " + Base64.getEncoder().encodeToString(
+                MessageDigest.getInstance("SHA-256").digest("012345".getBytes()));
+        assertThrows(BadRequestException.class, () -> uploadService.writeChunk(upload.getId(), 0, 6,
+                new ByteArrayInputStream("xxxxxx".getBytes()), checksum, regularUser.getId()));
+        assertThrows(BadRequestException.class, () -> uploadService.completeUpload(upload.getId(), regularUser.getId()));
+
+        assertEquals(10, uploadService.writeChunk(upload.getId(), 0, 6,
+                new ByteArrayInputStream("012345".getBytes()), checksum, regularUser.getId()));
+        // Only the user who started the upload can write to it
+        assertThrows(AccessDeniedException.class, () -> uploadService.getUpload(upload.getId(), adminUser.getId()));
+
+        Content video = uploadService.completeUpload(upload.getId(), regularUser.getId());
+        assertEquals(post.getId(), video.getPost().getId());
+        assertEquals(10, video.getBlob().getSize());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        contentDelivery.serve(contentService.getContentForDownload(video.getId(), readerUser.getId()),
+                new MockHttpServletRequest("GET", "/api/content/" + video.getId()), response);
+        assertEquals("0123456789", response.getContentAsString());
+
+        // Images still go through a single multipart request
+        assertThrows(BadRequestException.class, () -> uploadService.createUpload(post.getId(), null, "a.png", null,
+                ContentType.IMAGE, 10, false, regularUser.getId()));
+    }
+
+    @Test
+    void testSweepDeletesOnlyOrphanedFiles() throws Exception {
+        Post post = postService.createPost(
+                "Post with a file",
+                "This post has a file on disk.",
+                testForum.getId(),
+                regularUser.getId());
+        Content document = postService.addPostContent(
+                post.getId(),
+                new MockMultipartFile("notes.txt", "notes.txt", "text/plain", "kept bytes".getBytes()),
+                "Notes",
+                ContentType.DOCUMENT,
+                false,
+                regularUser.getId());
+        Path kept = Paths.get(document.getContentPath());
+        Path orphan = Files.writeString(kept.resolveSibling("orphan-" + post.getId()), "12345");
+
+        // Both files are old enough to be swept
+        FileTime old = FileTime.from(Instant.now().minus(Duration.ofDays(2)));
+        Files.setLastModifiedTime(kept, old);
+        Files.setLastModifiedTime(orphan, old);
+
+        OrphanFileSweepJob.Result dryRun = orphanFileSweepJob.sweep(true);
+        assertTrue(dryRun.reclaimedBytes() >= 5);
+        assertTrue(Files.exists(orphan));
+
+        OrphanFileSweepJob.Result result = orphanFileSweepJob.sweep();
+        assertTrue(result.deleted() >= 1);
+        assertTrue(result.reclaimedBytes() >= 5);
+        assertFalse(Files.exists(orphan));
+        assertTrue(Files.exists(kept));
+    }
+
+    @Test
+    void testLayoutMigrationMovesFlatFilesIntoShards() throws Exception {
+        Post post = postService.createPost(
+                "Post with old files",
+                "This post has files stored before the sharded layout.",
+                testForum.getId(),
+                regularUser.getId());
+        Path directory = Paths.get("./test-content-storage");
+        Files.createDirectories(directory);
+
+        // A blob and a file of content from before blobs, both stored flat
+        String hash = "feedbeef" + post.getId();
+        Path blobFile = Files.writeString(directory.resolve(hash), "blob bytes");
+        ContentBlob blob = contentBlobRepository.save(ContentBlob.builder()
+                .sha256(hash).size(10L).storedInDb(false).storage("filesystem")
+                .location(blobFile.toString()).refCount(1).build());
+        Content blobContent = contentRepository.save(Content.builder()
+                .post(post).filename("blob.txt").contentType(ContentType.DOCUMENT)
+                .blob(blob).contentPath(blobFile.toString()).build());
+        Path legacyFile = Files.writeString(directory.resolve("0a1b2c3d_" + post.getId() + "_old.txt"), "old bytes");
+        Content legacyContent = contentRepository.save(Content.builder()
+                .post(post).filename("old.txt").contentType(ContentType.DOCUMENT)
+                .contentPath(legacyFile.toString()).build());
+
+        ContentLayoutMigrator.Result result = contentLayoutMigrator.migrate();
+        assertTrue(result.moved() >= 2);
+
+        Path shardedBlob = directory.resolve("fe").resolve("ed").resolve(hash);
+        Path shardedLegacy = directory.resolve("0a").resolve("1b").resolve(legacyFile.getFileName());
+        assertEquals(shardedBlob.toString(), contentBlobRepository.findRefById(blob.getId()).orElseThrow().getLocation());
+        assertEquals(shardedBlob.toString(),
+                contentRepository.findDownloadRowById(blobContent.getId()).orElseThrow().getContentPath());
+        assertEquals(shardedLegacy.toString(),
+                contentRepository.findDownloadRowById(legacyContent.getId()).orElseThrow().getContentPath());
+        assertEquals("blob bytes", Files.readString(shardedBlob));
+        assertEquals("old bytes", Files.readString(shardedLegacy));
+        // The old paths stay readable until the deletion queue gets to them
+        assertTrue(Files.exists(blobFile));
+
+        // Running it again finds nothing left to move
+        assertEquals(0, contentLayoutMigrator.migrate().moved());
+    }
+
+    @Test
+    void testBulkDeleteRemovesDeepThreadsPostsAndForums() throws Exception {
+        Forum forum = forumService.createForum("Short-lived Forum", "Deleted at the end", adminUser.getId());
+        Post post = postService.createPost("Deep thread", "A long chain of replies", forum.getId(), adminUser.getId());
+        Comment top = commentService.createComment(post.getId(), "Top", adminUser.getId());
+        Comment sibling = commentService.createComment(post.getId(), "Sibling", adminUser.getId());
+        Comment reply = top;
+        for (int depth = 0; depth < 30; depth++) {
+            reply = commentService.createReply(reply.getId(), "Reply " + depth, adminUser.getId());
+        }
+        Content attachment = commentService.addCommentContent(reply.getId(),
+                new MockMultipartFile("deep.txt", "deep.txt", "text/plain", "deep bytes".getBytes()),
+                null, ContentType.DOCUMENT, true, adminUser.getId());
+        Long blobId = attachment.getBlob().getId();
+        assertEquals(31, commentRepository.findSubtreeIds(top.getId()).size());
+
+        // The whole thread goes, the sibling stays and the counters follow
+        commentService.deleteComment(top.getId(), adminUser.getId());
+        assertEquals(List.of(sibling.getId()), commentRepository.findIdsByPostIdIn(List.of(post.getId())));
+        assertEquals(1, postService.getPostById(post.getId(), adminUser.getId()).getCommentCount());
+        assertTrue(contentRepository.findById(attachment.getId()).isEmpty());
+        assertEquals(0, contentBlobRepository.findById(blobId).orElseThrow().getRefCount());
+
+        // Deleting the forum takes its posts and their comments with it
+        Long forumId = forum.getId();
+        forumService.deleteForum(forumId, adminUser.getId());
+        assertTrue(forumRepository.findById(forumId).isEmpty());
+        assertTrue(commentRepository.findById(sibling.getId()).isEmpty());
+        assertThrows(com.example.forum.exception.ResourceNotFoundException.class,
+                () -> postService.getPostById(post.getId(), adminUser.getId()));
+    }
+
     @Test
     void testSearchFunctionality() {
         // Create forums with searchable names
@@ -444,6 +816,198 @@ public class ForumIntegrationTest {
         assertTrue(neuralComments.getContent().get(0).getContent().contains("neural networks"));
     }
 
+    @Test
+    void testBulkImportResumesFromCheckpoint() {
+        // Commit every 3 lines, so the failure below hits the third batch
+        ReflectionTestUtils.setField(bulkImporter, "batchSize", 3);
+        String head = String.join("\n",
+                "{\"type\":\"user\",\"id\":1,\"username\":\"legacy-alice\",\"email\":\"alice@legacy.example\"}",
+                "{\"type\":\"user\",\"id\":2,\"username\":\"admin\",\"email\":\"admin@legacy.example\"}",
+                "{\"type\":\"forum\",\"id\":10,\"name\":\"Imported Board\",\"targetParentId\":" + testForum.getId() + "}",
+                "{\"type\":\"forum\",\"id\":11,\"parentId\":10,\"name\":\"Imported Section\"}",
+                "{\"type\":\"post\",\"id\":100,\"forumId\":11,\"userId\":1,\"title\":\"Legacy post\",\"content\":\"Imported body\"}",
+                "{\"type\":\"comment\",\"id\":1000,\"postId\":100,\"userId\":1,\"content\":\"First\"}",
+                "{\"type\":\"comment\",\"id\":1001,\"postId\":100,\"parentId\":1000,\"userId\":2,\"content\":\"Reply\"}");
+        String broken = head + "\n{\"type\":\"comment\",\"id\":1002,\"postId\":999,\"content\":\"Lost\"}\n";
+        String fixed = head + "\n{\"type\":\"comment\",\"id\":1002,\"postId\":100,\"parentId\":1000,\"content\":\"Second reply\"}\n";
+
+        BadRequestException failure = assertThrows(BadRequestException.class, () -> bulkImporter.importRecords(
+                new ByteArrayInputStream(broken.getBytes(StandardCharsets.UTF_8)), "legacy-board", adminUser.getId()));
+        assertTrue(failure.getMessage().startsWith("Line 8 of import legacy-board:"));
+        ImportJob job = importJobRepository.findById("legacy-board").orElseThrow();
+        assertEquals(ImportJob.Status.FAILED, job.getStatus());
+        assertEquals(6, job.getRecords());
+
+        // Someone else cannot resume the import
+        assertThrows(AccessDeniedException.class, () -> bulkImporter.importRecords(
+                new ByteArrayInputStream(fixed.getBytes(StandardCharsets.UTF_8)), "legacy-board", regularUser.getId()));
+
+        BulkImporter.Result result = bulkImporter.importRecords(
+                new ByteArrayInputStream(fixed.getBytes(StandardCharsets.UTF_8)), "legacy-board", adminUser.getId());
+        assertEquals(8, result.records());
+        assertEquals(6, result.resumedFrom());
+        assertEquals(2, result.comments());
+        assertEquals(ImportJob.Status.COMPLETED, importJobRepository.findById("legacy-board").orElseThrow().getStatus());
+
+        // The forums hang under the target forum and the importer administers them
+        Forum board = forumRepository.findByNameIgnoreCase("Imported Board").orElseThrow();
+        Forum section = forumRepository.findByNameIgnoreCase("Imported Section").orElseThrow();
+        assertEquals(testForum.getId(), board.getParentForum().getId());
+        assertEquals(board.getId(), section.getParentForum().getId());
+        assertEquals(1, section.getPostCount());
+        assertTrue(forumService.hasForumAccess(section.getId(), adminUser.getId(), AccessLevel.ADMIN));
+
+        // Authors are mapped to the imported user and to the existing user with the same name
+        Post post = postService.getPostsByForum(section.getId(), adminUser.getId(), PageRequest.of(0, 10)).getContent().get(0);
+        assertEquals("legacy-alice", post.getUser().getUsername());
+        assertEquals(3, postRepository.findById(post.getId()).orElseThrow().getCommentCount());
+        List<Comment> topLevel = commentService.getCommentsByPost(post.getId(), adminUser.getId(), PageRequest.of(0, 10)).getContent();
+        assertEquals(1, topLevel.size());
+        assertEquals(2, topLevel.get(0).getReplyCount());
+        assertTrue(commentService.getRepliesByComment(topLevel.get(0).getId(), adminUser.getId(), PageRequest.of(0, 10)).stream()
+                .allMatch(reply -> reply.getUser().getId().equals(adminUser.getId())));
+    }
+
+    @Test
+    void testVotesAreIdempotentAndRemovedWithTheirTarget() {
+        Post post = postService.createPost("Vote on me", "Up or down", testForum.getId(), adminUser.getId());
+        Comment comment = commentService.createComment(post.getId(), "Me too", adminUser.getId());
+
+        // Repeating a vote changes nothing, switching it moves the score by two
+        assertEquals(1, postService.upvotePost(post.getId(), regularUser.getId()).getScore());
+        assertEquals(1, postService.upvotePost(post.getId(), regularUser.getId()).getScore());
+        assertEquals(2, postService.upvotePost(post.getId(), adminUser.getId()).getScore());
+        assertEquals(0, postService.downvotePost(post.getId(), regularUser.getId()).getScore());
+        assertEquals(-1, postService.clearPostVote(post.getId(), adminUser.getId()).getScore());
+        assertTrue(voteRepository.findByUserAndTarget(adminUser.getId(), VoteTarget.POST, post.getId()).isEmpty());
+
+        assertEquals(-1, commentService.downvoteComment(comment.getId(), regularUser.getId()).getScore());
+        assertEquals(1, commentService.upvoteComment(comment.getId(), regularUser.getId()).getScore());
+        assertEquals(0, commentService.clearCommentVote(comment.getId(), regularUser.getId()).getScore());
+        commentService.upvoteComment(comment.getId(), regularUser.getId());
+
+        // Deleting the post deletes the votes on it and on its comments
+        postService.deletePost(post.getId(), adminUser.getId());
+        assertTrue(voteRepository.findByUserAndTarget(regularUser.getId(), VoteTarget.POST, post.getId()).isEmpty());
+        assertTrue(voteRepository.findByUserAndTarget(regularUser.getId(), VoteTarget.COMMENT, comment.getId()).isEmpty());
+    }
+
+    @Test
+    void testRankedPostListings() {
+        Forum forum = forumService.createForum("Ranked Forum", "Posts ranked by activity", adminUser.getId());
+        Post quiet = postService.createPost("Quiet", "Nobody answers", forum.getId(), adminUser.getId());
+        Post busy = postService.createPost("Busy", "Everybody answers", forum.getId(), adminUser.getId());
+        Post middle = postService.createPost("Middle", "Somebody answers", forum.getId(), adminUser.getId());
+        Comment first = commentService.createComment(busy.getId(), "First", adminUser.getId());
+        commentService.createReply(first.getId(), "Second", adminUser.getId());
+        commentService.createComment(middle.getId(), "Only", adminUser.getId());
+
+        Page<Post> active = postService.getRankedPostsByForum(forum.getId(), adminUser.getId(), RankingMode.ACTIVE,
+                RankingWindow.DAY, PageRequest.of(0, 10));
+        assertEquals(List.of(busy.getId(), middle.getId(), quiet.getId()),
+                active.getContent().stream().map(Post::getId).toList());
+        assertEquals(3, active.getTotalElements());
+
+        // Deleting comments and posts re-ranks the rest
+        commentService.deleteComment(first.getId(), adminUser.getId());
+        postService.deletePost(middle.getId(), adminUser.getId());
+        commentService.createComment(quiet.getId(), "Finally", adminUser.getId());
+        assertEquals(List.of(quiet.getId(), busy.getId()),
+                postService.getRankedPostsByForum(forum.getId(), adminUser.getId(), RankingMode.ACTIVE,
+                        RankingWindow.ALL, PageRequest.of(0, 10)).getContent().stream().map(Post::getId).toList());
+    }
+
+    @Test
+    void testHomeFeedCoversInheritedForumsNewestFirst() {
+        Forum nested = forumService.createSubforum("Nested Forum", "Inherits the reader's access", subForum.getId(),
+                adminUser.getId());
+        Forum hidden = forumService.createForum("Hidden Forum", "Not readable by the reader", adminUser.getId());
+        Post older = postService.createPost("Older", "In the test forum", testForum.getId(), adminUser.getId());
+        postService.createPost("Hidden", "In the hidden forum", hidden.getId(), adminUser.getId());
+        Post newer = postService.createPost("Newer", "In the nested forum", nested.getId(), adminUser.getId());
+
+        CursorPage<Post> first = postService.getHomeFeed(readerUser.getId(), null, 1);
+        assertEquals(List.of(newer.getId()), first.content().stream().map(Post::getId).toList());
+        assertTrue(first.hasNext());
+        CursorPage<Post> second = postService.getHomeFeed(readerUser.getId(), first.nextCursor(), 1);
+        assertEquals(List.of(older.getId()), second.content().stream().map(Post::getId).toList());
+        assertFalse(second.hasNext());
+
+        // New posts reach the kept feed, deleted ones are skipped
+        Post newest = postService.createPost("Newest", "In the subforum", subForum.getId(), adminUser.getId());
+        postService.deletePost(older.getId(), adminUser.getId());
+        assertEquals(List.of(newest.getId(), newer.getId()),
+                postService.getHomeFeed(readerUser.getId(), null, 10).content().stream().map(Post::getId).toList());
+    }
+
+    @Test
+    void testSearchRankingAndIndexUpdates() {
+        Post passing = postService.createPost("Gardening", "Tomatoes need sun and tomatoes need water",
+                testForum.getId(), adminUser.getId());
+        Post focused = postService.createPost("Tomatoes", "Growing tomatoes: tomatoes, tomatoes everywhere",
+                testForum.getId(), adminUser.getId());
+
+        // The post that mentions the term more often ranks first
+        Page<Post> ranked = postService.searchPosts("Tomatoes", adminUser.getId(), PageRequest.of(0, 10));
+        assertEquals(2, ranked.getTotalElements());
+        assertEquals(focused.getId(), ranked.getContent().get(0).getId());
+        assertEquals(passing.getId(), ranked.getContent().get(1).getId());
+
+        // Updates replace the indexed text
+        postService.updatePost(passing.getId(), null, "Peppers need sun and water", adminUser.getId());
+        Page<Post> afterUpdate = postService.searchPosts("tomatoes", adminUser.getId(), PageRequest.of(0, 10));
+        assertEquals(1, afterUpdate.getTotalElements());
+        assertEquals(1, postService.searchPosts("peppers", adminUser.getId(), PageRequest.of(0, 10))
+                .getTotalElements());
+
+        // Deleting a post removes it and its comments from the index
+        commentService.createComment(focused.getId(), "Cherry tomatoes are best", adminUser.getId());
+        assertEquals(1, commentService.searchComments("cherry", adminUser.getId(), PageRequest.of(0, 10))
+                .getTotalElements());
+        postService.deletePost(focused.getId(), adminUser.getId());
+        assertEquals(0, postService.searchPosts("tomatoes", adminUser.getId(), PageRequest.of(0, 10))
+                .getTotalElements());
+        assertEquals(0, commentService.searchComments("cherry", adminUser.getId(), PageRequest.of(0, 10))
+                .getTotalElements());
+    }
+
+    @Test
+    void testAccessFilteredSearchAndListings() {
+        // A private forum tree that only the admin can read
+        Forum privateForum = forumService.createForum("Private Forum", "Admins only", adminUser.getId());
+        Forum privateSub = forumService.createSubforum("Private Sub", "Admins only", privateForum.getId(),
+                adminUser.getId());
+        Post hidden = postService.createPost("Budget draft", "Secret budget numbers", privateSub.getId(),
+                adminUser.getId());
+        commentService.createComment(hidden.getId(), "Budget looks fine", adminUser.getId());
+        Post visible = postService.createPost("Budget meeting", "Public budget meeting notes", testForum.getId(),
+                adminUser.getId());
+        commentService.createComment(visible.getId(), "Budget meeting moved", adminUser.getId());
+
+        // Filtering happens in the query, so totals and page sizes only count readable rows
+        Page<Post> readerSearch = postService.searchPosts("budget", readerUser.getId(), PageRequest.of(0, 1));
+        assertEquals(1, readerSearch.getTotalElements());
+        assertEquals(visible.getId(), readerSearch.getContent().get(0).getId());
+        assertEquals(1, commentService.searchComments("budget", readerUser.getId(), PageRequest.of(0, 10))
+                .getTotalElements());
+        assertEquals(1, postService.getPostsByUser(adminUser.getId(), readerUser.getId(), PageRequest.of(0, 10))
+                .getTotalElements());
+        assertEquals(1, commentService.getCommentsByUser(adminUser.getId(), readerUser.getId(), PageRequest.of(0, 10))
+                .getTotalElements());
+        assertEquals(2, postService.searchPosts("budget", adminUser.getId(), PageRequest.of(0, 10))
+                .getTotalElements());
+
+        // Access granted on the root forum is inherited by its subforum
+        forumService.grantForumAccess(privateForum.getId(), readerUser.getId(), AccessLevel.READ, adminUser.getId());
+        assertEquals(2, postService.searchPosts("budget", readerUser.getId(), PageRequest.of(0, 10))
+                .getTotalElements());
+        assertEquals(2, commentService.getCommentsByUser(adminUser.getId(), readerUser.getId(), PageRequest.of(0, 10))
+                .getTotalElements());
+
+        // Anonymous callers cannot read any forum
+        assertTrue(postService.searchPosts("budget", null, PageRequest.of(0, 10)).isEmpty());
+    }
+
     @Test
     void testForumMovement() {
         // Create a hierarchy of forums
@@ -0,0 +1,124 @@
+package com.example.forum.integration;
+
+import com.example.forum.model.AccessLevel;
+import com.example.forum.model.Forum;
+import com.example.forum.model.Post;
+import com.example.forum.model.Role;
+import com.example.forum.model.User;
+import com.example.forum.repository.PostRepository;
+import com.example.forum.service.ForumService;
+import com.example.forum.service.PostService;
+import com.example.forum.service.UserService;
+import com.example.forum.service.impl.VoteCounters;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that concurrent votes of one user count once, and that drifted scores are rebuilt
+ * from the votes. Not transactional, since scores are only counted once votes commit.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class VoteConcurrencyTest {
+
+    private static final int REQUESTS = 8;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ForumService forumService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private VoteCounters voteCounters;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User admin;
+    private User voter;
+    private Forum forum;
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = Long.toString(System.nanoTime(), 36);
+        admin = userService.registerUser("voteadmin" + suffix, "password123", "voteadmin" + suffix + "@example.com",
+                "Vote Admin", Role.ADMIN);
+        voter = userService.registerUser("voter" + suffix, "password123", "voter" + suffix + "@example.com",
+                "Voter", Role.USER);
+        forum = forumService.createForum("Vote Forum " + suffix, "Vote test forum", admin.getId());
+        forumService.grantForumAccess(forum.getId(), voter.getId(), AccessLevel.READ, admin.getId());
+        post = postService.createPost("Contested post", "Vote on me", forum.getId(), admin.getId());
+    }
+
+    @AfterEach
+    void tearDown() {
+        forumService.deleteForum(forum.getId(), admin.getId());
+    }
+
+    private void concurrently(Runnable request) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(REQUESTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                request.run();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            // Fails the test with the exception of a failed request
+            result.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private int storedScore() {
+        // Writes the pending changes, and repairs nothing when every vote counted once
+        assertEquals(0, voteCounters.reconcile());
+        return postRepository.findById(post.getId()).orElseThrow().getScore();
+    }
+
+    @Test
+    void testConcurrentVotesOfOneUserCountOnce() throws Exception {
+        concurrently(() -> postService.upvotePost(post.getId(), voter.getId()));
+        assertEquals(1, storedScore());
+
+        concurrently(() -> postService.downvotePost(post.getId(), voter.getId()));
+        assertEquals(-1, storedScore());
+    }
+
+    @Test
+    void testReconcileRebuildsDriftedScores() {
+        postService.upvotePost(post.getId(), voter.getId());
+        assertEquals(1, storedScore());
+
+        jdbcTemplate.update("UPDATE posts SET score = 40, upvotes = 40 WHERE id = ?", post.getId());
+        assertEquals(1, voteCounters.reconcile());
+        assertEquals(1, postRepository.findById(post.getId()).orElseThrow().getScore());
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.forum.job;
+
+import com.example.forum.content.ContentLayoutMigrator;
+import com.example.forum.content.FileSystemContentStorage;
+import com.example.forum.repository.ContentBlobRepository;
+import com.example.forum.repository.ContentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the sweeper of files no content points at.
+ */
+@ExtendWith(MockitoExtension.class)
+public class OrphanFileSweepJobTest {
+
+    @TempDir
+    Path storage;
+
+    @Mock
+    private ContentBlobRepository contentBlobRepository;
+
+    @Mock
+    private ContentRepository contentRepository;
+
+    @Mock
+    private ContentLayoutMigrator contentLayoutMigrator;
+
+    private OrphanFileSweepJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new OrphanFileSweepJob(contentBlobRepository, contentRepository, contentLayoutMigrator);
+        ReflectionTestUtils.setField(job, "contentStoragePath", storage.toString());
+    }
+
+    @Test
+    void testSweepLeavesFilesBeingMoved() throws Exception {
+        Path orphan = Files.writeString(storage.resolve("orphan"), "bytes");
+        // A hard link made by the migrator, as old as the file it links to
+        Path moving = Files.createDirectories(storage.resolve("ab").resolve("cd")).resolve("abcdef");
+        Files.writeString(moving, "bytes");
+        FileTime old = FileTime.from(Instant.now().minus(Duration.ofDays(2)));
+        Files.setLastModifiedTime(orphan, old);
+        Files.setLastModifiedTime(moving, old);
+        when(contentLayoutMigrator.isPending(any())).thenAnswer(invocation -> moving.equals(invocation.getArgument(0)));
+        when(contentBlobRepository.findLocationsIn(eq(FileSystemContentStorage.NAME), anyCollection()))
+                .thenReturn(List.of());
+        when(contentRepository.findContentPathsIn(anyCollection())).thenReturn(List.of());
+
+        OrphanFileSweepJob.Result result = job.sweep();
+
+        assertEquals(2, result.scanned());
+        assertEquals(1, result.deleted());
+        assertFalse(Files.exists(orphan));
+        assertTrue(Files.exists(moving));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.forum.ranking;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the in-memory post rankings: ordering per mode, time windows and undoing rolled back
+ * changes.
+ */
+class PostRankingTest {
+
+    private static final long FORUM = 1L;
+
+    private final PostRanking ranking = new PostRanking(null);
+    private final LocalDateTime now = LocalDateTime.now();
+
+    private List<Long> rank(RankingMode mode, RankingWindow window) {
+        return ranking.rank(FORUM, mode, window, PageRequest.of(0, 10)).getContent();
+    }
+
+    @Test
+    void testModesOrderByTheirCounters() {
+        ranking.postCreated(1L, FORUM, now.minusHours(30));
+        ranking.postCreated(2L, FORUM, now.minusHours(2));
+        ranking.postCreated(3L, FORUM, now.minusHours(1));
+        ranking.votesChanged(1L, 100, 0);
+        ranking.votesChanged(2L, 5, 0);
+        ranking.votesChanged(3L, 10, 9);
+        ranking.commentsChanged(2L, 4);
+        ranking.commentsChanged(3L, 1);
+
+        assertEquals(List.of(1L, 2L, 3L), rank(RankingMode.TOP, RankingWindow.ALL));
+        assertEquals(List.of(2L, 3L, 1L), rank(RankingMode.ACTIVE, RankingWindow.ALL));
+        assertEquals(List.of(3L, 2L, 1L), rank(RankingMode.CONTROVERSIAL, RankingWindow.ALL));
+        // Twenty times the score does not make up for being 28 hours older
+        assertEquals(List.of(2L, 3L, 1L), rank(RankingMode.HOT, RankingWindow.ALL));
+
+        // Re-ranked as the counters change
+        ranking.votesChanged(2L, 0, 10);
+        assertEquals(List.of(3L, 1L, 2L), rank(RankingMode.HOT, RankingWindow.ALL));
+    }
+
+    @Test
+    void testWindowsLimitTheAgeOfPosts() {
+        ranking.postCreated(1L, FORUM, now.minusDays(10));
+        ranking.postCreated(2L, FORUM, now.minusDays(3));
+        ranking.postCreated(3L, FORUM, now.minusHours(3));
+        ranking.votesChanged(1L, 30, 0);
+        ranking.votesChanged(2L, 20, 0);
+        ranking.votesChanged(3L, 10, 0);
+
+        assertEquals(List.of(3L), rank(RankingMode.TOP, RankingWindow.DAY));
+        assertEquals(List.of(2L, 3L), rank(RankingMode.TOP, RankingWindow.WEEK));
+        assertEquals(List.of(1L, 2L, 3L), rank(RankingMode.TOP, RankingWindow.MONTH));
+
+        // Pages of a window are cut from the posts of the window
+        Page<Long> second = ranking.rank(FORUM, RankingMode.TOP, RankingWindow.MONTH, PageRequest.of(1, 2));
+        assertEquals(List.of(3L), second.getContent());
+        assertEquals(3, second.getTotalElements());
+    }
+
+    @Test
+    void testChangesAreUndoneOnRollback() {
+        ranking.postCreated(1L, FORUM, now.minusHours(1));
+        ranking.postCreated(2L, FORUM, now.minusHours(1));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            ranking.postCreated(3L, FORUM, now);
+            ranking.commentsChanged(1L, 5);
+            ranking.postsDeleted(List.of(2L));
+            assertEquals(List.of(1L, 3L), rank(RankingMode.ACTIVE, RankingWindow.ALL));
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Both posts are back without comments, higher IDs first among equal ranks
+        assertEquals(List.of(2L, 1L), rank(RankingMode.ACTIVE, RankingWindow.ALL));
+        assertEquals(2, ranking.rank(FORUM, RankingMode.HOT, RankingWindow.ALL, PageRequest.of(0, 10))
+                .getTotalElements());
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.forum.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the on-disk inverted index: segment writes, merges, reopening and reverting changes.
+ */
+class InvertedIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testSegmentsSurviveMergeAndReopen() throws Exception {
+        // Flush every 2 documents and merge as soon as there are more than 2 segments
+        try (InvertedIndex index = InvertedIndex.open(directory, 2, 2)) {
+            for (long id = 1; id <= 7; id++) {
+                index.release(index.add(id, 1, id, "post number " + id + (id % 2 == 0 ? " even" : " odd")));
+            }
+            index.release(index.delete(3));
+            index.release(index.add(4, 1, 4, "post number 4 rewritten"));
+            assertTrue(index.segmentCount() <= 2);
+        }
+
+        try (InvertedIndex reopened = InvertedIndex.open(directory, 2, 2)) {
+            assertEquals(6, reopened.liveCount());
+            assertEquals(List.of(7L, 5L, 1L), reopened.search("odd", null, 0, 10).entityIds());
+            assertEquals(List.of(6L, 2L), reopened.search("even", null, 0, 10).entityIds());
+            assertEquals(List.of(4L), reopened.search("rewritten", null, 0, 10).entityIds());
+            assertEquals(0, reopened.search("3", null, 0, 10).total());
+        }
+    }
+
+    @Test
+    void testRevertRestoresPreviousVersion() throws Exception {
+        try (InvertedIndex index = InvertedIndex.open(directory, 1, 1)) {
+            index.release(index.add(1, 1, 1, "original text"));
+            InvertedIndex.Change update = index.add(1, 1, 1, "changed text");
+            InvertedIndex.Change delete = index.delete(1);
+            // Force merges while the changes are outstanding
+            index.release(index.add(2, 1, 2, "filler"));
+            index.release(index.add(3, 1, 3, "filler"));
+
+            index.revert(delete);
+            index.revert(update);
+
+            assertEquals(List.of(1L), index.search("original", null, 0, 10).entityIds());
+            assertEquals(0, index.search("changed", null, 0, 10).total());
+            assertEquals(List.of(), index.search("original", List.of(2L), 0, 10).entityIds());
+        }
+    }
+
+    @Test
+    void testDeleteByPostsAndForumOnlyRemoveTheirDocuments() throws Exception {
+        try (InvertedIndex index = InvertedIndex.open(directory, 2, 2)) {
+            // Comments 1-4 of posts 10 and 11 in forum 1, comment 5 of post 20 in forum 2
+            index.release(index.add(1, 1, 10, "shared text"));
+            index.release(index.add(2, 1, 10, "shared text"));
+            index.release(index.add(3, 1, 11, "shared text"));
+            index.release(index.add(4, 1, 12, "shared text"));
+            index.release(index.add(5, 2, 20, "shared text"));
+
+            InvertedIndex.Change posts = index.deleteByPosts(List.of(10L, 11L));
+            assertEquals(3, posts.removed().size());
+            assertEquals(List.of(5L, 4L), index.search("shared", null, 0, 10).entityIds());
+
+            index.revert(posts);
+            assertEquals(5, index.liveCount());
+
+            index.release(index.deleteByForum(1));
+            assertEquals(List.of(5L), index.search("shared", null, 0, 10).entityIds());
+            assertTrue(index.deleteByForum(1).isEmpty());
+        }
+
+        try (InvertedIndex reopened = InvertedIndex.open(directory, 2, 2)) {
+            assertTrue(reopened.deleteByPosts(List.of(10L, 11L, 12L)).isEmpty());
+            assertEquals(1, reopened.deleteByForum(2).removed().size());
+        }
+    }
+}
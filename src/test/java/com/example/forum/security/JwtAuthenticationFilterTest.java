@@ -0,0 +1,110 @@
+package com.example.forum.security;
+
+import com.example.forum.model.Role;
+import com.example.forum.model.User;
+import com.example.forum.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the stateless JWT authentication path.
+ */
+@ExtendWith(MockitoExtension.class)
+public class JwtAuthenticationFilterTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private JwtTokenProvider tokenProvider;
+    private ActiveUserCache activeUserCache;
+    private JwtAuthenticationFilter filter;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret", "test-secret-key-should-be-at-least-32-characters-long");
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationMs", 60000L);
+        tokenProvider.init();
+
+        activeUserCache = new ActiveUserCache(userRepository);
+        filter = new JwtAuthenticationFilter(tokenProvider, activeUserCache, userRepository, true);
+
+        user = User.builder()
+                .id(7L)
+                .username("alice")
+                .role(Role.USER)
+                .active(true)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testTokenAuthenticatesWithoutUserLookup() throws Exception {
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        String token = tokenProvider.generateToken(user);
+
+        Authentication first = authenticate(token);
+        Authentication second = authenticate(token);
+
+        assertNotNull(first);
+        assertNotNull(second);
+        AuthenticatedUser principal = (AuthenticatedUser) second.getPrincipal();
+        assertEquals(7L, principal.id());
+        assertEquals("alice", second.getName());
+        assertTrue(second.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_USER")));
+        // The active status is cached, and the username is never looked up
+        verify(userRepository, times(1)).findById(7L);
+        verify(userRepository, never()).findByUsername(anyString());
+    }
+
+    @Test
+    void testDeactivationAndRoleChangeRevokeToken() throws Exception {
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        String token = tokenProvider.generateToken(user);
+        assertNotNull(authenticate(token));
+
+        user.setActive(false);
+        activeUserCache.evict(7L);
+        assertNull(authenticate(token));
+
+        user.setActive(true);
+        user.setRole(Role.ADMIN);
+        activeUserCache.evict(7L);
+        assertNull(authenticate(token));
+    }
+
+    @Test
+    void testInvalidTokenIsRejected() throws Exception {
+        assertNull(authenticate("not-a-token"));
+        verifyNoInteractions(userRepository);
+    }
+
+    private Authentication authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
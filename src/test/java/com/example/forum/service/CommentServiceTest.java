@@ -1,5 +1,8 @@
 package com.example.forum.service;
 
+import com.example.forum.content.ContentBlobStore;
+import com.example.forum.content.ImageVariantGenerator;
+import com.example.forum.events.ForumEventBus;
 import com.example.forum.exception.AccessDeniedException;
 import com.example.forum.exception.BadRequestException;
 import com.example.forum.exception.ResourceNotFoundException;
@@ -10,8 +13,12 @@ import com.example.forum.model.ContentType;
 import com.example.forum.model.Forum;
 import com.example.forum.model.Post;
 import com.example.forum.model.User;
+import com.example.forum.ranking.PostRanking;
 import com.example.forum.repository.CommentRepository;
 import com.example.forum.repository.ContentRepository;
+import com.example.forum.repository.PostRepository;
+import com.example.forum.search.SearchEngine;
+import com.example.forum.service.impl.BulkDeleter;
 import com.example.forum.service.impl.CommentServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -31,6 +38,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -45,6 +53,9 @@ public class CommentServiceTest {
     @Mock
     private ContentRepository contentRepository;
 
+    @Mock
+    private PostRepository postRepository;
+
     @Mock
     private PostService postService;
 
@@ -54,6 +65,24 @@ public class CommentServiceTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private SearchEngine searchEngine;
+
+    @Mock
+    private ContentBlobStore contentBlobStore;
+
+    @Mock
+    private ImageVariantGenerator imageVariantGenerator;
+
+    @Mock
+    private BulkDeleter bulkDeleter;
+
+    @Mock
+    private PostRanking postRanking;
+
+    @Mock
+    private ForumEventBus forumEventBus;
+
     @InjectMocks
     private CommentServiceImpl commentService;
 
@@ -605,8 +634,8 @@ public class CommentServiceTest {
         List<Comment> comments = Arrays.asList(testComment, testReply);
         Page<Comment> page = new PageImpl<>(comments);
 
-        when(commentRepository.searchByContent(searchTerm, pageable)).thenReturn(page);
-        when(forumService.hasForumAccess(anyLong(), eq(userId), eq(AccessLevel.READ))).thenReturn(true);
+        when(forumService.getReadableForumIds(userId)).thenReturn(Set.of(1L));
+        when(commentRepository.searchByContentInForums(searchTerm, Set.of(1L), pageable)).thenReturn(page);
 
         // Act
         Page<Comment> result = commentService.searchComments(searchTerm, userId, pageable);
@@ -1,5 +1,7 @@
 package com.example.forum.service;
 
+import com.example.forum.cache.ForumPermissionCache;
+import com.example.forum.cache.ForumTreeCache;
 import com.example.forum.exception.AccessDeniedException;
 import com.example.forum.exception.BadRequestException;
 import com.example.forum.exception.DuplicateResourceException;
@@ -9,13 +11,17 @@ import com.example.forum.model.Forum;
 import com.example.forum.model.ForumAccess;
 import com.example.forum.model.User;
 import com.example.forum.repository.ForumAccessRepository;
+import com.example.forum.repository.ForumClosureRepository;
 import com.example.forum.repository.ForumRepository;
+import com.example.forum.search.SearchEngine;
+import com.example.forum.service.impl.BulkDeleter;
 import com.example.forum.service.impl.ForumServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
@@ -39,9 +45,24 @@ public class ForumServiceTest {
     @Mock
     private ForumAccessRepository forumAccessRepository;
 
+    @Mock
+    private ForumClosureRepository forumClosureRepository;
+
     @Mock
     private UserService userService;
 
+    @Spy
+    private ForumPermissionCache permissionCache = new ForumPermissionCache();
+
+    @Spy
+    private ForumTreeCache forumTreeCache = new ForumTreeCache();
+
+    @Mock
+    private SearchEngine searchEngine;
+
+    @Mock
+    private BulkDeleter bulkDeleter;
+
     @InjectMocks
     private ForumServiceImpl forumService;
 
@@ -707,4 +728,63 @@ public class ForumServiceTest {
         });
         verify(forumAccessRepository, never()).save(any(ForumAccess.class));
     }
+
+    //
+    // Permission Cache Tests
+    //
+
+    @Test
+    void testHasForumAccess_InheritedFromParentAndCached() {
+        // Arrange
+        Long userId = 1L;
+        ForumAccess parentAccess = ForumAccess.builder()
+                .user(testUser)
+                .forum(testParentForum)
+                .accessLevel(AccessLevel.WRITE)
+                .build();
+
+        when(userService.getUserById(userId)).thenReturn(testUser);
+        when(forumRepository.findById(3L)).thenReturn(Optional.of(testSubForum));
+        when(forumAccessRepository.findByUserIdAndForumId(userId, 3L)).thenReturn(Optional.empty());
+        when(forumAccessRepository.findByUserIdAndForumId(userId, 2L)).thenReturn(Optional.of(parentAccess));
+
+        // Act
+        boolean canWrite = forumService.hasForumAccess(3L, userId, AccessLevel.WRITE);
+        boolean canRead = forumService.hasForumAccess(3L, userId, AccessLevel.READ);
+        boolean canAdmin = forumService.hasForumAccess(3L, userId, AccessLevel.ADMIN);
+
+        // Assert
+        assertTrue(canWrite);
+        assertTrue(canRead);
+        assertFalse(canAdmin);
+        verify(forumRepository, times(1)).findById(3L);
+        assertEquals(2, permissionCache.getStats().hits());
+        assertEquals(1, permissionCache.getStats().misses());
+    }
+
+    @Test
+    void testHasForumAccess_InvalidatedByAncestorRevoke() {
+        // Arrange
+        Long userId = 1L;
+        ForumAccess parentAccess = ForumAccess.builder()
+                .user(testUser)
+                .forum(testParentForum)
+                .accessLevel(AccessLevel.READ)
+                .build();
+
+        when(userService.getUserById(userId)).thenReturn(testUser);
+        when(forumRepository.findById(3L)).thenReturn(Optional.of(testSubForum));
+        when(forumAccessRepository.findByUserIdAndForumId(userId, 3L)).thenReturn(Optional.empty());
+        when(forumAccessRepository.findByUserIdAndForumId(userId, 2L))
+                .thenReturn(Optional.of(parentAccess))
+                .thenReturn(Optional.empty());
+        assertTrue(forumService.hasForumAccess(3L, userId, AccessLevel.READ));
+
+        // Act - revoking access on the parent must evict the cached subforum entry
+        permissionCache.invalidateUserAccess(userId, 2L);
+
+        // Assert
+        assertFalse(forumService.hasForumAccess(3L, userId, AccessLevel.READ));
+        verify(forumRepository, times(2)).findById(3L);
+    }
 }
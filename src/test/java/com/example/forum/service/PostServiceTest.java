@@ -1,22 +1,32 @@
 package com.example.forum.service;
 
+import com.example.forum.cache.ForumTreeCache;
+import com.example.forum.content.ContentBlobStore;
+import com.example.forum.content.ImageVariantGenerator;
+import com.example.forum.events.ForumEventBus;
 import com.example.forum.exception.AccessDeniedException;
 import com.example.forum.exception.BadRequestException;
 import com.example.forum.exception.ResourceNotFoundException;
+import com.example.forum.feed.HomeFeed;
 import com.example.forum.model.AccessLevel;
 import com.example.forum.model.Content;
 import com.example.forum.model.ContentType;
 import com.example.forum.model.Forum;
 import com.example.forum.model.Post;
 import com.example.forum.model.User;
+import com.example.forum.ranking.PostRanking;
 import com.example.forum.repository.ContentRepository;
+import com.example.forum.repository.ForumRepository;
 import com.example.forum.repository.PostRepository;
+import com.example.forum.search.SearchEngine;
+import com.example.forum.service.impl.BulkDeleter;
 import com.example.forum.service.impl.PostServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -32,6 +42,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -46,12 +57,39 @@ public class PostServiceTest {
     @Mock
     private ContentRepository contentRepository;
 
+    @Mock
+    private ForumRepository forumRepository;
+
     @Mock
     private ForumService forumService;
 
     @Mock
     private UserService userService;
 
+    @Spy
+    private ForumTreeCache forumTreeCache = new ForumTreeCache();
+
+    @Mock
+    private SearchEngine searchEngine;
+
+    @Mock
+    private ContentBlobStore contentBlobStore;
+
+    @Mock
+    private ImageVariantGenerator imageVariantGenerator;
+
+    @Mock
+    private BulkDeleter bulkDeleter;
+
+    @Mock
+    private PostRanking postRanking;
+
+    @Mock
+    private ForumEventBus forumEventBus;
+
+    @Mock
+    private HomeFeed homeFeed;
+
     @InjectMocks
     private PostServiceImpl postService;
 
@@ -310,16 +348,13 @@ public class PostServiceTest {
         Long userId = 1L; // Same as author
 
         when(postRepository.findById(postId)).thenReturn(Optional.of(testPost));
-        when(contentRepository.findByPostId(postId)).thenReturn(Collections.emptyList());
-        doNothing().when(contentRepository).deleteByPostId(postId);
-        doNothing().when(postRepository).delete(testPost);
 
         // Act
         postService.deletePost(postId, userId);
 
         // Assert
-        verify(contentRepository).deleteByPostId(postId);
-        verify(postRepository).delete(testPost);
+        verify(bulkDeleter).deletePosts(List.of(postId));
+        verify(forumRepository).adjustPostCount(testPost.getForum().getId(), -1);
     }
 
     @Test
@@ -330,16 +365,13 @@ public class PostServiceTest {
 
         when(postRepository.findById(postId)).thenReturn(Optional.of(testPost));
         when(forumService.hasForumAccess(testPost.getForum().getId(), userId, AccessLevel.ADMIN)).thenReturn(true);
-        when(contentRepository.findByPostId(postId)).thenReturn(Collections.emptyList());
-        doNothing().when(contentRepository).deleteByPostId(postId);
-        doNothing().when(postRepository).delete(testPost);
 
         // Act
         postService.deletePost(postId, userId);
 
         // Assert
-        verify(contentRepository).deleteByPostId(postId);
-        verify(postRepository).delete(testPost);
+        verify(bulkDeleter).deletePosts(List.of(postId));
+        verify(forumRepository).adjustPostCount(testPost.getForum().getId(), -1);
     }
 
     @Test
@@ -355,7 +387,7 @@ public class PostServiceTest {
         assertThrows(AccessDeniedException.class, () -> {
             postService.deletePost(postId, userId);
         });
-        verify(postRepository, never()).delete(any(Post.class));
+        verify(bulkDeleter, never()).deletePosts(any());
     }
 
     // Post Content Tests
@@ -484,8 +516,8 @@ public class PostServiceTest {
         List<Post> posts = Arrays.asList(testPost, Post.builder().id(2L).build());
         Page<Post> page = new PageImpl<>(posts);
 
-        when(postRepository.searchByTitleOrContent(searchTerm, pageable)).thenReturn(page);
-        when(forumService.hasForumAccess(anyLong(), eq(userId), eq(AccessLevel.READ))).thenReturn(true);
+        when(forumService.getReadableForumIds(userId)).thenReturn(Set.of(1L));
+        when(postRepository.searchByTitleOrContentInForums(searchTerm, Set.of(1L), pageable)).thenReturn(page);
 
         // Act
         Page<Post> result = postService.searchPosts(searchTerm, userId, pageable);
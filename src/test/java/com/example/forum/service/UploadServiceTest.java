@@ -0,0 +1,160 @@
+package com.example.forum.service;
+
+import com.example.forum.content.ContentBlobStore;
+import com.example.forum.exception.BadRequestException;
+import com.example.forum.exception.ResourceNotFoundException;
+import com.example.forum.model.ContentType;
+import com.example.forum.model.Forum;
+import com.example.forum.model.Post;
+import com.example.forum.model.UploadChunk;
+import com.example.forum.model.UploadSession;
+import com.example.forum.model.User;
+import com.example.forum.repository.ContentRepository;
+import com.example.forum.repository.UploadChunkRepository;
+import com.example.forum.repository.UploadSessionRepository;
+import com.example.forum.service.impl.UploadServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UploadServiceTest {
+
+    private static final String UPLOAD_ID = "upload-1";
+
+    @TempDir
+    Path storage;
+
+    @Mock
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Mock
+    private UploadChunkRepository uploadChunkRepository;
+
+    @Mock
+    private ContentRepository contentRepository;
+
+    @Mock
+    private PostService postService;
+
+    @Mock
+    private CommentService commentService;
+
+    @Mock
+    private ForumService forumService;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private ContentBlobStore contentBlobStore;
+
+    @InjectMocks
+    private UploadServiceImpl uploadService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ReflectionTestUtils.setField(uploadService, "contentStoragePath", storage.toString());
+        ReflectionTestUtils.setField(uploadService, "maxChunkLength", 1024L);
+        Files.createDirectories(storage.resolve("uploads"));
+        Files.createFile(storage.resolve("uploads").resolve(UPLOAD_ID + ".part"));
+    }
+
+    @Test
+    void testUploadIsNotCompletedWhileAChunkIsBeingWritten() throws Exception {
+        received(session());
+
+        // The bytes of the chunk arrive slowly
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch arrived = new CountDownLatch(1);
+        InputStream data = new ByteArrayInputStream(new byte[] {1, 2, 3, 4}) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                reading.countDown();
+                try {
+                    arrived.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.read(b, off, len);
+            }
+        };
+        CompletableFuture<Long> write = CompletableFuture.supplyAsync(
+                () -> uploadService.writeChunk(UPLOAD_ID, 0, 4, data, null, 1L));
+        assertTrue(reading.await(10, TimeUnit.SECONDS));
+
+        assertThrows(BadRequestException.class, () -> uploadService.completeUpload(UPLOAD_ID, 1L));
+        verify(contentBlobStore, never()).attach(any(), any(Path.class), anyBoolean());
+
+        arrived.countDown();
+        assertEquals(4L, write.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testFailedCompletionKeepsThePartFile() throws Exception {
+        received(session());
+        Path partFile = storage.resolve("uploads").resolve(UPLOAD_ID + ".part");
+        Files.write(partFile, new byte[] {1, 2, 3, 4});
+        // Storing consumes the file it is given
+        doAnswer(invocation -> {
+            Files.delete(invocation.<Path>getArgument(1));
+            return null;
+        }).when(contentBlobStore).attach(any(), any(Path.class), anyBoolean());
+        when(contentRepository.save(any())).thenThrow(new IllegalStateException("Commit failed"));
+
+        assertThrows(IllegalStateException.class, () -> uploadService.completeUpload(UPLOAD_ID, 1L));
+
+        // The bytes are still there to retry with
+        assertArrayEquals(new byte[] {1, 2, 3, 4}, Files.readAllBytes(partFile));
+    }
+
+    @Test
+    void testUnknownUploadsLeaveNoLockBehind() {
+        assertThrows(ResourceNotFoundException.class, () -> uploadService.writeChunk(
+                "made-up", 0, 4, new ByteArrayInputStream(new byte[4]), null, 1L));
+
+        assertEquals(Map.of(), ReflectionTestUtils.getField(uploadService, "uploadLocks"));
+    }
+
+    private UploadSession session() {
+        User user = User.builder().id(1L).build();
+        return UploadSession.builder()
+                .id(UPLOAD_ID)
+                .user(user)
+                .post(Post.builder().user(user).forum(Forum.builder().id(1L).build()).build())
+                .filename("clip.mp4")
+                .contentType(ContentType.VIDEO)
+                .length(4)
+                .expiresAt(LocalDateTime.now().plusHours(1))
+                .build();
+    }
+
+    private void received(UploadSession session) {
+        when(uploadSessionRepository.findById(UPLOAD_ID)).thenReturn(Optional.of(session));
+        when(uploadChunkRepository.findBySessionIdOrderByStartOffset(UPLOAD_ID)).thenReturn(
+                List.of(UploadChunk.builder().session(session).startOffset(0L).size(4L).build()));
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.forum.service;
+
+import com.example.forum.model.VoteTarget;
+import com.example.forum.ranking.PostRanking;
+import com.example.forum.service.impl.VoteCounters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class VoteCountersTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private PostRanking postRanking;
+
+    @InjectMocks
+    private VoteCounters voteCounters;
+
+    private final AtomicLong written = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        voteCounters.init();
+    }
+
+    private void recordWrites() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> args = invocation.getArgument(1);
+            args.forEach(row -> written.addAndGet((Long) row[0]));
+            return new int[args.size()];
+        });
+    }
+
+    @Test
+    void flush_ConcurrentVotes_WritesEveryChangeExactlyOnce() throws Exception {
+        recordWrites();
+        int threads = 8;
+        int votesPerThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < votesPerThread; i++) {
+                    voteCounters.add(VoteTarget.POST, 1L, 1, 0);
+                }
+                done.countDown();
+            });
+        }
+        // Flush while the votes come in, as the scheduler would
+        executor.submit(() -> {
+            while (done.getCount() > 0) {
+                voteCounters.flush();
+            }
+        });
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        // Pick up the votes added after the last flush of the loop
+        voteCounters.flush();
+
+        assertEquals((long) threads * votesPerThread, written.get());
+        assertEquals(0, voteCounters.pending(VoteTarget.POST, 1L));
+    }
+
+    @Test
+    void flush_CoalescesChangesPerRow() {
+        List<Object[]> postRows = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE posts"), anyList())).thenAnswer(invocation -> {
+            postRows.addAll(invocation.getArgument(1));
+            return new int[0];
+        });
+        voteCounters.add(VoteTarget.POST, 2L, 1, 0);
+        voteCounters.add(VoteTarget.POST, 1L, 1, 0);
+        voteCounters.add(VoteTarget.POST, 2L, 1, 0);
+        voteCounters.add(VoteTarget.POST, 1L, -1, 0);
+        voteCounters.add(VoteTarget.POST, 3L, 0, 1);
+
+        assertEquals(2, voteCounters.flush());
+
+        // One statement per changed row, ordered by ID
+        assertEquals(2, postRows.size());
+        assertArrayEquals(new Object[]{2L, 2L, 0L, 2L}, postRows.get(0));
+        assertArrayEquals(new Object[]{-1L, 0L, 1L, 3L}, postRows.get(1));
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("UPDATE comments"), anyList());
+        verify(postRanking).votesChanged(2L, 2, 0);
+        verify(postRanking).votesChanged(3L, 0, 1);
+        verifyNoMoreInteractions(postRanking);
+    }
+
+    @Test
+    void flush_WriteFails_KeepsChangesForNextFlush() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new IllegalStateException("Database down"));
+        voteCounters.add(VoteTarget.COMMENT, 5L, 1, 0);
+
+        assertEquals(0, voteCounters.flush());
+        assertEquals(1, voteCounters.pending(VoteTarget.COMMENT, 5L));
+
+        reset(jdbcTemplate);
+        recordWrites();
+        assertEquals(1, voteCounters.flush());
+        assertEquals(1, written.get());
+    }
+
+    @Test
+    void flush_RankingUpdateFails_DoesNotWriteChangesAgain() {
+        recordWrites();
+        doThrow(new IllegalStateException("Ranking failed")).when(postRanking).votesChanged(anyLong(), anyLong(), anyLong());
+        voteCounters.add(VoteTarget.POST, 4L, 1, 0);
+
+        assertThrows(IllegalStateException.class, () -> voteCounters.flush());
+        assertEquals(0, voteCounters.pending(VoteTarget.POST, 4L));
+
+        assertEquals(0, voteCounters.flush());
+        assertEquals(1, written.get());
+    }
+}
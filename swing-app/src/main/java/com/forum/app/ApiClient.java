@@ -184,6 +184,44 @@ public class ApiClient {
         }.execute();
     }
     
+    /**
+     * Get the whole forum hierarchy in a single request.
+     * 
+     * @param callback Callback to handle the result (root forums with nested subforums)
+     */
+    public static void getForumTree(Function<ApiResponse<List<ForumDto>>, Void> callback) {
+        new SwingWorker<ApiResponse<List<ForumDto>>, Void>() {
+            @Override
+            protected ApiResponse<List<ForumDto>> doInBackground() throws Exception {
+                ApiResponse<JSONArray> response = getJsonArray(FORUMS_BASE + "/tree", false);
+                
+                if (!response.isSuccess()) {
+                    return ApiResponse.error(response.getErrorMessage());
+                }
+                
+                List<ForumDto> forums = new ArrayList<>();
+                JSONArray jsonArray = response.getData();
+                
+                for (int i = 0; i < jsonArray.length(); i++) {
+                    JSONObject jsonForum = jsonArray.getJSONObject(i);
+                    forums.add(jsonToForumDto(jsonForum));
+                }
+                
+                return ApiResponse.success(forums);
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    ApiResponse<List<ForumDto>> response = get();
+                    callback.apply(response);
+                } catch (Exception e) {
+                    callback.apply(ApiResponse.error("Failed to get forum tree: " + e.getMessage()));
+                }
+            }
+        }.execute();
+    }
+    
     /**
      * Get subforums for a specified parent forum.
      * 
@@ -164,8 +164,8 @@ public class ForumTreePanel extends JPanel {
         DefaultMutableTreeNode rootNode = (DefaultMutableTreeNode) treeModel.getRoot();
         rootNode.removeAllChildren();
         
-        // Get root forums from API
-        ApiClient.getRootForums(response -> {
+        // Get the whole forum hierarchy from API in a single request
+        ApiClient.getForumTree(response -> {
             if (response.isSuccess()) {
                 // Add forums to tree
                 addForumsToTree(rootNode, response.getData());